@@ -3,7 +3,9 @@
  */
 package handemapper.common.recognition;
 
+import handemapper.common.recognition.event.GestureEventRing;
 import handemapper.common.recognition.event.GestureListener;
+import handemapper.common.recognition.frame.FrameContext;
 
 import java.io.Serializable;
 
@@ -96,6 +98,25 @@ public interface Gesture extends Serializable {
 	public void detect(final Mat matrix);
 	
 	
+	/**
+	 * Detects this gesture within the specified captured frame. The frame's
+	 * sequence number and capture time are carried by every
+	 * {@link handemapper.common.recognition.event.GestureEvent} fired while
+	 * detecting, so listeners can measure the latency from the camera to their
+	 * action. The same rules as for {@link #detect(Mat)} apply to the frame's
+	 * image, and the frame must not be referenced after this method returns.
+	 * <p>The frame context is shared by all gestures detecting in the frame,
+	 * so derived images such as the grayscale conversion are only computed
+	 * once per frame.
+	 * 
+	 * @param frame	The {@link FrameContext} of the captured frame to detect
+	 * 				the gesture in.
+	 * 
+	 * @see #detect(Mat)
+	 */
+	public void detect(final FrameContext frame);
+	
+	
 	/**
 	 * Returns {@code true} if this instance of the gesture is currently
 	 * enabled; otherwise, returns {@code false}.
@@ -114,6 +135,56 @@ public interface Gesture extends Serializable {
 	public void setEnabled(boolean enabled);
 	
 	
+	/**
+	 * Returns the index of the video capture device whose frames this instance
+	 * of the gesture is detecting, or {@code -1} if it is not bound to a
+	 * device. The index is carried by every {@link
+	 * handemapper.common.recognition.event.GestureEvent} fired by the gesture.
+	 * 
+	 * @return	the device index of this gesture.
+	 */
+	public int getDeviceIndex();
+	
+	
+	/**
+	 * Binds this instance of the gesture to the video capture device with the
+	 * specified index. This is set by the
+	 * {@link handemapper.common.recognition.GestureRecognizer} when the gesture
+	 * is assigned to a device's capture pipeline.
+	 * 
+	 * @param deviceIndex	The index of the video capture device.
+	 */
+	public void setDeviceIndex(int deviceIndex);
+	
+	
+	/**
+	 * Returns a new instance of this gesture with the same name, description
+	 * and configuration, but none of its detection state. The duplicate
+	 * shares the registered listeners and the enabled state of this gesture,
+	 * so listeners added to or removed from, and enabling or disabling, any
+	 * instance applies to all of them. This is used to give every capture
+	 * pipeline of a {@link handemapper.common.recognition.GestureRecognizer}
+	 * its own gesture instances, so that no detection state is shared
+	 * between devices.
+	 * 
+	 * @return	a duplicate of this gesture.
+	 */
+	public Gesture duplicate();
+	
+	
+	/**
+	 * Sets the {@link GestureEventRing} this instance of the gesture publishes
+	 * every detection to, in addition to notifying its registered listeners.
+	 * Publishing to the ring does not allocate; the ring is copied to any
+	 * {@link #duplicate() duplicate}.
+	 * 
+	 * @param ring	The ring to publish to, or {@code null} for none.
+	 * 
+	 * @see handemapper.common.recognition.GestureRecognizer#getEventRing()
+	 */
+	public void setEventRing(GestureEventRing ring);
+	
+	
 	/**
 	 * Registers the specified {@link GestureListener} to this instance of the
 	 * gesture for notification when the gesture has been detected from the
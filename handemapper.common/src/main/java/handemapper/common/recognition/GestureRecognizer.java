@@ -3,7 +3,11 @@
  */
 package handemapper.common.recognition;
 
+import handemapper.common.recognition.device.CaptureFormat;
 import handemapper.common.recognition.device.DeviceInfo;
+import handemapper.common.recognition.event.GestureEventRing;
+import handemapper.common.recognition.frame.FrameHandle;
+import handemapper.common.recognition.frame.FrameListener;
 
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeListener;
@@ -56,6 +60,21 @@ public interface GestureRecognizer {
 		 */
 		TERMINATED,
 		
+		/**
+		 * A video capture device stopped delivering frames. No frames are
+		 * captured nor detected in until the device is re-connected; the
+		 * state changes to RECONNECTING right away.
+		 */
+		DISCONNECTED,
+		
+		/**
+		 * The {@link GestureRecognizer} is attempting to re-connect to a video
+		 * capture device that stopped delivering frames. The state changes to
+		 * STARTED once the device delivers frames again, or to TERMINATED once
+		 * the re-connect attempts are exhausted.
+		 */
+		RECONNECTING,
+		
 		/**
 		 * The {@link GestureRecognizer} is currently paused and not requesting
 		 * any frames from the camera. This state should allow for the 
@@ -116,6 +135,37 @@ public interface GestureRecognizer {
 	}
 	
 	
+	/**
+	 * Provides an enumeration of the frame scheduling policies that pace how
+	 * often captured frames are processed for gesture detection.
+	 * @author Chris Hartley
+	 */
+	public enum SchedulingPolicy {
+		
+		/**
+		 * Frames are processed on a fixed-rate grid at the target frame rate.
+		 * When a frame overruns its budget, the following frames are processed
+		 * back-to-back until the schedule has caught up again.
+		 */
+		FIXED_RATE,
+		
+		/**
+		 * Frames are processed at the target frame rate; when a frame overruns
+		 * its budget, the missed frame slots are dropped rather than caught up,
+		 * and the schedule is realigned to the next slot.
+		 */
+		DROP_LATE,
+		
+		/**
+		 * Behaves like {@link #DROP_LATE}, but lowers the target frame rate
+		 * when the 95th percentile processing time exceeds the frame budget
+		 * and raises it again, up to the requested rate, when there is
+		 * headroom.
+		 */
+		ADAPTIVE
+	}
+	
+	
 	/**
 	 * Starts the video capturing from a connected camera to be processed for
 	 * any recognized gestures.
@@ -133,6 +183,51 @@ public interface GestureRecognizer {
 	public void stop();
 	
 	
+	/**
+	 * Sets the capture format to request from the video capture devices. The
+	 * format is negotiated the next time a device is opened, including when a
+	 * device in use is re-connected; it is not applied to a device delivering
+	 * frames until then. The format the driver granted is available through
+	 * {@link DeviceInfo#getCaptureFormat()}.
+	 * 
+	 * @param format  the requested {@link CaptureFormat}, or {@code null} to
+	 *                leave all values to the driver.
+	 */
+	public void setCaptureFormat(CaptureFormat format);
+	
+	
+	/**
+	 * Sets the minimum size, in pixels, a hand must span within a frame for
+	 * the detection to work reliably. Unless a frame size is requested with
+	 * {@link #setCaptureFormat(CaptureFormat)}, the smallest frame size that
+	 * meets this minimum is negotiated the next time a device is opened or
+	 * re-connected, since smaller frames are detected faster.
+	 * 
+	 * @param pixels  the minimum hand size in pixels, or {@code 0} to keep the
+	 *                driver's default frame size.
+	 */
+	public void setMinimumHandSize(int pixels);
+	
+	
+	/**
+	 * The number of re-connect attempts that stands for unlimited retries, as
+	 * used by applications running unattended.
+	 */
+	public static final int UNLIMITED_RECONNECT_ATTEMPTS = -1;
+	
+	
+	/**
+	 * Sets the maximum number of attempts to re-connect to a video capture
+	 * device that stopped delivering frames, before the recognizer gives up
+	 * on the device. Takes effect immediately, including for a re-connect in
+	 * progress.
+	 * 
+	 * @param attempts  the maximum number of attempts, or
+	 *                  {@link #UNLIMITED_RECONNECT_ATTEMPTS}.
+	 */
+	public void setMaxReconnectAttempts(int attempts);
+	
+	
 	/**
 	 * Registers the specified {@link Gesture} to this implementation of the 
 	 * gesture recognizer for processing.
@@ -172,9 +267,120 @@ public interface GestureRecognizer {
 	
 	
 	/**
-	 * Returns the current video capture device information object.
+	 * Adds the specified property change listener for the specified property
+	 * only. Preview images are only produced while at least one listener for
+	 * the {@link Property#CAPTURE} property is registered, whether through
+	 * this method or through {@link #addPropertyChangeListener(PropertyChangeListener)},
+	 * so a listener interested in the status only should be added here.
+	 * @param property  the {@link Property} to listen to.
+	 * @param pcl  the {@link PropertyChangeListener} to be added.
+	 */
+	public void addPropertyChangeListener(Property property,
+			PropertyChangeListener pcl);
+	
+	
+	/**
+	 * Removes the specified property change listener for the specified
+	 * property. This does nothing if the property change listener has not
+	 * been added for that property.
+	 * @param property  the {@link Property} the listener was added for.
+	 * @param pcl  the {@link PropertyChangeListener} to be removed.
+	 */
+	public void removePropertyChangeListener(Property property,
+			PropertyChangeListener pcl);
+	
+	
+	/**
+	 * Adds the specified frame listener, which is handed a reusable
+	 * {@link FrameHandle} for every published preview frame instead of a
+	 * {@link Property#CAPTURE} property change event. Preview images are also
+	 * produced while at least one frame listener is registered.
+	 * @param listener  the {@link FrameListener} to be added.
+	 */
+	public void addFrameListener(FrameListener listener);
+	
+	
+	/**
+	 * Removes the specified frame listener. This does nothing if the frame
+	 * listener has not been added. Any frame handle still leased by the
+	 * listener must be released by the listener itself.
+	 * @param listener  the {@link FrameListener} to be removed.
+	 */
+	public void removeFrameListener(FrameListener listener);
+	
+	
+	/**
+	 * Sets the maximum number of preview images per second published through
+	 * the {@link Property#CAPTURE} property, independent of the rate at which
+	 * frames are processed for gesture detection.
+	 * @param fps  the preview frames-per-second; must be greater than zero.
+	 */
+	public void setPreviewFrameRate(double fps);
+	
+	
+	/**
+	 * Sets the size of the preview images published through the
+	 * {@link Property#CAPTURE} property, typically the size of the component
+	 * painting them, so the frames are scaled once before publishing.
+	 * @param width  the preview width in pixels, or {@code 0} for the width
+	 *               of the captured frames.
+	 * @param height  the preview height in pixels, or {@code 0} for the
+	 *                height of the captured frames.
+	 */
+	public void setPreviewSize(int width, int height);
+	
+	
+	/**
+	 * Sets the policy used to pace the processing of the captured frames. The
+	 * new policy takes effect on the next processed frame.
+	 * @param policy  the {@link SchedulingPolicy} to use.
+	 */
+	public void setSchedulingPolicy(SchedulingPolicy policy);
+	
+	
+	/**
+	 * Sets the requested number of frames per second to process. When the
+	 * {@link SchedulingPolicy#ADAPTIVE} policy is active, this is the upper
+	 * bound of the adapted rate.
+	 * @param fps  the target frames-per-second; must be greater than zero.
+	 */
+	public void setTargetFrameRate(double fps);
+	
+	
+	/**
+	 * Selects the video capture devices to recognize gestures from. An
+	 * independent capture and detection pipeline, with its own instances of
+	 * the registered gestures, is run for each selected device. The selection
+	 * takes effect on the next {@link #start()}.
+	 * @param indices  the indices of the video capture devices to use.
+	 */
+	public void selectDevices(int... indices);
+	
+	
+	/**
+	 * Returns the current video capture device information object. When
+	 * several devices are selected, this is the first selected device.
 	 * @return  the {@link DeviceInfo} for the connected device.
 	 */
 	public DeviceInfo getDeviceInfo();
+	
+	
+	/**
+	 * Returns the device information objects of all selected video capture
+	 * devices, in the order they were selected.
+	 * @return  a {@link List} of the {@link DeviceInfo} for each device.
+	 */
+	public List<DeviceInfo> getDeviceInfos();
+	
+	
+	/**
+	 * Returns the {@link GestureEventRing} every registered gesture publishes
+	 * its detections to, on all devices. High-rate consumers should read the
+	 * ring through a {@link handemapper.common.recognition.event.GestureEventConsumer}
+	 * rather than registering a gesture listener, which allocates an event
+	 * per detection.
+	 * @return  the gesture event ring of this recognizer.
+	 */
+	public GestureEventRing getEventRing();
 
 }
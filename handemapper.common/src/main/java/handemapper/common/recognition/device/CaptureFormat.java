@@ -0,0 +1,159 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.device;
+
+import java.io.Serializable;
+
+
+/**
+ * Provides an immutable description of a video capture format: the frame
+ * size, the frame rate and the pixel format as a four character code, e.g.
+ * {@code "MJPG"} or {@code "YUYV"}. A requested format uses {@code 0} or
+ * {@code null} for the values left to the driver; a granted format holds the
+ * values read back from the driver after negotiation.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see DeviceInfo#getCaptureFormat()
+ */
+public final class CaptureFormat implements Serializable {
+	
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2231684096125861254L;
+	
+	
+	/**
+	 * The format leaving all values to the driver.
+	 */
+	public static final CaptureFormat ANY = new CaptureFormat(0, 0, 0d, null);
+	
+	
+	// Private member fields.
+	private final int width;
+	private final int height;
+	private final double fps;
+	private final String pixelFormat;
+	
+	
+	/**
+	 * Constructor for a new instance of a capture format with the specified
+	 * frame size and any frame rate and pixel format.
+	 * 
+	 * @param width		The frame width in pixels, or {@code 0} for any.
+	 * @param height	The frame height in pixels, or {@code 0} for any.
+	 */
+	public CaptureFormat(int width, int height) {
+		this(width, height, 0d, null);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a capture format.
+	 * 
+	 * @param width			The frame width in pixels, or {@code 0} for any.
+	 * @param height		The frame height in pixels, or {@code 0} for any.
+	 * @param fps			The frames-per-second, or {@code 0} for any.
+	 * @param pixelFormat	The four character code of the pixel format, or
+	 * 						{@code null} for any.
+	 */
+	public CaptureFormat(int width, int height, double fps, String pixelFormat) {
+		if (width < 0 || height < 0 || fps < 0d)
+			throw new IllegalArgumentException("Invalid format: " + width + "x"
+					+ height + "@" + fps);
+		
+		if (pixelFormat != null && pixelFormat.length() != 4)
+			throw new IllegalArgumentException(
+					"Pixel format must be a four character code: " + pixelFormat);
+		
+		this.width = width;
+		this.height = height;
+		this.fps = fps;
+		this.pixelFormat = pixelFormat;
+	}
+	
+	
+	/**
+	 * Returns the frame width.
+	 * 
+	 * @return	the width in pixels, or {@code 0} for any.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	
+	/**
+	 * Returns the frame height.
+	 * 
+	 * @return	the height in pixels, or {@code 0} for any.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	
+	/**
+	 * Returns the frame rate.
+	 * 
+	 * @return	the frames-per-second, or {@code 0} for any.
+	 */
+	public double getFPS() {
+		return fps;
+	}
+	
+	
+	/**
+	 * Returns the four character code of the pixel format.
+	 * 
+	 * @return	the pixel format, or {@code null} for any.
+	 */
+	public String getPixelFormat() {
+		return pixelFormat;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if this format specifies a frame size.
+	 * 
+	 * @return	whether both the width and height are specified.
+	 */
+	public boolean hasSize() {
+		return width > 0 && height > 0;
+	}
+	
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CaptureFormat))
+			return false;
+		
+		final CaptureFormat other = (CaptureFormat)obj;
+		return width == other.width && height == other.height
+				&& Double.compare(fps, other.fps) == 0
+				&& (pixelFormat == null ? other.pixelFormat == null
+						: pixelFormat.equals(other.pixelFormat));
+	}
+	
+	
+	@Override
+	public int hashCode() {
+		int hash = 31 * width + height;
+		hash = 31 * hash + (int)Double.doubleToLongBits(fps);
+		return 31 * hash + (pixelFormat != null ? pixelFormat.hashCode() : 0);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return (width > 0 ? Integer.toString(width) : "*") + "x"
+				+ (height > 0 ? Integer.toString(height) : "*") + "@"
+				+ (fps > 0d ? String.format("%.01f", fps) : "*") + " "
+				+ (pixelFormat != null ? pixelFormat : "*");
+	}
+
+}
@@ -3,6 +3,8 @@
  */
 package handemapper.common.recognition.device;
 
+import handemapper.common.recognition.GestureRecognizer.SchedulingPolicy;
+
 import java.io.Serializable;
 
 /**
@@ -10,6 +12,8 @@ import java.io.Serializable;
  * populated using the {@link org.opencv.highgui.VideoCapture} properties:<ul>
  * <li>CV_CAP_PROP_FRAME_WIDTH Width of the frames in the video stream.
  * <li>CV_CAP_PROP_FRAME_HEIGHT Height of the frames in the video stream.
+ * <li>CV_CAP_PROP_FPS Frame rate of the video stream.
+ * <li>CV_CAP_PROP_FOURCC 4-character code of the pixel format.
  * </ul>
  *
  * @author Chris
@@ -27,6 +31,51 @@ public interface DeviceInfo extends Serializable {
 	
 	public double getFPS();
 	
+	/**
+	 * Returns the number of captured frames that were replaced by a newer
+	 * frame before the detection could process them.
+	 * @return  the number of dropped frames.
+	 */
+	public long getDroppedFrames();
+	
+	/**
+	 * Returns the frame scheduling policy currently pacing the detection.
+	 * @return  the active {@link SchedulingPolicy}.
+	 */
+	public SchedulingPolicy getSchedulingPolicy();
+	
+	/**
+	 * Returns the frame rate the scheduler is currently targeting. For the
+	 * adaptive policy this may be lower than the requested rate.
+	 * @return  the current target frames-per-second.
+	 */
+	public double getTargetFPS();
+	
+	/**
+	 * Returns the number of frame slots that were skipped because processing
+	 * overran the frame budget.
+	 * @return  the number of late frames.
+	 */
+	public long getLateFrames();
+	
+	/**
+	 * Returns the capture format requested from the device.
+	 * @return  the requested {@link CaptureFormat}.
+	 */
+	public CaptureFormat getRequestedFormat();
+	
+	/**
+	 * Returns the capture format the driver actually granted, as read back
+	 * after negotiating the requested format.
+	 * @return  the granted {@link CaptureFormat}.
+	 */
+	public CaptureFormat getCaptureFormat();
+	
+	/**
+	 * Returns the monotonic capture time of the most recently processed frame.
+	 * @return  the capture time, as returned by {@link System#nanoTime()}, or
+	 *          {@code 0} if no frame has been processed yet.
+	 */
 	public long getTimestamp();
 	
 	public boolean isOpened();
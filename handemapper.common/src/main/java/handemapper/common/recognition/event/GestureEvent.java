@@ -38,12 +38,20 @@ public class GestureEvent extends ChangeEvent {
 	private final long when;
 	private final int x;
 	private final int y;
+	private final int deviceIndex;
+	private final long sequence;
+	private final long captureNanos;
+	private final long detectedNanos;
+	private volatile long dispatchNanos = 0l;
 	
 	
 	/**
 	 * Constructor for a new instance of a gesture event with the specified
 	 * parameters of the source object, the event id type, when the event 
-	 * occurred, and the center of gravity for the detected gesture region. 
+	 * occurred, the center of gravity for the detected gesture region, the
+	 * index of the video capture device, and the sequence number and capture
+	 * time of the frame the gesture was detected in. The detection-complete
+	 * time is the time of construction.
 	 * 
 	 * @param source	The source {@link Object} from which this gesture event
 	 * 					was created.
@@ -55,14 +63,107 @@ public class GestureEvent extends ChangeEvent {
 	 * 					location on screen.
 	 * @param y			The center of gravity's Y-coordinate for this events
 	 * 					location on screen.
+	 * @param deviceIndex	The index of the video capture device, or {@code -1}
+	 * 						if unknown.
+	 * @param sequence		The sequence number of the frame, or {@code -1} if
+	 * 						unknown.
+	 * @param captureNanos	The {@link System#nanoTime()} at which the frame
+	 * 						was captured.
 	 */
-	public GestureEvent(Object source, int id, long when, int x, int y) {
+	public GestureEvent(Object source, int id, long when, int x, int y,
+			int deviceIndex, long sequence, long captureNanos)
+	{
+		this(source, id, when, x, y, deviceIndex, sequence, captureNanos,
+				System.nanoTime());
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a gesture event with the specified
+	 * parameters, including the detection-complete time, e.g. for an event
+	 * recreated from a journal.
+	 * 
+	 * @param source	The source {@link Object} from which this gesture event
+	 * 					was created.
+	 * @param id		The identification of which type of gesture event this
+	 * 					instance represents. Either {@link #OPENED_HAND_DETECTED}
+	 * 					or {@link #CLOSED_HAND_DETECTED}.
+	 * @param when		The time, in milliseconds, of when this event occurred.
+	 * @param x			The center of gravity's X-coordinate for this events
+	 * 					location on screen.
+	 * @param y			The center of gravity's Y-coordinate for this events
+	 * 					location on screen.
+	 * @param deviceIndex	The index of the video capture device, or {@code -1}
+	 * 						if unknown.
+	 * @param sequence		The sequence number of the frame, or {@code -1} if
+	 * 						unknown.
+	 * @param captureNanos	The {@link System#nanoTime()} at which the frame
+	 * 						was captured.
+	 * @param detectedNanos	The {@link System#nanoTime()} at which the
+	 * 						detection completed.
+	 */
+	public GestureEvent(Object source, int id, long when, int x, int y,
+			int deviceIndex, long sequence, long captureNanos,
+			long detectedNanos)
+	{
 		super(source);
 
 		this.id = id;
 		this.when = when;
 		this.x = x;
 		this.y = y;
+		this.deviceIndex = deviceIndex;
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+		this.detectedNanos = detectedNanos;
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a gesture event with the specified
+	 * parameters of the source object, the event id type, when the event 
+	 * occurred, the center of gravity for the detected gesture region, and the
+	 * index of the video capture device the gesture was detected on. The
+	 * capture time is unknown and taken to be the time of construction.
+	 * 
+	 * @param source	The source {@link Object} from which this gesture event
+	 * 					was created.
+	 * @param id		The identification of which type of gesture event this
+	 * 					instance represents. Either {@link #OPENED_HAND_DETECTED}
+	 * 					or {@link #CLOSED_HAND_DETECTED}.
+	 * @param when		The time, in milliseconds, of when this event occurred.
+	 * @param x			The center of gravity's X-coordinate for this events
+	 * 					location on screen.
+	 * @param y			The center of gravity's Y-coordinate for this events
+	 * 					location on screen.
+	 * @param deviceIndex	The index of the video capture device, or {@code -1}
+	 * 						if unknown.
+	 */
+	public GestureEvent(Object source, int id, long when, int x, int y,
+			int deviceIndex)
+	{
+		this(source, id, when, x, y, deviceIndex, -1l, System.nanoTime());
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a gesture event with the specified
+	 * parameters of the source object, the event id type, when the event 
+	 * occurred, and the center of gravity for the detected gesture region. 
+	 * 
+	 * @param source	The source {@link Object} from which this gesture event
+	 * 					was created.
+	 * @param id		The identification of which type of gesture event this
+	 * 					instance represents. Either {@link #OPENED_HAND_DETECTED}
+	 * 					or {@link #CLOSED_HAND_DETECTED}.
+	 * @param when		The time, in milliseconds, of when this event occurred.
+	 * @param x			The center of gravity's X-coordinate for this events
+	 * 					location on screen.
+	 * @param y			The center of gravity's Y-coordinate for this events
+	 * 					location on screen.
+	 */
+	public GestureEvent(Object source, int id, long when, int x, int y) {
+		this(source, id, when, x, y, -1);
 	}
 	
 	
@@ -161,6 +262,20 @@ public class GestureEvent extends ChangeEvent {
 	}
 	
 	
+	/**
+	 * Stores the center of gravity location into the specified
+	 * {@link java.awt.Point}, which avoids allocating a point per event.
+	 * 
+	 * @param dst	The point to store the location into.
+	 * @return	the specified point.
+	 */
+	public final java.awt.Point getLocation(java.awt.Point dst) {
+		dst.x = x;
+		dst.y = y;
+		return dst;
+	}
+	
+	
 	/**
 	 * Returns the X-coordinate as an {@code int} of the center of gravity
 	 * location for this instance of the gesture event.
@@ -185,12 +300,95 @@ public class GestureEvent extends ChangeEvent {
 	}
 	
 	
+	/**
+	 * Returns the index of the video capture device the gesture of this event
+	 * was detected on, or {@code -1} if unknown.
+	 * 
+	 * @return	the device index for this gesture event.
+	 */
+	public final int getDeviceIndex() {
+		return deviceIndex;
+	}
+	
+	
+	/**
+	 * Returns the sequence number of the frame this gesture was detected in,
+	 * or {@code -1} if unknown.
+	 * 
+	 * @return	the frame sequence number.
+	 */
+	public final long getSequence() {
+		return sequence;
+	}
+	
+	
+	/**
+	 * Returns the monotonic time at which the frame this gesture was detected
+	 * in was captured.
+	 * 
+	 * @return	the capture time, as returned by {@link System#nanoTime()}.
+	 */
+	public final long getCaptureNanos() {
+		return captureNanos;
+	}
+	
+	
+	/**
+	 * Returns the monotonic time at which the detection of this gesture
+	 * completed and this event was created.
+	 * 
+	 * @return	the detection-complete time, as returned by
+	 * 			{@link System#nanoTime()}.
+	 */
+	public final long getDetectedNanos() {
+		return detectedNanos;
+	}
+	
+	
+	/**
+	 * Returns the monotonic time at which this event was handed to its
+	 * listeners.
+	 * 
+	 * @return	the dispatch time, as returned by {@link System#nanoTime()}, or
+	 * 			{@code 0} if the event has not been dispatched yet.
+	 */
+	public final long getDispatchNanos() {
+		return dispatchNanos;
+	}
+	
+	
+	/**
+	 * Records the time at which this event is handed to its listeners. This is
+	 * called by the dispatching gesture right before the first listener is
+	 * notified; later calls are ignored.
+	 * 
+	 * @param nanos	The dispatch time, as returned by {@link System#nanoTime()}.
+	 */
+	public final void setDispatchNanos(long nanos) {
+		if (dispatchNanos == 0l)
+			dispatchNanos = nanos;
+	}
+	
+	
+	/**
+	 * Returns the time elapsed since the frame this gesture was detected in
+	 * was captured, i.e. the camera-to-now latency when called by a listener.
+	 * 
+	 * @return	the latency in nanoseconds.
+	 */
+	public final long getLatencyNanos() {
+		return System.nanoTime() - captureNanos;
+	}
+	
+	
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "["
 				+ "source=" + getSource() + ","
 				+ "id" + getID() + ","
 				+ "when" + getWhen() + ","
+				+ "device=" + getDeviceIndex() + ","
+				+ "sequence=" + getSequence() + ","
 				+ "location=" + getLocation() + "]";
 	}
 
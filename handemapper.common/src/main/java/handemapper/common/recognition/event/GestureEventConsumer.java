@@ -0,0 +1,133 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Provides a consumer of a {@link GestureEventRing}, handing every event
+ * published from its start on to a {@link GestureEventHandler}, in order.
+ * The consumer tracks its own sequence: it reads all events published since
+ * its last read as one batch, and only then moves its sequence past them,
+ * releasing their slots for reuse. While no event is available it waits
+ * according to its {@link WaitStrategy}.
+ * <p>The consumer is a {@link Runnable} to be run on a thread of its own,
+ * e.g. {@code new Thread(consumer).start()}, until it is {@link #halt()
+ * halted}.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventRing
+ */
+public final class GestureEventConsumer implements Runnable {
+	
+	// Private member fields.
+	private final GestureEventRing ring;
+	private final GestureEventHandler handler;
+	private final WaitStrategy waitStrategy;
+	private final AtomicLong sequence = new AtomicLong(-1l);
+	private final AtomicLong failed = new AtomicLong();
+	
+	// Private member data.
+	private volatile boolean running = true;
+	
+	
+	/**
+	 * Constructor for a new instance of a consumer of the specified ring,
+	 * which reads the events published from now on.
+	 * 
+	 * @param ring			The ring to consume.
+	 * @param handler		The handler of the events.
+	 * @param waitStrategy	The {@link WaitStrategy} while no event is
+	 * 						available.
+	 */
+	public GestureEventConsumer(GestureEventRing ring,
+			GestureEventHandler handler, WaitStrategy waitStrategy)
+	{
+		if (ring == null || handler == null || waitStrategy == null)
+			throw new IllegalArgumentException("Ring, handler and wait strategy "
+					+ "must not be null!");
+		
+		this.ring = ring;
+		this.handler = handler;
+		this.waitStrategy = waitStrategy;
+		ring.addGatingSequence(sequence);
+	}
+	
+	
+	@Override
+	public void run() {
+		long next = sequence.get() + 1;
+		int idle = 0;
+		
+		try {
+			while (running) {
+				final long available = ring.getHighestPublished(next,
+						ring.getCursor());
+				if (available < next) {
+					waitStrategy.idle(idle++);
+					continue;
+				}
+				
+				for (long seq = next; seq <= available; seq++) {
+					try {
+						handler.onEvent(ring.get(seq), seq, seq == available);
+					}
+					catch (RuntimeException ex) {
+						failed.incrementAndGet();
+					}
+				}
+				
+				sequence.lazySet(available);
+				next = available + 1;
+				idle = 0;
+			}
+		}
+		finally {
+			ring.removeGatingSequence(sequence);
+		}
+	}
+	
+	
+	/**
+	 * Stops this consumer after its current batch. Its slots are no longer
+	 * gated once it returned from {@link #run()}.
+	 */
+	public void halt() {
+		running = false;
+	}
+	
+	
+	/**
+	 * Returns the sequence number of the last event handled.
+	 * 
+	 * @return	the sequence of this consumer.
+	 */
+	public long getSequence() {
+		return sequence.get();
+	}
+	
+	
+	/**
+	 * Returns the number of events published but not yet handled by this
+	 * consumer.
+	 * 
+	 * @return	the backlog of this consumer.
+	 */
+	public long getBacklog() {
+		return Math.max(0l, ring.getCursor() - sequence.get());
+	}
+	
+	
+	/**
+	 * Returns the number of events whose handler threw an exception.
+	 * 
+	 * @return	the number of failed events.
+	 */
+	public long getFailedEvents() {
+		return failed.get();
+	}
+
+}
@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+
+/**
+ * Provides the required method for an object consuming the events of a
+ * {@link GestureEventRing} through a {@link GestureEventConsumer}.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventConsumer
+ */
+public interface GestureEventHandler {
+	
+	/**
+	 * Invoked on the consumer thread for every published event, in sequence
+	 * order. The events available at once are handed over as a batch; the
+	 * last event of a batch is flagged, e.g. to flush work accumulated over
+	 * the batch.
+	 * 
+	 * @param slot			The {@link GestureEventSlot} of the event, only
+	 * 						valid during this call.
+	 * @param sequence		The ring sequence number of the event.
+	 * @param endOfBatch	Whether this is the last event currently available.
+	 */
+	public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch);
+
+}
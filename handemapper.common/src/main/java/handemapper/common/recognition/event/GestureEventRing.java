@@ -0,0 +1,303 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import handemapper.common.recognition.Gesture;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Provides a gesture event bus built on a preallocated ring of mutable
+ * {@link GestureEventSlot}s, for producers publishing at a high rate, e.g.
+ * several hands on several cameras. Publishing neither allocates nor locks:
+ * <ol>
+ * <li>a producer claims the next sequence number with {@link #next()} or
+ * {@link #tryNext()}, a single atomic increment,</li>
+ * <li>fills the slot returned by {@link #get(long)}, and</li>
+ * <li>makes it visible to the consumers with {@link #publish(long)}.</li>
+ * </ol>
+ * Each {@link GestureEventConsumer} tracks its own sequence, reads every
+ * published event in order, in batches, and waits according to its own
+ * {@link WaitStrategy}. A slot is only reused once every consumer has moved
+ * past it, so a full ring makes {@link #next()} wait for the slowest
+ * consumer, while {@link #tryNext()} fails instead, e.g. for a detection
+ * thread that must never wait for a consumer.
+ * <p>Example:
+ * <p><code>
+ *<pre>final long seq = ring.tryNext();
+ *if (seq >= 0) {
+ *	ring.get(seq).set(gesture, id, when, x, y, device, frame, captured, now);
+ *	ring.publish(seq);
+ *}</pre>
+ * </code>
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventConsumer
+ */
+public final class GestureEventRing {
+	
+	/**
+	 * The default number of slots of a ring.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	
+	// Private member fields.
+	private final int capacity;
+	private final int mask;
+	private final int shift;
+	private final GestureEventSlot[] slots;
+	private final AtomicIntegerArray published;
+	private final AtomicLong claimed = new AtomicLong(-1l);
+	private final AtomicLong gatingCache = new AtomicLong(-1l);
+	private final AtomicLong dropped = new AtomicLong();
+	
+	// Private member data.
+	private volatile AtomicLong[] gating = new AtomicLong[0];
+	
+	
+	/**
+	 * Constructor for a new instance of a ring with the default capacity.
+	 */
+	public GestureEventRing() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a ring with the specified number of
+	 * slots, which are all allocated up front.
+	 * 
+	 * @param capacity	The number of slots; must be a power of two.
+	 */
+	public GestureEventRing(int capacity) {
+		if (capacity < 1 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Capacity must be a power of two: "
+					+ capacity);
+		
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.shift = Integer.numberOfTrailingZeros(capacity);
+		this.slots = new GestureEventSlot[capacity];
+		this.published = new AtomicIntegerArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new GestureEventSlot();
+			published.set(i, -1);
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of slots of this ring.
+	 * 
+	 * @return	the capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	
+	/**
+	 * Claims the next sequence number, waiting for the slowest consumer while
+	 * the ring is full.
+	 * 
+	 * @return	the claimed sequence number.
+	 */
+	public long next() {
+		final long sequence = claimed.incrementAndGet();
+		final long wrapPoint = sequence - capacity;
+		if (wrapPoint > gatingCache.get()) {
+			long min;
+			int counter = 0;
+			while (wrapPoint > (min = getMinimumGatingSequence(sequence - 1)))
+				WaitStrategy.YIELD.idle(counter++);
+			gatingCache.set(min);
+		}
+		return sequence;
+	}
+	
+	
+	/**
+	 * Claims the next sequence number unless the ring is full.
+	 * 
+	 * @return	the claimed sequence number, or {@code -1} if the ring is full,
+	 * 			in which case the event is counted as dropped.
+	 */
+	public long tryNext() {
+		long current;
+		do {
+			current = claimed.get();
+			final long wrapPoint = current + 1 - capacity;
+			if (wrapPoint > gatingCache.get()) {
+				final long min = getMinimumGatingSequence(current);
+				gatingCache.set(min);
+				if (wrapPoint > min) {
+					dropped.incrementAndGet();
+					return -1l;
+				}
+			}
+		}
+		while (!claimed.compareAndSet(current, current + 1));
+		return current + 1;
+	}
+	
+	
+	/**
+	 * Returns the slot of the specified sequence number.
+	 * 
+	 * @param sequence	A claimed or published sequence number.
+	 * @return	the {@link GestureEventSlot} of the sequence number.
+	 */
+	public GestureEventSlot get(long sequence) {
+		return slots[(int)sequence & mask];
+	}
+	
+	
+	/**
+	 * Publishes the slot of the specified claimed sequence number to the
+	 * consumers.
+	 * 
+	 * @param sequence	The claimed sequence number.
+	 */
+	public void publish(long sequence) {
+		published.lazySet((int)sequence & mask, (int)(sequence >>> shift));
+	}
+	
+	
+	/**
+	 * Claims, fills and publishes a slot with the specified values, unless the
+	 * ring is full.
+	 * 
+	 * @return	{@code true} if the event was published; otherwise, returns
+	 * 			{@code false} if the ring is full.
+	 * 
+	 * @see GestureEventSlot#set(Gesture, int, long, int, int, int, long, long, long)
+	 */
+	public boolean tryPublish(Gesture gesture, int id, long when, int x, int y,
+			int deviceIndex, long sequence, long captureNanos, long detectedNanos)
+	{
+		final long seq = tryNext();
+		if (seq < 0l)
+			return false;
+		
+		get(seq).set(gesture, id, when, x, y, deviceIndex, sequence,
+				captureNanos, detectedNanos);
+		publish(seq);
+		return true;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the slot of the specified sequence number is
+	 * published; otherwise, returns {@code false}.
+	 * 
+	 * @param sequence	The sequence number.
+	 * @return	whether the sequence number is published.
+	 */
+	public boolean isPublished(long sequence) {
+		return published.get((int)sequence & mask) == (int)(sequence >>> shift);
+	}
+	
+	
+	/**
+	 * Returns the highest sequence number claimed so far, which is not
+	 * necessarily published yet.
+	 * 
+	 * @return	the highest claimed sequence number, or {@code -1} if none.
+	 */
+	public long getCursor() {
+		return claimed.get();
+	}
+	
+	
+	/**
+	 * Returns the highest sequence number within the specified range up to
+	 * which all sequence numbers are published.
+	 * 
+	 * @param lowerBound	The first sequence number to check.
+	 * @param upperBound	The last claimed sequence number.
+	 * @return	the highest contiguously published sequence number, or
+	 * 			{@code lowerBound - 1} if the first one is not yet published.
+	 */
+	public long getHighestPublished(long lowerBound, long upperBound) {
+		for (long sequence = lowerBound; sequence <= upperBound; sequence++) {
+			if (!isPublished(sequence))
+				return sequence - 1;
+		}
+		return upperBound;
+	}
+	
+	
+	/**
+	 * Returns the number of events not published by {@link #tryNext()} and
+	 * {@link #tryPublish} because the ring was full.
+	 * 
+	 * @return	the number of dropped events.
+	 */
+	public long getDroppedEvents() {
+		return dropped.get();
+	}
+	
+	
+	/**
+	 * Adds the specified consumer sequence to the sequences gating the reuse
+	 * of the slots, starting it at the current cursor so the consumer reads
+	 * the events published from now on.
+	 * 
+	 * @param sequence	The sequence of the consumer.
+	 */
+	synchronized void addGatingSequence(AtomicLong sequence) {
+		sequence.set(claimed.get());
+		final AtomicLong[] current = gating;
+		final AtomicLong[] added = Arrays.copyOf(current, current.length + 1);
+		added[current.length] = sequence;
+		gating = added;
+	}
+	
+	
+	/**
+	 * Removes the specified consumer sequence from the sequences gating the
+	 * reuse of the slots.
+	 * 
+	 * @param sequence	The sequence of the consumer.
+	 */
+	synchronized void removeGatingSequence(AtomicLong sequence) {
+		final AtomicLong[] current = gating;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == sequence) {
+				final AtomicLong[] removed = new AtomicLong[current.length - 1];
+				System.arraycopy(current, 0, removed, 0, i);
+				System.arraycopy(current, i + 1, removed, i, removed.length - i);
+				gating = removed;
+				return;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns the lowest sequence of all consumers, or the specified default
+	 * if there is no consumer.
+	 */
+	private final long getMinimumGatingSequence(long defaultValue) {
+		long min = defaultValue;
+		for (AtomicLong sequence : gating)
+			min = Math.min(min, sequence.get());
+		return min;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[capacity=" + capacity
+				+ ", cursor=" + claimed.get()
+				+ ", consumers=" + gating.length
+				+ ", dropped=" + dropped.get() + "]";
+	}
+
+}
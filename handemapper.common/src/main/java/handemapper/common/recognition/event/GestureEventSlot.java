@@ -0,0 +1,197 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import handemapper.common.recognition.Gesture;
+
+
+/**
+ * Provides a mutable, reusable entry of a {@link GestureEventRing}, holding
+ * the same values as a {@link GestureEvent} without allocating one. A slot is
+ * only valid within the {@link GestureEventHandler#onEvent} call it is handed
+ * to; it is overwritten once every consumer has moved past it, so a consumer
+ * must copy the values it keeps.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventRing
+ */
+public final class GestureEventSlot {
+	
+	// Private member data.
+	private Gesture gesture = null;
+	private int id = -1;
+	private long when = 0l;
+	private int x = 0;
+	private int y = 0;
+	private int deviceIndex = -1;
+	private long sequence = -1l;
+	private long captureNanos = 0l;
+	private long detectedNanos = 0l;
+	
+	
+	/**
+	 * Sets all values of this slot; called by the producer between claiming
+	 * and publishing the slot.
+	 * 
+	 * @param gesture		The gesture that was detected.
+	 * @param id			The gesture event id, e.g.
+	 * 						{@link GestureEvent#OPENED_HAND_DETECTED}.
+	 * @param when			The time, in milliseconds, of the detection.
+	 * @param x				The X-coordinate of the center of gravity.
+	 * @param y				The Y-coordinate of the center of gravity.
+	 * @param deviceIndex	The index of the video capture device, or
+	 * 						{@code -1} if unknown.
+	 * @param sequence		The sequence number of the frame, or {@code -1} if
+	 * 						unknown.
+	 * @param captureNanos	The {@link System#nanoTime()} at which the frame
+	 * 						was captured.
+	 * @param detectedNanos	The {@link System#nanoTime()} at which the
+	 * 						detection completed.
+	 */
+	public void set(Gesture gesture, int id, long when, int x, int y,
+			int deviceIndex, long sequence, long captureNanos, long detectedNanos)
+	{
+		this.gesture = gesture;
+		this.id = id;
+		this.when = when;
+		this.x = x;
+		this.y = y;
+		this.deviceIndex = deviceIndex;
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+		this.detectedNanos = detectedNanos;
+	}
+	
+	
+	/**
+	 * Returns the gesture that was detected.
+	 * 
+	 * @return	the detected {@link Gesture}.
+	 */
+	public Gesture getGesture() {
+		return gesture;
+	}
+	
+	
+	/**
+	 * Returns the gesture event id, e.g.
+	 * {@link GestureEvent#OPENED_HAND_DETECTED}.
+	 * 
+	 * @return	the gesture event id.
+	 */
+	public int getID() {
+		return id;
+	}
+	
+	
+	/**
+	 * Returns the time, in milliseconds, of the detection.
+	 * 
+	 * @return	the detection time.
+	 */
+	public long getWhen() {
+		return when;
+	}
+	
+	
+	/**
+	 * Returns the X-coordinate of the center of gravity.
+	 * 
+	 * @return	the X-coordinate of the detected region.
+	 */
+	public int getX() {
+		return x;
+	}
+	
+	
+	/**
+	 * Returns the Y-coordinate of the center of gravity.
+	 * 
+	 * @return	the Y-coordinate of the detected region.
+	 */
+	public int getY() {
+		return y;
+	}
+	
+	
+	/**
+	 * Stores the center of gravity into the specified point, which avoids
+	 * allocating a point per event.
+	 * 
+	 * @param dst	The {@link java.awt.Point} to store the location into.
+	 * @return	the specified point.
+	 */
+	public java.awt.Point getLocation(java.awt.Point dst) {
+		dst.x = x;
+		dst.y = y;
+		return dst;
+	}
+	
+	
+	/**
+	 * Returns the index of the video capture device, or {@code -1} if
+	 * unknown.
+	 * 
+	 * @return	the device index.
+	 */
+	public int getDeviceIndex() {
+		return deviceIndex;
+	}
+	
+	
+	/**
+	 * Returns the sequence number of the frame, or {@code -1} if unknown.
+	 * 
+	 * @return	the frame sequence number.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+	
+	
+	/**
+	 * Returns the monotonic time at which the frame was captured.
+	 * 
+	 * @return	the capture time, as returned by {@link System#nanoTime()}.
+	 */
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+	
+	
+	/**
+	 * Returns the monotonic time at which the detection completed.
+	 * 
+	 * @return	the detection-complete time, as returned by
+	 * 			{@link System#nanoTime()}.
+	 */
+	public long getDetectedNanos() {
+		return detectedNanos;
+	}
+	
+	
+	/**
+	 * Returns a new {@link GestureEvent} with the values of this slot, e.g. to
+	 * keep the event beyond the handler call.
+	 * 
+	 * @return	a new gesture event.
+	 */
+	public GestureEvent toEvent() {
+		return new GestureEvent(gesture, id, when, x, y, deviceIndex, sequence,
+				captureNanos, detectedNanos);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "["
+				+ "gesture=" + gesture + ","
+				+ "id=" + id + ","
+				+ "device=" + deviceIndex + ","
+				+ "sequence=" + sequence + ","
+				+ "location=" + x + "," + y + "]";
+	}
+
+}
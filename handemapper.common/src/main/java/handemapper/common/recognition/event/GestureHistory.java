@@ -0,0 +1,483 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Provides a fixed-capacity, time-ordered history of the most recent events
+ * of a gesture, for temporal gesture logic such as "what happened in the
+ * last 300 ms". The events are kept as primitives in a preallocated ring, so
+ * adding an event neither allocates nor locks, and the ring is never
+ * re-sorted:
+ * <ul>
+ * <li>range queries by timestamp, e.g. {@link #count(long, long)} and
+ * {@link #forEach(long, long, Visitor)}, binary search the ring in
+ * O(log n);</li>
+ * <li>the rolling aggregates over the most recent {@link #getWindowMillis()
+ * window}, i.e. the {@link #getVelocityX() velocity}, {@link #getMeanX()
+ * mean position} and {@link #getDwellMillis() dwell time}, are updated
+ * incrementally on every added event in O(1).</li>
+ * </ul>
+ * The history has a single writer, e.g. the delivery thread of a gesture
+ * listener, while any number of threads may query it concurrently. Readers
+ * never block the writer: an event overwritten while being read is skipped
+ * rather than returned torn. The slots are written and read as volatile
+ * values, so a reader that read an overwritten value also sees the writer's
+ * count past it and skips the event. Since the writer overwrites the slot of
+ * the oldest event before publishing the newest one, readers only see the
+ * {@code capacity - 1} newest events once the history is full.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEvent
+ */
+public final class GestureHistory {
+	
+	/**
+	 * The default number of events kept.
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+	
+	/**
+	 * The default duration, in milliseconds, of the aggregate window.
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 300l;
+	
+	/**
+	 * The default distance, in pixels, within which the position is regarded
+	 * as dwelling.
+	 */
+	public static final int DEFAULT_DWELL_RADIUS = 16;
+	
+	
+	// Private member fields.
+	private final int capacity;
+	private final int mask;
+	private final long windowMillis;
+	private final long dwellRadiusSq;
+	private final AtomicLongArray times;
+	private final AtomicIntegerArray ids;
+	private final AtomicIntegerArray xs;
+	private final AtomicIntegerArray ys;
+	private final AtomicLong written = new AtomicLong();
+	
+	// Private member data, only accessed by the writer.
+	private long windowStart = 0l;
+	private long sumX = 0l;
+	private long sumY = 0l;
+	private int anchorX = 0;
+	private int anchorY = 0;
+	private long anchorTime = 0l;
+	
+	// Private member data, published by the writer.
+	private volatile int windowCount = 0;
+	private volatile double meanX = 0d;
+	private volatile double meanY = 0d;
+	private volatile double velocityX = 0d;
+	private volatile double velocityY = 0d;
+	private volatile long dwellMillis = 0l;
+	
+	
+	/**
+	 * Constructor for a new instance of a history with the default capacity,
+	 * aggregate window and dwell radius.
+	 */
+	public GestureHistory() {
+		this(DEFAULT_CAPACITY, DEFAULT_WINDOW_MILLIS, DEFAULT_DWELL_RADIUS);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a history with the specified capacity,
+	 * aggregate window and dwell radius.
+	 * 
+	 * @param capacity		The number of events kept; must be a power of two.
+	 * @param windowMillis	The duration, in milliseconds, of the window the
+	 * 						rolling aggregates are computed over.
+	 * @param dwellRadius	The distance, in pixels, the position may move
+	 * 						while still dwelling.
+	 */
+	public GestureHistory(int capacity, long windowMillis, int dwellRadius) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Capacity must be a power of two: "
+					+ capacity);
+		if (windowMillis <= 0l || dwellRadius < 0)
+			throw new IllegalArgumentException("Invalid window or dwell radius!");
+		
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.windowMillis = windowMillis;
+		this.dwellRadiusSq = (long)dwellRadius * dwellRadius;
+		this.times = new AtomicLongArray(capacity);
+		this.ids = new AtomicIntegerArray(capacity);
+		this.xs = new AtomicIntegerArray(capacity);
+		this.ys = new AtomicIntegerArray(capacity);
+	}
+	
+	
+	/**
+	 * Adds the specified gesture event to this history.
+	 * 
+	 * @param ge	The gesture event to add.
+	 * 
+	 * @see #add(long, int, int, int)
+	 */
+	public void add(GestureEvent ge) {
+		add(ge.getWhen(), ge.getID(), ge.getX(), ge.getY());
+	}
+	
+	
+	/**
+	 * Adds an event with the specified values to this history, and updates
+	 * the rolling aggregates. Only the single writer of this history may call
+	 * this method. The history is kept in time order without re-sorting: an
+	 * event older than the newest one, e.g. after the wall clock was set
+	 * back, is added at the time of the newest event instead.
+	 * 
+	 * @param when	The time, in milliseconds, of the event.
+	 * @param id	The gesture event id, e.g.
+	 * 				{@link GestureEvent#OPENED_HAND_DETECTED}.
+	 * @param x		The X-coordinate of the event.
+	 * @param y		The Y-coordinate of the event.
+	 */
+	public void add(long when, int id, int x, int y) {
+		final long seq = written.get();
+		if (seq > 0l)
+			when = Math.max(when, times.get((int)(seq - 1) & mask));
+		
+		if (seq - windowStart >= capacity)
+			evictWindowStart();
+		
+		final int index = (int)seq & mask;
+		times.set(index, when);
+		ids.set(index, id);
+		xs.set(index, x);
+		ys.set(index, y);
+		written.lazySet(seq + 1);
+		
+		updateAggregates(seq, when, x, y);
+	}
+	
+	
+	/**
+	 * Removes the oldest event of the aggregate window from the window sums.
+	 */
+	private final void evictWindowStart() {
+		final int index = (int)windowStart & mask;
+		sumX -= xs.get(index);
+		sumY -= ys.get(index);
+		windowStart++;
+	}
+	
+	
+	/**
+	 * Adds the event to the window sums, evicts the events that left the
+	 * window, and publishes the new aggregates.
+	 */
+	private final void updateAggregates(long seq, long when, int x, int y) {
+		sumX += x;
+		sumY += y;
+		
+		final long oldest = when - windowMillis;
+		while (windowStart < seq && times.get((int)windowStart & mask) < oldest)
+			evictWindowStart();
+		
+		final int count = (int)(seq + 1 - windowStart);
+		final int start = (int)windowStart & mask;
+		final long elapsed = when - times.get(start);
+		if (elapsed > 0l) {
+			velocityX = (x - xs.get(start)) * 1000d / elapsed;
+			velocityY = (y - ys.get(start)) * 1000d / elapsed;
+		}
+		else {
+			velocityX = 0d;
+			velocityY = 0d;
+		}
+		meanX = (double)sumX / count;
+		meanY = (double)sumY / count;
+		windowCount = count;
+		
+		final long dx = x - anchorX;
+		final long dy = y - anchorY;
+		if (seq == 0l || dx * dx + dy * dy > dwellRadiusSq) {
+			anchorX = x;
+			anchorY = y;
+			anchorTime = when;
+		}
+		dwellMillis = when - anchorTime;
+	}
+	
+	
+	/**
+	 * Returns the number of events this history keeps.
+	 * 
+	 * @return	the capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	
+	/**
+	 * Returns the duration of the window the rolling aggregates are computed
+	 * over.
+	 * 
+	 * @return	the window duration in milliseconds.
+	 */
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+	
+	
+	/**
+	 * Returns the number of events added so far, i.e. one past the sequence
+	 * number of the newest event.
+	 * 
+	 * @return	the number of added events.
+	 */
+	public long getWrittenCount() {
+		return written.get();
+	}
+	
+	
+	/**
+	 * Returns the number of events currently visible to the readers, at most
+	 * one less than the capacity.
+	 * 
+	 * @return	the size of this history.
+	 */
+	public int size() {
+		return (int)Math.min(written.get(), capacity - 1);
+	}
+	
+	
+	/**
+	 * Returns the time of the newest event.
+	 * 
+	 * @return	the newest time in milliseconds, or {@link Long#MIN_VALUE} if
+	 * 			no event was added.
+	 */
+	public long getNewestWhen() {
+		final long end = written.get();
+		return end > 0l ? times.get((int)(end - 1) & mask) : Long.MIN_VALUE;
+	}
+	
+	
+	/**
+	 * Returns the number of held events with a time within the specified
+	 * range, both inclusive.
+	 * 
+	 * @param from	The earliest time, in milliseconds.
+	 * @param to	The latest time, in milliseconds.
+	 * @return	the number of events within the range.
+	 */
+	public int count(long from, long to) {
+		while (true) {
+			final long end = written.get();
+			final long start = oldestStable(end);
+			final long first = search(start, end, from);
+			final long last = search(first, end, to == Long.MAX_VALUE ? to : to + 1);
+			if (isStable(start))
+				return (int)(last - first);
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of held events within the specified number of
+	 * milliseconds up to the newest event, both inclusive.
+	 * 
+	 * @param millis	The duration, in milliseconds, to look back.
+	 * @return	the number of recent events.
+	 */
+	public int countRecent(long millis) {
+		final long newest = getNewestWhen();
+		return newest == Long.MIN_VALUE ? 0 : count(newest - millis, newest);
+	}
+	
+	
+	/**
+	 * Hands the held events with a time within the specified range, both
+	 * inclusive, oldest first to the specified {@link Visitor}, without
+	 * copying. An event overwritten by the writer while being visited is
+	 * skipped.
+	 * 
+	 * @param from		The earliest time, in milliseconds.
+	 * @param to		The latest time, in milliseconds.
+	 * @param visitor	The visitor of the events.
+	 * @return	the number of visited events.
+	 */
+	public int forEach(long from, long to, Visitor visitor) {
+		final long end = written.get();
+		long seq = search(oldestStable(end), end, from);
+		int visited = 0;
+		for (; seq < end; seq++) {
+			final int index = (int)seq & mask;
+			final long when = times.get(index);
+			final int id = ids.get(index);
+			final int x = xs.get(index);
+			final int y = ys.get(index);
+			if (!isStable(seq))
+				continue;
+			if (when > to)
+				break;
+			
+			visitor.visit(when, id, x, y);
+			visited++;
+		}
+		return visited;
+	}
+	
+	
+	/**
+	 * Returns the sequence number of the oldest event that is not overwritten
+	 * while the writer adds the event after the specified end, i.e. the slot
+	 * of {@code end - capacity} is excluded.
+	 */
+	private final long oldestStable(long end) {
+		return Math.max(0l, end - capacity + 1);
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the event of the specified sequence number was
+	 * not overwritten, nor is being overwritten, by the writer since it was
+	 * read; otherwise, returns {@code false}.
+	 */
+	private final boolean isStable(long seq) {
+		return seq > written.get() - capacity;
+	}
+	
+	
+	/**
+	 * Returns the first sequence number within the specified range whose
+	 * time is at or after the specified time, or the end of the range if
+	 * none is.
+	 */
+	private final long search(long low, long high, long time) {
+		while (low < high) {
+			final long mid = (low + high) >>> 1;
+			if (times.get((int)mid & mask) < time)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	
+	/**
+	 * Returns the number of events within the aggregate window ending at the
+	 * newest event.
+	 * 
+	 * @return	the number of events in the window.
+	 */
+	public int getWindowCount() {
+		return windowCount;
+	}
+	
+	
+	/**
+	 * Returns the mean X-coordinate of the events within the aggregate
+	 * window.
+	 * 
+	 * @return	the mean X-coordinate.
+	 */
+	public double getMeanX() {
+		return meanX;
+	}
+	
+	
+	/**
+	 * Returns the mean Y-coordinate of the events within the aggregate
+	 * window.
+	 * 
+	 * @return	the mean Y-coordinate.
+	 */
+	public double getMeanY() {
+		return meanY;
+	}
+	
+	
+	/**
+	 * Returns the horizontal velocity from the oldest to the newest event
+	 * within the aggregate window.
+	 * 
+	 * @return	the X velocity in pixels per second.
+	 */
+	public double getVelocityX() {
+		return velocityX;
+	}
+	
+	
+	/**
+	 * Returns the vertical velocity from the oldest to the newest event
+	 * within the aggregate window.
+	 * 
+	 * @return	the Y velocity in pixels per second.
+	 */
+	public double getVelocityY() {
+		return velocityY;
+	}
+	
+	
+	/**
+	 * Returns the speed from the oldest to the newest event within the
+	 * aggregate window.
+	 * 
+	 * @return	the speed in pixels per second.
+	 */
+	public double getSpeed() {
+		return Math.hypot(velocityX, velocityY);
+	}
+	
+	
+	/**
+	 * Returns how long the position has stayed within the dwell radius, up
+	 * to the newest event.
+	 * 
+	 * @return	the dwell time in milliseconds.
+	 */
+	public long getDwellMillis() {
+		return dwellMillis;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[size=" + size()
+				+ ", window=" + windowCount
+				+ ", mean=" + Math.round(meanX) + "," + Math.round(meanY)
+				+ ", speed=" + Math.round(getSpeed())
+				+ ", dwell=" + dwellMillis + "ms]";
+	}
+	
+	
+	/**
+	 * Provides the required method for an object visiting the events of a
+	 * {@link GestureHistory} within a time range.
+	 * 
+	 * @author Chris Hartley
+	 * 
+	 * @see GestureHistory#forEach(long, long, Visitor)
+	 */
+	public static interface Visitor {
+		
+		/**
+		 * Invoked for each visited event, oldest first.
+		 * 
+		 * @param when	The time, in milliseconds, of the event.
+		 * @param id	The gesture event id.
+		 * @param x		The X-coordinate of the event.
+		 * @param y		The Y-coordinate of the event.
+		 */
+		public void visit(long when, int id, int x, int y);
+	
+	}
+
+}
@@ -0,0 +1,231 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import java.util.EventObject;
+
+
+/**
+ * The SequenceEvent is used to notify interested parties that a sequence of
+ * per-frame {@link GestureEvent}s formed a higher-level gesture, such as
+ * grabbing an object and throwing it.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SequenceListener
+ */
+public class SequenceEvent extends EventObject {
+	
+	/**
+	 * serial version user id
+	 */
+	private static final long serialVersionUID = 2741562280167391514L;
+	
+	
+	/**
+	 * Defines the higher-level gestures recognized from a sequence of opened
+	 * and closed hand events.
+	 */
+	public static enum Type {
+		
+		/** The hand closed, e.g. on an object. */
+		GRAB,
+		
+		/** The closed hand moved. */
+		DRAG,
+		
+		/** The closed hand opened while at rest or moving slowly. */
+		DROP,
+		
+		/** The closed hand opened while moving fast. */
+		THROW;
+	
+	}
+	
+	
+	// Member data.
+	private final Type type;
+	private final GestureEvent cause;
+	private final double velocityX;
+	private final double velocityY;
+	private final double accelerationX;
+	private final double accelerationY;
+	
+	
+	/**
+	 * Constructor for a new instance of a sequence event with the specified
+	 * type, the gesture event completing the sequence, and the velocity of
+	 * the hand at that event, whose acceleration is unknown.
+	 * 
+	 * @param source	The source {@link Object} from which this sequence
+	 * 					event was created.
+	 * @param type		The {@link Type} of the recognized sequence.
+	 * @param cause		The {@link GestureEvent} completing the sequence.
+	 * @param velocityX	The horizontal velocity in pixels per second.
+	 * @param velocityY	The vertical velocity in pixels per second.
+	 */
+	public SequenceEvent(Object source, Type type, GestureEvent cause,
+			double velocityX, double velocityY)
+	{
+		this(source, type, cause, velocityX, velocityY, 0d, 0d);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a sequence event with the specified
+	 * type, the gesture event completing the sequence, and the velocity and
+	 * acceleration of the hand at that event.
+	 * 
+	 * @param source		The source {@link Object} from which this
+	 * 						sequence event was created.
+	 * @param type			The {@link Type} of the recognized sequence.
+	 * @param cause			The {@link GestureEvent} completing the sequence.
+	 * @param velocityX		The horizontal velocity in pixels per second.
+	 * @param velocityY		The vertical velocity in pixels per second.
+	 * @param accelerationX	The horizontal acceleration in pixels per second
+	 * 						squared.
+	 * @param accelerationY	The vertical acceleration in pixels per second
+	 * 						squared.
+	 */
+	public SequenceEvent(Object source, Type type, GestureEvent cause,
+			double velocityX, double velocityY, double accelerationX,
+			double accelerationY)
+	{
+		super(source);
+		this.type = type;
+		this.cause = cause;
+		this.velocityX = velocityX;
+		this.velocityY = velocityY;
+		this.accelerationX = accelerationX;
+		this.accelerationY = accelerationY;
+	}
+	
+	
+	/**
+	 * Returns the type of the recognized sequence.
+	 * 
+	 * @return	the {@link Type} of this event.
+	 */
+	public final Type getType() {
+		return type;
+	}
+	
+	
+	/**
+	 * Returns the gesture event completing the sequence.
+	 * 
+	 * @return	the causing {@link GestureEvent}.
+	 */
+	public final GestureEvent getCause() {
+		return cause;
+	}
+	
+	
+	/**
+	 * Returns the time, in milliseconds, of the gesture event completing the
+	 * sequence.
+	 * 
+	 * @return	the time of this event.
+	 */
+	public final long getWhen() {
+		return cause.getWhen();
+	}
+	
+	
+	/**
+	 * Returns the X-coordinate of the hand at the end of the sequence.
+	 * 
+	 * @return	the X-coordinate of this event.
+	 */
+	public final int getX() {
+		return cause.getX();
+	}
+	
+	
+	/**
+	 * Returns the Y-coordinate of the hand at the end of the sequence.
+	 * 
+	 * @return	the Y-coordinate of this event.
+	 */
+	public final int getY() {
+		return cause.getY();
+	}
+	
+	
+	/**
+	 * Returns the horizontal velocity of the hand at the end of the sequence,
+	 * e.g. the direction of a {@link Type#THROW}.
+	 * 
+	 * @return	the X velocity in pixels per second.
+	 */
+	public final double getVelocityX() {
+		return velocityX;
+	}
+	
+	
+	/**
+	 * Returns the vertical velocity of the hand at the end of the sequence.
+	 * 
+	 * @return	the Y velocity in pixels per second.
+	 */
+	public final double getVelocityY() {
+		return velocityY;
+	}
+	
+	
+	/**
+	 * Returns the speed of the hand at the end of the sequence.
+	 * 
+	 * @return	the speed in pixels per second.
+	 */
+	public final double getSpeed() {
+		return Math.hypot(velocityX, velocityY);
+	}
+	
+	
+	/**
+	 * Returns the horizontal acceleration of the hand at the end of the
+	 * sequence, e.g. to tell a flick, which still speeds up when the hand
+	 * opens, from a fast drag that is already slowing down.
+	 * 
+	 * @return	the X acceleration in pixels per second squared.
+	 */
+	public final double getAccelerationX() {
+		return accelerationX;
+	}
+	
+	
+	/**
+	 * Returns the vertical acceleration of the hand at the end of the
+	 * sequence.
+	 * 
+	 * @return	the Y acceleration in pixels per second squared.
+	 */
+	public final double getAccelerationY() {
+		return accelerationY;
+	}
+	
+	
+	/**
+	 * Returns the magnitude of the acceleration of the hand at the end of the
+	 * sequence.
+	 * 
+	 * @return	the acceleration in pixels per second squared.
+	 */
+	public final double getAcceleration() {
+		return Math.hypot(accelerationX, accelerationY);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "["
+				+ "type=" + type + ","
+				+ "device=" + cause.getDeviceIndex() + ","
+				+ "location=" + getX() + "," + getY() + ","
+				+ "speed=" + Math.round(getSpeed()) + ","
+				+ "acceleration=" + Math.round(getAcceleration()) + "]";
+	}
+
+}
@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import java.util.EventListener;
+
+/**
+ * Provides the required method for an object listening for the higher-level
+ * gestures recognized from sequences of gesture events.
+ * 
+ * @author Chris Hartley
+ */
+public interface SequenceListener extends EventListener {
+	
+	
+	/**
+	 * Invoked when a sequence of gesture events has been recognized as the
+	 * gesture specified in the {@link SequenceEvent} parameter.
+	 * 
+	 * @param sequence	The {@link SequenceEvent} of the recognized gesture.
+	 * 
+	 * @see SequenceEvent
+	 */
+	public void sequenceDetected(SequenceEvent sequence);
+
+
+}
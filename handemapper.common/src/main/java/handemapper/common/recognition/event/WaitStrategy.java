@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Defines how a {@link GestureEventConsumer} waits for the next event of its
+ * {@link GestureEventRing}, trading latency against CPU usage. None of the
+ * strategies requires the producers to signal the consumers, so publishing
+ * an event never takes a lock.
+ * 
+ * @author Chris Hartley
+ */
+public enum WaitStrategy {
+	
+	/**
+	 * Spins on the ring without ever giving up the CPU; the lowest latency,
+	 * at the cost of a fully used core per consumer.
+	 */
+	BUSY_SPIN,
+	
+	/**
+	 * Spins briefly, then yields the CPU to other threads between checks.
+	 */
+	YIELD,
+	
+	/**
+	 * Spins briefly, then parks for {@link #PARK_NANOS} between checks; the
+	 * least CPU usage, at the cost of up to that much added latency.
+	 */
+	PARK;
+	
+	
+	/**
+	 * The number of checks spent spinning before yielding or parking.
+	 */
+	private static final int SPIN_TRIES = 100;
+	
+	
+	/**
+	 * The time in nanoseconds the {@link #PARK} strategy parks between checks.
+	 */
+	public static final long PARK_NANOS = 100000l;
+	
+	
+	/**
+	 * Waits once after the specified number of consecutive checks found no
+	 * new event.
+	 * 
+	 * @param counter	The number of consecutive idle checks so far.
+	 */
+	public void idle(int counter) {
+		if (this == BUSY_SPIN || counter < SPIN_TRIES)
+			return;
+		
+		if (this == YIELD)
+			Thread.yield();
+		else
+			LockSupport.parkNanos(PARK_NANOS);
+	}
+
+}
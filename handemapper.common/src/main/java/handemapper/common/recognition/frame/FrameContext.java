@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.frame;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+
+/**
+ * Provides an interface for the per-frame context handed to every registered
+ * gesture of a capture pipeline. Besides the captured {@link VideoFrame}, the
+ * context lazily derives the images commonly needed by the detectors, such as
+ * the grayscale or YCrCb conversion of the frame, and memoizes them for the
+ * rest of the frame. The first gesture asking for a derived image pays for the
+ * conversion, all later gestures of the same frame get the cached result.
+ * Annotations are recorded in the frame's {@link Overlay} rather than drawn
+ * into the image, which must stay untouched for the later gestures.
+ * <p>The derived images are owned by the context and are reused for later
+ * frames, so they must neither be modified nor referenced beyond the
+ * detection call. Like the frame itself, a context must only be used by the
+ * thread processing the frame.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see handemapper.common.recognition.Gesture#detect(FrameContext)
+ */
+public interface FrameContext extends VideoFrame {
+	
+	/**
+	 * Returns the grayscale conversion of the frame image.
+	 * 
+	 * @return	the memoized grayscale image of type {@code CV_8UC1}.
+	 */
+	public Mat getGray();
+	
+	
+	/**
+	 * Returns the YCrCb conversion of the frame image.
+	 * 
+	 * @return	the memoized YCrCb image of type {@code CV_8UC3}.
+	 */
+	public Mat getYCrCb();
+	
+	
+	/**
+	 * Returns the frame image downscaled by the specified integer factor, e.g.
+	 * a factor of {@code 2} returns an image of half the width and height.
+	 * 
+	 * @param factor	The downscale factor; a factor of {@code 1} or less
+	 * 					returns the frame image itself.
+	 * @return	the memoized downscaled image.
+	 */
+	public Mat getDownscaled(int factor);
+	
+	
+	/**
+	 * Returns the skin mask of the frame, where the white pixels are the
+	 * pixels whose YCrCb value is within the specified bounds. The mask is
+	 * memoized per pair of bounds.
+	 * 
+	 * @param min	The lower YCrCb bound of the skin color.
+	 * @param max	The upper YCrCb bound of the skin color.
+	 * @return	the memoized skin mask of type {@code CV_8UC1}.
+	 */
+	public Mat getSkinMask(Scalar min, Scalar max);
+	
+	
+	/**
+	 * Returns the overlay to record the annotations of this frame in. The
+	 * overlay is disabled unless a preview image is published for the frame.
+	 * 
+	 * @return	the {@link Overlay} of this frame.
+	 */
+	public Overlay getOverlay();
+
+}
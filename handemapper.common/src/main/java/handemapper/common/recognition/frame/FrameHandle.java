@@ -0,0 +1,111 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.frame;
+
+import java.awt.image.BufferedImage;
+
+
+/**
+ * Provides an interface for a published preview frame, as delivered to a
+ * {@link FrameListener}. The handle and its image are pooled by the
+ * publisher and recycled for later frames, so no garbage is created per
+ * frame. A handle is valid for the duration of the
+ * {@link FrameListener#frameAvailable(FrameHandle)} call; a listener that
+ * needs the image afterwards, e.g. to paint it later on another thread, must
+ * {@link #lease()} the handle within the call and {@link #release()} it once
+ * done. The publisher never recycles a leased handle, and skips publishing
+ * rather than overwrite one.
+ * <p>Example:
+ * <p><code>
+ *<pre>public void frameAvailable(FrameHandle frame) {
+ *	frame.lease();
+ *	FrameHandle previous = latest;
+ *	latest = frame;
+ *	if (previous != null)
+ *		previous.release();
+ *}</pre>
+ * </code>
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FrameListener
+ */
+public interface FrameHandle {
+	
+	/**
+	 * Returns the image of this frame, which must not be modified.
+	 * 
+	 * @return	the preview image.
+	 */
+	public BufferedImage getImage();
+	
+	
+	/**
+	 * Returns the width of the image of this frame.
+	 * 
+	 * @return	the image width in pixels.
+	 */
+	public int getWidth();
+	
+	
+	/**
+	 * Returns the height of the image of this frame.
+	 * 
+	 * @return	the image height in pixels.
+	 */
+	public int getHeight();
+	
+	
+	/**
+	 * Returns the sequence number of the captured frame this preview was
+	 * produced from.
+	 * 
+	 * @return	the frame sequence number.
+	 * 
+	 * @see VideoFrame#getSequence()
+	 */
+	public long getSequence();
+	
+	
+	/**
+	 * Returns the monotonic time at which the frame was captured.
+	 * 
+	 * @return	the capture time, as returned by {@link System#nanoTime()}.
+	 */
+	public long getCaptureNanos();
+	
+	
+	/**
+	 * Returns the monotonic time at which this preview frame was published.
+	 * 
+	 * @return	the publish time, as returned by {@link System#nanoTime()}.
+	 */
+	public long getPublishNanos();
+	
+	
+	/**
+	 * Returns the index of the video capture device the frame was captured
+	 * from.
+	 * 
+	 * @return	the device index, or {@code -1} if the source is not a device.
+	 */
+	public int getDeviceIndex();
+	
+	
+	/**
+	 * Leases this handle, so it is not recycled before the matching
+	 * {@link #release()}. Must be called within
+	 * {@link FrameListener#frameAvailable(FrameHandle)}; a handle may be
+	 * leased several times, each lease requiring its own release.
+	 */
+	public void lease();
+	
+	
+	/**
+	 * Releases a lease acquired with {@link #lease()}. The handle must not be
+	 * used afterwards.
+	 */
+	public void release();
+
+}
@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.frame;
+
+import java.util.EventListener;
+
+
+/**
+ * Provides the required method for an object receiving the preview frames
+ * published by a {@link handemapper.common.recognition.GestureRecognizer}.
+ * Unlike a property change listener for the
+ * {@link handemapper.common.recognition.GestureRecognizer.Property#CAPTURE}
+ * property, no event object is created per frame; the frame is delivered as
+ * a pooled {@link FrameHandle} with its metadata.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FrameHandle
+ */
+public interface FrameListener extends EventListener {
+	
+	/**
+	 * Invoked on the publishing thread when a new preview frame is available.
+	 * The handle must be {@link FrameHandle#lease() leased} if it is used
+	 * after this method returns.
+	 * 
+	 * @param frame	The {@link FrameHandle} of the published frame.
+	 */
+	public void frameAvailable(FrameHandle frame);
+
+}
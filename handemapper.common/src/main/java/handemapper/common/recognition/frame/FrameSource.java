@@ -0,0 +1,131 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.frame;
+
+import org.opencv.core.Mat;
+
+
+/**
+ * Provides an interface for any source of video frames processed by a
+ * {@link handemapper.common.recognition.GestureRecognizer}. Implementations
+ * may read from a live video capture device, a video file, a directory of
+ * images, or frames held in memory, which allows the recognition pipeline to
+ * be run and measured on a machine without a camera.
+ * <p>A source is <i>paced</i> by default, meaning {@link #read(Mat)} delivers
+ * frames no faster than the source's frame rate. When pacing is disabled, a
+ * source that is not live delivers frames as fast as they can be read, which
+ * is useful to measure the raw throughput of the pipeline.
+ * 
+ * @author Chris Hartley
+ */
+public interface FrameSource {
+	
+	/**
+	 * Opens this frame source, or re-opens it if it has been released.
+	 * 
+	 * @return	{@code true} if the source is opened and able to deliver frames;
+	 * 			otherwise, returns {@code false}.
+	 */
+	public boolean open();
+	
+	
+	/**
+	 * Returns {@code true} if this frame source is currently opened;
+	 * otherwise, returns {@code false}.
+	 * 
+	 * @return	whether this source is opened.
+	 */
+	public boolean isOpened();
+	
+	
+	/**
+	 * Reads the next frame from this source into the specified {@link Mat}.
+	 * The {@link Mat} is reused when it already has the frame's size and type.
+	 * 
+	 * @param frame	The {@link Mat} to store the next frame to.
+	 * @return	{@code true} if the next frame was read; otherwise, returns
+	 * 			{@code false} when the source failed or has no more frames.
+	 */
+	public boolean read(Mat frame);
+	
+	
+	/**
+	 * Releases any resources held by this source. The source may be opened
+	 * again afterwards with {@link #open()}.
+	 */
+	public void release();
+	
+	
+	/**
+	 * Returns a descriptive name for this frame source, e.g. the device index
+	 * or the file path.
+	 * 
+	 * @return	the name of this source.
+	 */
+	public String getName();
+	
+	
+	/**
+	 * Returns the device index of this frame source, or {@code -1} if the
+	 * source is not a video capture device.
+	 * 
+	 * @return	the device index of this source.
+	 */
+	public int getIndex();
+	
+	
+	/**
+	 * Returns the width, in pixels, of the frames delivered by this source.
+	 * 
+	 * @return	the frame width, or {@code 0} if unknown.
+	 */
+	public int getWidth();
+	
+	
+	/**
+	 * Returns the height, in pixels, of the frames delivered by this source.
+	 * 
+	 * @return	the frame height, or {@code 0} if unknown.
+	 */
+	public int getHeight();
+	
+	
+	/**
+	 * Returns the nominal frame rate of this source.
+	 * 
+	 * @return	the frames-per-second, or {@code 0} if unknown.
+	 */
+	public double getFPS();
+	
+	
+	/**
+	 * Returns {@code true} if this source is a live device that delivers
+	 * frames at its own rate, in which case pacing has no effect; otherwise,
+	 * returns {@code false}.
+	 * 
+	 * @return	whether this source is live.
+	 */
+	public boolean isLive();
+	
+	
+	/**
+	 * Returns {@code true} if {@link #read(Mat)} is paced to the frame rate of
+	 * this source; otherwise, returns {@code false} when frames are delivered
+	 * as fast as possible.
+	 * 
+	 * @return	whether this source is paced.
+	 */
+	public boolean isPaced();
+	
+	
+	/**
+	 * Sets whether {@link #read(Mat)} is paced to the frame rate of this
+	 * source, or delivers frames as fast as possible.
+	 * 
+	 * @param paced	{@code true} to pace the frames; {@code false} to run
+	 * 				unthrottled.
+	 */
+	public void setPaced(boolean paced);
+
+}
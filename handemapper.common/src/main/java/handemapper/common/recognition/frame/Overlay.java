@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.frame;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+
+
+/**
+ * Provides an interface for the annotations of a frame, such as the contours,
+ * hulls and centers found by a gesture. Instead of drawing into the frame
+ * image, which every later gesture of the frame would see, a gesture records
+ * its annotations in the overlay of its {@link FrameContext}. The overlay is
+ * only rasterized onto the preview image, and only when a preview image is
+ * published for the frame; otherwise, the overlay is disabled and recording
+ * into it does nothing.
+ * <p>The values are copied when recorded, so the arguments may be reused or
+ * released right away. All coordinates are in the pixel space of the frame
+ * image and all colors are BGR.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FrameContext#getOverlay()
+ */
+public interface Overlay {
+	
+	/**
+	 * Returns {@code true} if the annotations recorded in this overlay are
+	 * going to be rasterized; otherwise, returns {@code false}. A gesture may
+	 * use this to skip computing values that are only needed for annotating.
+	 * 
+	 * @return	whether this overlay records annotations.
+	 */
+	public boolean isEnabled();
+	
+	
+	/**
+	 * Records the outline of the specified closed contour.
+	 * 
+	 * @param contour	The points of the contour.
+	 * @param color		The line color.
+	 * @param thickness	The line thickness in pixels.
+	 */
+	public void contour(MatOfPoint contour, Scalar color, int thickness);
+	
+	
+	/**
+	 * Records a line between the specified points.
+	 * 
+	 * @param from		The start point of the line.
+	 * @param to		The end point of the line.
+	 * @param color		The line color.
+	 * @param thickness	The line thickness in pixels.
+	 */
+	public void line(Point from, Point to, Scalar color, int thickness);
+	
+	
+	/**
+	 * Records a circle with the specified center and radius.
+	 * 
+	 * @param center	The center of the circle.
+	 * @param radius	The radius of the circle in pixels.
+	 * @param color		The line color.
+	 * @param thickness	The line thickness in pixels, or a negative value for
+	 * 					a filled circle.
+	 */
+	public void circle(Point center, int radius, Scalar color, int thickness);
+	
+	
+	/**
+	 * Records a rectangle with the specified opposite corners.
+	 * 
+	 * @param topLeft		The top-left corner.
+	 * @param bottomRight	The bottom-right corner.
+	 * @param color			The line color.
+	 * @param thickness		The line thickness in pixels, or a negative value
+	 * 						for a filled rectangle.
+	 */
+	public void rectangle(Point topLeft, Point bottomRight, Scalar color,
+			int thickness);
+
+}
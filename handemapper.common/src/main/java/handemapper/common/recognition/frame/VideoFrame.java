@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.frame;
+
+import org.opencv.core.Mat;
+
+
+/**
+ * Provides an interface for a captured video frame together with the metadata
+ * carried through the recognition pipeline: the sequence number assigned by
+ * the capture thread and the monotonic capture time, as returned by
+ * {@link System#nanoTime()} right after the frame was read from its
+ * {@link FrameSource}. Gaps in the sequence numbers are frames that were
+ * captured but replaced by a newer frame before they were processed.
+ * <p>Frame instances are reused for later frames once processing returns, so
+ * a reference to a frame must not be kept beyond the detection call.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FrameContext
+ */
+public interface VideoFrame {
+	
+	/**
+	 * Returns the image data of this frame, which must not be modified.
+	 * 
+	 * @return	the frame image.
+	 */
+	public Mat getImage();
+	
+	
+	/**
+	 * Returns the sequence number of this frame within its source, starting at
+	 * {@code 0} for the first captured frame.
+	 * 
+	 * @return	the frame sequence number.
+	 */
+	public long getSequence();
+	
+	
+	/**
+	 * Returns the monotonic time at which this frame was captured.
+	 * 
+	 * @return	the capture time, as returned by {@link System#nanoTime()}.
+	 */
+	public long getCaptureNanos();
+	
+	
+	/**
+	 * Returns the index of the video capture device this frame was captured
+	 * from.
+	 * 
+	 * @return	the device index, or {@code -1} if the source is not a device.
+	 */
+	public int getDeviceIndex();
+
+}
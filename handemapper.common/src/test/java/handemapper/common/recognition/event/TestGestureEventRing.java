@@ -0,0 +1,264 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the publishing of events through a {@link GestureEventRing} and
+ * their consumption by {@link GestureEventConsumer}s.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestGestureEventRing {
+
+    private final List<Thread> threads = new ArrayList<Thread>();
+    private final List<GestureEventConsumer> consumers = new ArrayList<GestureEventConsumer>();
+
+
+    @After
+    public void haltConsumers() throws InterruptedException {
+        for (GestureEventConsumer consumer : consumers)
+            consumer.halt();
+        for (Thread thread : threads)
+            thread.join(1000);
+    }
+
+
+    /**
+     * Test method for several producers publishing through a ring much
+     * smaller than the number of events: the consumer reads every sequence
+     * number once, in order, and the events of each producer in the order
+     * they were published.
+     */
+    @Test(timeout = 20000)
+    public final void testMultiProducerOrdering() throws InterruptedException {
+        final int producers = 4;
+        final int events = 20000;
+        final GestureEventRing ring = new GestureEventRing(64);
+        final int[] lastY = new int[producers];
+        final AtomicLong lastSequence = new AtomicLong(-1l);
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(producers * events);
+        Arrays.fill(lastY, -1);
+
+        start(new GestureEventConsumer(ring, new GestureEventHandler() {
+            @Override
+            public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch) {
+                if (sequence != lastSequence.get() + 1)
+                    errors.add("Sequence " + sequence + " after " + lastSequence.get());
+                if (slot.getY() != lastY[slot.getX()] + 1)
+                    errors.add("Producer " + slot.getX() + " event " + slot.getY()
+                            + " after " + lastY[slot.getX()]);
+                lastSequence.set(sequence);
+                lastY[slot.getX()] = slot.getY();
+                done.countDown();
+            }
+        }, WaitStrategy.YIELD));
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < events; i++) {
+                        final long seq = ring.next();
+                        ring.get(seq).set(null, 0, 0l, producer, i, 0, seq, 0l, 0l);
+                        ring.publish(seq);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        assertTrue("Events not consumed", done.await(15, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(producers * events - 1, ring.getCursor());
+        assertEquals(0l, ring.getDroppedEvents());
+    }
+
+
+    /**
+     * Test method for a sequence claimed but not yet published: the
+     * consumer does not read past the gap, and reads both events once the
+     * gap is published.
+     */
+    @Test(timeout = 5000)
+    public final void testGapHandling() throws InterruptedException {
+        final GestureEventRing ring = new GestureEventRing(8);
+        final List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(2);
+        start(new GestureEventConsumer(ring, new GestureEventHandler() {
+            @Override
+            public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch) {
+                handled.add(slot.getX());
+                done.countDown();
+            }
+        }, WaitStrategy.YIELD));
+
+        final long first = ring.next();
+        final long second = ring.next();
+        ring.get(second).set(null, 0, 0l, 2, 0, 0, second, 0l, 0l);
+        ring.publish(second);
+
+        assertEquals(first - 1, ring.getHighestPublished(first, ring.getCursor()));
+        Thread.sleep(100);
+        assertTrue("Read past the gap: " + handled, handled.isEmpty());
+
+        ring.get(first).set(null, 0, 0l, 1, 0, 0, first, 0l, 0l);
+        ring.publish(first);
+        assertTrue("Events not consumed", done.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2), handled);
+    }
+
+
+    /**
+     * Test method for a full ring: {@link GestureEventRing#tryNext()} fails
+     * and counts the dropped events, while the unconsumed slots keep their
+     * events.
+     */
+    @Test
+    public final void testTryNextDropsWhenFull() {
+        final GestureEventRing ring = new GestureEventRing(4);
+        final GestureEventConsumer consumer = new GestureEventConsumer(ring,
+                new GestureEventHandler() {
+                    @Override
+                    public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch) {
+                    }
+                }, WaitStrategy.YIELD);
+
+        for (int i = 0; i < 4; i++)
+            assertTrue(ring.tryPublish(null, 0, 0l, i, 0, 0, i, 0l, 0l));
+        for (int i = 4; i < 7; i++) {
+            assertFalse(ring.tryPublish(null, 0, 0l, i, 0, 0, i, 0l, 0l));
+            assertEquals(-1l, ring.tryNext());
+        }
+
+        assertEquals(6l, ring.getDroppedEvents());
+        assertEquals(3l, ring.getCursor());
+        assertEquals(4l, consumer.getBacklog());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.isPublished(i));
+            assertEquals(i, ring.get(i).getX());
+        }
+    }
+
+
+    /**
+     * Test method for {@link GestureEventRing#next()} on a full ring: the
+     * producer waits for the slowest consumer instead of overwriting the
+     * slot it has not handled yet.
+     */
+    @Test(timeout = 5000)
+    public final void testNoOverwriteOfUnconsumedSlots() throws InterruptedException {
+        final GestureEventRing ring = new GestureEventRing(4);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+        start(new GestureEventConsumer(ring, new GestureEventHandler() {
+            @Override
+            public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch) {
+                handled.add(slot.getX());
+                blocked.countDown();
+                try {
+                    resume.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, WaitStrategy.YIELD));
+
+        for (int i = 0; i < 4; i++)
+            assertTrue(ring.tryPublish(null, 0, 0l, i, 0, 0, i, 0l, 0l));
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+
+        final CountDownLatch claimed = new CountDownLatch(1);
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final long seq = ring.next();
+                ring.get(seq).set(null, 0, 0l, 4, 0, 0, seq, 0l, 0l);
+                ring.publish(seq);
+                claimed.countDown();
+            }
+        });
+        threads.add(producer);
+        producer.start();
+
+        assertFalse("Slot overwritten while unconsumed",
+                claimed.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, ring.get(1).getX());
+
+        resume.countDown();
+        assertTrue(claimed.await(2, TimeUnit.SECONDS));
+        while (handled.size() < 5)
+            Thread.sleep(10);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), handled);
+    }
+
+
+    /**
+     * Test method for consumers added and removed while events are being
+     * published: a new consumer reads only the events published after it
+     * was created, and a halted consumer no longer gates the ring.
+     */
+    @Test(timeout = 5000)
+    public final void testConsumerAddRemoveMidStream() throws InterruptedException {
+        final GestureEventRing ring = new GestureEventRing(4);
+        for (int i = 0; i < 3; i++)
+            assertTrue(ring.tryPublish(null, 0, 0l, i, 0, 0, i, 0l, 0l));
+
+        final List<Long> handled = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch done = new CountDownLatch(3);
+        final GestureEventConsumer consumer = new GestureEventConsumer(ring,
+                new GestureEventHandler() {
+                    @Override
+                    public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch) {
+                        handled.add(sequence);
+                        done.countDown();
+                    }
+                }, WaitStrategy.YIELD);
+        assertEquals(2l, consumer.getSequence());
+        final Thread thread = start(consumer);
+
+        for (int i = 3; i < 6; i++)
+            assertTrue(ring.tryPublish(null, 0, 0l, i, 0, 0, i, 0l, 0l));
+        assertTrue("Events not consumed", done.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(3l, 4l, 5l), handled);
+
+        consumer.halt();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+
+        for (int i = 6; i < 20; i++)
+            assertTrue("Halted consumer still gates the ring",
+                    ring.tryPublish(null, 0, 0l, i, 0, 0, i, 0l, 0l));
+        assertEquals(0l, ring.getDroppedEvents());
+        assertEquals(3, handled.size());
+    }
+
+
+    private Thread start(GestureEventConsumer consumer) {
+        final Thread thread = new Thread(consumer);
+        consumers.add(consumer);
+        threads.add(thread);
+        thread.start();
+        return thread;
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * 
+ */
+package handemapper.common.recognition.event;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the range queries and aggregates of a {@link GestureHistory}, and
+ * its readers running concurrently with its writer.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestGestureHistory {
+
+    /**
+     * Test method for the range queries of a full history, which see the
+     * newest events but the one whose slot is overwritten next.
+     */
+    @Test
+    public final void testRangeQueries() {
+        final GestureHistory history = new GestureHistory(8, 300l, 16);
+        for (int i = 0; i < 20; i++)
+            history.add(i * 10l, GestureEvent.OPENED_HAND_DETECTED, i, 0);
+
+        assertEquals(20l, history.getWrittenCount());
+        assertEquals(7, history.size());
+        assertEquals(190l, history.getNewestWhen());
+        assertEquals(7, history.count(0l, Long.MAX_VALUE));
+        assertEquals(3, history.count(150l, 170l));
+        assertEquals(4, history.countRecent(30l));
+
+        final List<Long> visited = new ArrayList<Long>();
+        assertEquals(2, history.forEach(140l, 155l, new GestureHistory.Visitor() {
+            @Override
+            public void visit(long when, int id, int x, int y) {
+                visited.add(when);
+            }
+        }));
+        assertEquals(Arrays.asList(140l, 150l), visited);
+    }
+
+
+    /**
+     * Test method for an event older than the newest one, e.g. after the
+     * wall clock was set back: it is kept at the time of the newest event.
+     */
+    @Test
+    public final void testLateEventClamped() {
+        final GestureHistory history = new GestureHistory();
+        history.add(1000l, GestureEvent.OPENED_HAND_DETECTED, 0, 0);
+        history.add(400l, GestureEvent.CLOSED_HAND_DETECTED, 10, 0);
+
+        assertEquals(2l, history.getWrittenCount());
+        assertEquals(1000l, history.getNewestWhen());
+        assertEquals(2, history.count(1000l, 1000l));
+        assertEquals(0d, history.getVelocityX(), 0d);
+
+        history.add(1100l, GestureEvent.CLOSED_HAND_DETECTED, 20, 0);
+        assertEquals(200d, history.getVelocityX(), 1e-9);
+    }
+
+
+    /**
+     * Test method for readers querying the history while the writer wraps
+     * it many times: every visited event is consistent and in time order.
+     */
+    @Test(timeout = 20000)
+    public final void testConcurrentReaders() throws InterruptedException {
+        final GestureHistory history = new GestureHistory(8, 300l, 16);
+        final int events = 2000000;
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final long[] previous = new long[1];
+                    while (history.getWrittenCount() < events && errors.isEmpty()) {
+                        previous[0] = Long.MIN_VALUE;
+                        history.forEach(0l, Long.MAX_VALUE, new GestureHistory.Visitor() {
+                            @Override
+                            public void visit(long when, int id, int x, int y) {
+                                if (x != (int)when || y != (int)(when * 3) || id != (int)(when & 1))
+                                    errors.add("Torn event " + when + ": " + id + "," + x + "," + y);
+                                if (when <= previous[0])
+                                    errors.add("Event " + when + " after " + previous[0]);
+                                previous[0] = when;
+                            }
+                        });
+                        if (history.count(0l, Long.MAX_VALUE) > 7)
+                            errors.add("More events than visible");
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        for (int i = 0; i < events && errors.isEmpty(); i++)
+            history.add(i, i & 1, i, i * 3);
+        for (Thread reader : readers)
+            reader.join();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+}
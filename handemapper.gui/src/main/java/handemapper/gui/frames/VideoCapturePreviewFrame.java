@@ -4,9 +4,11 @@
 package handemapper.gui.frames;
 
 import java.awt.BorderLayout;
-import java.awt.image.BufferedImage;
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
+import java.awt.Insets;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -14,6 +16,8 @@ import handemapper.common.recognition.GestureRecognizer;
 import handemapper.common.recognition.device.DeviceInfo;
 import handemapper.common.recognition.event.GestureEvent;
 import handemapper.common.recognition.event.GestureListener;
+import handemapper.common.recognition.frame.FrameHandle;
+import handemapper.common.recognition.frame.FrameListener;
 import handemapper.gui.GestureApplication;
 import handemapper.gui.panels.VideoCaptureMirrorPanel;
 
@@ -28,7 +32,7 @@ import javax.swing.JPanel;
  *
  */
 public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
-																PropertyChangeListener
+																FrameListener
 {
 
 	/**
@@ -37,15 +41,6 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 	private static final long serialVersionUID = -2460799843280056225L;
 
 	
-	/**
-	 * The property name for the capture property defined by the
-	 * {@link GestureRecognizer} interface.
-	 * @see GestureRecognizer.Property#CAPTURE
-	 */
-	private final static String PROPERTY_NAME_CAPTURE =
-			GestureRecognizer.Property.CAPTURE.toString();
-
-	
 	// Member data.
 	private final JLabel leftLbl = new JLabel("");
 	private final JLabel rightLbl = new JLabel("FPS=?");
@@ -54,6 +49,8 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 	private Timer refreshTimer = null;
 	private GestureRecognizer gr = null;
 	private VideoCaptureMirrorPanel vcMirror = null;
+	private final Object frameLock = new Object();
+	private volatile boolean previewing = false;
 
 	
 	/**
@@ -70,6 +67,18 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 		build();
 		pack();
 		
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowIconified(WindowEvent e) {
+				setPreviewing(false);
+			}
+			
+			@Override
+			public void windowDeiconified(WindowEvent e) {
+				setPreviewing(true);
+			}
+		});
+		
 		setVisible(true);
 	}
 	
@@ -82,6 +91,12 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 		//TODO JLayeredPane panes = new JLayeredPane();
 		
 		vcMirror = new VideoCaptureMirrorPanel();
+		vcMirror.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				requestPreviewSize();
+			}
+		});
 		main.add(vcMirror, BorderLayout.CENTER);
 		//panes.setLayer(vcMirror, JLayeredPane.FRAME_CONTENT_LAYER);
 		
@@ -105,15 +120,13 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 		super.setVisible(visible);
 		
 		if (visible) {
-			if (gr != null)
-				gr.addPropertyChangeListener(this);
+			setPreviewing(true);
 			
 			refreshTimer = new Timer("vcRefreshTimer");
 			refreshTimer.scheduleAtFixedRate(getTask(), refreshRequestFPS, refreshRequestFPS);
 		}
 		else {
-			if (gr != null)
-				gr.removePropertyChangeListener(this);
+			setPreviewing(false);
 			
 			if (refreshTimer != null)
 				refreshTimer.cancel();
@@ -121,6 +134,49 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 	}
 	
 	
+	/**
+	 * Registers this frame for the preview images while it is shown, and
+	 * unregisters it while it is hidden or iconified, so the recognizer does
+	 * not produce preview images nobody sees.
+	 * 
+	 * @param previewing	Whether this frame shows the preview images.
+	 */
+	private final void setPreviewing(boolean previewing) {
+		if (gr == null || this.previewing == previewing)
+			return;
+		
+		this.previewing = previewing;
+		if (previewing) {
+			requestPreviewSize();
+			gr.addFrameListener(this);
+		}
+		else {
+			gr.removeFrameListener(this);
+			synchronized (frameLock) {
+				if (vcMirror != null)
+					vcMirror.clearFrame();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Requests the preview images at the size of the mirror panel's content
+	 * area, so they are scaled once before publishing instead of on every
+	 * paint.
+	 */
+	private final void requestPreviewSize() {
+		if (gr == null || vcMirror == null)
+			return;
+		
+		final Insets ins = vcMirror.getInsets();
+		final int w = vcMirror.getWidth() - ins.left - ins.right;
+		final int h = vcMirror.getHeight() - ins.top - ins.bottom;
+		if (w > 0 && h > 0)
+			gr.setPreviewSize(w, h);
+	}
+	
+	
 	/**
 	 * 
 	 * @return
@@ -128,7 +184,7 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 	private final TimerTask getTask() {
 		return new TimerTask() {
 
-			private final String frmt = "FPS=%.02f";
+			private final String frmt = "%s, FPS=%.02f/%.01f, dropped=%d, late=%d";
 			private DeviceInfo info = null;
 			
 			@Override
@@ -136,7 +192,10 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 				if (info == null)
 					info = gr.getDeviceInfo();
 				
-				rightLbl.setText(String.format(frmt, info.getFPS()));
+				rightLbl.setText(String.format(frmt, info.getCaptureFormat(),
+						info.getFPS(),
+						info.getTargetFPS(), info.getDroppedFrames(),
+						info.getLateFrames()));
 			}
 			
 		};
@@ -171,11 +230,16 @@ public class VideoCapturePreviewFrame extends JFrame implements GestureListener,
 
 	
 	@Override
-	public void propertyChange(PropertyChangeEvent evt) {
-		if (PROPERTY_NAME_CAPTURE.equals(evt.getPropertyName())
-				&& vcMirror != null)
-		{
-			vcMirror.updateImage((BufferedImage)evt.getNewValue());
+	public void frameAvailable(FrameHandle frame) {
+		synchronized (frameLock) {
+			// A frame published while this frame was being hidden is ignored.
+			if (!previewing)
+				return;
+			
+			if (vcMirror != null) {
+				frame.lease();
+				vcMirror.updateFrame(frame);
+			}
 		}
 	}
 
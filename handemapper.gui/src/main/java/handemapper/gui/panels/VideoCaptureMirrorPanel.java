@@ -3,38 +3,66 @@
  */
 package handemapper.gui.panels;
 
+import handemapper.common.recognition.frame.FrameHandle;
+
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.FontMetrics;
+import java.awt.DisplayMode;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Image;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 
 /**
+ * Provides a panel mirroring the preview frames of the video capture. The
+ * publisher hands each frame over without ever waiting on the event dispatch
+ * thread; frames arriving faster than the display refreshes replace each
+ * other and are released unseen, so at most one repaint is requested per
+ * display refresh. The latest frame is rendered once into a cached
+ * {@link VolatileImage} sized to the panel, which is then only blitted when
+ * painting, e.g. on every expose of the window.
  * 
  * @author Chris Hartley
  * @author Adin Miller
  */
 public class VideoCaptureMirrorPanel extends JPanel {
-
+	
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = -5011685128270293027L;
-
+	
+	
+	/**
+	 * The display refresh rate assumed when it cannot be determined.
+	 */
+	private static final int DEFAULT_REFRESH_RATE = 60;
+	
+	
+	// Private member fields.
+	private final AtomicReference<FrameHandle> pendingFrame =
+			new AtomicReference<FrameHandle>();
+	private final Timer refreshTimer;
 	
 	// Private member data.
-	private Object updateLock = new Object();
 	private BufferedImage vcOffline = null;
-	private Image vcFrame = null;
+	private FrameHandle shownFrame = null;
+	private VolatileImage vcBuffer = null;
+	private boolean bufferDirty = false;
 	
 	
 	/**
@@ -52,6 +80,14 @@ public class VideoCaptureMirrorPanel extends JPanel {
 				BorderFactory.createLineBorder(Color.LIGHT_GRAY, 2),
 				BorderFactory.createLineBorder(Color.BLACK, 1) ));
 		
+		refreshTimer = new Timer(1000 / getRefreshRate(), new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				showPendingFrame();
+			}
+		});
+		refreshTimer.setRepeats(false);
+		
 		try {
 			vcOffline = ImageIO.read(
 					getClass().getResourceAsStream("/images/offline.png") );
@@ -62,46 +98,154 @@ public class VideoCaptureMirrorPanel extends JPanel {
 	}
 	
 	
+	/**
+	 * Returns the refresh rate of the default screen, or the default refresh
+	 * rate if it is unknown.
+	 */
+	private static final int getRefreshRate() {
+		if (GraphicsEnvironment.isHeadless())
+			return DEFAULT_REFRESH_RATE;
+		
+		final DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDisplayMode();
+		final int rate = mode != null ? mode.getRefreshRate()
+				: DisplayMode.REFRESH_RATE_UNKNOWN;
+		return rate > 0 ? rate : DEFAULT_REFRESH_RATE;
+	}
+	
+	
 	@Override
 	protected void paintComponent(Graphics g) {
 		Graphics2D g2d = (Graphics2D)g;
-		final FontMetrics fm = g2d.getFontMetrics();
 		final Insets ins = getInsets();
-		int x = ins.left;
-		int y = ins.top;
+		final int x = ins.left;
+		final int y = ins.top;
 		final int w = getWidth() - x - ins.right;
 		final int h = getHeight() - y - ins.bottom;
 		
-		synchronized (updateLock) {
-			if (vcFrame != null) {
-				g2d.drawImage(vcFrame, x, y, w, h, this);
-				g2d.setColor(getForeground());
-				
-				x += fm.getHeight();
-				y += fm.getHeight();
-				g2d.drawString(vcFrame + "", x, y);
-				
-				y += fm.getHeight();
-				g2d.drawString(vcFrame.getWidth(null) + "x" + vcFrame.getHeight(null), x, y);
+		if (shownFrame == null || w <= 0 || h <= 0) {
+			g2d.drawImage(vcOffline, x, y, w, h, this);
+			return;
+		}
+		
+		final GraphicsConfiguration gc = getGraphicsConfiguration();
+		do {
+			final int valid = vcBuffer != null ? vcBuffer.validate(gc)
+					: VolatileImage.IMAGE_INCOMPATIBLE;
+			if (valid == VolatileImage.IMAGE_INCOMPATIBLE
+					|| vcBuffer.getWidth() != w || vcBuffer.getHeight() != h)
+			{
+				if (vcBuffer != null)
+					vcBuffer.flush();
+				vcBuffer = createVolatileImage(w, h);
+				bufferDirty = true;
 			}
-			else {
-				g2d.drawImage(vcOffline, x, y, w, h, this);
+			else if (valid == VolatileImage.IMAGE_RESTORED) {
+				bufferDirty = true;
 			}
+			
+			if (bufferDirty) {
+				renderBuffer(shownFrame.getImage(), w, h);
+				bufferDirty = false;
+			}
+			g2d.drawImage(vcBuffer, x, y, this);
 		}
+		while (vcBuffer.contentsLost());
 	}
-
+	
 	
 	/**
-	 * Updates the image of the most recent video capture frame and repaints
-	 * this panel.
-	 * @param img
+	 * Renders the specified frame image into the volatile buffer. The
+	 * preview is normally published at the size of this panel, in which case
+	 * the image is copied unscaled.
 	 */
-	public void updateImage(BufferedImage img) {
-		synchronized (updateLock) {
-			vcFrame = img;
+	private final void renderBuffer(BufferedImage img, int w, int h) {
+		final Graphics2D g = vcBuffer.createGraphics();
+		try {
+			if (img.getWidth() == w && img.getHeight() == h)
+				g.drawImage(img, 0, 0, null);
+			else
+				g.drawImage(img, 0, 0, w, h, null);
+		}
+		finally {
+			g.dispose();
 		}
+	}
+	
+	
+	/**
+	 * Shows the most recent pending frame, if any, releasing the frame shown
+	 * so far. This is invoked by the refresh timer on the event dispatch
+	 * thread.
+	 */
+	private final void showPendingFrame() {
+		final FrameHandle frame = pendingFrame.getAndSet(null);
+		if (frame == null)
+			return;
 		
+		if (shownFrame != null)
+			shownFrame.release();
+		shownFrame = frame;
+		bufferDirty = true;
 		repaint();
 	}
 	
+	
+	/**
+	 * Updates the frame of the most recent video capture and schedules a
+	 * repaint of this panel for the next display refresh. This never blocks
+	 * and may be invoked from any thread. The panel takes over the caller's
+	 * lease of the frame and releases it once the frame is replaced; a frame
+	 * replaced before it was shown is released right away.
+	 * 
+	 * @param frame	The leased frame to show.
+	 */
+	public void updateFrame(FrameHandle frame) {
+		final FrameHandle replaced = pendingFrame.getAndSet(frame);
+		if (replaced != null)
+			replaced.release();
+		else
+			refreshTimer.start();
+	}
+	
+	
+	/**
+	 * Releases the pending and shown frames and shows the offline image
+	 * again, e.g. when the preview is no longer received.
+	 */
+	public void clearFrame() {
+		final FrameHandle pending = pendingFrame.getAndSet(null);
+		if (pending != null)
+			pending.release();
+		
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					clearShownFrame();
+				}
+			});
+		}
+		else {
+			clearShownFrame();
+		}
+	}
+	
+	
+	/**
+	 * Releases the shown frame and the volatile buffer on the event dispatch
+	 * thread.
+	 */
+	private final void clearShownFrame() {
+		if (shownFrame != null) {
+			shownFrame.release();
+			shownFrame = null;
+		}
+		if (vcBuffer != null) {
+			vcBuffer.flush();
+			vcBuffer = null;
+		}
+		repaint();
+	}
+
 }
@@ -4,14 +4,16 @@
 package handemapper.gui.translation;
 
 import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureHistory;
 import handemapper.common.recognition.event.GestureListener;
-import handemapper.gui.util.EventQueue;
+import handemapper.common.recognition.event.SequenceEvent;
+import handemapper.recognition.sequence.GestureSequenceEngine;
 
 import java.awt.AWTException;
 import java.awt.Robot;
 import java.awt.event.InputEvent;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -40,15 +42,14 @@ public class HandGestureRobot implements GestureListener {
 	
 	// Private member data.
 	private final Robot gRobot;
-	private boolean isHandOpened = true;
-	private boolean isHandClosed = false;
+	private final GestureSequenceEngine sequences = new GestureSequenceEngine();
 	
 	private boolean showFakeHandIcon = true;
 	private boolean allowMouseOverride = false;
 	private boolean allowMouseClicks = false;
 	
-	private final Collection<GestureEvent> eventQueue = 
-			Collections.synchronizedCollection( new EventQueue() );
+	private final Map<Object,GestureHistory> histories =
+			new WeakHashMap<Object,GestureHistory>();
 	
 	
 	/**
@@ -78,63 +79,96 @@ public class HandGestureRobot implements GestureListener {
 		if (ge == null)
 			return;
 		
-		synchronized (eventQueue) {
+		synchronized (histories) {
 			try {
-				if (eventQueue.add(ge)) {
-					switch (ge.getID()) {
-					case (GestureEvent.OPENED_HAND_DETECTED):
-						openedHandDetected(ge);
-						break;
-					case (GestureEvent.CLOSED_HAND_DETECTED):
-						closedHandDetected(ge);
-						break;
-					default:
-						logger.error("Unknown gesture event id: " + ge.getID());
-					}
-				}
+				historyOf(ge.getSource()).add(ge);
+				
+				// Move mouse point location...
+				setMouseLocation(ge);
+				
+				final SequenceEvent se = sequences.update(ge);
+				if (se != null)
+					sequenceDetected(se);
+				
+				if (logger.isDebugEnabled())
+					logLatency(ge, System.nanoTime());
 			}
 			catch (Exception ignore) { }
 		}
 	}
 	
 	
-	
 	/**
-	 * This method is called when an opened hand was detected by the
-	 * gesture recognizer. This will also update the mouse pointer location and
-	 * then determine if a drop action has occurred.
+	 * Returns the time-ordered history of the recent events of the specified
+	 * gesture, e.g. to query what happened in the last few hundred
+	 * milliseconds. Each gesture instance, and thus each device, has its own
+	 * history.
 	 * 
-	 * @param gesture	the {@link GestureEvent} responsible for this call.
+	 * @param gesture	The source gesture of the events.
+	 * @return	the {@link GestureHistory} of the gesture, or {@code null} if
+	 * 			no event of the gesture was detected yet.
 	 */
-	private final void openedHandDetected(GestureEvent gesture) {
-		// Move mouse point location...
-		setMouseLocation(gesture);
-		
-		if (isHandClosed) {
-			// Thus; hand closed -> hand opened => drop action
-			isHandClosed = false;
-			isHandOpened = true;
-			doDropGesture(gesture);
+	public GestureHistory getHistory(Object gesture) {
+		synchronized (histories) {
+			return histories.get(gesture);
+		}
+	}
+	
+	
+	/**
+	 * Returns the history of the specified gesture, creating it on the first
+	 * event of the gesture. Must be called while holding the histories lock.
+	 */
+	private final GestureHistory historyOf(Object gesture) {
+		GestureHistory history = histories.get(gesture);
+		if (history == null) {
+			history = new GestureHistory();
+			histories.put(gesture, history);
 		}
+		return history;
 	}
 	
 	
 	/**
-	 * This method is called when a closed hand was detected by the
-	 * gesture recognizer. This will also update the mouse pointer location and
-	 * then determine if a grab action has occurred.
+	 * Logs the latency of the specified gesture event from the capture of its
+	 * frame to the completed action, split into the detection, dispatch and
+	 * action stages.
 	 * 
-	 * @param gesture	the {@link GestureEvent} responsible for this call.
+	 * @param ge		The handled gesture event.
+	 * @param actedAt	The {@link System#nanoTime()} the action completed at.
 	 */
-	private final void closedHandDetected(GestureEvent gesture) {
-		// Move mouse point location...
-		setMouseLocation(gesture);
+	private final void logLatency(GestureEvent ge, long actedAt) {
+		final long capture = ge.getCaptureNanos();
+		final long detected = ge.getDetectedNanos();
+		final long dispatched = ge.getDispatchNanos();
 		
-		if (isHandOpened) {
-			// Thus; hand opened -> hand closed => grab action
-			isHandClosed = true;
-			isHandOpened = false;
-			doGrabGesture(gesture);
+		logger.debug(String.format("Frame #%d on device %d: camera-to-action "
+				+ "%.01f ms (detect %.01f, dispatch %.01f, action %.01f)",
+				ge.getSequence(), ge.getDeviceIndex(),
+				(actedAt - capture) / 1e6, (detected - capture) / 1e6,
+				(dispatched - detected) / 1e6, (actedAt - dispatched) / 1e6));
+	}
+	
+	
+	
+	/**
+	 * This method is called when the sequence engine recognized a grab, drag,
+	 * drop or throw from the detected gestures. A grab presses the mouse
+	 * button, while a drop or throw releases it.
+	 * 
+	 * @param sequence	the {@link SequenceEvent} responsible for this call.
+	 */
+	private final void sequenceDetected(SequenceEvent sequence) {
+		switch (sequence.getType()) {
+		case GRAB:
+			doGrabGesture(sequence.getCause());
+			break;
+		case DROP:
+		case THROW:
+			doDropGesture(sequence.getCause());
+			break;
+		default:
+			break;
 		}
 	}
 	
@@ -15,6 +15,8 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 
 import javax.swing.JCheckBoxMenuItem;
@@ -29,6 +31,9 @@ import handemapper.gui.frames.LogFrame;
 import handemapper.gui.frames.VideoCapturePreviewFrame;
 import handemapper.gui.translation.HandGestureRobot;
 import handemapper.gui.util.Gestures;
+import handemapper.recognition.dispatch.GestureEventDispatcher;
+import handemapper.recognition.journal.GestureJournalWriter;
+import handemapper.recognition.stream.MjpegPreviewServer;
 
 
 /**
@@ -62,6 +67,26 @@ public class GestureTrayApp extends GestureApplication {
 	private static final String ACTION_CMD_VIEW_LOGS =
 			"app-popup-menu-logFrame";
 	
+	/**
+	 * The minimum width, in pixels, of a hand within a frame for the hand
+	 * recognizer to find its contour and convexity defects reliably.
+	 */
+	private static final int MIN_HAND_SIZE = 40;
+	
+	/**
+	 * The system property with the loopback port of the MJPEG preview
+	 * endpoint; the endpoint is only started when the property is set.
+	 * @see MjpegPreviewServer
+	 */
+	private static final String MJPEG_PORT_PROPERTY = "handemapper.mjpeg.port";
+	
+	/**
+	 * The system property with the directory of the gesture event journal;
+	 * the emitted gesture events are only journaled when the property is set.
+	 * @see GestureJournalWriter
+	 */
+	private static final String JOURNAL_DIR_PROPERTY = "handemapper.journal.dir";
+	
 	/**
 	 * The current system's system tray.
 	 * @see SystemTray#getSystemTray()
@@ -76,6 +101,8 @@ public class GestureTrayApp extends GestureApplication {
 	private GestureRecognizer gr = null;
 	private HandGestureRobot robot = null;
 	private VideoCapturePreviewFrame vcPreview = null;
+	private MjpegPreviewServer mjpegServer = null;
+	private GestureJournalWriter journal = null;
 	
 	
 	/**
@@ -135,8 +162,20 @@ public class GestureTrayApp extends GestureApplication {
 		
 		robot = new HandGestureRobot();
 		logger.debug("Loaded hand gesture robot: " + robot);
+		// The pointer only needs the latest position of a hand, never a backlog,
+		// and moves it inline on the detection thread unless it gets too slow.
+		GestureEventDispatcher.getShared().setDeliveryMode(robot,
+				GestureEventDispatcher.DeliveryMode.COALESCING);
+		GestureEventDispatcher.getShared().setDeliveryMode(robot,
+				GestureEventDispatcher.DeliveryMode.INLINE);
 		
-		gr = new handemapper.recognition.GestureRecognizerImpl();
+		gr = new handemapper.recognition.GestureRecognizerImpl(false);
+		// Running unattended in the tray, never give up on the camera.
+		gr.setMaxReconnectAttempts(GestureRecognizer.UNLIMITED_RECONNECT_ATTEMPTS);
+		gr.setMinimumHandSize(MIN_HAND_SIZE);
+		startJournal();
+		gr.start();
+		startMjpegServer();
 //		vcMirror = new VideoCaptureMirrorPanel(gr.getVideoCaptureImageIcon());
 		
 		/* TODO incorporate the gestures.xml resource to dynamically load the
@@ -154,8 +193,57 @@ public class GestureTrayApp extends GestureApplication {
 	}
 	
 	
+	/**
+	 * Starts the loopback MJPEG preview endpoint if its port is configured
+	 * through the {@value #MJPEG_PORT_PROPERTY} system property.
+	 */
+	private final void startMjpegServer() {
+		final Integer port = Integer.getInteger(MJPEG_PORT_PROPERTY);
+		if (port == null)
+			return;
+		
+		try {
+			mjpegServer = new MjpegPreviewServer(gr, port);
+			mjpegServer.start();
+		}
+		catch (IllegalArgumentException | IOException ex) {
+			logger.error("Failed to start the MJPEG preview on port " + port
+					+ ": " + ex);
+			mjpegServer = null;
+		}
+	}
+	
+	
+	/**
+	 * Starts journaling the emitted gesture events if the journal directory
+	 * is configured through the {@value #JOURNAL_DIR_PROPERTY} system
+	 * property.
+	 */
+	private final void startJournal() {
+		final String dir = System.getProperty(JOURNAL_DIR_PROPERTY);
+		if (dir == null)
+			return;
+		
+		try {
+			journal = new GestureJournalWriter(new File(dir), "gestures");
+			journal.attach(gr.getEventRing());
+		}
+		catch (IOException ex) {
+			logger.error("Failed to start the gesture journal in " + dir
+					+ ": " + ex);
+			journal = null;
+		}
+	}
+	
+	
 	@Override
 	public final void close() {
+		if (mjpegServer != null)
+			mjpegServer.stop();
+		
+		if (journal != null)
+			journal.close();
+		
 		if (gr != null)
 			gr.stop();
 		
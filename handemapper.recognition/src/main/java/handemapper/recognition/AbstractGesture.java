@@ -31,7 +31,10 @@ import org.opencv.core.Scalar;
 
 import handemapper.common.recognition.Gesture;
 import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureEventRing;
 import handemapper.common.recognition.event.GestureListener;
+import handemapper.common.recognition.frame.FrameContext;
+import handemapper.recognition.dispatch.GestureEventDispatcher;
 
 /**
  * <p>This provides an abstract class for any detectable gesture based on the
@@ -51,6 +54,14 @@ import handemapper.common.recognition.event.GestureListener;
  *		addGestureListener( ... );  // some GestureListener
  *	}
  *
+ *	protected GestureX(GestureX original) {
+ *		super(original);
+ *	}
+ *
+ *	public Gesture duplicate() {
+ *		return new GestureX(this);
+ *	}
+ *
  *	public void detect(Mat mat) {
  *		boolean hasDetected = false;
  *		Point centerPoint = null;
@@ -85,14 +96,26 @@ public abstract class AbstractGesture implements Gesture {
 	
 	/*
 	 * The event listener list containing all registered event listeners for
-	 * this instance of the gesture.
+	 * this instance of the gesture, shared with its duplicates.
+	 */
+	private final EventListenerList listenerList;
+	
+	/*
+	 * The registered instance this gesture was duplicated from, or this
+	 * instance itself if it is not a duplicate.
 	 */
-	private final EventListenerList listenerList = new EventListenerList();
+	private final AbstractGesture origin;
 
 	
 	// Member data.
 	private boolean requireInitialization = true;
-	private boolean enabled = true;
+	private volatile boolean enabled = true;
+	private int deviceIndex = -1;
+	private transient FrameContext currentFrame = null;
+	private transient SharedFrameContext ownContext = null;
+	private transient MatArena arena = null;
+	private transient volatile GestureEventDispatcher dispatcher = null;
+	private transient GestureEventRing eventRing = null;
 	private String name = null;
 	private String desc = "";
 	
@@ -153,6 +176,8 @@ public abstract class AbstractGesture implements Gesture {
 	 * 					enabled, {@code true} or not {@code false}.
 	 */
 	public AbstractGesture(String name, String desc, boolean enabled) {
+		this.origin = this;
+		this.listenerList = new EventListenerList();
 		setName(name);
 		setDescription(desc);
 		setEnabled(enabled);
@@ -160,6 +185,27 @@ public abstract class AbstractGesture implements Gesture {
 	}
 	
 	
+	/**
+	 * Copy constructor for a new duplicate of the specified gesture, for use
+	 * by the implementations of {@link #duplicate()}. The duplicate has the
+	 * name, description, device index and event ring of the original; its
+	 * listeners, enabled state and event dispatcher are those of the
+	 * registered instance, so changing them on any instance affects all
+	 * duplicates. No detection state is copied.
+	 * 
+	 * @param original	The gesture to duplicate.
+	 */
+	protected AbstractGesture(AbstractGesture original) {
+		this.origin = original.origin;
+		this.listenerList = original.listenerList;
+		setName(original.getName());
+		setDescription(original.getDescription());
+		setDeviceIndex(original.getDeviceIndex());
+		setEventRing(original.getEventRing());
+		initialize();
+	}
+	
+	
 	@Override
 	public final void initialize() {
 		requireInitialization = true;
@@ -212,18 +258,131 @@ public abstract class AbstractGesture implements Gesture {
 	}
 	
 	
+	/**
+	 * Returns whether this gesture is enabled; a duplicate is enabled
+	 * whenever the registered instance it was duplicated from is.
+	 */
 	@Override
 	public boolean isEnabled() {
-		return enabled;
+		return origin.enabled;
 	}
 	
 	
+	/**
+	 * Enables or disables this gesture together with all of its duplicates.
+	 */
 	@Override
 	public void setEnabled(boolean enabled) {
-		this.enabled = enabled;
+		origin.enabled = enabled;
+	}
+	
+	
+	/**
+	 * Detects this gesture within the image of the specified frame by calling
+	 * {@link #detect(Mat)}. Every {@link GestureEvent} fired meanwhile carries
+	 * the frame's sequence number and capture time. Once the detection
+	 * returns, the {@link #getArena() arena} of this gesture is reset.
+	 */
+	@Override
+	public void detect(final FrameContext frame) {
+		currentFrame = frame;
+		try {
+			detect(frame.getImage());
+		}
+		finally {
+			currentFrame = null;
+			if (arena != null)
+				arena.reset();
+		}
 	}
 	
 	
+	/**
+	 * Returns the frame-scoped {@link MatArena} of this gesture, from which
+	 * the implementation should take the intermediate matrices of a frame.
+	 * The arena is reset after each {@link #detect(FrameContext)}, so matrices
+	 * taken from it must not be kept beyond the detection of the frame.
+	 * 
+	 * @return	the matrix arena of this gesture.
+	 */
+	protected final MatArena getArena() {
+		if (arena == null)
+			arena = new MatArena();
+		
+		return arena;
+	}
+	
+	
+	/**
+	 * Returns the frame currently being detected in, when called from within
+	 * {@link #detect(Mat)} through {@link #detect(FrameContext)}.
+	 * 
+	 * @return	the current {@link FrameContext}, or {@code null} if the image
+	 * 			is not part of a captured frame.
+	 */
+	protected final FrameContext getCurrentFrame() {
+		return currentFrame;
+	}
+	
+	
+	/**
+	 * Returns the frame context for the specified image, from which the
+	 * implementation should take the derived images it needs, e.g. the
+	 * grayscale conversion, instead of converting the image itself. Within
+	 * {@link #detect(FrameContext)} this is the context shared by all
+	 * gestures of the frame. When {@link #detect(Mat)} was called directly,
+	 * a context of this gesture is bound to the image on every call, so its
+	 * derived images are not shared and its overlay records no annotations.
+	 * 
+	 * @param matrix	The image passed to {@link #detect(Mat)}.
+	 * @return	the {@link FrameContext} of the image.
+	 */
+	protected final FrameContext getFrameContext(Mat matrix) {
+		final FrameContext frame = currentFrame;
+		if (frame != null && frame.getImage() == matrix)
+			return frame;
+		
+		if (ownContext == null)
+			ownContext = new SharedFrameContext();
+		
+		ownContext.bind(matrix);
+		return ownContext;
+	}
+	
+	
+	@Override
+	public int getDeviceIndex() {
+		return deviceIndex;
+	}
+	
+	
+	@Override
+	public void setDeviceIndex(int deviceIndex) {
+		this.deviceIndex = deviceIndex;
+	}
+	
+	
+	/**
+	 * Returns a new instance of the implementing class, created through its
+	 * copy constructor, which passes this gesture to
+	 * {@link #AbstractGesture(AbstractGesture)} and copies the implementation
+	 * specific configuration, but no detection state.
+	 * <p>Example:
+	 * <p><code>
+	 *<pre>protected GestureX(GestureX original) {
+	 *	super(original);
+	 *	this.threshold = original.threshold;
+	 *}
+	 *
+	 *public Gesture duplicate() {
+	 *	return new GestureX(this);
+	 *}</pre>
+	 * </code>
+	 */
+	@Override
+	public abstract Gesture duplicate();
+	
+	
 	/**
 	 * <p>If the implementation detects the appropriate object(s), use the
 	 * {@link #fireGestureDetected(int, int, int)} method to notify the
@@ -259,12 +418,20 @@ public abstract class AbstractGesture implements Gesture {
 	}
 	
 	
+	/**
+	 * Registers the specified listener with this gesture and all of its
+	 * duplicates, which share their listeners.
+	 */
 	@Override
 	public final void addGestureListener(GestureListener gl) {
 		listenerList.add(GestureListener.class, gl);
 	}
 	
 	
+	/**
+	 * Removes the specified listener from this gesture and all of its
+	 * duplicates.
+	 */
 	@Override
 	public final void removeGestureListener(GestureListener gl) {
 		listenerList.remove(GestureListener.class, gl);
@@ -272,8 +439,10 @@ public abstract class AbstractGesture implements Gesture {
 	
 	
 	/**
-	 * This creates a new {@link GestureEvent} based on the specified parameters
-	 * and notifies all of the registered {@link GestureListener}s by calling
+	 * This publishes the detection to the {@link GestureEventRing}, if one is
+	 * set, without allocating. Only if any {@link GestureListener} is
+	 * registered, it then creates a new {@link GestureEvent} based on the
+	 * specified parameters and notifies the listeners by calling
 	 * {@link #notifyGestureListeners(GestureEvent)}.
 	 * 
 	 * @param id	The unique identifier for the detection type.
@@ -284,17 +453,87 @@ public abstract class AbstractGesture implements Gesture {
 	 */
 	protected synchronized final void fireGestureDetected(int id, int x, int y)
 	{
-		GestureEvent ge = new GestureEvent(this, id,
-				System.currentTimeMillis(), x, y);
+		final FrameContext frame = currentFrame;
+		final GestureEventRing ring = eventRing;
+		if (ring != null) {
+			final long when = System.currentTimeMillis();
+			if (frame != null) {
+				ring.tryPublish(this, id, when, x, y, deviceIndex,
+						frame.getSequence(), frame.getCaptureNanos(),
+						System.nanoTime());
+			}
+			else {
+				final long now = System.nanoTime();
+				ring.tryPublish(this, id, when, x, y, deviceIndex, -1l, now, now);
+			}
+		}
+		
+		if (listenerList.getListenerCount() == 0)
+			return;
+		
+		final GestureEvent ge;
+		if (frame != null) {
+			ge = new GestureEvent(this, id, System.currentTimeMillis(), x, y,
+					deviceIndex, frame.getSequence(), frame.getCaptureNanos());
+		}
+		else {
+			ge = new GestureEvent(this, id, System.currentTimeMillis(), x, y,
+					deviceIndex);
+		}
 		
 		notifyGestureListeners(ge);
 	}
 	
 	
+	/**
+	 * Returns the dispatcher delivering the events of this gesture to its
+	 * listeners.
+	 * 
+	 * @return	the {@link GestureEventDispatcher} of this gesture, which is
+	 * 			the shared dispatcher unless another one was set.
+	 */
+	public GestureEventDispatcher getEventDispatcher() {
+		final GestureEventDispatcher d = origin.dispatcher;
+		return d != null ? d : GestureEventDispatcher.getShared();
+	}
+	
+	
+	/**
+	 * Sets the dispatcher delivering the events of this gesture and of all of
+	 * its duplicates to their listeners, e.g. one with another overflow policy.
+	 * 
+	 * @param dispatcher	The {@link GestureEventDispatcher} to use, or
+	 * 						{@code null} for the shared dispatcher.
+	 */
+	public void setEventDispatcher(GestureEventDispatcher dispatcher) {
+		origin.dispatcher = dispatcher;
+	}
+	
+	
+	/**
+	 * Returns the ring this gesture publishes its detections to.
+	 * 
+	 * @return	the {@link GestureEventRing} of this gesture, or {@code null} if
+	 * 			none is set.
+	 */
+	public GestureEventRing getEventRing() {
+		return eventRing;
+	}
+	
+	
+	@Override
+	public void setEventRing(GestureEventRing ring) {
+		this.eventRing = ring;
+	}
+	
+	
 	/**
 	 * Notifies all registered {@link GestureListener}s of this instance of the
-	 * gesture with the specified {@link GestureEvent}. This notification is 
-	 * handled in a separate thread.
+	 * gesture with the specified {@link GestureEvent}. The event is queued on
+	 * the lane of each listener of the {@link GestureEventDispatcher}, which
+	 * delivers the events of a listener in order on its delivery threads,
+	 * or directly on this thread for a listener in the
+	 * {@link GestureEventDispatcher.DeliveryMode#INLINE inline} mode.
 	 * 
 	 * @param ge	The new gesture event to notify all appropriate registered
 	 * 				listeners with.
@@ -305,18 +544,8 @@ public abstract class AbstractGesture implements Gesture {
 		if (ge == null)
 			return;
 		
-		final GestureListener[] listeners =
-				listenerList.getListeners(GestureListener.class);
-		
-		new Thread( new Runnable() {
-
-			@Override
-			public void run() {
-				for (GestureListener gl : listeners)
-					gl.gestureDetected(ge);
-			}
-			
-		} ).start();
+		getEventDispatcher().dispatch(ge,
+				listenerList.getListeners(GestureListener.class));
 	}
 	
 	
@@ -0,0 +1,293 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+import handemapper.common.recognition.Gesture;
+import handemapper.common.recognition.GestureRecognizer.SchedulingPolicy;
+import handemapper.common.recognition.GestureRecognizer.State;
+import handemapper.common.recognition.device.CaptureFormat;
+import handemapper.common.recognition.device.DeviceInfo;
+import handemapper.common.recognition.frame.FrameHandle;
+import handemapper.common.recognition.frame.FrameSource;
+import handemapper.recognition.capture.ReconnectPolicy;
+import handemapper.recognition.scheduling.FrameScheduler;
+import handemapper.recognition.source.DeviceFrameSource;
+import handemapper.recognition.utils.Updater;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Provides an independent capture and detection pipeline for a single frame
+ * source. Each pipeline owns its capture thread, its detection worker, its
+ * frame scheduler and its own instances of the registered gestures, so the
+ * per-gesture detection state of one device never mixes with that of another.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureRecognizerImpl
+ */
+final class CapturePipeline {
+	
+	// Private member fields.
+	private final FrameSource source;
+	private final Updater<FrameHandle> imgUpdater;
+	private final PreviewSettings preview;
+	private final ReconnectPolicy reconnectPolicy;
+	private final Updater<State> stateUpdater;
+	private final DeviceInfo deviceInfo = new DeviceInfoImpl();
+	private final Map<String,Gesture> gestures =
+			Collections.synchronizedMap(new LinkedHashMap<String,Gesture>());
+	
+	// Private member data.
+	private volatile FrameScheduler scheduler;
+	private volatile GestureRecognizerWorker worker = null;
+	
+	
+	/**
+	 * Constructor for a new instance of a pipeline processing the specified
+	 * frame source, re-connecting with the specified policy.
+	 * 
+	 * @param source		The {@link FrameSource} of this pipeline.
+	 * @param imgUpdater	The updater to publish the processed frames to, or
+	 * 						{@code null} if the frames are not previewed.
+	 * @param preview		The {@link PreviewSettings} of the published frames.
+	 * @param scheduler		The {@link FrameScheduler} pacing the detection.
+	 * @param policy		The {@link ReconnectPolicy} of the capture thread.
+	 * @param stateUpdater	The updater notified of re-connect transitions, or
+	 * 						{@code null} for none.
+	 */
+	CapturePipeline(FrameSource source, Updater<FrameHandle> imgUpdater,
+			PreviewSettings preview, FrameScheduler scheduler,
+			ReconnectPolicy policy, Updater<State> stateUpdater)
+	{
+		this.source = source;
+		this.imgUpdater = imgUpdater;
+		this.preview = preview;
+		this.scheduler = scheduler;
+		this.reconnectPolicy = policy;
+		this.stateUpdater = stateUpdater;
+	}
+	
+	
+	/**
+	 * Adds the specified gesture instance to this pipeline and binds it to the
+	 * device index of the frame source. The instance must not be shared with
+	 * another pipeline.
+	 * 
+	 * @param gesture	The gesture instance owned by this pipeline.
+	 */
+	void register(Gesture gesture) {
+		gesture.setDeviceIndex(source.getIndex());
+		synchronized (gestures) {
+			if (!gestures.containsKey(gesture.getName()))
+				gestures.put(gesture.getName(), gesture);
+		}
+	}
+	
+	
+	/**
+	 * Starts the capture thread and detection worker of this pipeline, opening
+	 * the frame source first if needed.
+	 * 
+	 * @param startTime	The {@link System#nanoTime()} at which the recognizer
+	 * 					was asked to start, for logging the time to the first
+	 * 					frame.
+	 * @return	{@code true} if the pipeline was started; otherwise, returns
+	 * 			{@code false} if the frame source could not be opened.
+	 */
+	boolean start(long startTime) {
+		if (!source.isOpened() && !source.open())
+			return false;
+		
+		worker = new GestureRecognizerWorker(imgUpdater, source, gestures,
+				scheduler);
+		worker.setStartTime(startTime);
+		worker.setReconnectPolicy(reconnectPolicy);
+		worker.setStateUpdater(stateUpdater);
+		worker.setPreviewSettings(preview);
+		worker.execute();
+		return true;
+	}
+	
+	
+	/**
+	 * Stops the detection worker of this pipeline, which releases the frame
+	 * source once it completes.
+	 */
+	void stop() {
+		final GestureRecognizerWorker w = worker;
+		if (w != null)
+			w.cancel(true);
+		else
+			source.release();
+		
+		worker = null;
+	}
+	
+	
+	/**
+	 * Replaces the frame scheduler pacing this pipeline.
+	 * 
+	 * @param scheduler	The new {@link FrameScheduler} to use.
+	 */
+	void setScheduler(FrameScheduler scheduler) {
+		this.scheduler = scheduler;
+		
+		final GestureRecognizerWorker w = worker;
+		if (w != null)
+			w.setScheduler(scheduler);
+	}
+	
+	
+	/**
+	 * Returns the frame scheduler currently pacing this pipeline.
+	 * 
+	 * @return	the active {@link FrameScheduler}.
+	 */
+	FrameScheduler getScheduler() {
+		return scheduler;
+	}
+	
+	
+	/**
+	 * Returns the frame source of this pipeline.
+	 * 
+	 * @return	the {@link FrameSource}.
+	 */
+	FrameSource getSource() {
+		return source;
+	}
+	
+	
+	/**
+	 * Returns the gesture instances owned by this pipeline.
+	 * 
+	 * @return	a snapshot of the pipeline's gestures.
+	 */
+	List<Gesture> getGestures() {
+		synchronized (gestures) {
+			return new ArrayList<Gesture>(gestures.values());
+		}
+	}
+	
+	
+	/**
+	 * Returns the device information of this pipeline.
+	 * 
+	 * @return	the {@link DeviceInfo} of the pipeline's frame source.
+	 */
+	DeviceInfo getDeviceInfo() {
+		return deviceInfo;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[source=" + source.getName()
+				+ ", index=" + source.getIndex() + "]";
+	}
+	
+	
+	/**
+	 * Provides an implementation of the {@link DeviceInfo} interface reporting
+	 * the live state of the enclosing pipeline.
+	 * 
+	 * @author Chris Hartley
+	 */
+	private final class DeviceInfoImpl implements DeviceInfo {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -3197157484231357192L;
+		
+		
+		// Private member data.
+		private final String uuid = UUID.randomUUID().toString();
+		
+		
+		@Override
+		public String getId() {
+			return uuid;
+		}
+		
+		@Override
+		public int getIndex() {
+			return source.getIndex();
+		}
+		
+		@Override
+		public int getWidth() {
+			return source.getWidth();
+		}
+		
+		@Override
+		public int getHeight() {
+			return source.getHeight();
+		}
+		
+		@Override
+		public double getFPS() {
+			final GestureRecognizerWorker w = worker;
+			return w != null ? w.getFPS() : 0d;
+		}
+		
+		@Override
+		public long getDroppedFrames() {
+			final GestureRecognizerWorker w = worker;
+			return w != null ? w.getDroppedFrames() : 0l;
+		}
+		
+		@Override
+		public SchedulingPolicy getSchedulingPolicy() {
+			return scheduler.getPolicy();
+		}
+		
+		@Override
+		public double getTargetFPS() {
+			return scheduler.getTargetFrameRate();
+		}
+		
+		@Override
+		public long getLateFrames() {
+			return scheduler.getLateFrames();
+		}
+		
+		@Override
+		public CaptureFormat getRequestedFormat() {
+			return source instanceof DeviceFrameSource ?
+					((DeviceFrameSource)source).getRequestedFormat()
+					: CaptureFormat.ANY;
+		}
+		
+		@Override
+		public CaptureFormat getCaptureFormat() {
+			if (source instanceof DeviceFrameSource)
+				return ((DeviceFrameSource)source).getCaptureFormat();
+			
+			return new CaptureFormat(Math.max(source.getWidth(), 0),
+					Math.max(source.getHeight(), 0),
+					Math.max(source.getFPS(), 0d), null);
+		}
+		
+		@Override
+		public long getTimestamp() {
+			final GestureRecognizerWorker w = worker;
+			return w != null ? w.getLastCaptureNanos() : 0l;
+		}
+		
+		@Override
+		public boolean isOpened() {
+			return source.isOpened();
+		}
+	
+	}
+
+}
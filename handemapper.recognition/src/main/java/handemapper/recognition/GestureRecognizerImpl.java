@@ -3,28 +3,38 @@
  */
 package handemapper.recognition;
 
-import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.event.EventListenerList;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
-import org.opencv.highgui.Highgui;
-import org.opencv.highgui.VideoCapture;
 
 import handemapper.common.recognition.Gesture;
 import handemapper.common.recognition.GestureRecognizer;
+import handemapper.common.recognition.device.CaptureFormat;
 import handemapper.common.recognition.device.DeviceInfo;
+import handemapper.common.recognition.event.GestureEventRing;
+import handemapper.common.recognition.frame.FrameHandle;
+import handemapper.common.recognition.frame.FrameListener;
+import handemapper.common.recognition.frame.FrameSource;
 import handemapper.recognition.GestureRecognizerWorker;
+import handemapper.recognition.capture.ReconnectPolicy;
+import handemapper.recognition.scheduling.FrameScheduler;
+import handemapper.recognition.source.DeviceCatalog;
+import handemapper.recognition.source.DeviceDescriptor;
+import handemapper.recognition.source.DeviceFrameSource;
 import handemapper.recognition.utils.Updater;
 
 /**
@@ -45,18 +55,45 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 	private static final int NO_DEVICE_FOUND = -1;
 	
 	
+	/**
+	 * The expected width of a hand relative to the frame width, for a hand
+	 * at arm's length in front of a typical webcam. Used to derive the
+	 * minimum frame width from the minimum hand size.
+	 */
+	private static final double HAND_WIDTH_RATIO = 0.125d;
+	
+	
+	/**
+	 * The default number of frames per second to process.
+	 */
+	private static final double DEFAULT_TARGET_FPS = 30d;
+	
+	
 	// Private member data.
-	private int vcDeviceIndex = NO_DEVICE_FOUND;
-	private long vcImageTimestamp = 0l;
-	private State currentState = State.WAITING;
-	private DeviceInfo deviceInfo = null;
-	private VideoCapture vcDevice = null;
-	private GestureRecognizerWorker grProcessor = null;
-	
-	private final Updater<BufferedImage> frmUpdater = new VideoFrameUpdater();
+	private int[] selectedDevices = null;
+	private volatile State currentState = State.WAITING;
+	private FrameSource source = null;
+	private SchedulingPolicy schedulingPolicy = SchedulingPolicy.DROP_LATE;
+	private double targetFps = DEFAULT_TARGET_FPS;
+	private CaptureFormat captureFormat = CaptureFormat.ANY;
+	private int minHandSize = 0;
+	
+	private final Updater<FrameHandle> frmUpdater = new VideoFrameUpdater();
+	private final DeviceInfo deviceInfo = new PrimaryDeviceInfo();
 	private final EventListenerList listeners = new EventListenerList();
+	private final Map<Property,EventListenerList> propertyListeners =
+			new EnumMap<Property,EventListenerList>(Property.class);
+	private final PreviewSettings preview = new PreviewSettings();
+	private volatile FrameListener[] frameListeners = new FrameListener[0];
+	private volatile boolean captureListened = false;
+	private final DeviceCatalog catalog = new DeviceCatalog();
+	private final GestureEventRing eventRing = new GestureEventRing();
+	private final ReconnectPolicy reconnectPolicy = new ReconnectPolicy();
+	private final Updater<State> stateUpdater = new SourceStateUpdater();
+	private final List<CapturePipeline> pipelines =
+			new CopyOnWriteArrayList<CapturePipeline>();
 	private final Map<String,Gesture> gestures =
-			Collections.synchronizedMap(new HashMap<String,Gesture>());
+			Collections.synchronizedMap(new LinkedHashMap<String,Gesture>());
 	
 
 	/**
@@ -77,11 +114,38 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 	 *                  must be called.
 	 */
 	public GestureRecognizerImpl(boolean autoStart) {
+		this(null, autoStart);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a gesture recognizer processing the
+	 * frames of the specified source, e.g. a video file or an in-memory
+	 * sequence of frames, with the specified parameter to auto-start.
+	 * 
+	 * @param source	The {@link FrameSource} to process; if {@code null},
+	 * 					the selected video capture devices are used.
+	 * @param autoStart If {@code true}, this automatically starts the video 
+	 *                  capture thread; otherwise, the {@link #start()} method 
+	 *                  must be called.
+	 */
+	public GestureRecognizerImpl(FrameSource source, boolean autoStart) {
+		this.source = source;
+		
+		for (Property property : Property.values())
+			propertyListeners.put(property, new EventListenerList());
+		
 		if (autoStart)
 			start();
 	}
 	
 	
+	/**
+	 * Registers the specified gesture. The first capture pipeline detects with
+	 * the given instance; every other pipeline receives its own
+	 * {@link Gesture#duplicate() duplicate}, so no detection state is shared
+	 * between devices. All instances publish to the {@link #getEventRing()}.
+	 */
 	@Override
 	public final Gesture register(Gesture gesture) {
 		if (gestures == null)
@@ -89,102 +153,267 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 		
 		final String gName = gesture.getName();
 		synchronized (gestures) {
-			if (!this.gestures.containsKey(gName))
-				this.gestures.put(gName, gesture);
+			if (this.gestures.containsKey(gName))
+				return gesture;
+			
+			this.gestures.put(gName, gesture);
+		}
+		
+		gesture.setEventRing(eventRing);
+		boolean first = true;
+		for (CapturePipeline pipeline : pipelines) {
+			pipeline.register(first ? gesture : gesture.duplicate());
+			first = false;
 		}
 		
 		return gesture;
 	}
 	
 	
+	@Override
+	public synchronized void selectDevices(int... indices) {
+		if (indices == null || indices.length == 0) {
+			selectedDevices = null;
+			return;
+		}
+		
+		for (int index : indices) {
+			if (index < 0)
+				throw new IllegalArgumentException("Invalid device index: " + index);
+		}
+		selectedDevices = indices.clone();
+		logger.info("Video capture device(s) selected: " + Arrays.toString(indices));
+	}
+	
+	
 	/**
 	 * Initializes this implementation by determining the appropriate video 
-	 * capture device to open and updates the status.
+	 * capture devices to open, creating one capture pipeline for each, and
+	 * updates the status. When a frame source was given on construction, a
+	 * single pipeline for that source is created instead.
 	 */
 	private final void initialize() {
 		fireStatusChanged(currentState, State.INITIALIZING);
-		int vcCount = getVideoCaptureCount();
+		releasePipelines();
 		
-		if (vcCount == 1) {
-			logger.info("Single video capture device found!");
-			vcDeviceIndex = 0;
+		if (source != null) {
+			if (source.isOpened() || source.open())
+				addPipeline(source);
+			return;
 		}
-		else if (vcCount > 1) {
-			//TODO multiple video capture devices available!
-			/* User needs to select the appropriate video device to use in the
-			 * gesture detection. Currently, default to the first index (0).
-			 */
-			logger.info("Multiple video capture devices found! Currently there are " + vcCount + " connected.");
-			vcDeviceIndex = 0;
+		
+		// Open the selected or last-good device right away and refresh the
+		// device catalog in the background, rather than probing every index
+		// on the startup path.
+		final int[] indices = selectedDevices != null ? selectedDevices
+				: new int[] { Math.max(catalog.getLastGoodIndex(), 0) };
+		
+		for (int index : indices)
+			openDevice(index);
+		
+		if (pipelines.isEmpty() && selectedDevices == null) {
+			logger.info("Last-good video capture device " + indices[0]
+					+ " unavailable; probing for devices...");
+			for (DeviceDescriptor dd : catalog.probe(null)) {
+				if (dd.getIndex() != indices[0] && openDevice(dd.getIndex()))
+					break;
+			}
 		}
 		else {
+			final List<FrameSource> inUse = new ArrayList<FrameSource>();
+			for (CapturePipeline pipeline : pipelines)
+				inUse.add(pipeline.getSource());
+			
+			catalog.probeAsync(inUse);
+		}
+		
+		if (pipelines.isEmpty())
 			logger.error("No video capture devices found!");
-			vcDeviceIndex = NO_DEVICE_FOUND;
-			return;
+	}
+	
+	
+	/**
+	 * Opens the video capture device with the specified index and creates a
+	 * capture pipeline for it. The first device opened successfully is
+	 * recorded as the last-good device.
+	 * 
+	 * @param index	The index of the video capture device.
+	 * @return	{@code true} if the device was opened; otherwise, {@code false}.
+	 */
+	private final boolean openDevice(int index) {
+		final DeviceFrameSource device = new DeviceFrameSource(index);
+		applyCaptureSettings(device);
+		
+		if (!device.open()) {
+			device.release();
+			logger.warn("Unable to open video capture device " + index);
+			return false;
 		}
 		
-		vcDevice = new VideoCapture();
-		if (!vcDevice.isOpened())
-			vcDevice.open(vcDeviceIndex);
+		if (pipelines.isEmpty())
+			catalog.setLastGoodIndex(index);
+		
+		addPipeline(device);
+		return true;
 	}
 	
+	
 	/**
-	 * Returns the number of connected and available video capture devices.
-	 * @return  the number of available video capture devices.
+	 * Sets the requested capture format and the minimum frame width derived
+	 * from the minimum hand size on the specified device, which negotiates
+	 * them the next time it is opened or re-connected.
+	 * 
+	 * @param device	The {@link DeviceFrameSource} to configure.
+	 */
+	private final void applyCaptureSettings(DeviceFrameSource device) {
+		device.setRequestedFormat(captureFormat);
+		device.setMinimumFrameWidth(
+				(int)Math.ceil(minHandSize / HAND_WIDTH_RATIO));
+	}
+	
+	
+	/**
+	 * Sets the capture settings on the devices of the current pipelines, so
+	 * a device re-connecting negotiates them.
+	 */
+	private final void applyCaptureSettings() {
+		for (CapturePipeline pipeline : pipelines) {
+			if (pipeline.getSource() instanceof DeviceFrameSource)
+				applyCaptureSettings((DeviceFrameSource)pipeline.getSource());
+		}
+	}
+	
+	
+	/**
+	 * Creates a capture pipeline for the specified opened frame source and
+	 * hands it its own instances of the registered gestures. Only the first
+	 * pipeline publishes its frames for preview.
+	 * 
+	 * @param frameSource	The opened {@link FrameSource} of the pipeline.
 	 */
-	private final int getVideoCaptureCount() {
-		VideoCapture vc;
-		int count = 0;
-		while ((vc = new VideoCapture()).open(count)) {
-			vc.release();
-			count++;
+	private final void addPipeline(FrameSource frameSource) {
+		final boolean primary = pipelines.isEmpty();
+		final CapturePipeline pipeline = new CapturePipeline(frameSource,
+				primary ? frmUpdater : null, preview,
+				FrameScheduler.create(schedulingPolicy, targetFps),
+				reconnectPolicy, stateUpdater);
+		
+		synchronized (gestures) {
+			for (Gesture gesture : gestures.values())
+				pipeline.register(primary ? gesture : gesture.duplicate());
 		}
-		return count;
+		pipelines.add(pipeline);
+		logger.debug("Created " + pipeline);
+	}
+	
+	
+	/**
+	 * Stops and removes all capture pipelines.
+	 */
+	private final void releasePipelines() {
+		for (CapturePipeline pipeline : pipelines)
+			pipeline.stop();
+		
+		pipelines.clear();
 	}
 	
 	
 	@Override
-	public boolean start() {
+	public synchronized boolean start() {
 		if (currentState == State.STARTED) {
 			stop();
 		}
 		
 		logger.debug("Starting the GestureRecognizer...");
-		if (vcDevice == null) {
-			initialize();
+		final long startTime = System.nanoTime();
+		initialize();
+		
+		int started = 0;
+		for (CapturePipeline pipeline : pipelines) {
+			if (pipeline.start(startTime))
+				started++;
+			else
+				logger.error("Unable to start " + pipeline);
 		}
 		
-		if(!vcDevice.isOpened()) {
+		if (started == 0) {
 			fireStatusChanged(currentState, State.ERROR);
-			logger.error("Default device not opened for video capture!");
+			logger.error("No device opened for video capture!");
 			return false;
 		}
 		
-		grProcessor = new GestureRecognizerWorker(frmUpdater, vcDevice, gestures);
-		grProcessor.execute();
-		
 		fireStatusChanged(currentState, State.STARTED);
 		return true;
 	}
 	
 	
 	@Override
-	public void stop() {
-		if (grProcessor != null) {
-			grProcessor.cancel(true);
-		}
-		if (vcDevice != null) {
-			vcDevice.release();
-		}
+	public synchronized void stop() {
+		for (CapturePipeline pipeline : pipelines)
+			pipeline.stop();
 		
 		fireStatusChanged(currentState, State.PAUSED);
 	}
 	
 	
+	@Override
+	public synchronized void setSchedulingPolicy(SchedulingPolicy policy) {
+		if (policy == null || policy == schedulingPolicy)
+			return;
+		
+		schedulingPolicy = policy;
+		for (CapturePipeline pipeline : pipelines)
+			pipeline.setScheduler(FrameScheduler.create(policy, targetFps));
+		
+		logger.info("Frame scheduling policy set to " + policy);
+	}
+	
+	
+	@Override
+	public synchronized void setTargetFrameRate(double fps) {
+		if (!(fps > 0d))
+			throw new IllegalArgumentException("Frame rate must be > 0: " + fps);
+		
+		targetFps = fps;
+		for (CapturePipeline pipeline : pipelines)
+			pipeline.getScheduler().setTargetFrameRate(fps);
+		
+		logger.info("Target frame rate set to " + fps + " FPS");
+	}
+	
+	
+	@Override
+	public synchronized void setCaptureFormat(CaptureFormat format) {
+		captureFormat = format != null ? format : CaptureFormat.ANY;
+		applyCaptureSettings();
+		logger.info("Capture format " + captureFormat + " requested.");
+	}
+	
+	
+	@Override
+	public synchronized void setMinimumHandSize(int pixels) {
+		if (pixels < 0)
+			throw new IllegalArgumentException("Invalid hand size: " + pixels);
+		
+		minHandSize = pixels;
+		applyCaptureSettings();
+		logger.info("Minimum hand size set to " + pixels + " pixels.");
+	}
+	
+	
+	@Override
+	public void setMaxReconnectAttempts(int attempts) {
+		reconnectPolicy.setMaxAttempts(attempts);
+		
+		logger.info("Maximum re-connect attempts set to " + (attempts ==
+				UNLIMITED_RECONNECT_ATTEMPTS ? "unlimited" : attempts));
+	}
+	
+	
 	@Override
 	public String toString() {
 		return getClass().getSimpleName()
-				+ "[device=" + vcDevice + ", gesture(s)='"
+				+ "[pipelines=" + pipelines + ", gesture(s)='"
 				+ Arrays.toString(getGestureNames())
 				+ "']";
 	}
@@ -203,6 +432,10 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 	}
 	
 	
+	/**
+	 * Returns the registered gestures, i.e. the instances detecting on the
+	 * first selected device.
+	 */
 	@Override
 	public final List<Gesture> getGestures() {
 		List<Gesture> tmp;
@@ -245,6 +478,14 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 		
 		for (PropertyChangeListener pcl : listeners.getListeners(PropertyChangeListener.class))
 			pcl.propertyChange(event);
+		
+		for (Property property : Property.values()) {
+			if (property.toString().equals(propertyName)) {
+				for (PropertyChangeListener pcl : propertyListeners.get(property)
+						.getListeners(PropertyChangeListener.class))
+					pcl.propertyChange(event);
+			}
+		}
 	}
 	
 	
@@ -252,6 +493,8 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 	public void addPropertyChangeListener(PropertyChangeListener pcl) {
 		if (pcl != null)
 			listeners.add(PropertyChangeListener.class, pcl);
+		
+		updatePreviewRequested();
 	}
 
 
@@ -259,31 +502,155 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 	public void removePropertyChangeListener(PropertyChangeListener pcl) {
 		if (pcl != null)
 			listeners.remove(PropertyChangeListener.class, pcl);
+		
+		updatePreviewRequested();
+	}
+	
+	
+	@Override
+	public void addPropertyChangeListener(Property property,
+			PropertyChangeListener pcl)
+	{
+		if (property != null && pcl != null)
+			propertyListeners.get(property).add(PropertyChangeListener.class, pcl);
+		
+		updatePreviewRequested();
+	}
+	
+	
+	@Override
+	public void removePropertyChangeListener(Property property,
+			PropertyChangeListener pcl)
+	{
+		if (property != null && pcl != null)
+			propertyListeners.get(property).remove(PropertyChangeListener.class, pcl);
+		
+		updatePreviewRequested();
+	}
+	
+	
+	@Override
+	public void addFrameListener(FrameListener listener) {
+		if (listener == null)
+			return;
+		
+		synchronized (preview) {
+			final FrameListener[] current = frameListeners;
+			final FrameListener[] added = Arrays.copyOf(current, current.length + 1);
+			added[current.length] = listener;
+			frameListeners = added;
+		}
+		
+		updatePreviewRequested();
+	}
+	
+	
+	@Override
+	public void removeFrameListener(FrameListener listener) {
+		if (listener == null)
+			return;
+		
+		synchronized (preview) {
+			final FrameListener[] current = frameListeners;
+			for (int i = current.length - 1; i >= 0; i--) {
+				if (current[i] == listener) {
+					final FrameListener[] removed = new FrameListener[current.length - 1];
+					System.arraycopy(current, 0, removed, 0, i);
+					System.arraycopy(current, i + 1, removed, i, removed.length - i);
+					frameListeners = removed;
+					break;
+				}
+			}
+		}
+		
+		updatePreviewRequested();
+	}
+	
+	
+	/**
+	 * Requests the preview images from the capture pipelines while at least
+	 * one frame listener or one listener for the {@link Property#CAPTURE}
+	 * property is registered, so no frame is converted for preview when
+	 * nobody is watching. The number of listeners sizes the frame pools of
+	 * the pipelines, since every listener may hold frames at once.
+	 */
+	private final void updatePreviewRequested() {
+		synchronized (preview) {
+			final int pcls = listeners.getListenerCount(PropertyChangeListener.class)
+					+ propertyListeners.get(Property.CAPTURE)
+							.getListenerCount(PropertyChangeListener.class);
+			final int count = pcls + frameListeners.length;
+			
+			captureListened = pcls > 0;
+			preview.setConsumers(count);
+			if (preview.isRequested() != (count > 0)) {
+				preview.setRequested(count > 0);
+				logger.debug("Preview " + (count > 0 ? "requested." : "no longer requested."));
+			}
+		}
+	}
+	
+	
+	@Override
+	public void setPreviewFrameRate(double fps) {
+		preview.setFrameRate(fps);
+		logger.info("Preview frame rate set to " + fps + " FPS");
+	}
+	
+	
+	@Override
+	public void setPreviewSize(int width, int height) {
+		preview.setSize(width, height);
 	}
 
 
+	/**
+	 * Returns the catalog of the video capture devices, as cached from the
+	 * previous run until the background probe completes.
+	 * 
+	 * @return	the {@link DeviceCatalog} of this recognizer.
+	 */
+	public DeviceCatalog getDeviceCatalog() {
+		return catalog;
+	}
+	
+	
 	@Override
 	public DeviceInfo getDeviceInfo() {
-		if (deviceInfo == null)
-			deviceInfo = new DeviceInfoImpl();
-		
 		return deviceInfo;
 	}
 	
 	
+	@Override
+	public List<DeviceInfo> getDeviceInfos() {
+		final List<DeviceInfo> infos = new ArrayList<DeviceInfo>();
+		for (CapturePipeline pipeline : pipelines)
+			infos.add(pipeline.getDeviceInfo());
+		
+		return infos;
+	}
+	
+	
+	@Override
+	public GestureEventRing getEventRing() {
+		return eventRing;
+	}
+	
+	
 	/**
 	 * Provides an implementation of the {@link DeviceInfo} interface for use 
 	 * as the return structure of {@link GestureRecognizerImpl#getDeviceInfo()}
-	 * method.
+	 * method. It delegates to the first capture pipeline, so the instance
+	 * remains valid when the recognizer is restarted.
 	 * 
 	 * @author Chris
 	 */
-	private final class DeviceInfoImpl implements DeviceInfo {
+	private final class PrimaryDeviceInfo implements DeviceInfo {
 		
 		/**
 		 * 
 		 */
-		private static final long serialVersionUID = -3197157484231357192L;
+		private static final long serialVersionUID = 4650939914016255124L;
 
 		
 		// Private member data.
@@ -291,13 +658,13 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 		
 		
 		/**
-		 * Returns a {@link Double} value of the video capture device property.
-		 * @param propId
-		 * @return
+		 * Returns the device information of the first pipeline.
+		 * @return  the primary {@link DeviceInfo}, or {@code null} if no
+		 *          pipeline exists.
 		 */
-		private final Double getDeviceProperty(int propId) {
-			return vcDevice != null ?
-					new Double(vcDevice.get(propId)) : Double.NaN;
+		private DeviceInfo primary() {
+			final Iterator<CapturePipeline> it = pipelines.iterator();
+			return it.hasNext() ? it.next().getDeviceInfo() : null;
 		}
 		
 		@Override
@@ -307,54 +674,136 @@ public class GestureRecognizerImpl implements GestureRecognizer {
 		
 		@Override
 		public int getIndex() {
-			return vcDeviceIndex;
+			final DeviceInfo info = primary();
+			return info != null ? info.getIndex() : NO_DEVICE_FOUND;
 		}
 		
 		@Override
 		public int getWidth() {
-			return getDeviceProperty(Highgui.CV_CAP_PROP_FRAME_WIDTH).intValue();
+			final DeviceInfo info = primary();
+			return info != null ? info.getWidth() : 0;
 		}
 
 		@Override
 		public int getHeight() {
-			return getDeviceProperty(Highgui.CV_CAP_PROP_FRAME_HEIGHT).intValue();
+			final DeviceInfo info = primary();
+			return info != null ? info.getHeight() : 0;
 		}
 
 		@Override
 		public double getFPS() {
-			return grProcessor != null ? grProcessor.getFPS() : 0d;
+			final DeviceInfo info = primary();
+			return info != null ? info.getFPS() : 0d;
+		}
+
+		@Override
+		public long getDroppedFrames() {
+			final DeviceInfo info = primary();
+			return info != null ? info.getDroppedFrames() : 0l;
+		}
+
+		@Override
+		public SchedulingPolicy getSchedulingPolicy() {
+			return schedulingPolicy;
+		}
+
+		@Override
+		public double getTargetFPS() {
+			final DeviceInfo info = primary();
+			return info != null ? info.getTargetFPS() : targetFps;
+		}
+
+		@Override
+		public long getLateFrames() {
+			final DeviceInfo info = primary();
+			return info != null ? info.getLateFrames() : 0l;
+		}
+
+		@Override
+		public CaptureFormat getRequestedFormat() {
+			final DeviceInfo info = primary();
+			return info != null ? info.getRequestedFormat() : captureFormat;
+		}
+
+		@Override
+		public CaptureFormat getCaptureFormat() {
+			final DeviceInfo info = primary();
+			return info != null ? info.getCaptureFormat() : CaptureFormat.ANY;
 		}
 
 		@Override
 		public long getTimestamp() {
-			return vcImageTimestamp;
+			final DeviceInfo info = primary();
+			return info != null ? info.getTimestamp() : 0l;
 		}
 
 		@Override
 		public boolean isOpened() {
-			return vcDevice != null && vcDevice.isOpened();
+			final DeviceInfo info = primary();
+			return info != null && info.isOpened();
+		}
+		
+	}
+	
+	
+	/**
+	 * Provides the updater for the re-connect state transitions of the frame
+	 * sources, which fires them as status changes of this recognizer.
+	 * 
+	 * @author Chris Hartley
+	 */
+	private final class SourceStateUpdater implements Updater<State> {
+		
+		@Override
+		public final void update(State newState) {
+			if (newState != currentState)
+				fireStatusChanged(currentState, newState);
 		}
 		
 	}
 	
 	
 	/**
-	 * Provides a video capture updater with the {@link BufferedImage} as the
-	 * parameter type. This calls the fire property changed method and keeps a
-	 * cache of the previous frame image.
+	 * Provides a video capture updater with the {@link FrameHandle} as the
+	 * parameter type. This hands the frame to the frame listeners and, while
+	 * any listener for the {@link Property#CAPTURE} property is registered,
+	 * calls the fire property changed method with the frame image. Since such
+	 * a listener may keep the image, the handle of the last fired image stays
+	 * leased until the next image replaces it.
 	 * 
 	 * @author Chris
 	 */
-	private final class VideoFrameUpdater implements Updater<BufferedImage> {
+	private final class VideoFrameUpdater implements Updater<FrameHandle> {
 		
 		// Private member data.
-		private BufferedImage oldFrame = null;
+		private FrameHandle oldFrame = null;
 		
 		
 		@Override
-		public final void update(BufferedImage newFrame) {
-			firePropertyChanged(Property.CAPTURE.toString(), oldFrame, newFrame);
-			oldFrame = newFrame;
+		public final void update(FrameHandle newFrame) {
+			final FrameListener[] current = frameListeners;
+			for (int i = 0; i < current.length; i++) {
+				try {
+					current[i].frameAvailable(newFrame);
+				}
+				catch (RuntimeException ex) {
+					logger.error("Frame listener " + current[i] + " failed: " + ex);
+				}
+			}
+			
+			if (captureListened) {
+				newFrame.lease();
+				firePropertyChanged(Property.CAPTURE.toString(),
+						oldFrame != null ? oldFrame.getImage() : null,
+						newFrame.getImage());
+				if (oldFrame != null)
+					oldFrame.release();
+				oldFrame = newFrame;
+			}
+			else if (oldFrame != null) {
+				oldFrame.release();
+				oldFrame = null;
+			}
 		}
 		
 	}
@@ -4,26 +4,28 @@
 package handemapper.recognition;
 
 import handemapper.common.recognition.Gesture;
+import handemapper.common.recognition.GestureRecognizer;
+import handemapper.common.recognition.frame.FrameHandle;
+import handemapper.common.recognition.frame.FrameSource;
+import handemapper.recognition.capture.CapturedFrame;
+import handemapper.recognition.capture.FrameCaptureThread;
+import handemapper.recognition.capture.ReconnectPolicy;
+import handemapper.recognition.capture.TripleBuffer;
+import handemapper.recognition.scheduling.FrameScheduler;
+import handemapper.recognition.utils.MatImageConverter;
 import handemapper.recognition.utils.Updater;
 
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.Map;
 
-import javax.imageio.ImageIO;
 import javax.swing.SwingWorker;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfByte;
-import org.opencv.highgui.Highgui;
-import org.opencv.highgui.VideoCapture;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
 
 
 /**
@@ -39,122 +41,99 @@ public class GestureRecognizerWorker extends SwingWorker<Void, Long> {
 	
 	
 	/**
-	 * The publish format for the image buffer.
+	 * The time in nanoseconds to wait for a new frame from the capture thread
+	 * before verifying that the capture thread is still alive.
 	 */
-	private static final String publishImageFormat = ".jpg";
-	
-	
-	/**
-	 * The maximum number of re-connect attempts before error'ing out.
-	 */
-	private static final int maxReconnectAttempts = 5;
-	
-	
-	/**
-	 * The delay in milliseconds between re-connect attempts on the video
-	 * device.
-	 */
-	private static final int delayInMillis = 2000;
+	private static final long frameWaitNanos = 250000000l;
 	
 	
 	// Private member fields.
 	private final int frameAvg = 8;
-	private final Updater<BufferedImage> imgUpdater;
+	private final Updater<FrameHandle> imgUpdater;
 	private final Map<String,Gesture> gestures;
-	private final MatOfByte matrixBuffer = new MatOfByte();
-	private final AffineTransform tx = AffineTransform.getScaleInstance(-1, 1);
+	private final MatImageConverter imageConverter = new MatImageConverter(true);
+	private final PreviewFramePool framePool = new PreviewFramePool();
+	private final Mat previewImg = new Mat();
+	private final Size previewSize = new Size();
+	private final TripleBuffer<CapturedFrame> frameBuffer;
+	private final SharedFrameContext frameContext = new SharedFrameContext();
+	private final FrameCaptureThread captureThread;
 	
 	// Private member data.
 	private double fps = 0d;
-	private long fpsLimit = 30;
-	private long fpsLimitTime = 1000 / fpsLimit;
-	private VideoCapture camera;
-	private AffineTransformOp op = null;
+	private volatile FrameScheduler scheduler;
+	private final FrameSource source;
+	private long lastDropCount = 0l;
+	private long requestedAt = System.nanoTime();
+	private long nextPreviewNanos = 0l;
+	private volatile PreviewSettings previewSettings = null;
+	private volatile long lastCaptureNanos = 0l;
+	private volatile long lastSequence = -1l;
 
 	
 	/**
-	 * Constructor for a new instance with the specified video capture device,
-	 * image holder to publish the received frames, and the map containing the
-	 * registered gestures that are currently loaded.
+	 * Constructor for a new instance with the specified frame source, image
+	 * holder to publish the received frames, the map containing the
+	 * registered gestures that are currently loaded, and the frame scheduler
+	 * pacing the detection.
 	 * 
-	 * @param camera
-	 * @param imgIcon
-	 * @param gestures2
+	 * @param imgUpdater	The updater to publish the frames to, or {@code null}
+	 * 						if the frames of this source are not previewed.
+	 * @param source
+	 * @param gestures
+	 * @param scheduler
 	 */
-	public GestureRecognizerWorker(Updater<BufferedImage> imgUpdater,
-			VideoCapture camera, Map<String,Gesture> gestures)
+	public GestureRecognizerWorker(Updater<FrameHandle> imgUpdater,
+			FrameSource source, Map<String,Gesture> gestures,
+			FrameScheduler scheduler)
 	{
 		super();
 		
-		this.camera = camera;
+		this.source = source;
+		this.scheduler = scheduler;
 		this.imgUpdater = imgUpdater;
 		this.gestures = gestures;
+		this.frameBuffer = new TripleBuffer<CapturedFrame>(
+				new CapturedFrame(source.getIndex()),
+				new CapturedFrame(source.getIndex()),
+				new CapturedFrame(source.getIndex()));
+		this.captureThread = new FrameCaptureThread(source, frameBuffer);
 		
 		logger.debug("Initializing " + getClass().getSimpleName());
 	}
 	
 	
-	/**
-	 * Verifies that the camera device is available and retrieve the next frame
-	 * from the video camera to store into the specified {@link Mat} buffer.
-	 * 
-	 * @param buffer	The buffer to store the next frame to.
-	 * @return			{@code true} if the device is available and successfully
-	 * 					retrieved an image for the next frame; otherwise,
-	 * 					returns {@code false}.
-	 */
-	private final synchronized boolean readNextVideoFrame(Mat buffer) {
-		int reconnectAttempt = 1;
-		
-		if (camera == null) {
-			logger.error("No camera device connected.");
-			return false;
-		}
-		
-		// To retrieve various properties of the camera device.
-		//camera.get(propId);
-		if (!camera.isOpened())
-			logger.warn("Camera device is NOT opened at this time.");
-		
-		while (!camera.read(buffer) || buffer.empty()) {
-			if (reconnectAttempt > maxReconnectAttempts) {
-				logger.error("After " + reconnectAttempt + " attempts to "
-						+ "re-connect to the device, it was unable to retireve "
-						+ "an image. Please verify the web camera is connected "
-						+ "and functioning properly.");
-				return false;
-			}
-			
-			logger.warn("Couldn't retrive image from video. "
-					+ "Re-attempting in " + (delayInMillis / 1000.0)
-					+ " seconds...");
-			
-			try {
-				Thread.sleep(delayInMillis);
-			} catch (Exception ignore) { }
-			
-			reconnectAttempt++;
-			if (!camera.isOpened())
-				camera.open(0);
-		}
-		return true;
-	}
-	
-	
 	/**
 	 * @see javax.swing.SwingWorker#doInBackground()
 	 */
 	@Override
 	protected Void doInBackground() throws Exception {
 		logger.debug("Worker " + getClass().getSimpleName() + " running...");
-		Mat img = new Mat();
+		CapturedFrame frame;
 		
 		int frameCount = 0;
-		long startTime = 0l, lapseTime, fpsDiff;
+		long startTime = System.nanoTime(), lapseTime;
+		boolean firstFrame = true, preview;
+		FrameScheduler frameScheduler;
 		
+		captureThread.start();
 		try {
-			while (!isCancelled() && readNextVideoFrame(img)) {
-				lapseTime = System.currentTimeMillis();
+			while (!isCancelled() && awaitNextVideoFrame()) {
+				if (firstFrame) {
+					logger.info("First frame from " + source.getName() + " after "
+							+ (System.nanoTime() - requestedAt) / 1000000l
+							+ " ms (" + ManagementFactory.getRuntimeMXBean().getUptime()
+							+ " ms since startup)");
+					firstFrame = false;
+				}
+				
+				frame = frameBuffer.getFront();
+				lastCaptureNanos = frame.getCaptureNanos();
+				lastSequence = frame.getSequence();
+				frameScheduler = scheduler;
+				lapseTime = frameScheduler.beginFrame();
+				preview = imgUpdater != null && isPreviewDue(lapseTime);
+				frameContext.bind(frame, preview);
 				if (++frameCount == frameAvg) {
 					publish(lapseTime - startTime);
 					frameCount = 0;
@@ -163,18 +142,15 @@ public class GestureRecognizerWorker extends SwingWorker<Void, Long> {
 				synchronized(gestures) {
 					for (Gesture gesture : gestures.values()) {
 						if (gesture != null && gesture.isEnabled())
-							gesture.detect(img);
+							gesture.detect(frameContext);
 					}
 				}
-				publishImage(img);
+				if (preview)
+					publishImage(frame, frameContext.getOverlay());
 				
-				lapseTime = System.currentTimeMillis() - lapseTime;
-				fpsDiff = fpsLimitTime - lapseTime;
-				if (fpsDiff > 0) {
-					try {
-						Thread.sleep(fpsDiff);
-					} catch (Exception ignore) { }
-				}
+				// An unpaced, non-live source runs the pipeline unthrottled.
+				frameScheduler.endFrame(lapseTime,
+						source.isPaced() || source.isLive());
 			}
 			
 			logger.debug("Worker " + getClass().getSimpleName() + " canceled!");
@@ -183,43 +159,143 @@ public class GestureRecognizerWorker extends SwingWorker<Void, Long> {
 			logger.error("Exception caught in " + getClass().getSimpleName() + ": " + ex);
 			ex.printStackTrace();
 		}
+		finally {
+			captureThread.shutdown();
+			frameContext.release();
+			imageConverter.release();
+			previewImg.release();
+		}
 		return null;
 	}
 	
 	
 	/**
+	 * Waits for the capture thread to publish the next frame and swaps it into
+	 * the front slot of the frame buffer. Any frames published since the last
+	 * call, other than the newest, are dropped.
 	 * 
-	 * @param in
+	 * @return	{@code true} if a new frame is available in the front slot;
+	 * 			otherwise, returns {@code false} if the worker was canceled or
+	 * 			the capture thread is no longer able to deliver frames.
 	 */
-	private final synchronized void publishImage(Mat img) {
-		InputStream in = null;
+	private final boolean awaitNextVideoFrame() {
+		while (!frameBuffer.awaitFront(frameWaitNanos)) {
+			if (isCancelled() || Thread.currentThread().isInterrupted())
+				return false;
+			
+			if (captureThread.hasFailed() || !captureThread.isAlive()) {
+				logger.error("Capture thread stopped; no more frames available.");
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if a preview image should be published for the
+	 * frame processed at the specified time, i.e. the preview is requested
+	 * and its period has elapsed. A quarter of the period is tolerated as
+	 * jitter, so a preview rate that divides the detection rate is kept.
+	 * Without {@link PreviewSettings}, every frame is published.
+	 * 
+	 * @param now	The {@link System#nanoTime()} at which the frame started.
+	 * @return	whether to publish a preview image for the frame.
+	 */
+	private final boolean isPreviewDue(long now) {
+		final PreviewSettings settings = previewSettings;
+		if (settings == null)
+			return true;
 		
-		Highgui.imencode(publishImageFormat, img, matrixBuffer);
+		if (!settings.isRequested())
+			return false;
 		
-		try {
-			in = new ByteArrayInputStream(matrixBuffer.toArray());
+		final long period = settings.getPeriodNanos();
+		if (now - nextPreviewNanos < -(period >> 2))
+			return false;
 		
-			BufferedImage bufferImg = ImageIO.read(in);
-			
-			if (op == null) {
-				tx.translate(-bufferImg.getWidth(null), 0);
-				op = new AffineTransformOp(tx, 
-						AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+		nextPreviewNanos += period;
+		if (now - nextPreviewNanos >= 0l)
+			nextPreviewNanos = now + period;
+		return true;
+	}
+	
+	
+	/**
+	 * Publishes the mirrored image of the processed frame to the image
+	 * updater. The frame is first scaled natively to the requested preview
+	 * size, if any, the annotations of the gestures are drawn onto the scaled
+	 * copy, and the result is converted directly from the matrix into the
+	 * image of a free handle of the {@link PreviewFramePool}. The frame image
+	 * itself is never drawn into. When every handle is still leased by the
+	 * consumers, the preview frame is skipped.
+	 * 
+	 * @param frame		The processed frame.
+	 * @param overlay	The annotations recorded for the frame.
+	 */
+	private final void publishImage(CapturedFrame frame,
+			OverlayDisplayList overlay)
+	{
+		final PreviewSettings settings = previewSettings;
+		if (settings != null)
+			framePool.ensureConsumers(settings.getConsumers());
+		
+		final PreviewFramePool.Handle handle = framePool.acquire();
+		if (handle == null) {
+			logger.trace("Preview frame " + frame.getSequence()
+					+ " skipped, all frame handles are leased.");
+			return;
+		}
+		
+		final Mat img = frame.getImage();
+		final long size = settings != null ? settings.getSize() : 0l;
+		final int width = PreviewSettings.widthOf(size);
+		final int height = PreviewSettings.heightOf(size);
+		
+		Mat src = img;
+		if (width > 0 && height > 0
+				&& (width != img.cols() || height != img.rows()))
+		{
+			previewSize.width = width;
+			previewSize.height = height;
+			Imgproc.resize(img, previewImg, previewSize, 0d, 0d,
+					width < img.cols() ? Imgproc.INTER_AREA
+							: Imgproc.INTER_LINEAR);
+			src = previewImg;
+		}
+		
+		if (!overlay.isEmpty()) {
+			if (src == img) {
+				img.copyTo(previewImg);
+				src = previewImg;
 			}
-			
-			imgUpdater.update(op.filter(bufferImg, null));
+			overlay.rasterize(src, (double)src.cols() / img.cols(),
+					(double)src.rows() / img.rows());
 		}
-		catch(IOException ex) {
-			if (!isCancelled())
-				cancel(true);
+		
+		try {
+			handle.setImage(imageConverter.convert(src, handle.getImage()));
+			handle.stamp(frame.getSequence(), frame.getCaptureNanos(),
+					System.nanoTime(), frame.getDeviceIndex());
+			imgUpdater.update(handle);
+		}
+		finally {
+			handle.release();
 		}
 	}
 	
 	
 	@Override
 	protected void process(List<Long> times) {
-		for (long milli : times) {
-			fps = frameAvg * 1000.0 / milli;
+		for (long nanos : times) {
+			fps = frameAvg * 1000000000.0 / nanos;
+		}
+		
+		final long dropCount = frameBuffer.getDroppedCount();
+		if (dropCount != lastDropCount) {
+			logger.debug("Dropped " + (dropCount - lastDropCount)
+					+ " stale frame(s); " + dropCount + " dropped in total.");
+			lastDropCount = dropCount;
 		}
 	}
 
@@ -228,13 +304,62 @@ public class GestureRecognizerWorker extends SwingWorker<Void, Long> {
 	protected void done() {
 		logger.warn(getClass().getSimpleName() + " has completed!");
 
+		captureThread.shutdown();
 		try {
-			camera.release();
-			logger.debug("Video device released!");
+			source.release();
+			logger.debug("Frame source released!");
 		} catch(Exception ignore) { }
 	}
 
 
+	/**
+	 * Sets the policy for re-connecting to a live source that stopped
+	 * delivering frames.
+	 * 
+	 * @param policy	The {@link ReconnectPolicy} to use.
+	 */
+	public void setReconnectPolicy(ReconnectPolicy policy) {
+		captureThread.setReconnectPolicy(policy);
+	}
+	
+	
+	/**
+	 * Sets the updater notified of the state transitions of the frame source
+	 * while re-connecting.
+	 * 
+	 * @param stateUpdater	The state updater, or {@code null} for none.
+	 * 
+	 * @see FrameCaptureThread#setStateUpdater(Updater)
+	 */
+	public void setStateUpdater(Updater<GestureRecognizer.State> stateUpdater) {
+		captureThread.setStateUpdater(stateUpdater);
+	}
+	
+	
+	/**
+	 * Sets the settings deciding whether, how often and at which size the
+	 * preview images are published. Without settings, every processed frame
+	 * is published at its original size.
+	 * 
+	 * @param preview	The shared {@link PreviewSettings}, or {@code null}.
+	 */
+	void setPreviewSettings(PreviewSettings preview) {
+		this.previewSettings = preview;
+	}
+	
+	
+	/**
+	 * Sets the time at which the recognizer was asked to start, used to log
+	 * the time it took until the first frame arrived. Defaults to the
+	 * construction time of this worker.
+	 * 
+	 * @param startTime	The start time, as returned by {@link System#nanoTime()}.
+	 */
+	public void setStartTime(long startTime) {
+		this.requestedAt = startTime;
+	}
+	
+	
 	/**
 	 * returns the current frames-per-second that this worker is processing at.
 	 * 
@@ -243,5 +368,60 @@ public class GestureRecognizerWorker extends SwingWorker<Void, Long> {
 	public double getFPS() {
 		return fps;
 	}
+	
+	
+	/**
+	 * Returns the frame scheduler currently pacing this worker.
+	 * 
+	 * @return	the active {@link FrameScheduler}.
+	 */
+	public FrameScheduler getScheduler() {
+		return scheduler;
+	}
+	
+	
+	/**
+	 * Replaces the frame scheduler pacing this worker. The new scheduler takes
+	 * effect on the next processed frame.
+	 * 
+	 * @param scheduler	The new {@link FrameScheduler} to use.
+	 */
+	public void setScheduler(FrameScheduler scheduler) {
+		if (scheduler != null)
+			this.scheduler = scheduler;
+	}
+	
+	
+	/**
+	 * Returns the monotonic capture time of the most recently processed frame.
+	 * 
+	 * @return	the capture time, as returned by {@link System#nanoTime()}, or
+	 * 			{@code 0} if no frame has been processed yet.
+	 */
+	public long getLastCaptureNanos() {
+		return lastCaptureNanos;
+	}
+	
+	
+	/**
+	 * Returns the sequence number of the most recently processed frame.
+	 * 
+	 * @return	the frame sequence number, or {@code -1} if no frame has been
+	 * 			processed yet.
+	 */
+	public long getLastSequence() {
+		return lastSequence;
+	}
+	
+	
+	/**
+	 * Returns the number of captured frames that were replaced by a newer
+	 * frame before the detection could pick them up.
+	 * 
+	 * @return	the number of dropped frames.
+	 */
+	public long getDroppedFrames() {
+		return frameBuffer.getDroppedCount();
+	}
 
 }
@@ -0,0 +1,300 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+
+/**
+ * Provides a frame-scoped pool of native OpenCV matrices. Instead of creating
+ * a new {@link Mat} for every intermediate image of a frame, whose native
+ * memory is only freed once the garbage collector finalizes the Java wrapper,
+ * a detector acquires its matrices from the arena and the arena is
+ * {@link #reset()} at the end of the frame. The matrices are then handed out
+ * again for the next frame; since OpenCV only re-allocates the native buffer
+ * of a matrix when its size or type changes, the steady state does not
+ * allocate any native memory.
+ * <p>Matrices created outside of the arena for the current frame, e.g. the
+ * contours returned by {@link Imgproc#findContours}, can be handed to
+ * {@link #track(Mat)} to be released deterministically at the end of the
+ * frame. Structuring elements are cached for the lifetime of the arena.
+ * <p>An arena is not thread-safe and must only be used by the thread
+ * processing the frame.
+ * <p>Example:
+ * <p><code>
+ *<pre>Mat gray = arena.acquire(frame.rows(), frame.cols(), CvType.CV_8UC1);
+ *Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+ *detectObjectsIn(gray);
+ *arena.reset();	// at the end of the frame</pre>
+ * </code>
+ * 
+ * @author Chris Hartley
+ */
+public final class MatArena {
+	
+	// Private member fields.
+	private final Pool<Mat> mats = new Pool<Mat>() {
+		@Override
+		Mat create() {
+			return new Mat();
+		}
+	};
+	
+	private final Pool<MatOfPoint> points = new Pool<MatOfPoint>() {
+		@Override
+		MatOfPoint create() {
+			return new MatOfPoint();
+		}
+	};
+	
+	private final Pool<MatOfPoint2f> points2f = new Pool<MatOfPoint2f>() {
+		@Override
+		MatOfPoint2f create() {
+			return new MatOfPoint2f();
+		}
+	};
+	
+	private final Pool<MatOfInt> ints = new Pool<MatOfInt>() {
+		@Override
+		MatOfInt create() {
+			return new MatOfInt();
+		}
+	};
+	
+	private final Pool<MatOfRect> rects = new Pool<MatOfRect>() {
+		@Override
+		MatOfRect create() {
+			return new MatOfRect();
+		}
+	};
+	
+	private final List<Mat> tracked = new ArrayList<Mat>();
+	private final Map<Long,Mat> kernels = new HashMap<Long,Mat>();
+	
+	
+	/**
+	 * Returns a matrix for the current frame whose size and type are left to
+	 * the OpenCV function writing into it.
+	 * 
+	 * @return	a pooled {@link Mat}.
+	 */
+	public Mat acquire() {
+		return mats.acquire();
+	}
+	
+	
+	/**
+	 * Returns a matrix for the current frame with the specified size and type.
+	 * The native buffer is only re-allocated if the pooled matrix had a
+	 * different size or type.
+	 * 
+	 * @param rows	The number of rows.
+	 * @param cols	The number of columns.
+	 * @param type	The matrix type, e.g. {@code CvType.CV_8UC1}.
+	 * @return	a pooled {@link Mat} of the requested size and type.
+	 */
+	public Mat acquire(int rows, int cols, int type) {
+		final Mat mat = mats.acquire();
+		mat.create(rows, cols, type);
+		return mat;
+	}
+	
+	
+	/**
+	 * Returns a matrix of integer points for the current frame.
+	 * 
+	 * @return	a pooled {@link MatOfPoint}.
+	 */
+	public MatOfPoint acquirePoints() {
+		return points.acquire();
+	}
+	
+	
+	/**
+	 * Returns a matrix of floating-point points for the current frame.
+	 * 
+	 * @return	a pooled {@link MatOfPoint2f}.
+	 */
+	public MatOfPoint2f acquirePoints2f() {
+		return points2f.acquire();
+	}
+	
+	
+	/**
+	 * Returns a matrix of integers for the current frame.
+	 * 
+	 * @return	a pooled {@link MatOfInt}.
+	 */
+	public MatOfInt acquireInts() {
+		return ints.acquire();
+	}
+	
+	
+	/**
+	 * Returns a matrix of rectangles for the current frame.
+	 * 
+	 * @return	a pooled {@link MatOfRect}.
+	 */
+	public MatOfRect acquireRects() {
+		return rects.acquire();
+	}
+	
+	
+	/**
+	 * Registers a matrix created outside of this arena to be released at the
+	 * end of the current frame.
+	 * 
+	 * @param mat	The matrix to release on {@link #reset()}.
+	 * @return	the specified matrix.
+	 */
+	public <T extends Mat> T track(T mat) {
+		tracked.add(mat);
+		return mat;
+	}
+	
+	
+	/**
+	 * Registers all matrices of the specified list to be released at the end
+	 * of the current frame.
+	 * 
+	 * @param list	The matrices to release on {@link #reset()}.
+	 * @return	the specified list.
+	 */
+	public <T extends Mat> List<T> trackAll(List<T> list) {
+		tracked.addAll(list);
+		return list;
+	}
+	
+	
+	/**
+	 * Returns the cached structuring element of the specified shape and size.
+	 * 
+	 * @param shape		The element shape, e.g. {@code Imgproc.MORPH_RECT}.
+	 * @param width		The element width.
+	 * @param height	The element height.
+	 * @return	the structuring element; must not be modified.
+	 * 
+	 * @see Imgproc#getStructuringElement(int, Size)
+	 */
+	public Mat getKernel(int shape, int width, int height) {
+		final Long key = Long.valueOf(((long)shape << 40)
+				| ((long)width << 20) | height);
+		Mat kernel = kernels.get(key);
+		if (kernel == null) {
+			kernel = Imgproc.getStructuringElement(shape,
+					new Size(width, height));
+			kernels.put(key, kernel);
+		}
+		return kernel;
+	}
+	
+	
+	/**
+	 * Ends the current frame: all pooled matrices become available again and
+	 * all {@link #track(Mat) tracked} matrices are released.
+	 */
+	public void reset() {
+		for (int i = 0, n = tracked.size(); i < n; i++)
+			tracked.get(i).release();
+		tracked.clear();
+		
+		mats.reset();
+		points.reset();
+		points2f.reset();
+		ints.reset();
+		rects.reset();
+	}
+	
+	
+	/**
+	 * Releases the native memory of all matrices of this arena, including the
+	 * cached structuring elements. The arena remains usable afterwards.
+	 */
+	public void release() {
+		reset();
+		mats.release();
+		points.release();
+		points2f.release();
+		ints.release();
+		rects.release();
+		
+		for (Mat kernel : kernels.values())
+			kernel.release();
+		kernels.clear();
+	}
+	
+	
+	/**
+	 * Returns the number of matrices currently pooled by this arena, which
+	 * stays constant in the steady state.
+	 * 
+	 * @return	the number of pooled matrices.
+	 */
+	public int getPooledCount() {
+		return mats.size() + points.size() + points2f.size() + ints.size()
+				+ rects.size();
+	}
+	
+	
+	/**
+	 * Provides a growable pool of one matrix type, handing out its items in
+	 * order until reset.
+	 * 
+	 * @param <T>	the matrix type.
+	 */
+	private static abstract class Pool<T extends Mat> {
+		
+		// Private member fields.
+		private final List<T> items = new ArrayList<T>();
+		
+		// Private member data.
+		private int next = 0;
+		
+		
+		/**
+		 * Creates a new matrix when the pool is exhausted.
+		 * 
+		 * @return	the new matrix.
+		 */
+		abstract T create();
+		
+		
+		T acquire() {
+			if (next == items.size())
+				items.add(create());
+			
+			return items.get(next++);
+		}
+		
+		
+		void reset() {
+			next = 0;
+		}
+		
+		
+		void release() {
+			for (T item : items)
+				item.release();
+			items.clear();
+		}
+		
+		
+		int size() {
+			return items.size();
+		}
+	
+	}
+
+}
@@ -0,0 +1,249 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+import handemapper.common.recognition.frame.Overlay;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+
+
+/**
+ * Provides an {@link Overlay} recording the annotations of a frame into a
+ * display list of primitive values, which is rasterized onto the preview
+ * image by {@link #rasterize(Mat, double, double)}. The list grows to the
+ * largest frame seen and is then reused, so recording does not allocate in
+ * the steady state. While disabled, nothing is recorded.
+ * <p>Each entry is stored as its kind, thickness, color and the number of
+ * coordinates that follow, e.g. two for the center of a circle plus its
+ * radius, or two per point of a contour.
+ * <p>A display list is not thread-safe and must only be used by the thread
+ * processing the frame.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SharedFrameContext
+ */
+public final class OverlayDisplayList implements Overlay {
+	
+	/** The entry kind of a contour outline. */
+	private static final int CONTOUR = 1;
+	
+	/** The entry kind of a line. */
+	private static final int LINE = 2;
+	
+	/** The entry kind of a circle. */
+	private static final int CIRCLE = 3;
+	
+	/** The entry kind of a rectangle. */
+	private static final int RECTANGLE = 4;
+	
+	
+	/**
+	 * The number of values in the header of each entry: kind, thickness, the
+	 * three color components and the number of coordinates that follow.
+	 */
+	private static final int HEADER = 6;
+	
+	
+	// Private member fields.
+	private final Point p1 = new Point();
+	private final Point p2 = new Point();
+	private final Scalar color = new Scalar(0d, 0d, 0d);
+	private final MatOfPoint polygon = new MatOfPoint();
+	private final List<MatOfPoint> polygons = Collections.singletonList(polygon);
+	
+	// Private member data.
+	private boolean enabled = false;
+	private double[] data = new double[256];
+	private int size = 0;
+	private int[] points = new int[64];
+	
+	
+	/**
+	 * Clears this display list and enables or disables recording for the
+	 * next frame.
+	 * 
+	 * @param enabled	Whether to record the annotations of the next frame.
+	 */
+	public void reset(boolean enabled) {
+		this.enabled = enabled;
+		this.size = 0;
+	}
+	
+	
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if no annotation has been recorded since the last
+	 * {@link #reset(boolean)}; otherwise, returns {@code false}.
+	 * 
+	 * @return	whether this display list is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	
+	@Override
+	public void contour(MatOfPoint contour, Scalar color, int thickness) {
+		if (!enabled)
+			return;
+		
+		final int count = (int)contour.total() * 2;
+		if (count == 0)
+			return;
+		
+		if (points.length < count)
+			points = new int[Math.max(count, points.length * 2)];
+		contour.get(0, 0, points);
+		
+		begin(CONTOUR, thickness, color, count);
+		for (int i = 0; i < count; i++)
+			data[size++] = points[i];
+	}
+	
+	
+	@Override
+	public void line(Point from, Point to, Scalar color, int thickness) {
+		if (!enabled)
+			return;
+		
+		begin(LINE, thickness, color, 4);
+		data[size++] = from.x;
+		data[size++] = from.y;
+		data[size++] = to.x;
+		data[size++] = to.y;
+	}
+	
+	
+	@Override
+	public void circle(Point center, int radius, Scalar color, int thickness) {
+		if (!enabled)
+			return;
+		
+		begin(CIRCLE, thickness, color, 3);
+		data[size++] = center.x;
+		data[size++] = center.y;
+		data[size++] = radius;
+	}
+	
+	
+	@Override
+	public void rectangle(Point topLeft, Point bottomRight, Scalar color,
+			int thickness)
+	{
+		if (!enabled)
+			return;
+		
+		begin(RECTANGLE, thickness, color, 4);
+		data[size++] = topLeft.x;
+		data[size++] = topLeft.y;
+		data[size++] = bottomRight.x;
+		data[size++] = bottomRight.y;
+	}
+	
+	
+	/**
+	 * Appends the header of a new entry and makes room for its coordinates.
+	 */
+	private final void begin(int kind, int thickness, Scalar color, int count) {
+		final int required = size + HEADER + count;
+		if (data.length < required) {
+			final double[] grown = new double[Math.max(required, data.length * 2)];
+			System.arraycopy(data, 0, grown, 0, size);
+			data = grown;
+		}
+		
+		data[size++] = kind;
+		data[size++] = thickness;
+		data[size++] = color.val[0];
+		data[size++] = color.val[1];
+		data[size++] = color.val[2];
+		data[size++] = count;
+	}
+	
+	
+	/**
+	 * Draws all recorded annotations onto the specified image, scaling the
+	 * frame coordinates by the specified factors, e.g. when the image is the
+	 * frame downscaled for preview.
+	 * 
+	 * @param img		The BGR image to draw onto.
+	 * @param scaleX	The horizontal scale from the frame to the image.
+	 * @param scaleY	The vertical scale from the frame to the image.
+	 */
+	public void rasterize(Mat img, double scaleX, double scaleY) {
+		final double scaleR = (scaleX + scaleY) / 2d;
+		
+		int i = 0;
+		while (i < size) {
+			final int kind = (int)data[i];
+			final int thickness = (int)data[i + 1];
+			color.val[0] = data[i + 2];
+			color.val[1] = data[i + 3];
+			color.val[2] = data[i + 4];
+			final int count = (int)data[i + 5];
+			final int at = i + HEADER;
+			
+			switch (kind) {
+			case CONTOUR:
+				if (points.length < count)
+					points = new int[count];
+				for (int j = 0; j < count; j += 2) {
+					points[j] = (int)Math.round(data[at + j] * scaleX);
+					points[j + 1] = (int)Math.round(data[at + j + 1] * scaleY);
+				}
+				polygon.create(count / 2, 1, CvType.CV_32SC2);
+				polygon.put(0, 0, points);
+				Core.polylines(img, polygons, true, color, thickness);
+				break;
+			case LINE:
+				p1.x = data[at] * scaleX;
+				p1.y = data[at + 1] * scaleY;
+				p2.x = data[at + 2] * scaleX;
+				p2.y = data[at + 3] * scaleY;
+				Core.line(img, p1, p2, color, thickness);
+				break;
+			case CIRCLE:
+				p1.x = data[at] * scaleX;
+				p1.y = data[at + 1] * scaleY;
+				Core.circle(img, p1, (int)Math.round(data[at + 2] * scaleR),
+						color, thickness);
+				break;
+			case RECTANGLE:
+				p1.x = data[at] * scaleX;
+				p1.y = data[at + 1] * scaleY;
+				p2.x = data[at + 2] * scaleX;
+				p2.y = data[at + 3] * scaleY;
+				Core.rectangle(img, p1, p2, color, thickness);
+				break;
+			default:
+				throw new IllegalStateException("Unknown overlay entry: " + kind);
+			}
+			i = at + count;
+		}
+	}
+	
+	
+	/**
+	 * Releases the native memory of the polygon used for rasterizing.
+	 */
+	public void release() {
+		polygon.release();
+		size = 0;
+	}
+
+}
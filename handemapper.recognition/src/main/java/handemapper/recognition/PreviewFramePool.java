@@ -0,0 +1,232 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+import handemapper.common.recognition.frame.FrameHandle;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Provides a fixed-size pool of reference-counted {@link FrameHandle}s for
+ * publishing the preview frames of a detection worker. The worker acquires a
+ * free handle, renders the preview into the handle's image, publishes it and
+ * releases its own reference; listeners keep a handle beyond the publishing
+ * call by leasing it. A handle is only handed out again once every lease has
+ * been released, so its image is never overwritten while in use. When all
+ * handles are leased, e.g. by a slow consumer, no handle is available and
+ * the preview frame is skipped. The pool grows with the number of consumers,
+ * as each may hold frames at the same time, and never shrinks.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureRecognizerWorker
+ */
+final class PreviewFramePool {
+	
+	/**
+	 * The default number of handles, enough for one handle being published,
+	 * one shown by a preview and one waiting to be shown.
+	 */
+	static final int DEFAULT_CAPACITY = 4;
+	
+	
+	/**
+	 * The number of handles a consumer may hold at once, one shown and one
+	 * waiting to be shown.
+	 */
+	static final int HANDLES_PER_CONSUMER = 2;
+	
+	
+	// Private member data.
+	private Handle[] handles;
+	
+	
+	/**
+	 * Constructor for a new instance of a pool of the default capacity.
+	 */
+	PreviewFramePool() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a pool with the specified number of
+	 * handles.
+	 * 
+	 * @param capacity	The number of handles; must be at least one.
+	 */
+	PreviewFramePool(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be >= 1: " + capacity);
+		
+		handles = new Handle[capacity];
+		for (int i = 0; i < capacity; i++)
+			handles[i] = new Handle();
+	}
+	
+	
+	/**
+	 * Returns the number of handles of this pool.
+	 * 
+	 * @return	the pool capacity.
+	 */
+	int getCapacity() {
+		return handles.length;
+	}
+	
+	
+	/**
+	 * Grows this pool to hold enough handles for the specified number of
+	 * consumers, plus the handle being published. This must only be called
+	 * by the publishing thread.
+	 * 
+	 * @param consumers	The number of preview consumers.
+	 */
+	void ensureConsumers(int consumers) {
+		final int capacity = 1 + HANDLES_PER_CONSUMER * consumers;
+		if (capacity <= handles.length)
+			return;
+		
+		final Handle[] grown = Arrays.copyOf(handles, capacity);
+		for (int i = handles.length; i < capacity; i++)
+			grown[i] = new Handle();
+		handles = grown;
+	}
+	
+	
+	/**
+	 * Returns a handle that is neither published nor leased, holding the
+	 * publisher's reference. The caller must {@link Handle#release()} it once
+	 * published.
+	 * 
+	 * @return	a free handle, or {@code null} if all handles are in use.
+	 */
+	Handle acquire() {
+		for (int i = 0; i < handles.length; i++) {
+			if (handles[i].refs.compareAndSet(0, 1))
+				return handles[i];
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Provides a pooled, reference-counted {@link FrameHandle}.
+	 * 
+	 * @author Chris Hartley
+	 */
+	static final class Handle implements FrameHandle {
+		
+		// Private member fields.
+		private final AtomicInteger refs = new AtomicInteger();
+		
+		// Private member data.
+		private BufferedImage image = null;
+		private long sequence = -1l;
+		private long captureNanos = 0l;
+		private long publishNanos = 0l;
+		private int deviceIndex = -1;
+		
+		
+		/**
+		 * Sets the image of this handle, which is reused for later frames as
+		 * long as the preview size does not change.
+		 * 
+		 * @param image	The preview image.
+		 */
+		void setImage(BufferedImage image) {
+			this.image = image;
+		}
+		
+		
+		/**
+		 * Stamps this handle with the metadata of the published frame.
+		 * 
+		 * @param sequence		The sequence number of the captured frame.
+		 * @param captureNanos	The capture time of the frame.
+		 * @param publishNanos	The publish time of the preview.
+		 * @param deviceIndex	The index of the capture device.
+		 */
+		void stamp(long sequence, long captureNanos, long publishNanos,
+				int deviceIndex)
+		{
+			this.sequence = sequence;
+			this.captureNanos = captureNanos;
+			this.publishNanos = publishNanos;
+			this.deviceIndex = deviceIndex;
+		}
+		
+		
+		@Override
+		public BufferedImage getImage() {
+			return image;
+		}
+		
+		
+		@Override
+		public int getWidth() {
+			return image != null ? image.getWidth() : 0;
+		}
+		
+		
+		@Override
+		public int getHeight() {
+			return image != null ? image.getHeight() : 0;
+		}
+		
+		
+		@Override
+		public long getSequence() {
+			return sequence;
+		}
+		
+		
+		@Override
+		public long getCaptureNanos() {
+			return captureNanos;
+		}
+		
+		
+		@Override
+		public long getPublishNanos() {
+			return publishNanos;
+		}
+		
+		
+		@Override
+		public int getDeviceIndex() {
+			return deviceIndex;
+		}
+		
+		
+		@Override
+		public void lease() {
+			if (refs.getAndIncrement() <= 0) {
+				refs.decrementAndGet();
+				throw new IllegalStateException("Frame handle is not published!");
+			}
+		}
+		
+		
+		@Override
+		public void release() {
+			if (refs.decrementAndGet() < 0) {
+				refs.incrementAndGet();
+				throw new IllegalStateException("Frame handle is not leased!");
+			}
+		}
+		
+		
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[sequence=" + sequence
+					+ ", device=" + deviceIndex + ", refs=" + refs.get() + "]";
+		}
+	
+	}
+
+}
@@ -0,0 +1,165 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+
+/**
+ * Provides the settings of the preview image publishing, shared between the
+ * recognizer, which updates them as preview consumers come and go, and the
+ * detection worker, which reads them on every frame. The preview is only
+ * produced while it is requested, at most at its own frame rate, and at the
+ * size requested by the consumer, so the scaling is done once natively.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureRecognizerWorker
+ */
+final class PreviewSettings {
+	
+	/**
+	 * The default number of preview images per second.
+	 */
+	static final double DEFAULT_FPS = 15d;
+	
+	
+	/**
+	 * The number of nanoseconds in one second.
+	 */
+	private static final double NANOS_PER_SECOND = 1000000000d;
+	
+	
+	// Private member data.
+	private volatile boolean requested = false;
+	private volatile int consumers = 0;
+	private volatile double fps = DEFAULT_FPS;
+	private volatile long periodNanos = (long)(NANOS_PER_SECOND / DEFAULT_FPS);
+	private volatile long size = 0l;
+	
+	
+	/**
+	 * Returns {@code true} if a consumer currently requests preview images;
+	 * otherwise, returns {@code false}.
+	 * 
+	 * @return	whether the preview is requested.
+	 */
+	boolean isRequested() {
+		return requested;
+	}
+	
+	
+	/**
+	 * Sets whether a consumer currently requests preview images.
+	 * 
+	 * @param requested	Whether the preview is requested.
+	 */
+	void setRequested(boolean requested) {
+		this.requested = requested;
+	}
+	
+	
+	/**
+	 * Returns the number of consumers of the preview images, each of which
+	 * may hold preview frames at the same time.
+	 * 
+	 * @return	the number of preview consumers.
+	 */
+	int getConsumers() {
+		return consumers;
+	}
+	
+	
+	/**
+	 * Sets the number of consumers of the preview images.
+	 * 
+	 * @param consumers	The number of preview consumers.
+	 */
+	void setConsumers(int consumers) {
+		this.consumers = Math.max(consumers, 0);
+	}
+	
+	
+	/**
+	 * Returns the maximum number of preview images per second.
+	 * 
+	 * @return	the preview frame rate.
+	 */
+	double getFrameRate() {
+		return fps;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of preview images per second.
+	 * 
+	 * @param fps	The preview frame rate; must be greater than zero.
+	 */
+	void setFrameRate(double fps) {
+		if (!(fps > 0d))
+			throw new IllegalArgumentException("Frame rate must be > 0: " + fps);
+		
+		this.fps = fps;
+		this.periodNanos = (long)(NANOS_PER_SECOND / fps);
+	}
+	
+	
+	/**
+	 * Returns the minimum time between two preview images.
+	 * 
+	 * @return	the preview period in nanoseconds.
+	 */
+	long getPeriodNanos() {
+		return periodNanos;
+	}
+	
+	
+	/**
+	 * Sets the size of the preview images. Both values are updated at once,
+	 * so the worker never reads the width of one request and the height of
+	 * another.
+	 * 
+	 * @param width		The preview width, or {@code 0} for the frame width.
+	 * @param height	The preview height, or {@code 0} for the frame height.
+	 */
+	void setSize(int width, int height) {
+		if (width < 0 || height < 0)
+			throw new IllegalArgumentException("Invalid preview size: "
+					+ width + "x" + height);
+		
+		this.size = ((long)width << 32) | height;
+	}
+	
+	
+	/**
+	 * Returns the requested preview width and height packed into one value,
+	 * as decoded by {@link #widthOf(long)} and {@link #heightOf(long)}.
+	 * 
+	 * @return	the packed preview size.
+	 */
+	long getSize() {
+		return size;
+	}
+	
+	
+	/**
+	 * Returns the width of the specified packed preview size.
+	 * 
+	 * @param size	The packed size returned by {@link #getSize()}.
+	 * @return	the preview width, or {@code 0} for the frame width.
+	 */
+	static int widthOf(long size) {
+		return (int)(size >>> 32);
+	}
+	
+	
+	/**
+	 * Returns the height of the specified packed preview size.
+	 * 
+	 * @param size	The packed size returned by {@link #getSize()}.
+	 * @return	the preview height, or {@code 0} for the frame height.
+	 */
+	static int heightOf(long size) {
+		return (int)size;
+	}
+
+}
@@ -0,0 +1,256 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+import handemapper.common.recognition.frame.FrameContext;
+import handemapper.common.recognition.frame.VideoFrame;
+import handemapper.recognition.skin.YCrCbSkinDetector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+
+/**
+ * Provides the {@link FrameContext} shared by all gestures of a capture
+ * pipeline. The context is bound to each new frame before the gestures detect
+ * in it; binding forgets the derived images of the previous frame and resets
+ * the {@link MatArena} they were taken from, so the native buffers are reused
+ * from frame to frame. The {@link OverlayDisplayList} of the context is
+ * cleared on binding as well, and only records annotations when the frame
+ * is going to be previewed. The skin masks are computed by
+ * {@link YCrCbSkinDetector}s kept from frame to frame as well.
+ * <p>The conversions assume the BGR channel order delivered by OpenCV.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureRecognizerWorker
+ */
+public final class SharedFrameContext implements FrameContext {
+	
+	// Private member fields.
+	private final MatArena arena = new MatArena();
+	private final OverlayDisplayList overlay = new OverlayDisplayList();
+	private final List<SkinMask> skinMasks = new ArrayList<SkinMask>(2);
+	private final List<Mat> downscaled = new ArrayList<Mat>(2);
+	private final List<Integer> downscaleFactors = new ArrayList<Integer>(2);
+	
+	// Private member data.
+	private Mat image = null;
+	private long sequence = -1l;
+	private long captureNanos = 0l;
+	private int deviceIndex = -1;
+	private Mat gray = null;
+	private Mat ycrcb = null;
+	private int skinMaskCount = 0;
+	
+	
+	/**
+	 * Binds this context to the specified captured frame and forgets all
+	 * images and annotations of the previous frame.
+	 * 
+	 * @param frame		The frame the gestures are about to detect in.
+	 * @param annotate	Whether the overlay records the annotations of the
+	 * 					frame, i.e. whether the frame is going to be previewed.
+	 */
+	public void bind(VideoFrame frame, boolean annotate) {
+		bind(frame.getImage(), frame.getSequence(), frame.getCaptureNanos(),
+				frame.getDeviceIndex());
+		overlay.reset(annotate);
+	}
+	
+	
+	/**
+	 * Binds this context to the specified image, which is not part of a
+	 * captured frame, and forgets all images derived from the previous one.
+	 * The overlay does not record any annotations for the image.
+	 * 
+	 * @param image	The image the gestures are about to detect in.
+	 */
+	public void bind(Mat image) {
+		bind(image, -1l, 0l, -1);
+		overlay.reset(false);
+	}
+	
+	
+	/**
+	 * Binds this context to the specified image and frame metadata.
+	 */
+	private final void bind(Mat image, long sequence, long captureNanos,
+			int deviceIndex)
+	{
+		reset();
+		this.image = image;
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+		this.deviceIndex = deviceIndex;
+	}
+	
+	
+	/**
+	 * Forgets all derived images and returns their matrices to the arena.
+	 */
+	private final void reset() {
+		gray = null;
+		ycrcb = null;
+		skinMaskCount = 0;
+		downscaled.clear();
+		downscaleFactors.clear();
+		arena.reset();
+	}
+	
+	
+	/**
+	 * Releases the native memory of all derived images. The context can still
+	 * be bound to another frame afterwards.
+	 */
+	public void release() {
+		reset();
+		arena.release();
+		overlay.release();
+		for (SkinMask sm : skinMasks)
+			sm.detector.release();
+		skinMasks.clear();
+		image = null;
+	}
+	
+	
+	@Override
+	public Mat getImage() {
+		return image;
+	}
+	
+	
+	@Override
+	public long getSequence() {
+		return sequence;
+	}
+	
+	
+	@Override
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+	
+	
+	@Override
+	public int getDeviceIndex() {
+		return deviceIndex;
+	}
+	
+	
+	@Override
+	public Mat getGray() {
+		if (gray == null) {
+			gray = arena.acquire(image.rows(), image.cols(), CvType.CV_8UC1);
+			Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
+		}
+		return gray;
+	}
+	
+	
+	@Override
+	public Mat getYCrCb() {
+		if (ycrcb == null) {
+			ycrcb = arena.acquire(image.rows(), image.cols(), image.type());
+			Imgproc.cvtColor(image, ycrcb, Imgproc.COLOR_BGR2YCrCb);
+		}
+		return ycrcb;
+	}
+	
+	
+	@Override
+	public Mat getDownscaled(int factor) {
+		if (factor <= 1)
+			return image;
+		
+		for (int i = 0; i < downscaleFactors.size(); i++) {
+			if (downscaleFactors.get(i).intValue() == factor)
+				return downscaled.get(i);
+		}
+		
+		final Mat scaled = arena.acquire();
+		Imgproc.resize(image, scaled,
+				new Size(image.cols() / factor, image.rows() / factor),
+				0d, 0d, Imgproc.INTER_AREA);
+		
+		downscaleFactors.add(factor);
+		downscaled.add(scaled);
+		return scaled;
+	}
+	
+	
+	@Override
+	public Mat getSkinMask(Scalar min, Scalar max) {
+		for (int i = 0; i < skinMaskCount; i++) {
+			final SkinMask sm = skinMasks.get(i);
+			if (sm.matches(min, max))
+				return sm.detector.getMask();
+		}
+		
+		// Reuses the detector of a previous frame, unless the frame size changed
+		if (skinMaskCount == skinMasks.size())
+			skinMasks.add(new SkinMask());
+		final SkinMask sm = skinMasks.get(skinMaskCount++);
+		if (sm.detector == null || !sm.detector.fits(image)) {
+			if (sm.detector != null)
+				sm.detector.release();
+			sm.detector = new YCrCbSkinDetector(image.rows(), image.cols());
+		}
+		
+		sm.bind(min, max);
+		return sm.detector.detect(image, min, max);
+	}
+	
+	
+	/**
+	 * Returns the display list of the annotations recorded for the current
+	 * frame.
+	 */
+	@Override
+	public OverlayDisplayList getOverlay() {
+		return overlay;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[sequence=" + sequence
+				+ ", device=" + deviceIndex + ", " + image + "]";
+	}
+	
+	
+	/**
+	 * Holds a skin detector, kept from frame to frame, together with the
+	 * bounds its mask was computed for in the current frame.
+	 */
+	private static final class SkinMask {
+		
+		// Private member fields.
+		private final double[] min = new double[4];
+		private final double[] max = new double[4];
+		
+		// Private member data.
+		private YCrCbSkinDetector detector = null;
+		
+		
+		private void bind(Scalar min, Scalar max) {
+			System.arraycopy(min.val, 0, this.min, 0, this.min.length);
+			System.arraycopy(max.val, 0, this.max, 0, this.max.length);
+		}
+		
+		
+		private boolean matches(Scalar min, Scalar max) {
+			return Arrays.equals(this.min, min.val)
+					&& Arrays.equals(this.max, max.val);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ * 
+ */
+package handemapper.recognition.capture;
+
+import handemapper.common.recognition.frame.VideoFrame;
+
+import org.opencv.core.Mat;
+
+
+/**
+ * Provides the reusable {@link VideoFrame} slot of a {@link TripleBuffer}
+ * between the capture thread and the detection thread. The capture thread
+ * reads into the slot's image and stamps it with the sequence number and
+ * capture time before publishing; the slot and its native image buffer are
+ * reused for the lifetime of the buffer.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FrameCaptureThread
+ */
+public final class CapturedFrame implements VideoFrame {
+	
+	// Private member fields.
+	private final Mat image = new Mat();
+	private final int deviceIndex;
+	
+	// Private member data.
+	private long sequence = -1l;
+	private long captureNanos = 0l;
+	
+	
+	/**
+	 * Constructor for a new instance of a frame slot for the frames of the
+	 * video capture device with the specified index.
+	 * 
+	 * @param deviceIndex	The device index, or {@code -1} if the source is not
+	 * 						a device.
+	 */
+	public CapturedFrame(int deviceIndex) {
+		this.deviceIndex = deviceIndex;
+	}
+	
+	
+	/**
+	 * Stamps this frame with the specified sequence number and capture time.
+	 * 
+	 * @param sequence		The sequence number of the frame.
+	 * @param captureNanos	The {@link System#nanoTime()} of the capture.
+	 */
+	void stamp(long sequence, long captureNanos) {
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+	}
+	
+	
+	@Override
+	public Mat getImage() {
+		return image;
+	}
+	
+	
+	@Override
+	public long getSequence() {
+		return sequence;
+	}
+	
+	
+	@Override
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+	
+	
+	@Override
+	public int getDeviceIndex() {
+		return deviceIndex;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[sequence=" + sequence
+				+ ", device=" + deviceIndex + ", " + image + "]";
+	}
+
+}
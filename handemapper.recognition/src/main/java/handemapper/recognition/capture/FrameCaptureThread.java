@@ -0,0 +1,269 @@
+/**
+ * 
+ */
+package handemapper.recognition.capture;
+
+import handemapper.common.recognition.GestureRecognizer;
+import handemapper.common.recognition.frame.FrameSource;
+import handemapper.recognition.utils.Updater;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides a dedicated thread that continuously reads frames from a
+ * {@link FrameSource} into the back slot of a {@link TripleBuffer}. Reading as
+ * fast as the source delivers keeps the driver's internal queue drained, so the
+ * detection thread always picks up the newest frame instead of a stale one
+ * that waited behind a slow detection pass. Frames of a source that is not
+ * live are never dropped; the thread waits for the detection instead.
+ * <p>When a live source stops delivering frames, the thread re-connects to it
+ * according to its {@link ReconnectPolicy}.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see TripleBuffer
+ */
+public class FrameCaptureThread extends Thread {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(FrameCaptureThread.class);
+	
+	
+	/**
+	 * The time in nanoseconds a recorded source waits for the detection to
+	 * pick up the previous frame before checking whether it is still running.
+	 */
+	private static final long consumeWaitNanos = 250000000l;
+	
+	
+	/**
+	 * The time in milliseconds {@link #shutdown()} waits for the thread to
+	 * finish.
+	 */
+	private static final long joinMillis = 2000l;
+	
+	
+	// Private member fields.
+	private final FrameSource source;
+	private final TripleBuffer<CapturedFrame> buffer;
+	
+	// Private member data.
+	private volatile boolean running = true;
+	private long sequence = 0l;
+	private volatile boolean failed = false;
+	private volatile ReconnectPolicy reconnectPolicy = new ReconnectPolicy();
+	private volatile Updater<GestureRecognizer.State> stateUpdater = null;
+	
+	
+	/**
+	 * Constructor for a new instance of a capture thread reading from the
+	 * specified frame source into the specified triple buffer.
+	 * 
+	 * @param source	The opened frame source to read from.
+	 * @param buffer	The triple buffer to publish the frames to.
+	 */
+	public FrameCaptureThread(FrameSource source, TripleBuffer<CapturedFrame> buffer) {
+		super("FrameCapture-" + source.getName());
+		setDaemon(true);
+		
+		this.source = source;
+		this.buffer = buffer;
+	}
+	
+	
+	@Override
+	public void run() {
+		logger.debug("Capture thread for " + source.getName() + " running...");
+		
+		try {
+			while (running) {
+				// Recorded frames never go stale, so only read the next one
+				// once the detection has picked up the previous frame.
+				if (!source.isLive()
+						&& !buffer.awaitConsumed(consumeWaitNanos))
+					continue;
+				
+				if (readFrame())
+					continue;
+				
+				if (!running) {
+					break;
+				}
+				else if (!source.isLive()) {
+					logger.info("No more frames available from "
+							+ source.getName());
+					failed = true;
+					break;
+				}
+				else if (!reconnect()) {
+					failed = running;
+					break;
+				}
+			}
+		}
+		catch (Exception ex) {
+			logger.error("Exception caught in " + getName() + ": " + ex);
+			failed = true;
+		}
+		
+		logger.debug("Capture thread for " + source.getName() + " stopped.");
+	}
+	
+	
+	/**
+	 * Runs the re-connect state machine after the live source failed to
+	 * deliver a frame: the source is {@code DISCONNECTED}, then
+	 * {@code RECONNECTING} with an exponential backoff between attempts as
+	 * defined by the {@link ReconnectPolicy}, and finally either
+	 * {@code STARTED} again or {@code TERMINATED} once the attempts are
+	 * exhausted. No frame is published meanwhile, so the detection idles
+	 * until the source delivers again; no lock is held while waiting.
+	 * 
+	 * @return	{@code true} if the source delivers frames again and the first
+	 * 			one was published; otherwise, returns {@code false} if the
+	 * 			attempts are exhausted or the thread was asked to stop.
+	 */
+	private final boolean reconnect() {
+		logger.warn("Frame source " + source.getName()
+				+ " stopped delivering frames; re-connecting...");
+		fireStateChanged(GestureRecognizer.State.DISCONNECTED);
+		
+		final long start = System.nanoTime();
+		int attempt = 0;
+		
+		while (running) {
+			final ReconnectPolicy policy = reconnectPolicy;
+			if (policy.isExhausted(++attempt)) {
+				logger.error("After " + (attempt - 1) + " attempts to "
+						+ "re-connect to " + source.getName() + ", it was unable "
+						+ "to retrieve an image. Please verify the web camera is "
+						+ "connected and functioning properly.");
+				fireStateChanged(GestureRecognizer.State.TERMINATED);
+				return false;
+			}
+			
+			if (attempt == 1)
+				fireStateChanged(GestureRecognizer.State.RECONNECTING);
+			
+			if (!pause(policy.getDelayNanos(attempt)))
+				return false;
+			
+			source.release();
+			if (source.open() && readFrame()) {
+				logger.info("Re-connected to " + source.getName() + " after "
+						+ attempt + " attempt(s) in "
+						+ (System.nanoTime() - start) / 1000000l + " ms.");
+				fireStateChanged(GestureRecognizer.State.STARTED);
+				return true;
+			}
+			
+			logger.debug("Re-connect attempt " + attempt + " to "
+					+ source.getName() + " failed.");
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Reads the next frame from the source into the back slot of the buffer,
+	 * stamps it with the next sequence number and its capture time, and
+	 * publishes it.
+	 * 
+	 * @return	{@code true} if a frame was read and published; otherwise,
+	 * 			returns {@code false}.
+	 */
+	private final boolean readFrame() {
+		final CapturedFrame frame = buffer.getBack();
+		if (!source.read(frame.getImage()))
+			return false;
+		
+		frame.stamp(sequence++, System.nanoTime());
+		buffer.publish();
+		return true;
+	}
+	
+	
+	/**
+	 * Parks this thread for the specified time without holding any lock.
+	 * 
+	 * @param nanos	The time to wait, in nanoseconds.
+	 * @return	{@code true} if the full time elapsed; otherwise, returns
+	 * 			{@code false} if the thread was asked to stop.
+	 */
+	private final boolean pause(long nanos) {
+		final long deadline = System.nanoTime() + nanos;
+		long remaining;
+		while (running && (remaining = deadline - System.nanoTime()) > 0l)
+			LockSupport.parkNanos(this, remaining);
+		
+		return running;
+	}
+	
+	
+	/**
+	 * Notifies the state updater, if any, of the specified state.
+	 * 
+	 * @param state	The new state of this capture thread's source.
+	 */
+	private final void fireStateChanged(GestureRecognizer.State state) {
+		final Updater<GestureRecognizer.State> u = stateUpdater;
+		if (u != null)
+			u.update(state);
+	}
+	
+	
+	/**
+	 * Sets the policy for re-connecting to a live source that stopped
+	 * delivering frames.
+	 * 
+	 * @param policy	The {@link ReconnectPolicy} to use.
+	 */
+	public void setReconnectPolicy(ReconnectPolicy policy) {
+		if (policy != null)
+			this.reconnectPolicy = policy;
+	}
+	
+	
+	/**
+	 * Sets the updater notified of the {@code DISCONNECTED},
+	 * {@code RECONNECTING}, {@code STARTED} and {@code TERMINATED} transitions
+	 * while re-connecting. The updater is called on this capture thread.
+	 * 
+	 * @param stateUpdater	The state updater, or {@code null} for none.
+	 */
+	public void setStateUpdater(Updater<GestureRecognizer.State> stateUpdater) {
+		this.stateUpdater = stateUpdater;
+	}
+	
+	
+	/**
+	 * Requests this capture thread to stop and waits for it to finish, so the
+	 * frame source can be released safely afterwards.
+	 */
+	public void shutdown() {
+		running = false;
+		interrupt();
+		
+		try {
+			join(joinMillis);
+		} catch (InterruptedException ignore) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	
+	/**
+	 * Returns {@code true} if this capture thread stopped because the source
+	 * could not deliver any more frames; otherwise, returns {@code false}.
+	 * 
+	 * @return	whether the capture from the device has failed.
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+
+}
@@ -0,0 +1,157 @@
+/**
+ * 
+ */
+package handemapper.recognition.capture;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Provides the exponential backoff schedule used by a
+ * {@link FrameCaptureThread} to re-connect to a device that stopped
+ * delivering frames. The first attempt is made right away, so a short USB
+ * hiccup costs a single frame gap; each following attempt doubles the delay,
+ * up to {@link #getMaxDelayMillis()}, with a random jitter so several devices
+ * on the same hub do not retry in lock-step.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FrameCaptureThread
+ */
+public class ReconnectPolicy {
+	
+	/**
+	 * The number of re-connect attempts that stands for unlimited retries.
+	 */
+	public static final int UNLIMITED_ATTEMPTS = -1;
+	
+	
+	/**
+	 * The default maximum number of re-connect attempts before giving up,
+	 * which spans roughly ten seconds with the default delays.
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 8;
+	
+	
+	/**
+	 * The fraction of the delay by which it is randomly varied.
+	 */
+	private static final double jitter = 0.25d;
+	
+	
+	// Private member fields.
+	private final long initialDelayMillis;
+	private final long maxDelayMillis;
+	
+	// Private member data.
+	private volatile int maxAttempts;
+	
+	
+	/**
+	 * Constructor for a new instance of a re-connect policy with the
+	 * {@link #DEFAULT_MAX_ATTEMPTS}, an initial delay of 100 milliseconds and
+	 * a maximum delay of 5 seconds.
+	 */
+	public ReconnectPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS, 100l, 5000l);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a re-connect policy.
+	 * 
+	 * @param maxAttempts			The maximum number of attempts, or
+	 * 								{@link #UNLIMITED_ATTEMPTS}.
+	 * @param initialDelayMillis	The delay before the second attempt.
+	 * @param maxDelayMillis		The upper bound of the delay.
+	 */
+	public ReconnectPolicy(int maxAttempts, long initialDelayMillis,
+			long maxDelayMillis)
+	{
+		if (initialDelayMillis < 0l || maxDelayMillis < initialDelayMillis)
+			throw new IllegalArgumentException("Invalid delays: "
+					+ initialDelayMillis + ", " + maxDelayMillis);
+		
+		setMaxAttempts(maxAttempts);
+		this.initialDelayMillis = initialDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+	
+	
+	/**
+	 * Returns the delay to wait before the specified re-connect attempt. The
+	 * first attempt has no delay; the second waits the initial delay, and
+	 * every following attempt doubles it up to the maximum delay. The result
+	 * is varied randomly by up to a quarter of its value.
+	 * 
+	 * @param attempt	The 1-based number of the attempt.
+	 * @return	the delay in nanoseconds.
+	 */
+	public long getDelayNanos(int attempt) {
+		if (attempt <= 1)
+			return 0l;
+		
+		final int shift = Math.min(attempt - 2, 30);
+		final long delayMillis = Math.min(maxDelayMillis,
+				initialDelayMillis << shift);
+		
+		final double factor = 1d + jitter
+				* (2d * ThreadLocalRandom.current().nextDouble() - 1d);
+		return (long)(delayMillis * 1000000d * factor);
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the specified attempt exceeds the maximum number
+	 * of re-connect attempts.
+	 * 
+	 * @param attempt	The 1-based number of the attempt.
+	 * @return	whether no more attempts should be made.
+	 */
+	public boolean isExhausted(int attempt) {
+		final int max = maxAttempts;
+		return max != UNLIMITED_ATTEMPTS && attempt > max;
+	}
+	
+	
+	/**
+	 * Returns the maximum number of re-connect attempts.
+	 * 
+	 * @return	the maximum attempts, or {@link #UNLIMITED_ATTEMPTS}.
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of re-connect attempts. Takes effect on the
+	 * next attempt, including for a re-connect already in progress.
+	 * 
+	 * @param maxAttempts	The maximum attempts, or {@link #UNLIMITED_ATTEMPTS}.
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 0 && maxAttempts != UNLIMITED_ATTEMPTS)
+			throw new IllegalArgumentException("Invalid attempts: " + maxAttempts);
+		
+		this.maxAttempts = maxAttempts;
+	}
+	
+	
+	/**
+	 * Returns the upper bound of the delay between attempts.
+	 * 
+	 * @return	the maximum delay in milliseconds.
+	 */
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[maxAttempts=" + maxAttempts
+				+ ", delay=" + initialDelayMillis + ".." + maxDelayMillis + "ms]";
+	}
+
+}
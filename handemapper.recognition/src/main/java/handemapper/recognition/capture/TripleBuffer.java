@@ -0,0 +1,206 @@
+/**
+ * 
+ */
+package handemapper.recognition.capture;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Provides a lock-free triple buffer for handing off the most recent frame
+ * from a single producer (the capture thread) to a single consumer (the
+ * detection thread). The producer always has a back slot to write into, the
+ * consumer always owns a front slot to read from, and the middle slot holds
+ * the newest completed frame. Neither side ever waits on the other; when the
+ * producer publishes over a middle slot that was never picked up, that frame
+ * is counted as dropped.
+ * 
+ * @author Chris Hartley
+ * 
+ * @param <T>  the slot type, e.g. {@link org.opencv.core.Mat}.
+ */
+public final class TripleBuffer<T> {
+	
+	/**
+	 * Flag set on the middle index when it holds a frame that has not yet
+	 * been picked up by the consumer.
+	 */
+	private static final int FRESH = 0x04;
+	
+	
+	/**
+	 * Mask for the slot index stored in the middle index.
+	 */
+	private static final int INDEX_MASK = 0x03;
+	
+	
+	// Private member fields.
+	private final Object[] slots;
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	
+	// Private member data.
+	private int back = 0;				// owned by the producer
+	private int front = 2;				// owned by the consumer
+	private volatile Thread waiter = null;
+	private volatile Thread producer = null;
+	
+	
+	/**
+	 * Constructor for a new instance of a triple buffer with the three
+	 * specified slots. The slots are reused for the lifetime of the buffer.
+	 * 
+	 * @param first		The initial back slot.
+	 * @param second	The initial middle slot.
+	 * @param third		The initial front slot.
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		if (first == null || second == null || third == null)
+			throw new IllegalArgumentException("Slots must not be null!");
+		
+		slots = new Object[] { first, second, third };
+	}
+	
+	
+	/**
+	 * Returns the slot the producer should write the next frame into. Only
+	 * the producer thread may call this method.
+	 * 
+	 * @return	the current back slot.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBack() {
+		return (T)slots[back];
+	}
+	
+	
+	/**
+	 * Publishes the back slot as the newest completed frame and hands the
+	 * producer a new back slot. Only the producer thread may call this method.
+	 */
+	public void publish() {
+		final int prev = middle.getAndSet(back | FRESH);
+		back = prev & INDEX_MASK;
+		published.incrementAndGet();
+		
+		if ((prev & FRESH) != 0)
+			dropped.incrementAndGet();
+		
+		final Thread w = waiter;
+		if (w != null)
+			LockSupport.unpark(w);
+	}
+	
+	
+	/**
+	 * Swaps the newest completed frame into the front slot if one has been
+	 * published since the last swap. Only the consumer thread may call this
+	 * method.
+	 * 
+	 * @return	{@code true} if the front slot now holds a new frame; otherwise,
+	 * 			returns {@code false} and the front slot is unchanged.
+	 */
+	public boolean swapFront() {
+		if ((middle.get() & FRESH) == 0)
+			return false;
+		
+		front = middle.getAndSet(front) & INDEX_MASK;
+		
+		final Thread p = producer;
+		if (p != null)
+			LockSupport.unpark(p);
+		return true;
+	}
+	
+	
+	/**
+	 * Waits up to the specified time until the consumer has picked up the
+	 * most recently published frame. This lets a producer whose frames never
+	 * go stale, e.g. a video file, run in lock-step with the consumer instead
+	 * of dropping frames. Only the producer thread may call this method.
+	 * 
+	 * @param timeoutNanos	The maximum time to wait, in nanoseconds.
+	 * @return	{@code true} if the published frame has been picked up;
+	 * 			otherwise, returns {@code false} on a timeout or when
+	 * 			interrupted.
+	 */
+	public boolean awaitConsumed(long timeoutNanos) {
+		final long deadline = System.nanoTime() + timeoutNanos;
+		
+		while ((middle.get() & FRESH) != 0) {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0 || Thread.currentThread().isInterrupted())
+				return false;
+			
+			producer = Thread.currentThread();
+			if ((middle.get() & FRESH) != 0)
+				LockSupport.parkNanos(this, remaining);
+			producer = null;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Waits up to the specified time for a new frame and swaps it into the
+	 * front slot. The waiting consumer is parked rather than blocked on a
+	 * monitor, and is woken by the next {@link #publish()}. Only the consumer
+	 * thread may call this method.
+	 * 
+	 * @param timeoutNanos	The maximum time to wait, in nanoseconds.
+	 * @return	{@code true} if the front slot now holds a new frame; otherwise,
+	 * 			returns {@code false} on a timeout or when interrupted.
+	 */
+	public boolean awaitFront(long timeoutNanos) {
+		final long deadline = System.nanoTime() + timeoutNanos;
+		
+		while (!swapFront()) {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0 || Thread.currentThread().isInterrupted())
+				return false;
+			
+			waiter = Thread.currentThread();
+			if ((middle.get() & FRESH) == 0)
+				LockSupport.parkNanos(this, remaining);
+			waiter = null;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the slot holding the frame most recently picked up by the
+	 * consumer. Only the consumer thread may call this method.
+	 * 
+	 * @return	the current front slot.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getFront() {
+		return (T)slots[front];
+	}
+	
+	
+	/**
+	 * Returns the total number of frames published by the producer.
+	 * 
+	 * @return	the number of published frames.
+	 */
+	public long getPublishedCount() {
+		return published.get();
+	}
+	
+	
+	/**
+	 * Returns the number of frames that were replaced by a newer frame before
+	 * the consumer picked them up.
+	 * 
+	 * @return	the number of dropped frames.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import handemapper.common.recognition.event.GestureEvent;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * Provides a latest-wins mailbox for listeners that only care about the
+ * current position of a gesture, such as a listener moving the mouse
+ * pointer. The events of each gesture, i.e. each event source, are told
+ * apart as follows:
+ * <ul>
+ * <li>A <em>transition</em> is the first event of its gesture, or an event
+ * whose id differs from the id of the previous event of its gesture, e.g. a
+ * closed hand after an opened hand. Transitions are never dropped nor
+ * coalesced, so every state change, e.g. the grab and drop of a flickering
+ * hand, is delivered, in order.</li>
+ * <li>A <em>position</em> is an event with the same id as the previous event
+ * of its gesture. At most one position per gesture is pending; a newer
+ * position replaces it in place, and a transition of the gesture supersedes
+ * it, since the transition carries a newer position itself.</li>
+ * </ul>
+ * So however slow the listener, it is handed at most one stale position per
+ * gesture. A position is refused once the mailbox holds its capacity of
+ * events, so the overflow policy of the dispatcher applies, and dropping the
+ * oldest event only drops the oldest pending position. A transition is
+ * always accepted, even beyond the capacity, as the transitions are bounded
+ * by the actual state changes of the gestures.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventDispatcher.DeliveryMode#COALESCING
+ */
+final class CoalescingMailbox extends Mailbox {
+	
+	// Private member fields.
+	private final GestureEventDispatcher dispatcher;
+	private final int capacity;
+	private final ArrayDeque<Slot> queue = new ArrayDeque<Slot>();
+	private final Map<Object,SourceState> sources =
+			new WeakHashMap<Object,SourceState>();
+	
+	
+	/**
+	 * Constructor for a new instance of a coalescing mailbox holding at most
+	 * the specified number of events, counting the coalesced events with the
+	 * specified dispatcher.
+	 * 
+	 * @param dispatcher	The dispatcher of the lane.
+	 * @param capacity		The maximum number of pending events.
+	 */
+	CoalescingMailbox(GestureEventDispatcher dispatcher, int capacity) {
+		this.dispatcher = dispatcher;
+		this.capacity = capacity;
+	}
+	
+	
+	@Override
+	boolean offer(GestureEvent ge) {
+		final SourceState state = sources.get(ge.getSource());
+		if (state == null) {
+			final SourceState created = new SourceState(ge.getID());
+			sources.put(ge.getSource(), created);
+			queue.add(new Slot(ge, created));
+			return true;
+		}
+		
+		if (state.lastId == ge.getID()) {
+			// A position replaces the pending position in place
+			if (state.position != null) {
+				state.position.event = ge;
+				dispatcher.eventCoalesced();
+				return true;
+			}
+			if (queue.size() >= capacity)
+				return false;
+			
+			state.position = new Slot(ge, state);
+			queue.add(state.position);
+			return true;
+		}
+		
+		// The transition supersedes the pending position of the gesture, and
+		// is queued even beyond the capacity
+		if (state.position != null) {
+			queue.removeFirstOccurrence(state.position);
+			state.position = null;
+			dispatcher.eventCoalesced();
+		}
+		queue.add(new Slot(ge, state));
+		state.lastId = ge.getID();
+		return true;
+	}
+	
+	
+	@Override
+	GestureEvent poll() {
+		final Slot slot = queue.poll();
+		if (slot == null)
+			return null;
+		
+		if (slot.state.position == slot)
+			slot.state.position = null;
+		return slot.event;
+	}
+	
+	
+	/**
+	 * Drops the oldest pending position; the transitions are never dropped.
+	 * 
+	 * @return	{@code true} if a position was dropped; otherwise, returns
+	 * 			{@code false} if only transitions are pending.
+	 */
+	@Override
+	boolean dropOldest() {
+		for (Iterator<Slot> it = queue.iterator(); it.hasNext(); ) {
+			final Slot slot = it.next();
+			if (slot.state.position == slot) {
+				it.remove();
+				slot.state.position = null;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	@Override
+	int size() {
+		return queue.size();
+	}
+	
+	
+	/**
+	 * Provides a queue entry, whose event is replaced in place by a newer
+	 * position of the same gesture.
+	 */
+	private static final class Slot {
+		
+		// Package member data.
+		GestureEvent event;
+		final SourceState state;
+		
+		
+		Slot(GestureEvent event, SourceState state) {
+			this.event = event;
+			this.state = state;
+		}
+	
+	}
+	
+	
+	/**
+	 * Provides the coalescing state of one gesture.
+	 */
+	private static final class SourceState {
+		
+		// Package member data.
+		int lastId;
+		Slot position = null;				// the pending position, if any
+		
+		
+		SourceState(int lastId) {
+			this.lastId = lastId;
+		}
+	
+	}
+
+}
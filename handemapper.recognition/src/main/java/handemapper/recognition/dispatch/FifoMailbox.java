@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import handemapper.common.recognition.event.GestureEvent;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * Provides a bounded mailbox delivering every event in the order offered.
+ * When it is full, the lane applies the
+ * {@link GestureEventDispatcher.OverflowPolicy} of its dispatcher.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventDispatcher.DeliveryMode#QUEUED
+ */
+final class FifoMailbox extends Mailbox {
+	
+	// Private member fields.
+	private final int capacity;
+	private final ArrayDeque<GestureEvent> queue;
+	
+	
+	/**
+	 * Constructor for a new instance of a mailbox holding at most the
+	 * specified number of events.
+	 * 
+	 * @param capacity	The maximum number of pending events.
+	 */
+	FifoMailbox(int capacity) {
+		this.capacity = capacity;
+		this.queue = new ArrayDeque<GestureEvent>(Math.min(capacity, 16));
+	}
+	
+	
+	@Override
+	boolean offer(GestureEvent ge) {
+		if (queue.size() >= capacity)
+			return false;
+		
+		queue.add(ge);
+		return true;
+	}
+	
+	
+	@Override
+	GestureEvent poll() {
+		return queue.poll();
+	}
+	
+	
+	@Override
+	boolean dropOldest() {
+		return queue.poll() != null;
+	}
+	
+	
+	@Override
+	int size() {
+		return queue.size();
+	}
+
+}
@@ -0,0 +1,604 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides the delivery of {@link GestureEvent}s to their
+ * {@link GestureListener}s on a small, shared pool of daemon threads, in
+ * place of a new thread per event. Every listener has its own bounded
+ * {@link ListenerLane}; the events of a lane are delivered one at a time in
+ * the order they were dispatched, so a listener never sees a closed hand
+ * before the open hand detected in an earlier frame, while a slow listener
+ * only holds up its own lane. When a lane is full, the {@link OverflowPolicy}
+ * of the dispatcher decides which event is dropped, or whether the detection
+ * waits for the listener.
+ * <p>A listener that only cares about the latest position of a gesture, e.g.
+ * one driving the mouse pointer, can opt in to the
+ * {@link DeliveryMode#COALESCING} mode, so it is never handed a backlog of
+ * stale positions when it falls behind. A cheap, latency-critical listener
+ * can opt in to the {@link DeliveryMode#INLINE} mode instead, to be called
+ * directly on the detection thread; a watchdog demotes it to its previous
+ * asynchronous mode once a call exceeds the {@link #getInlineBudgetNanos()
+ * inline budget}, so one slow listener cannot stall the detection.
+ * <p>The dispatcher keeps the queue depth and drop counts of its lanes, e.g.
+ * to tell whether a listener keeps up with the detection.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see ListenerLane
+ */
+public final class GestureEventDispatcher {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(GestureEventDispatcher.class);
+	
+	
+	/**
+	 * Defines the behavior when an event is dispatched to a full lane.
+	 * 
+	 * @author Chris Hartley
+	 */
+	public enum OverflowPolicy {
+		/** Drops the oldest queued event of the lane to make room. */
+		DROP_OLDEST,
+		/** Drops the dispatched event, keeping the queued events. */
+		DROP_NEWEST,
+		/**
+		 * Waits for the listener to make room, holding up the detection
+		 * thread dispatching the event.
+		 */
+		BLOCK
+	}
+	
+	
+	/**
+	 * Defines how the pending events of a listener are kept until delivered.
+	 * 
+	 * @author Chris Hartley
+	 */
+	public enum DeliveryMode {
+		/**
+		 * Delivers every event in order, applying the overflow policy when
+		 * the lane is full.
+		 */
+		QUEUED,
+		/**
+		 * Delivers every transition, i.e. an event whose id differs from the
+		 * previous event of its gesture, in order, but only the newest
+		 * pending position of each gesture in between. A full lane applies
+		 * the overflow policy to the positions only; the transitions are
+		 * never dropped.
+		 */
+		COALESCING,
+		/**
+		 * Delivers every event synchronously on the thread dispatching it,
+		 * i.e. the detection thread, without any scheduling latency. The
+		 * listener must be cheap and thread-safe, as it may be called by the
+		 * detection threads of several devices at once. A listener exceeding
+		 * the inline budget is demoted to the asynchronous mode it had
+		 * before.
+		 */
+		INLINE
+	}
+	
+	
+	/**
+	 * The default number of events queued per listener.
+	 */
+	public static final int DEFAULT_LANE_CAPACITY = 64;
+	
+	
+	/**
+	 * The default time, in nanoseconds, an inline listener may take per
+	 * event before it is demoted.
+	 */
+	public static final long DEFAULT_INLINE_BUDGET_NANOS =
+			TimeUnit.MILLISECONDS.toNanos(2l);
+	
+	
+	/**
+	 * The default number of delivery threads.
+	 */
+	public static final int DEFAULT_POOL_SIZE =
+			Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+	
+	
+	// Private member fields.
+	private final int laneCapacity;
+	private final Executor executor;
+	private final Map<GestureListener,ListenerLane> lanes =
+			new WeakHashMap<GestureListener,ListenerLane>();
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong inlined = new AtomicLong();
+	private final AtomicLong demoted = new AtomicLong();
+	private final Set<ListenerLane> inlineLanes =
+			new CopyOnWriteArraySet<ListenerLane>();
+	
+	// Private member data.
+	private volatile OverflowPolicy policy;
+	private volatile long inlineBudgetNanos = DEFAULT_INLINE_BUDGET_NANOS;
+	private Thread watchdog = null;				// guarded by inlineLanes
+	
+	
+	/**
+	 * Provides the lazily created dispatcher shared by all gestures.
+	 */
+	private static final class Shared {
+		static final GestureEventDispatcher INSTANCE = new GestureEventDispatcher(
+				DEFAULT_POOL_SIZE, DEFAULT_LANE_CAPACITY,
+				OverflowPolicy.DROP_OLDEST);
+	}
+	
+	
+	/**
+	 * Returns the dispatcher shared by all gestures that were not given a
+	 * dispatcher of their own, dropping the oldest events of a full lane.
+	 * 
+	 * @return	the shared dispatcher.
+	 */
+	public static GestureEventDispatcher getShared() {
+		return Shared.INSTANCE;
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a dispatcher with the specified
+	 * number of delivery threads, lane capacity and overflow policy.
+	 * 
+	 * @param poolSize		The number of delivery threads; must be at least
+	 * 						one.
+	 * @param laneCapacity	The maximum number of events queued per listener;
+	 * 						must be at least one.
+	 * @param policy		The {@link OverflowPolicy} of full lanes.
+	 */
+	public GestureEventDispatcher(int poolSize, int laneCapacity,
+			OverflowPolicy policy)
+	{
+		if (poolSize < 1)
+			throw new IllegalArgumentException("Pool size must be >= 1: " + poolSize);
+		if (laneCapacity < 1)
+			throw new IllegalArgumentException("Lane capacity must be >= 1: "
+					+ laneCapacity);
+		
+		this.laneCapacity = laneCapacity;
+		setOverflowPolicy(policy);
+		
+		// Each lane is queued at most once, so the task queue stays as small
+		// as the number of busy lanes.
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+				30l, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new DispatchThreadFactory());
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+	}
+	
+	
+	/**
+	 * Queues the specified event on the lane of each of the specified
+	 * listeners, returning without waiting for the delivery unless a lane is
+	 * full and the overflow policy is {@link OverflowPolicy#BLOCK}.
+	 * 
+	 * @param ge		The event to deliver.
+	 * @param listeners	The listeners to deliver the event to.
+	 */
+	public void dispatch(GestureEvent ge, GestureListener[] listeners) {
+		if (ge == null)
+			return;
+		
+		for (GestureListener gl : listeners) {
+			if (gl != null)
+				getLane(gl).offer(ge);
+		}
+	}
+	
+	
+	/**
+	 * Returns the lane of the specified listener, creating it on first use.
+	 * A lane is forgotten once its listener is no longer referenced.
+	 */
+	private final ListenerLane getLane(GestureListener gl) {
+		synchronized (lanes) {
+			ListenerLane lane = lanes.get(gl);
+			if (lane == null) {
+				lane = new ListenerLane(this, gl, laneCapacity);
+				lanes.put(gl, lane);
+			}
+			return lane;
+		}
+	}
+	
+	
+	/**
+	 * Returns the delivery mode of the specified listener.
+	 * 
+	 * @param gl	The listener.
+	 * @return	the {@link DeliveryMode} of the listener.
+	 */
+	public DeliveryMode getDeliveryMode(GestureListener gl) {
+		final ListenerLane lane;
+		synchronized (lanes) {
+			lane = lanes.get(gl);
+		}
+		return lane != null ? lane.getMode() : DeliveryMode.QUEUED;
+	}
+	
+	
+	/**
+	 * Sets the delivery mode of the specified listener, for the events of all
+	 * gestures using this dispatcher. Events already pending are kept, and
+	 * delivered before any event delivered {@link DeliveryMode#INLINE inline}.
+	 * 
+	 * @param gl	The listener.
+	 * @param mode	The {@link DeliveryMode} of the listener.
+	 */
+	public void setDeliveryMode(GestureListener gl, DeliveryMode mode) {
+		if (gl == null || mode == null)
+			throw new IllegalArgumentException("Listener and mode must not be null!");
+		
+		final ListenerLane lane = getLane(gl);
+		lane.setMode(mode);
+		if (mode == DeliveryMode.INLINE)
+			watchInline(lane);
+		else
+			inlineLanes.remove(lane);
+	}
+	
+	
+	/**
+	 * Adds the specified lane to the lanes checked by the watchdog, starting
+	 * the watchdog on first use.
+	 */
+	private final void watchInline(ListenerLane lane) {
+		synchronized (inlineLanes) {
+			inlineLanes.add(lane);
+			if (watchdog == null) {
+				watchdog = new Thread(new InlineWatchdog(), "GestureDispatch-Watchdog");
+				watchdog.setDaemon(true);
+				watchdog.start();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Demotes the specified lane from the inline delivery to its previous
+	 * asynchronous mode.
+	 * 
+	 * @param lane		The lane exceeding the inline budget.
+	 * @param nanos		The time, in nanoseconds, the listener took or has
+	 * 					been running.
+	 */
+	void demote(ListenerLane lane, long nanos) {
+		if (!lane.demote())
+			return;
+		
+		inlineLanes.remove(lane);
+		demoted.incrementAndGet();
+		logger.warn(String.format("Demoted inline gesture listener %s to %s "
+				+ "after %.01f ms (budget %.01f ms)", lane.getListener(),
+				lane.getMode(), nanos / 1e6, inlineBudgetNanos / 1e6));
+	}
+	
+	
+	/**
+	 * Returns the time an inline listener may take per event before it is
+	 * demoted to its previous asynchronous mode.
+	 * 
+	 * @return	the inline budget in nanoseconds.
+	 */
+	public long getInlineBudgetNanos() {
+		return inlineBudgetNanos;
+	}
+	
+	
+	/**
+	 * Sets the time an inline listener may take per event before it is
+	 * demoted to its previous asynchronous mode.
+	 * 
+	 * @param nanos	The inline budget in nanoseconds; must be positive.
+	 */
+	public void setInlineBudgetNanos(long nanos) {
+		if (nanos <= 0l)
+			throw new IllegalArgumentException("Inline budget must be > 0: "
+					+ nanos);
+		
+		this.inlineBudgetNanos = nanos;
+	}
+	
+	
+	/**
+	 * Returns the lanes currently known to this dispatcher.
+	 */
+	private final List<ListenerLane> getLanes() {
+		synchronized (lanes) {
+			return new ArrayList<ListenerLane>(lanes.values());
+		}
+	}
+	
+	
+	/**
+	 * Returns the executor running the lanes.
+	 * 
+	 * @return	the executor of the delivery threads.
+	 */
+	Executor getExecutor() {
+		return executor;
+	}
+	
+	
+	/**
+	 * Counts an event delivered by a lane.
+	 */
+	void eventDelivered() {
+		delivered.incrementAndGet();
+	}
+	
+	
+	/**
+	 * Counts an event dropped by a lane.
+	 */
+	void eventDropped() {
+		dropped.incrementAndGet();
+	}
+	
+	
+	/**
+	 * Counts a position event replaced by a newer one before delivery.
+	 */
+	void eventCoalesced() {
+		coalesced.incrementAndGet();
+	}
+	
+	
+	/**
+	 * Counts an event delivered inline on the dispatching thread.
+	 */
+	void eventInlined() {
+		inlined.incrementAndGet();
+	}
+	
+	
+	/**
+	 * Counts an event whose listener threw an exception.
+	 */
+	void eventFailed() {
+		failed.incrementAndGet();
+	}
+	
+	
+	/**
+	 * Returns the policy applied when an event is dispatched to a full lane.
+	 * 
+	 * @return	the {@link OverflowPolicy} of this dispatcher.
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+	
+	
+	/**
+	 * Sets the policy applied when an event is dispatched to a full lane.
+	 * 
+	 * @param policy	The {@link OverflowPolicy} of this dispatcher.
+	 */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		if (policy == null)
+			throw new IllegalArgumentException("Overflow policy must not be null!");
+		
+		this.policy = policy;
+	}
+	
+	
+	/**
+	 * Returns the maximum number of events queued per listener.
+	 * 
+	 * @return	the lane capacity.
+	 */
+	public int getLaneCapacity() {
+		return laneCapacity;
+	}
+	
+	
+	/**
+	 * Returns the number of events currently queued over all lanes.
+	 * 
+	 * @return	the total queue depth.
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (ListenerLane lane : getLanes())
+			depth += lane.getDepth();
+		return depth;
+	}
+	
+	
+	/**
+	 * Returns the largest number of events queued at once in any lane.
+	 * 
+	 * @return	the maximum queue depth of any lane.
+	 */
+	public int getMaxQueueDepth() {
+		int depth = 0;
+		for (ListenerLane lane : getLanes())
+			depth = Math.max(depth, lane.getMaxDepth());
+		return depth;
+	}
+	
+	
+	/**
+	 * Returns the number of events currently queued for the specified
+	 * listener.
+	 * 
+	 * @param gl	The listener.
+	 * @return	the queue depth of the listener's lane, or {@code 0} if the
+	 * 			listener has no lane.
+	 */
+	public int getQueueDepth(GestureListener gl) {
+		final ListenerLane lane;
+		synchronized (lanes) {
+			lane = lanes.get(gl);
+		}
+		return lane != null ? lane.getDepth() : 0;
+	}
+	
+	
+	/**
+	 * Returns the number of events delivered to their listeners so far.
+	 * 
+	 * @return	the number of delivered events.
+	 */
+	public long getDeliveredEvents() {
+		return delivered.get();
+	}
+	
+	
+	/**
+	 * Returns the number of events dropped by full lanes so far.
+	 * 
+	 * @return	the number of dropped events.
+	 */
+	public long getDroppedEvents() {
+		return dropped.get();
+	}
+	
+	
+	/**
+	 * Returns the number of position events replaced by a newer one before
+	 * delivery to a coalescing listener.
+	 * 
+	 * @return	the number of coalesced events.
+	 */
+	public long getCoalescedEvents() {
+		return coalesced.get();
+	}
+	
+	
+	/**
+	 * Returns the number of events delivered inline on the dispatching
+	 * thread.
+	 * 
+	 * @return	the number of inline deliveries.
+	 */
+	public long getInlinedEvents() {
+		return inlined.get();
+	}
+	
+	
+	/**
+	 * Returns the number of times an inline listener was demoted for
+	 * exceeding the inline budget.
+	 * 
+	 * @return	the number of demotions.
+	 */
+	public long getDemotions() {
+		return demoted.get();
+	}
+	
+	
+	/**
+	 * Returns the number of events whose listener threw an exception.
+	 * 
+	 * @return	the number of failed deliveries.
+	 */
+	public long getFailedEvents() {
+		return failed.get();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[policy=" + policy
+				+ ", depth=" + getQueueDepth()
+				+ ", maxDepth=" + getMaxQueueDepth()
+				+ ", delivered=" + getDeliveredEvents()
+				+ ", dropped=" + getDroppedEvents()
+				+ ", coalesced=" + getCoalescedEvents()
+				+ ", inlined=" + getInlinedEvents()
+				+ ", demotions=" + getDemotions() + "]";
+	}
+	
+	
+	/**
+	 * Provides the watchdog demoting an inline listener whose call is still
+	 * running past the inline budget, until no listener is inline any more. The
+	 * dispatching thread of that call stays stalled until the listener returns,
+	 * but every following event is delivered asynchronously, so the listener
+	 * cannot stall any further detection.
+	 * 
+	 * @author Chris Hartley
+	 */
+	private final class InlineWatchdog implements Runnable {
+		
+		@Override
+		public void run() {
+			while (true) {
+				synchronized (inlineLanes) {
+					if (inlineLanes.isEmpty()) {
+						watchdog = null;
+						return;
+					}
+				}
+				
+				final long budget = inlineBudgetNanos;
+				LockSupport.parkNanos(budget);
+				
+				final long now = System.nanoTime();
+				for (ListenerLane lane : inlineLanes) {
+					final long since = lane.getInlineSince();
+					if (since != 0l && now - since > budget)
+						demote(lane, now - since);
+				}
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * Provides the daemon threads delivering the events.
+	 * 
+	 * @author Chris Hartley
+	 */
+	private static final class DispatchThreadFactory implements ThreadFactory {
+		
+		// Private static data.
+		private static final AtomicInteger count = new AtomicInteger();
+		
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(r, "GestureDispatch-"
+					+ count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	
+	}
+
+}
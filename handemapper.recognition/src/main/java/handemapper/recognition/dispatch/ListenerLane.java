@@ -0,0 +1,349 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+import handemapper.recognition.dispatch.GestureEventDispatcher.DeliveryMode;
+import handemapper.recognition.dispatch.GestureEventDispatcher.OverflowPolicy;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides the delivery of the events of one {@link GestureListener}, whose
+ * pending events are kept in the {@link Mailbox} of the listener's
+ * {@link DeliveryMode}. The
+ * lane is submitted to the executor of its {@link GestureEventDispatcher}
+ * when its first event is queued, and is never queued twice, so its events
+ * are delivered by one thread at a time and in order. After a batch of
+ * events the lane is submitted again rather than draining its queue, so a
+ * busy listener does not hold a delivery thread from the other lanes.
+ * <p>The listener is only weakly referenced, so the lane does not keep its
+ * listener, and thereby itself, in the lanes of the dispatcher once the
+ * listener is no longer registered anywhere.
+ * <p>In the {@link DeliveryMode#INLINE} mode, an event is delivered directly
+ * by the dispatching thread, unless events of the previous asynchronous mode
+ * are still pending, which keeps the order. The mailbox of that previous
+ * mode is kept, so a demoted lane simply continues in it. A lane is busy
+ * for the whole of an inline call: events offered meanwhile are queued, and
+ * the lane is only submitted once that call returns, so the listener is never
+ * entered twice at once, not even after the watchdog demoted a stalled call.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureEventDispatcher
+ */
+final class ListenerLane implements Runnable {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(ListenerLane.class);
+	
+	
+	/**
+	 * The maximum number of events delivered before the lane yields its
+	 * delivery thread.
+	 */
+	private static final int BATCH_SIZE = 16;
+	
+	
+	// Private member fields.
+	private final GestureEventDispatcher dispatcher;
+	private final WeakReference<GestureListener> listener;
+	private final int capacity;
+	private final AtomicLong inlineSince = new AtomicLong();
+	
+	// Private member data.
+	private boolean scheduled = false;			// guarded by this
+	private boolean inlining = false;			// guarded by this
+	private DeliveryMode mode = DeliveryMode.QUEUED;	// guarded by this
+	private DeliveryMode asyncMode = DeliveryMode.QUEUED;	// guarded by this
+	private Mailbox mailbox;					// guarded by this
+	private volatile int depth = 0;
+	private volatile int maxDepth = 0;
+	
+	
+	/**
+	 * Constructor for a new instance of a lane delivering to the specified
+	 * listener.
+	 * 
+	 * @param dispatcher	The dispatcher owning this lane.
+	 * @param listener		The listener of this lane.
+	 * @param capacity		The maximum number of queued events.
+	 */
+	ListenerLane(GestureEventDispatcher dispatcher, GestureListener listener,
+			int capacity)
+	{
+		this.dispatcher = dispatcher;
+		this.listener = new WeakReference<GestureListener>(listener);
+		this.capacity = capacity;
+		this.mailbox = new FifoMailbox(capacity);
+	}
+	
+	
+	/**
+	 * Returns the delivery mode of this lane.
+	 * 
+	 * @return	the {@link DeliveryMode} of the listener.
+	 */
+	synchronized DeliveryMode getMode() {
+		return mode;
+	}
+	
+	
+	/**
+	 * Sets the delivery mode of this lane. The pending events are moved to
+	 * the mailbox of the new mode, in order; the {@link DeliveryMode#INLINE}
+	 * mode keeps the mailbox of the previous mode.
+	 * 
+	 * @param mode	The {@link DeliveryMode} of the listener.
+	 */
+	synchronized void setMode(DeliveryMode mode) {
+		this.mode = mode;
+		if (mode == DeliveryMode.INLINE || asyncMode == mode)
+			return;
+		
+		asyncMode = mode;
+		final Mailbox replaced = mailbox;
+		mailbox = mode == DeliveryMode.COALESCING
+				? new CoalescingMailbox(dispatcher, capacity)
+				: new FifoMailbox(capacity);
+		
+		GestureEvent ge;
+		while ((ge = replaced.poll()) != null) {
+			if (!mailbox.offer(ge) && !(mailbox.dropOldest() && mailbox.offer(ge)))
+				dispatcher.eventDropped();
+		}
+		depth = mailbox.size();
+		notifyAll();
+	}
+	
+	
+	/**
+	 * Demotes this lane from the inline delivery to its previous asynchronous
+	 * mode.
+	 * 
+	 * @return	{@code true} if this lane was inline; otherwise, returns
+	 * 			{@code false}.
+	 */
+	synchronized boolean demote() {
+		if (mode != DeliveryMode.INLINE)
+			return false;
+		
+		mode = asyncMode;
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the listener of this lane.
+	 * 
+	 * @return	the listener, or {@code null} if no longer referenced.
+	 */
+	GestureListener getListener() {
+		return listener.get();
+	}
+	
+	
+	/**
+	 * Returns the time the running inline call of the listener started at.
+	 * 
+	 * @return	the {@link System#nanoTime()} of the start of the call, or
+	 * 			{@code 0} if no inline call is running.
+	 */
+	long getInlineSince() {
+		return inlineSince.get();
+	}
+	
+	
+	/**
+	 * Delivers the specified event, or queues it, applying the overflow
+	 * policy of the dispatcher when the mailbox is full, and submits this
+	 * lane unless it is already submitted.
+	 * 
+	 * @param ge	The event to deliver.
+	 */
+	void offer(GestureEvent ge) {
+		final boolean inline;
+		synchronized (this) {
+			inline = mode == DeliveryMode.INLINE && !scheduled && !inlining
+					&& mailbox.isEmpty();
+			if (inline)
+				inlining = true;
+		}
+		
+		if (inline)
+			deliverInline(ge);
+		else
+			queue(ge);
+	}
+	
+	
+	/**
+	 * Delivers the specified event on the calling thread, demoting this lane
+	 * once the listener exceeds the inline budget of the dispatcher. The
+	 * caller has marked this lane as inlining; the mark is cleared here, and
+	 * the lane submitted if events were queued during the call.
+	 */
+	private final void deliverInline(GestureEvent ge) {
+		final GestureListener gl = listener.get();
+		if (gl == null) {
+			dispatcher.eventDropped();
+			endInline();
+			return;
+		}
+		
+		final long start = System.nanoTime();
+		inlineSince.compareAndSet(0l, start);
+		ge.setDispatchNanos(start);
+		try {
+			gl.gestureDetected(ge);
+			dispatcher.eventInlined();
+			dispatcher.eventDelivered();
+		}
+		catch (RuntimeException ex) {
+			dispatcher.eventFailed();
+			logger.error("Gesture listener " + gl + " failed on "
+					+ ge + ": " + ex);
+		}
+		finally {
+			inlineSince.compareAndSet(start, 0l);
+			endInline();
+		}
+		
+		final long elapsed = System.nanoTime() - start;
+		if (elapsed > dispatcher.getInlineBudgetNanos())
+			dispatcher.demote(this, elapsed);
+	}
+	
+	
+	/**
+	 * Clears the inlining mark of this lane, and submits it if events were
+	 * queued while the inline call was running.
+	 */
+	private final void endInline() {
+		final boolean schedule;
+		synchronized (this) {
+			inlining = false;
+			schedule = !scheduled && !mailbox.isEmpty();
+			if (schedule)
+				scheduled = true;
+		}
+		
+		if (schedule)
+			dispatcher.getExecutor().execute(this);
+	}
+	
+	
+	/**
+	 * Queues the specified event, applying the overflow policy of the
+	 * dispatcher when the mailbox is full, and submits this lane unless it is
+	 * already submitted or an inline call is running, which then submits it.
+	 */
+	private final void queue(GestureEvent ge) {
+		final boolean schedule;
+		synchronized (this) {
+			while (!mailbox.offer(ge)) {
+				final OverflowPolicy policy = dispatcher.getOverflowPolicy();
+				if (policy == OverflowPolicy.DROP_NEWEST) {
+					dispatcher.eventDropped();
+					return;
+				}
+				else if (policy == OverflowPolicy.DROP_OLDEST) {
+					dispatcher.eventDropped();
+					if (!mailbox.dropOldest())
+						return;
+				}
+				else {
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						dispatcher.eventDropped();
+						return;
+					}
+				}
+			}
+			
+			depth = mailbox.size();
+			if (depth > maxDepth)
+				maxDepth = depth;
+			
+			schedule = !scheduled && !inlining;
+			if (schedule)
+				scheduled = true;
+		}
+		
+		if (schedule)
+			dispatcher.getExecutor().execute(this);
+	}
+	
+	
+	@Override
+	public void run() {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			final GestureEvent ge;
+			synchronized (this) {
+				ge = mailbox.poll();
+				depth = mailbox.size();
+				if (ge == null) {
+					scheduled = false;
+					return;
+				}
+				notifyAll();
+			}
+			
+			final GestureListener gl = listener.get();
+			if (gl == null) {
+				dispatcher.eventDropped();
+				continue;
+			}
+			
+			ge.setDispatchNanos(System.nanoTime());
+			try {
+				gl.gestureDetected(ge);
+				dispatcher.eventDelivered();
+			}
+			catch (RuntimeException ex) {
+				dispatcher.eventFailed();
+				logger.error("Gesture listener " + gl + " failed on "
+						+ ge + ": " + ex);
+			}
+		}
+		
+		synchronized (this) {
+			if (mailbox.isEmpty()) {
+				scheduled = false;
+				return;
+			}
+		}
+		dispatcher.getExecutor().execute(this);
+	}
+	
+	
+	/**
+	 * Returns the number of events currently queued in this lane.
+	 * 
+	 * @return	the queue depth.
+	 */
+	int getDepth() {
+		return depth;
+	}
+	
+	
+	/**
+	 * Returns the largest number of events queued at once in this lane.
+	 * 
+	 * @return	the maximum queue depth.
+	 */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+}
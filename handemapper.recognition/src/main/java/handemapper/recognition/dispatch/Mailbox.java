@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import handemapper.common.recognition.event.GestureEvent;
+
+
+/**
+ * Provides the queue of pending events of a {@link ListenerLane}, which
+ * decides how the events offered to the lane are kept until delivered. A
+ * mailbox is only accessed while holding the lock of its lane.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see FifoMailbox
+ * @see CoalescingMailbox
+ */
+abstract class Mailbox {
+	
+	/**
+	 * Adds the specified event to this mailbox, unless it is full.
+	 * 
+	 * @param ge	The event to add.
+	 * @return	{@code true} if the event was added; otherwise, returns
+	 * 			{@code false} if this mailbox is full.
+	 */
+	abstract boolean offer(GestureEvent ge);
+	
+	
+	/**
+	 * Removes and returns the next event to deliver.
+	 * 
+	 * @return	the next event, or {@code null} if this mailbox is empty.
+	 */
+	abstract GestureEvent poll();
+	
+	
+	/**
+	 * Drops the oldest event that may be dropped to make room for another.
+	 * 
+	 * @return	{@code true} if an event was dropped; otherwise, returns
+	 * 			{@code false}.
+	 */
+	abstract boolean dropOldest();
+	
+	
+	/**
+	 * Returns the number of events pending delivery.
+	 * 
+	 * @return	the number of pending events.
+	 */
+	abstract int size();
+	
+	
+	/**
+	 * Returns {@code true} if no event is pending delivery; otherwise,
+	 * returns {@code false}.
+	 * 
+	 * @return	whether this mailbox is empty.
+	 */
+	boolean isEmpty() {
+		return size() == 0;
+	}
+
+}
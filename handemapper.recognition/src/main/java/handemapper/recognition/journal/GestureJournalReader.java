@@ -0,0 +1,251 @@
+/**
+ * 
+ */
+package handemapper.recognition.journal;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides the replay of a gesture event journal written by a
+ * {@link GestureJournalWriter} into {@link GestureListener}s, at the original
+ * speed or accelerated, e.g. to reproduce a field issue. The source of a
+ * replayed {@link GestureEvent} is the name of the journaled gesture, the
+ * same {@link String} instance for all events of a gesture within a segment.
+ * <p>The pacing follows the recorded times of each run of the recognizer,
+ * i.e. of the segments sharing the prefix and start time in their names; it
+ * restarts at every new run, and whenever the recorded time steps back,
+ * e.g. after the wall clock was set back, so there is no bogus delay
+ * between runs.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureJournalWriter
+ */
+public class GestureJournalReader {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(GestureJournalReader.class);
+	
+	
+	// Private member fields.
+	private final File[] segments;
+	
+	
+	/**
+	 * Constructor for a new instance of a reader of the specified journal.
+	 * 
+	 * @param journal	A segment file, or a directory whose segment files are
+	 * 					read in the order of their names.
+	 */
+	public GestureJournalReader(File journal) {
+		if (journal.isDirectory()) {
+			final File[] files = journal.listFiles(new FileFilter() {
+				@Override
+				public boolean accept(File file) {
+					return file.isFile()
+							&& file.getName().endsWith(JournalFormat.SUFFIX);
+				}
+			});
+			segments = files != null ? files : new File[0];
+			Arrays.sort(segments);
+		}
+		else {
+			segments = new File[] { journal };
+		}
+	}
+	
+	
+	/**
+	 * Replays the journal into the specified listeners, as fast as possible.
+	 * 
+	 * @param listeners	The {@link GestureListener}s to notify.
+	 * @return	the number of replayed events.
+	 * @throws IOException  if a segment cannot be read.
+	 * @throws InterruptedException  if interrupted while replaying.
+	 * 
+	 * @see #replay(double, GestureListener...)
+	 */
+	public int replay(GestureListener... listeners)
+			throws IOException, InterruptedException
+	{
+		return replay(Double.POSITIVE_INFINITY, listeners);
+	}
+	
+	
+	/**
+	 * Replays the journal into the specified listeners, keeping the recorded
+	 * time between events divided by the specified speed.
+	 * 
+	 * @param speed		The replay speed; {@code 1} for the original speed,
+	 * 					{@code 2} for twice as fast, and
+	 * 					{@link Double#POSITIVE_INFINITY} for no delays.
+	 * @param listeners	The {@link GestureListener}s to notify.
+	 * @return	the number of replayed events.
+	 * @throws IOException  if a segment cannot be read.
+	 * @throws InterruptedException  if interrupted while replaying.
+	 */
+	public int replay(double speed, GestureListener... listeners)
+			throws IOException, InterruptedException
+	{
+		if (!(speed > 0d))
+			throw new IllegalArgumentException("Invalid replay speed: " + speed);
+		
+		final Replay replay = new Replay(speed, listeners);
+		String run = null;
+		for (File segment : segments) {
+			final String name = segment.getName();
+			final int end = name.lastIndexOf('-');
+			final String segmentRun = end > 0 ? name.substring(0, end) : name;
+			if (!segmentRun.equals(run)) {
+				replay.rebase();
+				run = segmentRun;
+			}
+			replaySegment(segment, replay);
+		}
+		
+		return replay.count;
+	}
+	
+	
+	/**
+	 * Replays the records of the specified segment.
+	 */
+	private final void replaySegment(File segment, Replay replay)
+			throws IOException, InterruptedException
+	{
+		final MappedByteBuffer buffer;
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0l,
+					file.length());
+		}
+		
+		if (buffer.remaining() < JournalFormat.HEADER_SIZE
+				|| buffer.getInt() != JournalFormat.MAGIC)
+			throw new IOException("Not a gesture journal: " + segment);
+		final short version = buffer.getShort();
+		final short recordSize = buffer.getShort();
+		if (version != JournalFormat.VERSION
+				|| recordSize != JournalFormat.RECORD_SIZE)
+			throw new IOException("Unsupported journal version " + version
+					+ " of " + segment);
+		
+		final List<String> names = new ArrayList<String>();
+		while (buffer.remaining() >= JournalFormat.RECORD_SIZE) {
+			final int pos = buffer.position();
+			final byte type = buffer.get(pos);
+			if (type == JournalFormat.TYPE_END)
+				break;
+			
+			final int index = buffer.getShort(pos + 2);
+			if (type == JournalFormat.TYPE_GESTURE) {
+				final byte[] name = new byte[buffer.get(pos + 1) & 0xff];
+				for (int i = 0; i < name.length; i++)
+					name[i] = buffer.get(pos + 4 + i);
+				while (names.size() <= index)
+					names.add(null);
+				names.set(index, new String(name, StandardCharsets.UTF_8));
+			}
+			else if (type == JournalFormat.TYPE_EVENT) {
+				final Object source = index < names.size() ? names.get(index) : null;
+				replay.fire(new GestureEvent(source == null ? "" : source,
+						buffer.get(pos + 1),
+						buffer.getLong(pos + 8),
+						buffer.getInt(pos + 40),
+						buffer.getInt(pos + 44),
+						buffer.getInt(pos + 4),
+						buffer.getLong(pos + 16),
+						buffer.getLong(pos + 24),
+						buffer.getLong(pos + 32)));
+			}
+			else {
+				logger.warn("Unknown journal record type " + type + " in "
+						+ segment + ", skipping the rest");
+				break;
+			}
+			
+			buffer.position(pos + JournalFormat.RECORD_SIZE);
+		}
+	}
+	
+	
+	/**
+	 * Provides the pacing and notification of one replay.
+	 */
+	private static final class Replay {
+		
+		// Private member fields.
+		private final double speed;
+		private final GestureListener[] listeners;
+		
+		// Private member data.
+		private long startNanos = 0l;
+		private long firstWhen = Long.MIN_VALUE;
+		private long lastWhen = Long.MIN_VALUE;
+		private int count = 0;
+		
+		
+		private Replay(double speed, GestureListener[] listeners) {
+			this.speed = speed;
+			this.listeners = listeners;
+		}
+		
+		
+		/**
+		 * Restarts the pacing at the next event, e.g. at the start of a run.
+		 */
+		private void rebase() {
+			firstWhen = Long.MIN_VALUE;
+		}
+		
+		
+		/**
+		 * Waits until the recorded time of the event, scaled by the speed,
+		 * has elapsed since the first event of the run, then notifies the
+		 * listeners.
+		 */
+		private void fire(GestureEvent ge) throws InterruptedException {
+			if (firstWhen == Long.MIN_VALUE || ge.getWhen() < lastWhen) {
+				firstWhen = ge.getWhen();
+				startNanos = System.nanoTime();
+			}
+			lastWhen = ge.getWhen();
+			
+			if (speed != Double.POSITIVE_INFINITY) {
+				final long due = startNanos
+						+ (long)((ge.getWhen() - firstWhen) * 1e6 / speed);
+				final long wait = due - System.nanoTime();
+				if (wait > 0l)
+					Thread.sleep(wait / 1000000l, (int)(wait % 1000000l));
+			}
+			
+			for (GestureListener gl : listeners)
+				gl.gestureDetected(ge);
+			count++;
+		}
+	
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[segments="
+				+ Arrays.toString(segments) + "]";
+	}
+
+}
@@ -0,0 +1,381 @@
+/**
+ * 
+ */
+package handemapper.recognition.journal;
+
+import handemapper.common.recognition.Gesture;
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureEventConsumer;
+import handemapper.common.recognition.event.GestureEventHandler;
+import handemapper.common.recognition.event.GestureEventRing;
+import handemapper.common.recognition.event.GestureEventSlot;
+import handemapper.common.recognition.event.GestureListener;
+import handemapper.common.recognition.event.WaitStrategy;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides a journal of the emitted gesture events, to reproduce field
+ * issues by replaying what the recognizer emitted with a
+ * {@link GestureJournalReader}. Every event is appended as a fixed-width
+ * binary record, see {@link JournalFormat}, to a memory-mapped segment file;
+ * once a segment is full the journal rotates to a new one, keeping at most
+ * the configured number of segments. The limit applies across runs: the
+ * segments with the same prefix left by earlier runs are counted, oldest
+ * first, and a segment that cannot be deleted yet, e.g. while still mapped
+ * on Windows, is deleted again on the next rotation.
+ * <p>Appending a record neither allocates nor performs any I/O call, except
+ * when rotating. The journal should be {@link #attach(GestureEventRing)
+ * attached} to the gesture event ring of the recognizer, where it consumes
+ * the events on a thread of its own, so the detection thread is never
+ * blocked; a journal that falls behind only makes the ring drop events.
+ * The journal may also be registered as a {@link GestureListener}.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureJournalReader
+ */
+public class GestureJournalWriter implements GestureEventHandler,
+		GestureListener
+{
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(GestureJournalWriter.class);
+	
+	
+	/**
+	 * The default size, in bytes, of a segment file.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 4 << 20;
+	
+	/**
+	 * The default number of segment files kept.
+	 */
+	public static final int DEFAULT_MAX_SEGMENTS = 8;
+	
+	
+	// Private member fields.
+	private final File directory;
+	private final String prefix;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final long startMillis = System.currentTimeMillis();
+	private final Deque<File> segments = new ArrayDeque<File>();
+	private final List<File> undeleted = new ArrayList<File>();
+	
+	// Private member data.
+	private RandomAccessFile file = null;				// guarded by this
+	private MappedByteBuffer buffer = null;			// guarded by this
+	private int segmentCount = 0;						// guarded by this
+	private Object[] sources = new Object[8];			// guarded by this
+	private boolean[] defined = new boolean[8];		// guarded by this
+	private int sourceCount = 0;						// guarded by this
+	private boolean closed = false;					// guarded by this
+	private GestureEventConsumer consumer = null;		// guarded by this
+	private volatile long written = 0l;
+	
+	
+	/**
+	 * Constructor for a new instance of a journal in the specified directory
+	 * with the default segment size and count.
+	 * 
+	 * @param directory	The directory of the segment files.
+	 * @param prefix	The file name prefix of the segment files.
+	 * @throws IOException  if the first segment cannot be created.
+	 */
+	public GestureJournalWriter(File directory, String prefix)
+			throws IOException
+	{
+		this(directory, prefix, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a journal in the specified directory.
+	 * 
+	 * @param directory		The directory of the segment files.
+	 * @param prefix		The file name prefix of the segment files.
+	 * @param segmentSize	The size, in bytes, of a segment file.
+	 * @param maxSegments	The number of segment files kept, including those
+	 * 						of earlier runs with the same prefix; the oldest
+	 * 						file is deleted once exceeded.
+	 * @throws IOException  if the first segment cannot be created.
+	 */
+	public GestureJournalWriter(File directory, String prefix, int segmentSize,
+			int maxSegments) throws IOException
+	{
+		if (segmentSize < JournalFormat.HEADER_SIZE + 2 * JournalFormat.RECORD_SIZE)
+			throw new IllegalArgumentException("Segment size too small: "
+					+ segmentSize);
+		if (maxSegments < 1)
+			throw new IllegalArgumentException("Invalid maximum segments: "
+					+ maxSegments);
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Unable to create the journal directory: "
+					+ directory);
+		
+		this.directory = directory;
+		this.prefix = prefix;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		
+		synchronized (this) {
+			segments.addAll(listSegments());
+			rotate();
+		}
+	}
+	
+	
+	/**
+	 * Returns the segment files with the prefix of this journal left in its
+	 * directory by earlier runs, oldest first.
+	 */
+	private final List<File> listSegments() {
+		final Pattern names = Pattern.compile(Pattern.quote(prefix)
+				+ "-\\d+-\\d+" + Pattern.quote(JournalFormat.SUFFIX));
+		final File[] files = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && names.matcher(file.getName()).matches();
+			}
+		});
+		if (files == null)
+			return new ArrayList<File>();
+		
+		Arrays.sort(files);
+		return Arrays.asList(files);
+	}
+	
+	
+	/**
+	 * Attaches this journal as a consumer of the specified ring, on a daemon
+	 * thread of its own that parks while no event is available.
+	 * 
+	 * @param ring	The {@link GestureEventRing} to journal.
+	 */
+	public synchronized void attach(GestureEventRing ring) {
+		if (closed || consumer != null)
+			throw new IllegalStateException("Journal closed or already attached");
+		
+		consumer = new GestureEventConsumer(ring, this, WaitStrategy.PARK);
+		final Thread thread = new Thread(consumer, "GestureJournal");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	
+	@Override
+	public void onEvent(GestureEventSlot slot, long sequence, boolean endOfBatch) {
+		append(slot.getGesture(), slot.getID(), slot.getWhen(), slot.getX(),
+				slot.getY(), slot.getDeviceIndex(), slot.getSequence(),
+				slot.getCaptureNanos(), slot.getDetectedNanos());
+	}
+	
+	
+	@Override
+	public void gestureDetected(GestureEvent ge) {
+		append(ge.getSource(), ge.getID(), ge.getWhen(), ge.getX(), ge.getY(),
+				ge.getDeviceIndex(), ge.getSequence(), ge.getCaptureNanos(),
+				ge.getDetectedNanos());
+	}
+	
+	
+	/**
+	 * Appends an event record, preceded by the gesture record of its source
+	 * if the source did not occur in the current segment yet. The type of a
+	 * record is written last, so a partly written record reads as the end of
+	 * the segment.
+	 */
+	private synchronized void append(Object source, int id, long when, int x,
+			int y, int deviceIndex, long sequence, long captureNanos,
+			long detectedNanos)
+	{
+		if (closed)
+			return;
+		
+		final int index = indexOf(source);
+		try {
+			if (buffer.remaining() < 2 * JournalFormat.RECORD_SIZE)
+				rotate();
+		}
+		catch (IOException ex) {
+			logger.error("Unable to rotate the gesture journal, closing it", ex);
+			close();
+			return;
+		}
+		
+		if (!defined[index]) {
+			writeGesture(index);
+			defined[index] = true;
+		}
+		
+		final int pos = buffer.position();
+		buffer.put(pos + 1, (byte)id);
+		buffer.putShort(pos + 2, (short)index);
+		buffer.putInt(pos + 4, deviceIndex);
+		buffer.putLong(pos + 8, when);
+		buffer.putLong(pos + 16, sequence);
+		buffer.putLong(pos + 24, captureNanos);
+		buffer.putLong(pos + 32, detectedNanos);
+		buffer.putInt(pos + 40, x);
+		buffer.putInt(pos + 44, y);
+		buffer.put(pos, JournalFormat.TYPE_EVENT);
+		buffer.position(pos + JournalFormat.RECORD_SIZE);
+		written++;
+	}
+	
+	
+	/**
+	 * Writes the gesture record of the specified gesture index.
+	 */
+	private final void writeGesture(int index) {
+		final Object source = sources[index];
+		final String name = source instanceof Gesture
+				? ((Gesture)source).getName() : String.valueOf(source);
+		final byte[] bytes = String.valueOf(name).getBytes(StandardCharsets.UTF_8);
+		final int length = Math.min(bytes.length, JournalFormat.MAX_NAME_BYTES);
+		
+		final int pos = buffer.position();
+		buffer.put(pos + 1, (byte)length);
+		buffer.putShort(pos + 2, (short)index);
+		for (int i = 0; i < length; i++)
+			buffer.put(pos + 4 + i, bytes[i]);
+		buffer.put(pos, JournalFormat.TYPE_GESTURE);
+		buffer.position(pos + JournalFormat.RECORD_SIZE);
+	}
+	
+	
+	/**
+	 * Returns the gesture index of the specified source, assigning the next
+	 * index to a new source. The sources are few, so they are searched by
+	 * identity without allocating.
+	 */
+	private final int indexOf(Object source) {
+		for (int i = 0; i < sourceCount; i++) {
+			if (sources[i] == source)
+				return i;
+		}
+		
+		if (sourceCount == sources.length) {
+			sources = Arrays.copyOf(sources, sourceCount * 2);
+			defined = Arrays.copyOf(defined, sourceCount * 2);
+		}
+		sources[sourceCount] = source;
+		return sourceCount++;
+	}
+	
+	
+	/**
+	 * Closes the current segment, if any, and maps a new one, deleting the
+	 * oldest segment once more than the maximum are kept.
+	 */
+	private final void rotate() throws IOException {
+		closeSegment();
+		
+		final File next = new File(directory, String.format("%s-%d-%04d%s",
+				prefix, startMillis, segmentCount++, JournalFormat.SUFFIX));
+		file = new RandomAccessFile(next, "rw");
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0l,
+				segmentSize);
+		buffer.putInt(JournalFormat.MAGIC);
+		buffer.putShort(JournalFormat.VERSION);
+		buffer.putShort((short)JournalFormat.RECORD_SIZE);
+		Arrays.fill(defined, false);
+		
+		segments.addLast(next);
+		while (segments.size() > maxSegments)
+			undeleted.add(segments.removeFirst());
+		deleteSegments();
+		
+		if (logger.isDebugEnabled())
+			logger.debug("Journaling gesture events to " + next);
+	}
+	
+	
+	/**
+	 * Deletes the segments beyond the maximum, keeping those that cannot be
+	 * deleted yet for the next attempt.
+	 */
+	private final void deleteSegments() {
+		for (Iterator<File> it = undeleted.iterator(); it.hasNext();) {
+			final File oldest = it.next();
+			if (oldest.delete() || !oldest.exists())
+				it.remove();
+			else
+				logger.warn("Unable to delete the journal segment, retrying"
+						+ " on the next rotation: " + oldest);
+		}
+	}
+	
+	
+	/**
+	 * Forces the current segment to the storage device and closes its file.
+	 */
+	private final void closeSegment() {
+		if (file == null)
+			return;
+		
+		try {
+			buffer.force();
+			file.close();
+		}
+		catch (IOException ex) {
+			logger.error("Unable to close the journal segment", ex);
+		}
+		finally {
+			file = null;
+			buffer = null;
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of event records written.
+	 * 
+	 * @return	the number of journaled events.
+	 */
+	public long getWrittenCount() {
+		return written;
+	}
+	
+	
+	/**
+	 * Detaches this journal from its ring, if any, and closes the current
+	 * segment. Events appended afterwards are ignored.
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		
+		closed = true;
+		if (consumer != null)
+			consumer.halt();
+		closeSegment();
+		deleteSegments();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[directory=" + directory
+				+ ", prefix=" + prefix + ", written=" + written + "]";
+	}
+
+}
@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package handemapper.recognition.journal;
+
+
+/**
+ * Defines the binary layout of a gesture event journal segment. A segment
+ * starts with a header of {@link #HEADER_SIZE} bytes, followed by fixed-width
+ * records of {@link #RECORD_SIZE} bytes, all big-endian. Unused space at the
+ * end of a segment is zero, i.e. ends with a {@link #TYPE_END} record.
+ * <p>An event record is laid out as:
+ * <pre>
+ *  0  byte   type ({@link #TYPE_EVENT})
+ *  1  byte   gesture event id
+ *  2  short  gesture index, as defined by a preceding gesture record
+ *  4  int    device index
+ *  8  long   when, in milliseconds
+ * 16  long   frame sequence number
+ * 24  long   capture time, in nanoseconds
+ * 32  long   detection-complete time, in nanoseconds
+ * 40  int    X-coordinate
+ * 44  int    Y-coordinate</pre>
+ * A gesture record ({@link #TYPE_GESTURE}) holds the name length at offset 1,
+ * the gesture index at offset 2, and up to {@link #MAX_NAME_BYTES} bytes of
+ * the UTF-8 name from offset 4. It precedes the first event of its gesture
+ * in every segment, so each segment can be replayed on its own.
+ * 
+ * @author Chris Hartley
+ */
+final class JournalFormat {
+	
+	/** The magic number at the start of every segment, {@code "HEMJ"}. */
+	static final int MAGIC = 0x48454d4a;
+	
+	/** The version of the layout. */
+	static final short VERSION = 1;
+	
+	/** The size, in bytes, of the segment header. */
+	static final int HEADER_SIZE = 8;
+	
+	/** The size, in bytes, of every record. */
+	static final int RECORD_SIZE = 48;
+	
+	/** The maximum number of bytes of a gesture name. */
+	static final int MAX_NAME_BYTES = RECORD_SIZE - 4;
+	
+	/** The file name suffix of a segment. */
+	static final String SUFFIX = ".hej";
+	
+	/** The record type marking the end of the written records. */
+	static final byte TYPE_END = 0;
+	
+	/** The record type of a gesture event. */
+	static final byte TYPE_EVENT = 1;
+	
+	/** The record type defining the name of a gesture index. */
+	static final byte TYPE_GESTURE = 2;
+	
+	
+	/**
+	 * Not instantiable.
+	 */
+	private JournalFormat() { }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * 
+ */
+package handemapper.recognition.scheduling;
+
+import handemapper.common.recognition.GestureRecognizer.SchedulingPolicy;
+
+import java.util.Arrays;
+
+
+/**
+ * Provides a {@link DropLateScheduler} that adapts its target frame rate to
+ * the measured processing time. Every {@link #windowSize} frames the 95th
+ * percentile of the processing times is compared against the frame budget:
+ * the rate is lowered to fit the percentile when it exceeds the budget, and
+ * raised in small steps, up to the requested rate, when there is headroom.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SchedulingPolicy#ADAPTIVE
+ */
+public class AdaptiveRateScheduler extends DropLateScheduler {
+	
+	/**
+	 * The number of processed frames sampled between adjustments.
+	 */
+	private static final int windowSize = 32;
+	
+	
+	/**
+	 * The index of the 95th percentile sample within a sorted window.
+	 */
+	private static final int p95Index = (int)Math.ceil(windowSize * 0.95) - 1;
+	
+	
+	/**
+	 * The fraction of the frame budget below which the rate is raised.
+	 */
+	private static final double headroomRatio = 0.7d;
+	
+	
+	/**
+	 * The factor the rate is raised by when there is headroom.
+	 */
+	private static final double raiseFactor = 1.1d;
+	
+	
+	/**
+	 * The fraction of the measured rate used when lowering, so the new budget
+	 * has some slack above the percentile.
+	 */
+	private static final double lowerFactor = 0.9d;
+	
+	
+	/**
+	 * The lowest frame rate the scheduler will adapt to.
+	 */
+	private static final double minFps = 1d;
+	
+	
+	// Private member fields.
+	private final long[] samples = new long[windowSize];
+	private final long[] sorted = new long[windowSize];
+	
+	// Private member data.
+	private volatile double requestedFps;
+	private int sampleCount = 0;
+	
+	
+	/**
+	 * Constructor for a new instance of an adaptive rate scheduler with the
+	 * specified requested frame rate, which is also the upper bound of the
+	 * adapted rate.
+	 * 
+	 * @param targetFps	The requested frames-per-second.
+	 */
+	public AdaptiveRateScheduler(double targetFps) {
+		super(targetFps);
+		this.requestedFps = targetFps;
+	}
+	
+	
+	@Override
+	public SchedulingPolicy getPolicy() {
+		return SchedulingPolicy.ADAPTIVE;
+	}
+	
+	
+	@Override
+	protected void frameProcessed(long elapsedNanos) {
+		samples[sampleCount++] = elapsedNanos;
+		if (sampleCount < windowSize)
+			return;
+		
+		sampleCount = 0;
+		System.arraycopy(samples, 0, sorted, 0, windowSize);
+		Arrays.sort(sorted);
+		adjust(sorted[p95Index]);
+	}
+	
+	
+	/**
+	 * Adjusts the target frame rate based on the specified 95th percentile
+	 * processing time.
+	 * 
+	 * @param p95Nanos	The 95th percentile processing time in nanoseconds.
+	 */
+	private final void adjust(long p95Nanos) {
+		final double current = getTargetFrameRate();
+		final long budget = getPeriodNanos();
+		double fps = current;
+		
+		if (p95Nanos > budget)
+			fps = Math.max(minFps, lowerFactor * NANOS_PER_SECOND / p95Nanos);
+		else if (p95Nanos < headroomRatio * budget && current < requestedFps)
+			fps = Math.min(requestedFps, current * raiseFactor);
+		
+		if (fps != current)
+			super.setTargetFrameRate(fps);
+	}
+	
+	
+	/**
+	 * Sets the requested frame rate, which is the upper bound of the adapted
+	 * rate, and restarts the adaptation from it.
+	 */
+	@Override
+	public void setTargetFrameRate(double fps) {
+		super.setTargetFrameRate(fps);
+		this.requestedFps = fps;
+	}
+	
+	
+	/**
+	 * Returns the frame rate requested by the user, which is the upper bound
+	 * of the adapted rate returned by {@link #getTargetFrameRate()}.
+	 * 
+	 * @return	the requested frames-per-second.
+	 */
+	public double getRequestedFrameRate() {
+		return requestedFps;
+	}
+
+}
@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package handemapper.recognition.scheduling;
+
+import handemapper.common.recognition.GestureRecognizer.SchedulingPolicy;
+
+
+/**
+ * Provides a {@link FrameScheduler} that drops the frame slots missed by an
+ * overrunning frame. Rather than processing frames back-to-back to catch up,
+ * the next deadline is moved to the first slot on the grid after the current
+ * time, and the skipped slots are counted as late frames.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SchedulingPolicy#DROP_LATE
+ */
+public class DropLateScheduler extends FrameScheduler {
+	
+	/**
+	 * Constructor for a new instance of a drop-late scheduler with the
+	 * specified target frame rate.
+	 * 
+	 * @param targetFps	The target frames-per-second.
+	 */
+	public DropLateScheduler(double targetFps) {
+		super(targetFps);
+	}
+	
+	
+	@Override
+	public SchedulingPolicy getPolicy() {
+		return SchedulingPolicy.DROP_LATE;
+	}
+	
+	
+	@Override
+	protected long nextDeadline(long deadline, long period, long now) {
+		final long next = deadline + period;
+		if (now <= next)
+			return next;
+		
+		final long missed = (now - next) / period + 1;
+		addLateFrames(missed);
+		return next + missed * period;
+	}
+
+}
@@ -0,0 +1,55 @@
+/**
+ * 
+ */
+package handemapper.recognition.scheduling;
+
+import handemapper.common.recognition.GestureRecognizer.SchedulingPolicy;
+
+
+/**
+ * Provides a {@link FrameScheduler} that keeps frames on a fixed-rate grid.
+ * An overrunning frame is caught up by processing the following frames
+ * without waiting, up to a limit of {@link #maxCatchUpFrames} slots, after
+ * which the grid is realigned.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SchedulingPolicy#FIXED_RATE
+ */
+public class FixedRateScheduler extends FrameScheduler {
+	
+	/**
+	 * The maximum number of frame slots the schedule may fall behind before
+	 * the grid is realigned to the current time.
+	 */
+	private static final int maxCatchUpFrames = 3;
+	
+	
+	/**
+	 * Constructor for a new instance of a fixed-rate scheduler with the
+	 * specified target frame rate.
+	 * 
+	 * @param targetFps	The target frames-per-second.
+	 */
+	public FixedRateScheduler(double targetFps) {
+		super(targetFps);
+	}
+	
+	
+	@Override
+	public SchedulingPolicy getPolicy() {
+		return SchedulingPolicy.FIXED_RATE;
+	}
+	
+	
+	@Override
+	protected long nextDeadline(long deadline, long period, long now) {
+		final long next = deadline + period;
+		if (now - next > maxCatchUpFrames * period) {
+			addLateFrames((now - next) / period);
+			return now;
+		}
+		return next;
+	}
+
+}
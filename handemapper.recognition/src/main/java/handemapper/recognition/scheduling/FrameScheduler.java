@@ -0,0 +1,238 @@
+/**
+ * 
+ */
+package handemapper.recognition.scheduling;
+
+import handemapper.common.recognition.GestureRecognizer.SchedulingPolicy;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Provides the base for pacing the frame processing loop against a deadline
+ * computed with {@link System#nanoTime()}. The detection loop calls
+ * {@link #beginFrame()} before processing a frame and {@link #endFrame(long)}
+ * afterwards; the latter waits until the next deadline chosen by the specific
+ * {@link SchedulingPolicy} implementation.
+ * <p>Example:
+ * <p><code>
+ *<pre>FrameScheduler scheduler = FrameScheduler.create(SchedulingPolicy.DROP_LATE, 30d);
+ * 
+ *while (running) {
+ *	long start = scheduler.beginFrame();
+ *	// Detect the gestures within the frame...
+ *	scheduler.endFrame(start);
+ *}</pre>
+ * </code>
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SchedulingPolicy
+ */
+public abstract class FrameScheduler {
+	
+	/**
+	 * The remaining time, in nanoseconds, below which the scheduler yields
+	 * instead of parking, since parking is not accurate at that resolution.
+	 */
+	private static final long spinThresholdNanos = 200000l;
+	
+	
+	/**
+	 * The number of nanoseconds in one second.
+	 */
+	protected static final double NANOS_PER_SECOND = 1000000000d;
+	
+	
+	// Private member data.
+	private volatile double targetFps;
+	private volatile long periodNanos;
+	private volatile long lateFrames = 0l;
+	private long deadline = 0l;
+	
+	
+	/**
+	 * Constructor for a new instance of a frame scheduler with the specified
+	 * target frame rate.
+	 * 
+	 * @param targetFps	The target frames-per-second; must be greater than zero.
+	 */
+	protected FrameScheduler(double targetFps) {
+		setTargetFrameRate(targetFps);
+	}
+	
+	
+	/**
+	 * Creates a new frame scheduler for the specified policy and target frame
+	 * rate.
+	 * 
+	 * @param policy	The {@link SchedulingPolicy} of the new scheduler.
+	 * @param targetFps	The target frames-per-second; must be greater than zero.
+	 * @return	the new {@link FrameScheduler} for the policy.
+	 */
+	public static FrameScheduler create(SchedulingPolicy policy,
+			double targetFps)
+	{
+		switch (policy) {
+		case FIXED_RATE:
+			return new FixedRateScheduler(targetFps);
+		case DROP_LATE:
+			return new DropLateScheduler(targetFps);
+		case ADAPTIVE:
+			return new AdaptiveRateScheduler(targetFps);
+		default:
+			throw new IllegalArgumentException("Unknown policy: " + policy);
+		}
+	}
+	
+	
+	/**
+	 * Returns the {@link SchedulingPolicy} implemented by this scheduler.
+	 * 
+	 * @return	the scheduling policy.
+	 */
+	public abstract SchedulingPolicy getPolicy();
+	
+	
+	/**
+	 * Computes the deadline of the next frame once the frame with the
+	 * specified deadline has finished processing at {@code now}.
+	 * 
+	 * @param deadline	The deadline of the frame that just finished.
+	 * @param period	The current frame period in nanoseconds.
+	 * @param now		The current {@link System#nanoTime()}.
+	 * @return	the deadline for the next frame.
+	 */
+	protected abstract long nextDeadline(long deadline, long period, long now);
+	
+	
+	/**
+	 * Called after each frame with the time it took to process the frame.
+	 * The default implementation does nothing.
+	 * 
+	 * @param elapsedNanos	The processing time of the frame in nanoseconds.
+	 */
+	protected void frameProcessed(long elapsedNanos) { }
+	
+	
+	/**
+	 * Marks the beginning of processing a frame.
+	 * 
+	 * @return	the start time of the frame, as returned by
+	 * 			{@link System#nanoTime()}.
+	 */
+	public final long beginFrame() {
+		final long now = System.nanoTime();
+		if (deadline == 0l)
+			deadline = now;
+		
+		return now;
+	}
+	
+	
+	/**
+	 * Marks the end of processing the frame started at the specified time and
+	 * waits until the deadline of the next frame.
+	 * 
+	 * @param start	The start time returned by {@link #beginFrame()}.
+	 */
+	public final void endFrame(long start) {
+		endFrame(start, true);
+	}
+	
+	
+	/**
+	 * Marks the end of processing the frame started at the specified time and,
+	 * if requested, waits until the deadline of the next frame. When not
+	 * waiting, the schedule is realigned to the current time so the loop runs
+	 * unthrottled, e.g. to measure the raw throughput of the pipeline.
+	 * 
+	 * @param start	The start time returned by {@link #beginFrame()}.
+	 * @param wait	Whether to wait until the deadline of the next frame.
+	 */
+	public final void endFrame(long start, boolean wait) {
+		long now = System.nanoTime();
+		frameProcessed(now - start);
+		
+		if (!wait) {
+			deadline = now;
+			return;
+		}
+		
+		deadline = nextDeadline(deadline, periodNanos, now);
+		
+		long remaining;
+		while ((remaining = deadline - (now = System.nanoTime())) > 0) {
+			if (Thread.currentThread().isInterrupted())
+				return;
+			
+			if (remaining > spinThresholdNanos)
+				LockSupport.parkNanos(this, remaining - spinThresholdNanos);
+			else
+				Thread.yield();
+		}
+	}
+	
+	
+	/**
+	 * Records the specified number of skipped frame slots.
+	 * 
+	 * @param count	The number of late frames to add.
+	 */
+	protected final void addLateFrames(long count) {
+		lateFrames += count;
+	}
+	
+	
+	/**
+	 * Returns the number of frame slots that were skipped because processing
+	 * overran the frame budget.
+	 * 
+	 * @return	the number of late frames.
+	 */
+	public final long getLateFrames() {
+		return lateFrames;
+	}
+	
+	
+	/**
+	 * Returns the frame rate this scheduler is currently targeting.
+	 * 
+	 * @return	the target frames-per-second.
+	 */
+	public double getTargetFrameRate() {
+		return targetFps;
+	}
+	
+	
+	/**
+	 * Sets the frame rate this scheduler targets.
+	 * 
+	 * @param fps	The target frames-per-second; must be greater than zero.
+	 */
+	public void setTargetFrameRate(double fps) {
+		if (!(fps > 0d))
+			throw new IllegalArgumentException("Frame rate must be > 0: " + fps);
+		
+		this.targetFps = fps;
+		this.periodNanos = (long)(NANOS_PER_SECOND / fps);
+	}
+	
+	
+	/**
+	 * Returns the frame period, in nanoseconds, for the current target rate.
+	 * 
+	 * @return	the frame budget in nanoseconds.
+	 */
+	protected final long getPeriodNanos() {
+		return periodNanos;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[policy=" + getPolicy()
+				+ ",fps=" + getTargetFrameRate() + "]";
+	}
+
+}
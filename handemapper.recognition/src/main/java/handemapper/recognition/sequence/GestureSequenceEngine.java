@@ -0,0 +1,418 @@
+/**
+ * 
+ */
+package handemapper.recognition.sequence;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+import handemapper.common.recognition.event.SequenceEvent;
+import handemapper.common.recognition.event.SequenceListener;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.swing.event.EventListenerList;
+
+
+/**
+ * Provides the recognition of the higher-level gestures, i.e. grab, drag,
+ * drop and throw, from the per-frame opened and closed hand events. Each
+ * device tracks one hand, with a {@link State} and running velocity and
+ * acceleration estimates updated in O(1) per event. The motion is classified
+ * by speed; both estimates are handed on with every emitted
+ * {@link SequenceEvent}, e.g. for a listener to weigh a throw by its
+ * acceleration.
+ * <p>The recognition is driven by declarative transition rules, each
+ * mapping a {@link State}, the detected {@link Hand} and the classified
+ * {@link Motion} of the hand to the next state and, optionally, the
+ * {@link SequenceEvent.Type} to emit, e.g.
+ * <p><code>
+ *<pre>engine.addRule("HOLDING CLOSED MOVING -> DRAGGING DRAG");
+ *engine.addRule("DRAGGING OPENED FAST -> RELEASED THROW");</pre>
+ * </code>
+ * The rules are compiled into a transition table indexed by all three, so
+ * the cost per event is a single lookup, no matter how many rules are
+ * loaded. Without a matching rule the state is kept and nothing is emitted.
+ * <p>The engine is not thread-safe; it expects the events in order from one
+ * thread at a time, as delivered to a listener by the gesture event
+ * dispatcher.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see SequenceEvent
+ * @see #addDefaultRules()
+ */
+public class GestureSequenceEngine implements GestureListener {
+	
+	/**
+	 * Defines the states of a tracked hand.
+	 */
+	public static enum State {
+		
+		/** The hand is open and holds nothing. */
+		RELEASED,
+		
+		/** The hand closed and holds still. */
+		HOLDING,
+		
+		/** The closed hand is moving. */
+		DRAGGING;
+	
+	}
+	
+	
+	/**
+	 * Defines the detected shape of the hand, from the id of a
+	 * {@link GestureEvent}.
+	 */
+	public static enum Hand {
+		
+		/** {@link GestureEvent#OPENED_HAND_DETECTED} */
+		OPENED,
+		
+		/** {@link GestureEvent#CLOSED_HAND_DETECTED} */
+		CLOSED;
+	
+	}
+	
+	
+	/**
+	 * Defines the classes of the estimated speed of the hand.
+	 */
+	public static enum Motion {
+		
+		/** Slower than the moving speed. */
+		STILL,
+		
+		/** At least the moving speed, but slower than the fast speed. */
+		MOVING,
+		
+		/** At least the fast speed. */
+		FAST;
+	
+	}
+	
+	
+	/**
+	 * The default speed, in pixels per second, from which the hand is moving.
+	 */
+	public static final double DEFAULT_MOVING_SPEED = 60d;
+	
+	/**
+	 * The default speed, in pixels per second, from which the hand is moving
+	 * fast, e.g. to throw.
+	 */
+	public static final double DEFAULT_FAST_SPEED = 1200d;
+	
+	/**
+	 * The default weight of the newest finite difference in the velocity and
+	 * acceleration estimates.
+	 */
+	public static final double DEFAULT_SMOOTHING = 0.5d;
+	
+	
+	/**
+	 * The number of hands and motions, cached since {@code values()} copies.
+	 */
+	private static final int HANDS = Hand.values().length;
+	private static final int MOTIONS = Motion.values().length;
+	
+	
+	// Private member fields.
+	private final EventListenerList listenerList = new EventListenerList();
+	private final double smoothing;
+	
+	// Private member data.
+	private volatile Transition[] table =
+			new Transition[State.values().length * HANDS * MOTIONS];
+	private volatile double movingSpeed = DEFAULT_MOVING_SPEED;
+	private volatile double fastSpeed = DEFAULT_FAST_SPEED;
+	private Track[] tracks = new Track[0];
+	
+	
+	/**
+	 * Constructor for a new instance of the engine with the
+	 * {@link #addDefaultRules() default rules}.
+	 */
+	public GestureSequenceEngine() {
+		this(DEFAULT_SMOOTHING);
+		addDefaultRules();
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of the engine without any rules, and
+	 * the specified smoothing of the velocity and acceleration estimates.
+	 * 
+	 * @param smoothing	The weight, in {@code (0, 1]}, of the newest finite
+	 * 					difference; {@code 1} disables the smoothing.
+	 */
+	public GestureSequenceEngine(double smoothing) {
+		if (!(smoothing > 0d && smoothing <= 1d))
+			throw new IllegalArgumentException("Smoothing must be in (0, 1]: "
+					+ smoothing);
+		
+		this.smoothing = smoothing;
+	}
+	
+	
+	/**
+	 * Adds the default rules, which recognize a closing hand as a grab,
+	 * moving the closed hand as a drag, and opening it as a drop, or as a
+	 * throw while moving fast.
+	 */
+	public final void addDefaultRules() {
+		addRule("RELEASED CLOSED * -> HOLDING GRAB");
+		addRule("HOLDING CLOSED MOVING -> DRAGGING DRAG");
+		addRule("HOLDING CLOSED FAST -> DRAGGING DRAG");
+		addRule("DRAGGING CLOSED MOVING -> DRAGGING DRAG");
+		addRule("DRAGGING CLOSED FAST -> DRAGGING DRAG");
+		addRule("DRAGGING CLOSED STILL -> HOLDING -");
+		addRule("HOLDING OPENED * -> RELEASED DROP");
+		addRule("DRAGGING OPENED * -> RELEASED DROP");
+		addRule("HOLDING OPENED FAST -> RELEASED THROW");
+		addRule("DRAGGING OPENED FAST -> RELEASED THROW");
+	}
+	
+	
+	/**
+	 * Adds the rule declared by the specified text, of the form
+	 * {@code "FROM HAND MOTION -> TO EVENT"}, where {@code MOTION} may be
+	 * {@code *} for any motion and {@code EVENT} may be {@code -} for none.
+	 * 
+	 * @param rule	The text of the rule.
+	 * @throws IllegalArgumentException  if the rule cannot be parsed.
+	 * 
+	 * @see #addRule(State, Hand, Motion, State, SequenceEvent.Type)
+	 */
+	public void addRule(String rule) {
+		final String[] tokens = rule.trim().toUpperCase(Locale.ROOT).split("\\s+");
+		if (tokens.length != 6 || !"->".equals(tokens[3]))
+			throw new IllegalArgumentException("Invalid sequence rule: " + rule);
+		
+		addRule(State.valueOf(tokens[0]), Hand.valueOf(tokens[1]),
+				"*".equals(tokens[2]) ? null : Motion.valueOf(tokens[2]),
+				State.valueOf(tokens[4]),
+				"-".equals(tokens[5]) ? null : SequenceEvent.Type.valueOf(tokens[5]));
+	}
+	
+	
+	/**
+	 * Adds the specified rule. A rule replaces any earlier rule for the same
+	 * state, hand and motion.
+	 * 
+	 * @param from		The state of the hand the rule applies to.
+	 * @param hand		The detected hand the rule applies to.
+	 * @param motion	The motion the rule applies to, or {@code null} for
+	 * 					any motion.
+	 * @param to		The next state of the hand.
+	 * @param emit		The type of the event to emit, or {@code null} for
+	 * 					none.
+	 */
+	public synchronized void addRule(State from, Hand hand, Motion motion,
+			State to, SequenceEvent.Type emit)
+	{
+		if (from == null || hand == null || to == null)
+			throw new IllegalArgumentException("States and hand must not be null!");
+		
+		final Transition[] compiled = Arrays.copyOf(table, table.length);
+		final Transition transition = new Transition(to, emit);
+		for (Motion m : Motion.values()) {
+			if (motion == null || motion == m)
+				compiled[index(from, hand, m)] = transition;
+		}
+		table = compiled;
+	}
+	
+	
+	/**
+	 * Removes all rules.
+	 */
+	public synchronized void clearRules() {
+		table = new Transition[table.length];
+	}
+	
+	
+	/**
+	 * Sets the speeds classifying the motion of the hand.
+	 * 
+	 * @param moving	The speed, in pixels per second, from which the hand is
+	 * 					{@link Motion#MOVING}.
+	 * @param fast		The speed, in pixels per second, from which the hand is
+	 * 					{@link Motion#FAST}.
+	 */
+	public void setSpeeds(double moving, double fast) {
+		if (moving < 0d || fast < moving)
+			throw new IllegalArgumentException("Invalid speeds: " + moving
+					+ ", " + fast);
+		
+		this.movingSpeed = moving;
+		this.fastSpeed = fast;
+	}
+	
+	
+	@Override
+	public void gestureDetected(GestureEvent gesture) {
+		final SequenceEvent se = update(gesture);
+		if (se != null)
+			fireSequenceDetected(se);
+	}
+	
+	
+	/**
+	 * Updates the tracked hand of the device of the specified gesture event
+	 * and applies the matching rule, without notifying the listeners.
+	 * 
+	 * @param ge	The per-frame gesture event.
+	 * @return	the emitted {@link SequenceEvent}, or {@code null} if none.
+	 */
+	public SequenceEvent update(GestureEvent ge) {
+		final Hand hand;
+		switch (ge.getID()) {
+		case GestureEvent.OPENED_HAND_DETECTED:
+			hand = Hand.OPENED;
+			break;
+		case GestureEvent.CLOSED_HAND_DETECTED:
+			hand = Hand.CLOSED;
+			break;
+		default:
+			return null;
+		}
+		
+		final Track track = trackOf(ge.getDeviceIndex());
+		final Kinematics kinematics = track.kinematics;
+		kinematics.update(ge.getWhen(), ge.getX(), ge.getY());
+		
+		final double speed = kinematics.getSpeed();
+		final Motion motion = speed >= fastSpeed ? Motion.FAST
+				: speed >= movingSpeed ? Motion.MOVING : Motion.STILL;
+		
+		final Transition transition = table[index(track.state, hand, motion)];
+		if (transition == null)
+			return null;
+		
+		track.state = transition.to;
+		if (transition.emit == null)
+			return null;
+		
+		return new SequenceEvent(this, transition.emit, ge,
+				kinematics.getVelocityX(), kinematics.getVelocityY(),
+				kinematics.getAccelerationX(), kinematics.getAccelerationY());
+	}
+	
+	
+	/**
+	 * Returns the state of the hand tracked for the specified device.
+	 * 
+	 * @param deviceIndex	The index of the video capture device, or
+	 * 						{@code -1} if unknown.
+	 * @return	the {@link State} of the hand.
+	 */
+	public State getState(int deviceIndex) {
+		return trackOf(deviceIndex).state;
+	}
+	
+	
+	/**
+	 * Resets the tracked hands of all devices to {@link State#RELEASED}.
+	 */
+	public void reset() {
+		tracks = new Track[0];
+	}
+	
+	
+	/**
+	 * Returns the track of the specified device, growing the tracks on the
+	 * first event of the device.
+	 */
+	private final Track trackOf(int deviceIndex) {
+		final int index = Math.max(0, deviceIndex + 1);
+		if (index >= tracks.length) {
+			final Track[] grown = Arrays.copyOf(tracks, index + 1);
+			for (int i = tracks.length; i < grown.length; i++)
+				grown[i] = new Track(smoothing);
+			tracks = grown;
+		}
+		return tracks[index];
+	}
+	
+	
+	/**
+	 * Returns the index within the transition table.
+	 */
+	private static final int index(State state, Hand hand, Motion motion) {
+		return (state.ordinal() * HANDS + hand.ordinal()) * MOTIONS
+				+ motion.ordinal();
+	}
+	
+	
+	/**
+	 * Registers the specified {@link SequenceListener} for notification of
+	 * the recognized sequences.
+	 * 
+	 * @param sl	The new {@link SequenceListener} to register.
+	 */
+	public void addSequenceListener(SequenceListener sl) {
+		listenerList.add(SequenceListener.class, sl);
+	}
+	
+	
+	/**
+	 * Removes the specified {@link SequenceListener}.
+	 * 
+	 * @param sl	The {@link SequenceListener} to remove.
+	 */
+	public void removeSequenceListener(SequenceListener sl) {
+		listenerList.remove(SequenceListener.class, sl);
+	}
+	
+	
+	/**
+	 * Notifies all registered {@link SequenceListener}s with the specified
+	 * {@link SequenceEvent}.
+	 * 
+	 * @param se	The recognized sequence.
+	 */
+	protected void fireSequenceDetected(SequenceEvent se) {
+		for (SequenceListener sl : listenerList.getListeners(SequenceListener.class))
+			sl.sequenceDetected(se);
+	}
+	
+	
+	/**
+	 * Provides the next state and the emitted event of a rule.
+	 */
+	private static final class Transition {
+		
+		// Private member fields.
+		private final State to;
+		private final SequenceEvent.Type emit;
+		
+		
+		private Transition(State to, SequenceEvent.Type emit) {
+			this.to = to;
+			this.emit = emit;
+		}
+	
+	}
+	
+	
+	/**
+	 * Provides the state and kinematics of the hand tracked for a device.
+	 */
+	private static final class Track {
+		
+		// Private member fields.
+		private final Kinematics kinematics;
+		
+		// Private member data.
+		private State state = State.RELEASED;
+		
+		
+		private Track(double smoothing) {
+			this.kinematics = new Kinematics(smoothing);
+		}
+	
+	}
+
+}
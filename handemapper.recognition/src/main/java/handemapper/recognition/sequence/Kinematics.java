@@ -0,0 +1,151 @@
+/**
+ * 
+ */
+package handemapper.recognition.sequence;
+
+
+/**
+ * Provides running estimates of the velocity and acceleration of one hand,
+ * updated in O(1) per event by exponentially smoothing the finite
+ * differences between consecutive positions. The smoothing damps the jitter
+ * of the per-frame detections without keeping any history. The estimates
+ * are reset when the hand was not seen for longer than the gap timeout.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see GestureSequenceEngine
+ */
+final class Kinematics {
+	
+	/**
+	 * The time, in milliseconds, after which the previous position is no
+	 * longer used for the estimates.
+	 */
+	static final long GAP_TIMEOUT_MILLIS = 500l;
+	
+	
+	// Private member fields.
+	private final double smoothing;
+	
+	// Private member data.
+	private boolean initialized = false;
+	private long lastWhen = 0l;
+	private int lastX = 0;
+	private int lastY = 0;
+	private double velocityX = 0d;
+	private double velocityY = 0d;
+	private double accelerationX = 0d;
+	private double accelerationY = 0d;
+	
+	
+	/**
+	 * Constructor for a new instance of the estimates with the specified
+	 * smoothing factor.
+	 * 
+	 * @param smoothing	The weight, in {@code (0, 1]}, of the newest finite
+	 * 					difference; {@code 1} disables the smoothing.
+	 */
+	Kinematics(double smoothing) {
+		this.smoothing = smoothing;
+	}
+	
+	
+	/**
+	 * Updates the estimates with the specified position of the hand.
+	 * 
+	 * @param when	The time, in milliseconds, of the position.
+	 * @param x		The X-coordinate of the hand.
+	 * @param y		The Y-coordinate of the hand.
+	 */
+	void update(long when, int x, int y) {
+		final long elapsed = when - lastWhen;
+		if (!initialized || elapsed > GAP_TIMEOUT_MILLIS || elapsed < 0l) {
+			velocityX = velocityY = 0d;
+			accelerationX = accelerationY = 0d;
+			initialized = true;
+		}
+		else if (elapsed > 0l) {
+			final double seconds = elapsed / 1000d;
+			final double vx = velocityX + smoothing
+					* ((x - lastX) / seconds - velocityX);
+			final double vy = velocityY + smoothing
+					* ((y - lastY) / seconds - velocityY);
+			accelerationX += smoothing * ((vx - velocityX) / seconds - accelerationX);
+			accelerationY += smoothing * ((vy - velocityY) / seconds - accelerationY);
+			velocityX = vx;
+			velocityY = vy;
+		}
+		
+		lastWhen = when;
+		lastX = x;
+		lastY = y;
+	}
+	
+	
+	/**
+	 * Returns the estimated horizontal velocity.
+	 * 
+	 * @return	the X velocity in pixels per second.
+	 */
+	double getVelocityX() {
+		return velocityX;
+	}
+	
+	
+	/**
+	 * Returns the estimated vertical velocity.
+	 * 
+	 * @return	the Y velocity in pixels per second.
+	 */
+	double getVelocityY() {
+		return velocityY;
+	}
+	
+	
+	/**
+	 * Returns the estimated speed.
+	 * 
+	 * @return	the speed in pixels per second.
+	 */
+	double getSpeed() {
+		return Math.hypot(velocityX, velocityY);
+	}
+	
+	
+	/**
+	 * Returns the estimated horizontal acceleration.
+	 * 
+	 * @return	the X acceleration in pixels per second squared.
+	 */
+	double getAccelerationX() {
+		return accelerationX;
+	}
+	
+	
+	/**
+	 * Returns the estimated vertical acceleration.
+	 * 
+	 * @return	the Y acceleration in pixels per second squared.
+	 */
+	double getAccelerationY() {
+		return accelerationY;
+	}
+	
+	
+	/**
+	 * Returns the magnitude of the estimated acceleration.
+	 * 
+	 * @return	the acceleration in pixels per second squared.
+	 */
+	double getAcceleration() {
+		return Math.hypot(accelerationX, accelerationY);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[speed=" + Math.round(getSpeed())
+				+ ", acceleration=" + Math.round(getAcceleration()) + "]";
+	}
+
+}
@@ -1,5 +1,7 @@
 package handemapper.recognition.skin;
 
+import handemapper.common.recognition.frame.FrameContext;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -18,19 +20,16 @@ import org.opencv.objdetect.CascadeClassifier;
 public class FaceHistogramRecognizer implements SkinRecognizer {
 
    @Override
-   public Map<String, Integer> detectSkin(Mat mat) {
+   public Map<String, Integer> detectSkin(FrameContext frame) {
       CascadeClassifier classifier = new CascadeClassifier("/classifiers/haarcascade_frontalface_alt.xml");
-      Mat grayImg = new Mat();
       MatOfRect objects = new MatOfRect();
-      Imgproc.cvtColor(mat, grayImg, Imgproc.COLOR_RGB2GRAY);
-      classifier.detectMultiScale(grayImg, objects);
+      classifier.detectMultiScale(frame.getGray(), objects);
       
       Rect[] shapes = objects.toArray();
       int cr = 0;
       int cb = 0;
       for (int i = 0; i < shapes.length; i++) {
-         Mat dest = new Mat();
-         Imgproc.cvtColor(mat, dest, Imgproc.COLOR_RGB2YCrCb);
+         Mat dest = frame.getYCrCb();
          List<Mat> colorSplits = new ArrayList<Mat>();
          int histSize = 256;
          float range[] = { 0, 256 };
@@ -1,10 +1,10 @@
 package handemapper.recognition.skin;
 
+import handemapper.common.recognition.frame.FrameContext;
+
 import java.util.HashMap;
 import java.util.Map;
 
-import org.opencv.core.Mat;
-
 public class FixedRangeRecognizer implements SkinRecognizer {
 
 	private static final int CrMiddle = 158;	// 185-131=54
@@ -26,7 +26,7 @@ public class FixedRangeRecognizer implements SkinRecognizer {
 	
 	
 	@Override
-	public Map<String, Integer> detectSkin(Mat mat) {
+	public Map<String, Integer> detectSkin(FrameContext frame) {
 		return colorMap;
 	}
 
@@ -1,5 +1,7 @@
 package handemapper.recognition.skin;
 
+import handemapper.common.recognition.frame.FrameContext;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -21,26 +23,23 @@ public class ForeheadHistogramRecognizer implements SkinRecognizer {
 			new CascadeClassifier("classifiers/haarcascade_frontalface_alt.xml");
 	
 	
-	private final Rect[] detectFace(Mat mat) {
-		Mat grayImg = new Mat();
+	private final Rect[] detectFace(FrameContext frame) {
 		MatOfRect objects = new MatOfRect();
-		Imgproc.cvtColor(mat, grayImg, Imgproc.COLOR_RGB2GRAY);
-		classifier.detectMultiScale(grayImg, objects);
+		classifier.detectMultiScale(frame.getGray(), objects);
 
 		return objects.toArray();
 	}
 	
 	
    @Override
-   public Map<String, Integer> detectSkin(Mat mat) {
-      Rect[] faces = detectFace(mat);
+   public Map<String, Integer> detectSkin(FrameContext frame) {
+      Rect[] faces = detectFace(frame);
       int cr = 0;
       int cb = 0;
       
       // should we really be checking all detected faces? (cnh)
       for (int i = 0; i < faces.length; i++) {
-         Mat dest = new Mat();
-         Imgproc.cvtColor(mat, dest, Imgproc.COLOR_RGB2YCrCb);
+         Mat dest = frame.getYCrCb();
          List<Mat> colorSplits = new ArrayList<Mat>();
          int histSize = 256;
          float range[] = { 0, 256 };
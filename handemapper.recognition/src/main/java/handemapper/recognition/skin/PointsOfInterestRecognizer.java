@@ -1,12 +1,13 @@
 package handemapper.recognition.skin;
 
+import handemapper.common.recognition.frame.FrameContext;
+
 import java.util.HashMap;
 import java.util.Map;
 
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfRect;
 import org.opencv.core.Rect;
-import org.opencv.imgproc.Imgproc;
 import org.opencv.objdetect.CascadeClassifier;
 
 public class PointsOfInterestRecognizer implements SkinRecognizer {
@@ -15,24 +16,21 @@ public class PointsOfInterestRecognizer implements SkinRecognizer {
 			new CascadeClassifier("classifiers/haarcascade_frontalface_alt.xml");
 	
 	
-	private final Rect[] detectFace(Mat mat) {
-		Mat grayImg = new Mat();
+	private final Rect[] detectFace(FrameContext frame) {
 		MatOfRect objects = new MatOfRect();
-		Imgproc.cvtColor(mat, grayImg, Imgproc.COLOR_RGB2GRAY);
-		classifier.detectMultiScale(grayImg, objects);
+		classifier.detectMultiScale(frame.getGray(), objects);
 
 		return objects.toArray();
 	}
 	
 	
    @Override
-   public Map<String, Integer> detectSkin(Mat mat) {
-      Rect[] faces = detectFace(mat);
+   public Map<String, Integer> detectSkin(FrameContext frame) {
+      Rect[] faces = detectFace(frame);
       int cr = 0;
       int cb = 0;
       double[] mf, lc, rc;
-      Mat dest = new Mat();
-      Imgproc.cvtColor(mat, dest, Imgproc.COLOR_RGB2YCrCb);
+      Mat dest = frame.getYCrCb();
       
       // Should we really be checking all detected faces? (cnh)
       for (int i = 0; i < faces.length; i++) {
@@ -0,0 +1,324 @@
+/**
+ * 
+ */
+package handemapper.recognition.skin;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+
+/**
+ * Provides the classification of BGR pixels as skin by a precomputed lookup
+ * table, in place of converting every frame to YCrCb and thresholding all
+ * three channels. Whether a pixel is skin only depends on its BGR value and
+ * the YCrCb bounds, so the classifier holds one bit for each of the 2^24 BGR
+ * values (2 MiB), computed with the same fixed-point conversion as OpenCV's
+ * {@code COLOR_BGR2YCrCb}; the mask is therefore identical to the one of
+ * {@code cvtColor} followed by {@code inRange}, at the cost of a single pass
+ * over the frame and without the intermediate 3-channel image.
+ * <p>Building a table takes up to a few hundred milliseconds, so the classifiers of
+ * the most recently used bounds are cached by {@link #forBounds(Scalar,
+ * Scalar)}; a table is only built again when the bounds change, e.g. by
+ * calibration or {@link handemapper.recognition.types.HandRecognizer#setYCrCbMin(Scalar)}.
+ * The table is built outside the lock of the cache, by the first thread
+ * asking for the bounds; the other threads asking for the same bounds wait
+ * for it, while those of cached bounds are not held up.
+ * A classifier is immutable, and may be shared between the detection
+ * threads of all devices.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see YCrCbSkinDetector
+ */
+public final class SkinClassifier {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(SkinClassifier.class);
+	
+	
+	/**
+	 * The number of classifiers of distinct bounds kept by the cache.
+	 */
+	private static final int CACHE_SIZE = 4;
+	
+	/**
+	 * The fixed-point precision and coefficients of OpenCV's 8-bit
+	 * BGR to YCrCb conversion.
+	 */
+	private static final int SHIFT = 14;
+	private static final int ROUND = 1 << (SHIFT - 1);
+	private static final int R2Y = 4899;
+	private static final int G2Y = 9617;
+	private static final int B2Y = 1868;
+	private static final int CR = 11682;
+	private static final int CB = 9241;
+	private static final int DELTA = 128 << SHIFT;
+	
+	
+	// Private static data.
+	private static final CacheEntry[] cache = new CacheEntry[CACHE_SIZE];
+	private static final ThreadLocal<byte[][]> buffers = new ThreadLocal<byte[][]>() {
+		@Override
+		protected byte[][] initialValue() {
+			return new byte[2][0];
+		}
+	};
+	
+	
+	// Private member fields.
+	private final double[] min;
+	private final double[] max;
+	private final long[] table = new long[1 << 18];
+	
+	
+	/**
+	 * Returns the classifier of the specified YCrCb bounds, building its
+	 * lookup table only if none of the recently used classifiers has the same
+	 * bounds.
+	 * 
+	 * @param min	The lower YCrCb bound of the skin color.
+	 * @param max	The upper YCrCb bound of the skin color.
+	 * @return	the classifier of the bounds.
+	 */
+	public static SkinClassifier forBounds(Scalar min, Scalar max) {
+		final CacheEntry entry = getEntry(min, max);
+		
+		// Builds the table on the first caller's thread; a running or done
+		// task returns right away, so the others wait in get().
+		entry.task.run();
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return entry.task.get();
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		}
+		catch (ExecutionException ex) {
+			synchronized (cache) {
+				for (int i = 0; i < CACHE_SIZE; i++) {
+					if (cache[i] == entry) {
+						System.arraycopy(cache, i + 1, cache, i, CACHE_SIZE - 1 - i);
+						cache[CACHE_SIZE - 1] = null;
+						break;
+					}
+				}
+			}
+			
+			final Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if (cause instanceof Error)
+				throw (Error)cause;
+			throw new IllegalStateException(cause);
+		}
+		finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+	
+	
+	/**
+	 * Returns the cache entry of the specified bounds, moving it to the front
+	 * of the cache, or adding a new entry whose classifier is not built yet.
+	 */
+	private static final CacheEntry getEntry(Scalar min, Scalar max) {
+		synchronized (cache) {
+			for (int i = 0; i < CACHE_SIZE; i++) {
+				final CacheEntry entry = cache[i];
+				if (entry != null && entry.matches(min, max)) {
+					if (i > 0) {
+						System.arraycopy(cache, 0, cache, 1, i);
+						cache[0] = entry;
+					}
+					return entry;
+				}
+			}
+			
+			final CacheEntry entry = new CacheEntry(min, max);
+			System.arraycopy(cache, 0, cache, 1, CACHE_SIZE - 1);
+			cache[0] = entry;
+			return entry;
+		}
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a classifier of the specified YCrCb
+	 * bounds, building its lookup table.
+	 * 
+	 * @param min	The lower YCrCb bound of the skin color.
+	 * @param max	The upper YCrCb bound of the skin color.
+	 */
+	public SkinClassifier(Scalar min, Scalar max) {
+		this.min = Arrays.copyOf(min.val, 3);
+		this.max = Arrays.copyOf(max.val, 3);
+		
+		final long start = System.nanoTime();
+		for (int b = 0; b < 256; b++) {
+			for (int g = 0; g < 256; g++) {
+				final int bg = b * B2Y + g * G2Y + ROUND;
+				final int index = (b << 16) | (g << 8);
+				for (int r = 0; r < 256; r++) {
+					final int y = (bg + r * R2Y) >> SHIFT;
+					if (y < this.min[0] || y > this.max[0])
+						continue;
+					
+					final int cr = saturate(((r - y) * CR + DELTA + ROUND) >> SHIFT);
+					if (cr < this.min[1] || cr > this.max[1])
+						continue;
+					
+					final int cb = saturate(((b - y) * CB + DELTA + ROUND) >> SHIFT);
+					if (cb < this.min[2] || cb > this.max[2])
+						continue;
+					
+					final int bit = index | r;
+					table[bit >>> 6] |= 1l << bit;
+				}
+			}
+		}
+		
+		if (logger.isDebugEnabled())
+			logger.debug(String.format("Built the skin lookup table of %s - %s "
+					+ "in %.01f ms", Arrays.toString(this.min),
+					Arrays.toString(this.max), (System.nanoTime() - start) / 1e6));
+	}
+	
+	
+	/**
+	 * Clamps the specified value to an unsigned byte.
+	 */
+	private static final int saturate(int value) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if this classifier has the specified bounds;
+	 * otherwise, returns {@code false}.
+	 * 
+	 * @param min	The lower YCrCb bound.
+	 * @param max	The upper YCrCb bound.
+	 * @return	whether the bounds are those of this classifier.
+	 */
+	public boolean matches(Scalar min, Scalar max) {
+		for (int i = 0; i < 3; i++) {
+			if (this.min[i] != min.val[i] || this.max[i] != max.val[i])
+				return false;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the specified BGR value is skin; otherwise,
+	 * returns {@code false}.
+	 * 
+	 * @param b	The blue component.
+	 * @param g	The green component.
+	 * @param r	The red component.
+	 * @return	whether the color is within the YCrCb bounds.
+	 */
+	public boolean isSkin(int b, int g, int r) {
+		final int bit = (b << 16) | (g << 8) | r;
+		return (table[bit >>> 6] & (1l << bit)) != 0l;
+	}
+	
+	
+	/**
+	 * Classifies every pixel of the specified BGR image in a single pass,
+	 * setting the pixels of the mask to {@code 255} for skin and {@code 0}
+	 * otherwise. The pixel buffers are kept per thread and reused, so no
+	 * memory is allocated once a thread has classified a frame of the size.
+	 * 
+	 * @param bgr	The BGR image of type {@code CV_8UC3}.
+	 * @param mask	The mask, (re)allocated to the image size and type
+	 * 				{@code CV_8UC1} if necessary.
+	 */
+	public void classify(Mat bgr, Mat mask) {
+		if (bgr.type() != CvType.CV_8UC3)
+			throw new IllegalArgumentException("Expected a CV_8UC3 image: " + bgr);
+		
+		final int rows = bgr.rows();
+		final int cols = bgr.cols();
+		mask.create(rows, cols, CvType.CV_8UC1);
+		
+		final boolean whole = bgr.isContinuous() && mask.isContinuous();
+		final int pixels = whole ? rows * cols : cols;
+		final byte[][] buf = buffers.get();
+		if (buf[1].length < pixels) {
+			buf[0] = new byte[pixels * 3];
+			buf[1] = new byte[pixels];
+		}
+		final byte[] src = buf[0];
+		final byte[] dst = buf[1];
+		
+		for (int row = 0; row < (whole ? 1 : rows); row++) {
+			bgr.get(row, 0, src);
+			for (int i = 0, p = 0; i < pixels; i++, p += 3) {
+				final int bit = ((src[p] & 0xff) << 16)
+						| ((src[p + 1] & 0xff) << 8) | (src[p + 2] & 0xff);
+				dst[i] = (table[bit >>> 6] & (1l << bit)) != 0l ? (byte)255 : 0;
+			}
+			mask.put(row, 0, dst);
+		}
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[min=" + Arrays.toString(min)
+				+ ", max=" + Arrays.toString(max) + "]";
+	}
+	
+	
+	/**
+	 * Provides an entry of the cache, holding the bounds and the, possibly
+	 * still running, build of their classifier.
+	 * 
+	 * @author Chris Hartley
+	 */
+	private static final class CacheEntry {
+		
+		// Private member fields.
+		private final double[] min;
+		private final double[] max;
+		private final FutureTask<SkinClassifier> task;
+		
+		
+		private CacheEntry(Scalar min, Scalar max) {
+			this.min = Arrays.copyOf(min.val, 3);
+			this.max = Arrays.copyOf(max.val, 3);
+			this.task = new FutureTask<SkinClassifier>(new Callable<SkinClassifier>() {
+				@Override
+				public SkinClassifier call() {
+					return new SkinClassifier(new Scalar(CacheEntry.this.min),
+							new Scalar(CacheEntry.this.max));
+				}
+			});
+		}
+		
+		
+		private boolean matches(Scalar min, Scalar max) {
+			for (int i = 0; i < 3; i++) {
+				if (this.min[i] != min.val[i] || this.max[i] != max.val[i])
+					return false;
+			}
+			return true;
+		}
+		
+	}
+
+}
@@ -1,8 +1,8 @@
 package handemapper.recognition.skin;
 
-import java.util.Map;
+import handemapper.common.recognition.frame.FrameContext;
 
-import org.opencv.core.Mat;
+import java.util.Map;
 
 public interface SkinRecognizer {
 
@@ -15,11 +15,12 @@ public interface SkinRecognizer {
 	public static final String CbMAX = "CbMax";
 	
 	/**
-	 * Returns a map of the detected skin regions from the specified {@code Mat}
-	 * parameter for this particular implementation.
-	 * @param mat  the {@code Mat} containing the graphic data to analyze for
-	 *             skin detection.
+	 * Returns a map of the detected skin regions from the specified frame
+	 * for this particular implementation. The grayscale and YCrCb images
+	 * should be taken from the frame context rather than converted again.
+	 * @param frame  the {@link FrameContext} containing the graphic data to
+	 *               analyze for skin detection.
 	 * @return
 	 */
-	public Map<String, Integer> detectSkin(Mat mat);
+	public Map<String, Integer> detectSkin(FrameContext frame);
 }
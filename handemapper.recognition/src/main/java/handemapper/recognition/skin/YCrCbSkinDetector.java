@@ -1,6 +1,5 @@
 package handemapper.recognition.skin;
 
-import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
@@ -8,31 +7,269 @@ import org.opencv.core.Scalar;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 
+
+/**
+ * Provides the detection of the skin pixels of the frames of one size. The
+ * pixels are classified by the {@link SkinClassifier} of the YCrCb bounds,
+ * then the mask is filtered by a morphology. A detector owns its mask and
+ * structuring elements, allocated once on construction, so detecting in a
+ * frame neither allocates native nor Java memory.
+ * <p>The mask is returned without copying and is overwritten by the next
+ * detection. A detector is not thread-safe and must only be used by the
+ * thread processing the frames.
+ * <p>Example:
+ * <p><code>
+ *<pre>YCrCbSkinDetector detector = new YCrCbSkinDetector(480, 640);
+ *Mat skin = detector.detect(frame, ycrcbMin, ycrcbMax);
+ *...
+ *detector.release();</pre>
+ * </code>
+ * 
+ * @author Chris Hartley
+ */
 public class YCrCbSkinDetector {
 	
-	public static Mat detectSkin(Mat img, Scalar min, Scalar max) {
-		Mat ycrcbImg = new Mat();
+	/**
+	 * Defines the morphology filtering the skin mask.
+	 */
+	public static enum Morphology {
+		/**
+		 * Erodes the mask twice with a 6x6 rectangle, removing the small
+		 * white noise, then dilates it twice with a 3x3 rectangle. The mask
+		 * shrinks slightly.
+		 */
+		ERODE_DILATE,
 		
-		// Converts the given image to a YCrCb image
-		Imgproc.cvtColor(img, ycrcbImg, Imgproc.COLOR_BGR2YCrCb);
-		
-		// Creates a grayscale image
-		Mat skinImg = new Mat(ycrcbImg.width(), ycrcbImg.height(), CvType.CV_8UC1);
+		/**
+		 * Opens the mask with a 5x5 rectangle, removing the small white
+		 * noise, then closes it, filling the small holes, without shrinking
+		 * the mask. The dilations of the opening and the closing are fused
+		 * into one dilation with the doubled rectangle, so the filter takes
+		 * three passes instead of four.
+		 */
+		OPEN_CLOSE;
+	}
+	
+	
+	/** The anchor of the kernel used for the erosion. */
+	private static final Point erodeAnchor = new Point(3, 3);
+	
+	/** The anchor of the kernel used for the dilation. */
+	private static final Point dilateAnchor = new Point(1, 1);
+	
+	/** The anchor at the center of the kernel. */
+	private static final Point centerAnchor = new Point(-1, -1);
+	
+	/** The size of the rectangle of the open/close morphology. */
+	private static final int OPEN_CLOSE_SIZE = 5;
+	
+	
+	// Private member fields.
+	private final int rows;
+	private final int cols;
+	private final Mat mask;
+	private final Mat erodeKernel;
+	private final Mat dilateKernel;
+	private final Mat openCloseKernel;
+	private final Mat fusedKernel;
+	
+	// Private member data.
+	private Morphology morphology;
+	
+	
+	/**
+	 * Returns the skin mask of the specified image as a new matrix owned by
+	 * the caller, filtered by the {@link Morphology#ERODE_DILATE} morphology.
+	 * The detector is created for this call only; a caller detecting in
+	 * every frame should keep a detector instead.
+	 * 
+	 * @param img	The BGR image to detect the skin in.
+	 * @param min	The lower YCrCb bound of the skin color.
+	 * @param max	The upper YCrCb bound of the skin color.
+	 * @return	the skin mask of type {@code CV_8UC1}.
+	 * 
+	 * @see #detect(Mat, Scalar, Scalar)
+	 */
+	public static Mat detectSkin(Mat img, Scalar min, Scalar max) {
+		final Mat skinImg = new Mat();
+		final YCrCbSkinDetector detector = new YCrCbSkinDetector(img.rows(),
+				img.cols());
+		try {
+			detector.detect(img, min, max).copyTo(skinImg);
+		}
+		finally {
+			detector.release();
+		}
+		return skinImg;
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a detector of the frames of the
+	 * specified size, filtering by the {@link Morphology#ERODE_DILATE}
+	 * morphology.
+	 * 
+	 * @param rows	The number of rows of the frames.
+	 * @param cols	The number of columns of the frames.
+	 */
+	public YCrCbSkinDetector(int rows, int cols) {
+		this(rows, cols, Morphology.ERODE_DILATE);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a detector of the frames of the
+	 * specified size, allocating its mask and structuring elements.
+	 * 
+	 * @param rows			The number of rows of the frames.
+	 * @param cols			The number of columns of the frames.
+	 * @param morphology	The {@link Morphology} filtering the mask.
+	 * @throws IllegalArgumentException  if the frame size is not positive or
+	 * 									 the morphology is {@code null}.
+	 */
+	public YCrCbSkinDetector(int rows, int cols, Morphology morphology) {
+		if (rows <= 0 || cols <= 0)
+			throw new IllegalArgumentException("Invalid frame size: " + cols
+					+ "x" + rows);
 		
-		// Obtains all the pixels, within a specified range, in ycrcbImg and places them in skinImg
-		Core.inRange(ycrcbImg, min, max, skinImg);
+		this.rows = rows;
+		this.cols = cols;
+		this.mask = new Mat(rows, cols, CvType.CV_8UC1);
+		this.erodeKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT,
+				new Size(6, 6));
+		this.dilateKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT,
+				new Size(3, 3));
+		this.openCloseKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT,
+				new Size(OPEN_CLOSE_SIZE, OPEN_CLOSE_SIZE));
+		this.fusedKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT,
+				new Size(2 * OPEN_CLOSE_SIZE - 1, 2 * OPEN_CLOSE_SIZE - 1));
+		setMorphology(morphology);
+	}
+	
+	
+	/**
+	 * Returns the skin mask of the specified BGR image, where the white pixels
+	 * are the pixels whose YCrCb value is within the specified bounds. The
+	 * pixels are classified in a single pass by the {@link SkinClassifier} of
+	 * the bounds, without converting the image to YCrCb.
+	 * 
+	 * @param img	The BGR image of the size of this detector.
+	 * @param min	The lower YCrCb bound of the skin color.
+	 * @param max	The upper YCrCb bound of the skin color.
+	 * @return	the mask of this detector, of type {@code CV_8UC1}; valid
+	 * 			until the next detection.
+	 * @throws IllegalArgumentException  if the image is not of the size of
+	 * 									 this detector.
+	 */
+	public Mat detect(Mat img, Scalar min, Scalar max) {
+		if (!fits(img))
+			throw new IllegalArgumentException("Expected a " + cols + "x" + rows
+					+ " image: " + img);
 		
-		// Creates a rectangular-shaped kernel to be used in the following image erosion
-		Mat rectKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(6, 6));
-		// Erodes the selected pixels, removing small white noise in skinImg
-		Imgproc.erode(skinImg, skinImg, rectKernel, new Point(3, 3), 2);
+		// Classifies the pixels of the given image by their BGR value
+		SkinClassifier.forBounds(min, max).classify(img, mask);
 		
-		// Creates a rectangular-shaped kernel to be used in the following image dilation
-		rectKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
-		// Dilates the selected pixels, enlarging the darker-colored objects since erosion previously shrunk them
-		Imgproc.dilate(skinImg, skinImg, rectKernel, new Point(1, 1), 2);
+		if (morphology == Morphology.OPEN_CLOSE) {
+			// Opens then closes the mask; the two middle dilations are one
+			Imgproc.erode(mask, mask, openCloseKernel, centerAnchor, 1);
+			Imgproc.dilate(mask, mask, fusedKernel, centerAnchor, 1);
+			Imgproc.erode(mask, mask, openCloseKernel, centerAnchor, 1);
+		}
+		else {
+			// Erodes the selected pixels, removing small white noise in the mask
+			Imgproc.erode(mask, mask, erodeKernel, erodeAnchor, 2);
+			// Dilates the selected pixels, enlarging the darker-colored objects since erosion previously shrunk them
+			Imgproc.dilate(mask, mask, dilateKernel, dilateAnchor, 2);
+		}
 		
 		// Returns a grayscale image where the white pixels in the image are skin pixels
-		return skinImg;
+		return mask;
 	}
+	
+	
+	/**
+	 * Returns {@code true} if the specified image has the size of this
+	 * detector; otherwise, returns {@code false}.
+	 * 
+	 * @param img	The image to check.
+	 * @return	whether this detector can detect in the image.
+	 */
+	public boolean fits(Mat img) {
+		return img.rows() == rows && img.cols() == cols;
+	}
+	
+	
+	/**
+	 * Returns the mask of the last detection, without copying.
+	 * 
+	 * @return	the mask of this detector, of type {@code CV_8UC1}.
+	 */
+	public Mat getMask() {
+		return mask;
+	}
+	
+	
+	/**
+	 * Returns the number of rows of the frames of this detector.
+	 * 
+	 * @return	the frame height.
+	 */
+	public int getRows() {
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns the number of columns of the frames of this detector.
+	 * 
+	 * @return	the frame width.
+	 */
+	public int getCols() {
+		return cols;
+	}
+	
+	
+	/**
+	 * Returns the morphology filtering the mask.
+	 * 
+	 * @return	the {@link Morphology} of this detector.
+	 */
+	public Morphology getMorphology() {
+		return morphology;
+	}
+	
+	
+	/**
+	 * Sets the morphology filtering the mask of the next detections.
+	 * 
+	 * @param morphology	The {@link Morphology} to use.
+	 * @throws IllegalArgumentException  if the morphology is {@code null}.
+	 */
+	public void setMorphology(Morphology morphology) {
+		if (morphology == null)
+			throw new IllegalArgumentException("Morphology must not be null!");
+		
+		this.morphology = morphology;
+	}
+	
+	
+	/**
+	 * Releases the native memory of the mask and structuring elements. The
+	 * detector must not be used afterwards.
+	 */
+	public void release() {
+		mask.release();
+		erodeKernel.release();
+		dilateKernel.release();
+		openCloseKernel.release();
+		fusedKernel.release();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[size=" + cols + "x" + rows
+				+ ", morphology=" + morphology + "]";
+	}
+
 }
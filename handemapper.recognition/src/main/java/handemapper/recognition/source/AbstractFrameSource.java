@@ -0,0 +1,93 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import handemapper.common.recognition.frame.FrameSource;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.opencv.core.Mat;
+
+
+/**
+ * Provides the common pacing behavior for the {@link FrameSource}
+ * implementations. Implementations only provide {@link #grab(Mat)}; the
+ * {@link #read(Mat)} method then delays the delivery of each frame until its
+ * deadline, computed with {@link System#nanoTime()} from the source's frame
+ * rate, unless the source is live or pacing has been disabled.
+ * 
+ * @author Chris Hartley
+ */
+public abstract class AbstractFrameSource implements FrameSource {
+	
+	// Private member data.
+	private volatile boolean paced = true;
+	private long nextFrameTime = 0l;
+	
+	
+	/**
+	 * Reads the next frame from the underlying source into the specified
+	 * {@link Mat} without any pacing.
+	 * 
+	 * @param frame	The {@link Mat} to store the next frame to.
+	 * @return	{@code true} if the next frame was read; otherwise, returns
+	 * 			{@code false}.
+	 */
+	protected abstract boolean grab(Mat frame);
+	
+	
+	@Override
+	public final boolean read(Mat frame) {
+		if (!grab(frame))
+			return false;
+		
+		final double fps = getFPS();
+		if (!paced || isLive() || !(fps > 0d))
+			return true;
+		
+		final long period = (long)(1000000000d / fps);
+		long now = System.nanoTime();
+		if (nextFrameTime == 0l || now - nextFrameTime > period)
+			nextFrameTime = now;
+		
+		while (nextFrameTime - now > 0 && !Thread.currentThread().isInterrupted()) {
+			LockSupport.parkNanos(this, nextFrameTime - now);
+			now = System.nanoTime();
+		}
+		nextFrameTime += period;
+		return true;
+	}
+	
+	
+	@Override
+	public int getIndex() {
+		return -1;
+	}
+	
+	
+	@Override
+	public boolean isLive() {
+		return false;
+	}
+	
+	
+	@Override
+	public boolean isPaced() {
+		return paced;
+	}
+	
+	
+	@Override
+	public void setPaced(boolean paced) {
+		this.paced = paced;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[name='" + getName() + "',"
+				+ "opened=" + isOpened() + ",paced=" + isPaced() + "]";
+	}
+
+}
@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+
+/**
+ * Provides the {@code CV_CAP_PROP_*} property identifiers used with
+ * {@link org.opencv.highgui.VideoCapture#get(int)} and
+ * {@link org.opencv.highgui.VideoCapture#set(int, double)}. The Java bindings
+ * of OpenCV 2.4 only export the frame width and height, so the remaining
+ * identifiers are defined here with the values of the native API.
+ * 
+ * @author Chris Hartley
+ */
+public final class CaptureProperties {
+	
+	/** Current position of the video file in milliseconds. */
+	public static final int CV_CAP_PROP_POS_MSEC = 0;
+	
+	/** 0-based index of the frame to be decoded/captured next. */
+	public static final int CV_CAP_PROP_POS_FRAMES = 1;
+	
+	/** Width of the frames in the video stream. */
+	public static final int CV_CAP_PROP_FRAME_WIDTH = 3;
+	
+	/** Height of the frames in the video stream. */
+	public static final int CV_CAP_PROP_FRAME_HEIGHT = 4;
+	
+	/** Frame rate of the video stream. */
+	public static final int CV_CAP_PROP_FPS = 5;
+	
+	/** 4-character code of the codec or pixel format. */
+	public static final int CV_CAP_PROP_FOURCC = 6;
+	
+	/** Number of frames in the video file. */
+	public static final int CV_CAP_PROP_FRAME_COUNT = 7;
+	
+	/** Format of the Mat objects returned by retrieve(). */
+	public static final int CV_CAP_PROP_FORMAT = 8;
+	
+	/** Backend-specific value indicating the current capture mode. */
+	public static final int CV_CAP_PROP_MODE = 9;
+	
+	/** Whether the images should be converted to RGB. */
+	public static final int CV_CAP_PROP_CONVERT_RGB = 16;
+	
+	
+	/**
+	 * Private constructor; this class only holds constants.
+	 */
+	private CaptureProperties() { }
+
+}
@@ -0,0 +1,371 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import handemapper.common.recognition.device.CaptureFormat;
+import handemapper.common.recognition.frame.FrameSource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.opencv.highgui.VideoCapture;
+
+
+/**
+ * Provides the enumeration of the connected video capture devices together
+ * with a small cache file of the last result. Probing opens each device index
+ * in turn, which may take seconds with virtual cameras; the cache lets the
+ * last-good device be opened right away on startup while a new probe runs in
+ * the background with {@link #probeAsync(Collection)}.
+ * <p>All background probes run one after another on a single daemon thread,
+ * which ends once idle.
+ * <p>The cache is a properties file holding the last-good device index and
+ * one {@code device.<index>=WIDTHxHEIGHT@FPS} entry per probed device.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see DeviceDescriptor
+ */
+public class DeviceCatalog {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(DeviceCatalog.class);
+	
+	
+	/**
+	 * The default location of the cache file.
+	 */
+	public static final File DEFAULT_CACHE_FILE = new File(
+			System.getProperty("user.home"), ".handemapper/devices.properties");
+	
+	
+	/**
+	 * The highest device index probed, as a guard against drivers that accept
+	 * any index.
+	 */
+	private static final int maxDeviceIndex = 16;
+	
+	
+	/**
+	 * The cache file property of the last-good device index.
+	 */
+	private static final String LAST_GOOD_KEY = "lastGood";
+	
+	
+	/**
+	 * The cache file property prefix of a probed device.
+	 */
+	private static final String DEVICE_KEY_PREFIX = "device.";
+	
+	
+	/**
+	 * The executor running the background probes of all catalogs.
+	 */
+	private static final ExecutorService prober = createProber();
+	
+	
+	// Private member fields.
+	private final File cacheFile;
+	
+	// Private member data.
+	private volatile List<DeviceDescriptor> devices =
+			Collections.<DeviceDescriptor>emptyList();
+	private volatile int lastGoodIndex = -1;
+	private volatile boolean cached = false;
+	
+	
+	/**
+	 * Constructor for a new instance of a device catalog using the
+	 * {@link #DEFAULT_CACHE_FILE}.
+	 */
+	public DeviceCatalog() {
+		this(DEFAULT_CACHE_FILE);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a device catalog using the specified
+	 * cache file, which is loaded right away if it exists.
+	 * 
+	 * @param cacheFile	The cache file to read from and write to.
+	 */
+	public DeviceCatalog(File cacheFile) {
+		this.cacheFile = cacheFile;
+		load();
+	}
+	
+	
+	/**
+	 * Returns {@code true} if the devices were read from the cache file and
+	 * have not yet been probed in this run.
+	 * 
+	 * @return	whether the current device list came from the cache.
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+	
+	
+	/**
+	 * Returns the index of the device most recently opened successfully.
+	 * 
+	 * @return	the last-good device index, or {@code -1} if unknown.
+	 */
+	public int getLastGoodIndex() {
+		return lastGoodIndex;
+	}
+	
+	
+	/**
+	 * Records the specified device as the last-good device and writes the
+	 * cache file.
+	 * 
+	 * @param index	The index of the device that was opened successfully.
+	 */
+	public void setLastGoodIndex(int index) {
+		if (index == lastGoodIndex)
+			return;
+		
+		lastGoodIndex = index;
+		save();
+	}
+	
+	
+	/**
+	 * Returns the devices known from the last probe, or from the cache file if
+	 * no probe has completed yet.
+	 * 
+	 * @return	an unmodifiable list of the known devices.
+	 */
+	public List<DeviceDescriptor> getDevices() {
+		return devices;
+	}
+	
+	
+	/**
+	 * Creates the single-threaded executor of the background probes, whose
+	 * daemon thread ends after being idle for a while.
+	 */
+	private static ExecutorService createProber() {
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 30l,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "DeviceProbe");
+				thread.setDaemon(true);
+				return thread;
+			}
+		
+		} );
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+	
+	
+	/**
+	 * Starts probing the connected devices on the background probe thread,
+	 * after any probe started before. The result replaces the known devices
+	 * and is written to the cache file.
+	 * 
+	 * @param inUse	The sources currently opened by this application, which
+	 * 				are recorded without being probed again; may be
+	 * 				{@code null}.
+	 * @return	the future result of the probe.
+	 * 
+	 * @see #probe(Collection)
+	 */
+	public Future<List<DeviceDescriptor>> probeAsync(
+			final Collection<? extends FrameSource> inUse)
+	{
+		return prober.submit(new Callable<List<DeviceDescriptor>>() {
+			
+			@Override
+			public List<DeviceDescriptor> call() {
+				return probe(inUse);
+			}
+		
+		} );
+	}
+	
+	
+	/**
+	 * Probes the connected devices by opening each index in turn until one
+	 * fails, recording the resolution and frame rate each reports. Every
+	 * probe, including the failed one, is released. A device in use is
+	 * recorded with the format granted when it was opened, without touching
+	 * its video capture, which is being read by its capture thread.
+	 * 
+	 * @param inUse	The sources currently opened by this application, which
+	 * 				are recorded without being probed again; may be
+	 * 				{@code null}.
+	 * @return	an unmodifiable list of the devices found.
+	 */
+	public List<DeviceDescriptor> probe(Collection<? extends FrameSource> inUse) {
+		final long start = System.nanoTime();
+		final List<DeviceDescriptor> found = new ArrayList<DeviceDescriptor>();
+		
+		for (int index = 0; index <= maxDeviceIndex; index++) {
+			final DeviceFrameSource opened = findInUse(inUse, index);
+			if (opened != null) {
+				final CaptureFormat granted = opened.getCaptureFormat();
+				found.add(new DeviceDescriptor(index, granted.getWidth(),
+						granted.getHeight(), granted.getFPS()));
+				continue;
+			}
+			
+			final VideoCapture vc = new VideoCapture();
+			try {
+				if (!vc.open(index))
+					break;
+				
+				found.add(new DeviceDescriptor(index,
+						(int)vc.get(CaptureProperties.CV_CAP_PROP_FRAME_WIDTH),
+						(int)vc.get(CaptureProperties.CV_CAP_PROP_FRAME_HEIGHT),
+						vc.get(CaptureProperties.CV_CAP_PROP_FPS)));
+			}
+			finally {
+				vc.release();
+			}
+		}
+		
+		devices = Collections.unmodifiableList(found);
+		cached = false;
+		logger.info("Probed " + found.size() + " video capture device(s) in "
+				+ (System.nanoTime() - start) / 1000000l + " ms: " + found);
+		
+		save();
+		return devices;
+	}
+	
+	
+	/**
+	 * Returns the opened device source with the specified device index.
+	 * 
+	 * @param inUse	The opened sources; may be {@code null}.
+	 * @param index	The device index to look for.
+	 * @return	the opened device source, or {@code null} if not in use.
+	 */
+	private static DeviceFrameSource findInUse(
+			Collection<? extends FrameSource> inUse, int index)
+	{
+		if (inUse != null) {
+			for (FrameSource source : inUse) {
+				if (source instanceof DeviceFrameSource
+						&& source.getIndex() == index && source.isOpened())
+					return (DeviceFrameSource)source;
+			}
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Reads the cache file, if it exists.
+	 */
+	private void load() {
+		if (!cacheFile.isFile())
+			return;
+		
+		final Properties props = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(cacheFile);
+			props.load(in);
+		}
+		catch (IOException ex) {
+			logger.warn("Unable to read device cache " + cacheFile + ": " + ex);
+			return;
+		}
+		finally {
+			closeQuietly(in);
+		}
+		
+		final List<DeviceDescriptor> found = new ArrayList<DeviceDescriptor>();
+		for (int index = 0; index <= maxDeviceIndex; index++) {
+			final DeviceDescriptor dd = DeviceDescriptor.parse(index,
+					props.getProperty(DEVICE_KEY_PREFIX + index));
+			if (dd != null)
+				found.add(dd);
+		}
+		
+		try {
+			lastGoodIndex = Integer.parseInt(
+					props.getProperty(LAST_GOOD_KEY, "-1").trim());
+		}
+		catch (NumberFormatException ex) {
+			lastGoodIndex = -1;
+		}
+		
+		devices = Collections.unmodifiableList(found);
+		cached = true;
+		logger.debug("Loaded " + found.size() + " cached device(s) from "
+				+ cacheFile + "; last-good index " + lastGoodIndex);
+	}
+	
+	
+	/**
+	 * Writes the known devices and the last-good device index to the cache
+	 * file. Failures are logged only, since the cache is an optimization.
+	 */
+	private synchronized void save() {
+		final Properties props = new Properties();
+		props.setProperty(LAST_GOOD_KEY, Integer.toString(lastGoodIndex));
+		for (DeviceDescriptor dd : devices)
+			props.setProperty(DEVICE_KEY_PREFIX + dd.getIndex(), dd.format());
+		
+		final File dir = cacheFile.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			logger.warn("Unable to create directory for device cache " + dir);
+			return;
+		}
+		
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(cacheFile);
+			props.store(out, "Video capture devices");
+		}
+		catch (IOException ex) {
+			logger.warn("Unable to write device cache " + cacheFile + ": " + ex);
+		}
+		finally {
+			closeQuietly(out);
+		}
+	}
+	
+	
+	/**
+	 * Closes the specified stream, ignoring any exception.
+	 * 
+	 * @param c	The stream to close; may be {@code null}.
+	 */
+	private static void closeQuietly(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException ignore) { }
+		}
+	}
+
+}
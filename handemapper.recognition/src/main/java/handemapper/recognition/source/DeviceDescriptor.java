@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import java.io.Serializable;
+
+
+/**
+ * Provides an immutable description of a video capture device found while
+ * probing: its index and the resolution and frame rate it reported when
+ * opened with the default settings.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see DeviceCatalog
+ */
+public final class DeviceDescriptor implements Serializable {
+	
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6113728730591946027L;
+	
+	
+	// Private member fields.
+	private final int index;
+	private final int width;
+	private final int height;
+	private final double fps;
+	
+	
+	/**
+	 * Constructor for a new instance of a device descriptor.
+	 * 
+	 * @param index		The index of the video capture device.
+	 * @param width		The reported frame width in pixels.
+	 * @param height	The reported frame height in pixels.
+	 * @param fps		The reported frames-per-second, or {@code 0} if the
+	 * 					device does not report it.
+	 */
+	public DeviceDescriptor(int index, int width, int height, double fps) {
+		this.index = index;
+		this.width = width;
+		this.height = height;
+		this.fps = fps;
+	}
+	
+	
+	/**
+	 * Parses a descriptor from the format written by {@link #format()}, i.e.
+	 * {@code WIDTHxHEIGHT@FPS}.
+	 * 
+	 * @param index		The index of the video capture device.
+	 * @param value		The formatted resolution and frame rate.
+	 * @return	the parsed descriptor, or {@code null} if the value is malformed.
+	 */
+	static DeviceDescriptor parse(int index, String value) {
+		if (value == null)
+			return null;
+		
+		final int x = value.indexOf('x');
+		final int at = value.indexOf('@', x + 1);
+		if (x <= 0 || at <= x)
+			return null;
+		
+		try {
+			return new DeviceDescriptor(index,
+					Integer.parseInt(value.substring(0, x).trim()),
+					Integer.parseInt(value.substring(x + 1, at).trim()),
+					Double.parseDouble(value.substring(at + 1).trim()));
+		}
+		catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Formats the resolution and frame rate of this descriptor as
+	 * {@code WIDTHxHEIGHT@FPS}.
+	 * 
+	 * @return	the formatted descriptor value.
+	 */
+	String format() {
+		return width + "x" + height + "@" + fps;
+	}
+	
+	
+	/**
+	 * Returns the index of the video capture device.
+	 * 
+	 * @return	the device index.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	
+	/**
+	 * Returns the frame width reported by the device.
+	 * 
+	 * @return	the width in pixels.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	
+	/**
+	 * Returns the frame height reported by the device.
+	 * 
+	 * @return	the height in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	
+	/**
+	 * Returns the frame rate reported by the device.
+	 * 
+	 * @return	the frames-per-second, or {@code 0} if not reported.
+	 */
+	public double getFPS() {
+		return fps;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[index=" + index + ", " + format()
+				+ "]";
+	}
+
+}
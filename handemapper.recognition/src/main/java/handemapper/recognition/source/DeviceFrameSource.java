@@ -0,0 +1,303 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import handemapper.common.recognition.device.CaptureFormat;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.opencv.core.Mat;
+import org.opencv.highgui.VideoCapture;
+
+
+/**
+ * Provides a {@link handemapper.common.recognition.frame.FrameSource} reading
+ * from a live video capture device, identified by its device index. A live
+ * device delivers frames at its own rate, so pacing has no effect.
+ * <p>Each time the device is opened, the {@link #setRequestedFormat(CaptureFormat)
+ * requested capture format} is negotiated with the driver: the pixel format is
+ * set first, then the smallest frame size that is at least the
+ * {@link #setMinimumFrameWidth(int) minimum frame width}, and then the frame
+ * rate. The values the driver actually granted are read back and available
+ * through {@link #getCaptureFormat()}. The frame size and rate reported by
+ * this source are those granted values, so other threads never query the
+ * video capture while the capture thread reads from it.
+ * 
+ * @author Chris Hartley
+ */
+public class DeviceFrameSource extends AbstractFrameSource {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(DeviceFrameSource.class);
+	
+	
+	/**
+	 * The common frame sizes of video capture devices, in ascending order of
+	 * width, tried when no frame size is requested.
+	 */
+	private static final int[][] commonFrameSizes = {
+		{ 160, 120 }, { 176, 144 }, { 320, 240 }, { 352, 288 }, { 424, 240 },
+		{ 640, 360 }, { 640, 480 }, { 800, 600 }, { 960, 540 }, { 1280, 720 },
+		{ 1920, 1080 }
+	};
+	
+	
+	// Private member fields.
+	private final int deviceIndex;
+	private final VideoCapture device = new VideoCapture();
+	
+	// Private member data.
+	private volatile CaptureFormat requestedFormat = CaptureFormat.ANY;
+	private volatile CaptureFormat grantedFormat = CaptureFormat.ANY;
+	private volatile int minFrameWidth = 0;
+	
+	
+	/**
+	 * Constructor for a new instance of a frame source reading from the video
+	 * capture device with the specified index. The device is not opened until
+	 * {@link #open()} is called.
+	 * 
+	 * @param deviceIndex	The index of the video capture device.
+	 */
+	public DeviceFrameSource(int deviceIndex) {
+		this.deviceIndex = deviceIndex;
+	}
+	
+	
+	@Override
+	public synchronized boolean open() {
+		if (device.isOpened())
+			return true;
+		
+		if (!device.open(deviceIndex))
+			return false;
+		
+		negotiate();
+		return true;
+	}
+	
+	
+	/**
+	 * Negotiates the requested capture format with the opened device and reads
+	 * back the format the driver granted.
+	 */
+	private void negotiate() {
+		final CaptureFormat requested = requestedFormat;
+		final int minWidth = minFrameWidth;
+		
+		if (requested.getPixelFormat() != null) {
+			device.set(CaptureProperties.CV_CAP_PROP_FOURCC,
+					toFourCC(requested.getPixelFormat()));
+		}
+		
+		if (requested.hasSize()) {
+			setFrameSize(requested.getWidth(), requested.getHeight());
+			if (readWidth() < minWidth)
+				logger.warn("Requested frame width " + requested.getWidth()
+						+ " of " + getName() + " is below the minimum " + minWidth);
+		}
+		else if (minWidth > 0) {
+			// The driver snaps to the nearest mode it supports, so keep trying
+			// larger sizes until the granted width meets the minimum.
+			for (int[] size : commonFrameSizes) {
+				if (size[0] < minWidth)
+					continue;
+				
+				setFrameSize(size[0], size[1]);
+				if (readWidth() >= minWidth)
+					break;
+			}
+		}
+		
+		if (requested.getFPS() > 0d)
+			device.set(CaptureProperties.CV_CAP_PROP_FPS, requested.getFPS());
+		
+		grantedFormat = new CaptureFormat(Math.max(readWidth(), 0),
+				Math.max((int)device.get(CaptureProperties.CV_CAP_PROP_FRAME_HEIGHT), 0),
+				Math.max(device.get(CaptureProperties.CV_CAP_PROP_FPS), 0d),
+				fromFourCC((int)device.get(CaptureProperties.CV_CAP_PROP_FOURCC)));
+		
+		logger.info("Capture format of " + getName() + ": requested "
+				+ requested + " (min width " + minWidth + "), granted "
+				+ grantedFormat);
+	}
+	
+	
+	/**
+	 * Reads the current frame width back from the opened device.
+	 */
+	private int readWidth() {
+		return (int)device.get(CaptureProperties.CV_CAP_PROP_FRAME_WIDTH);
+	}
+	
+	
+	/**
+	 * Requests the specified frame size from the device.
+	 * 
+	 * @param width		The frame width in pixels.
+	 * @param height	The frame height in pixels.
+	 */
+	private void setFrameSize(int width, int height) {
+		device.set(CaptureProperties.CV_CAP_PROP_FRAME_WIDTH, width);
+		device.set(CaptureProperties.CV_CAP_PROP_FRAME_HEIGHT, height);
+	}
+	
+	
+	/**
+	 * Returns the {@code CV_CAP_PROP_FOURCC} value of the specified four
+	 * character code.
+	 * 
+	 * @param code	The four character code, e.g. {@code "MJPG"}.
+	 * @return	the packed four character code.
+	 */
+	static int toFourCC(String code) {
+		return (code.charAt(0) & 0xff) | (code.charAt(1) & 0xff) << 8
+				| (code.charAt(2) & 0xff) << 16 | (code.charAt(3) & 0xff) << 24;
+	}
+	
+	
+	/**
+	 * Returns the four character code of the specified
+	 * {@code CV_CAP_PROP_FOURCC} value.
+	 * 
+	 * @param fourcc	The packed four character code.
+	 * @return	the four character code, or {@code null} if not reported.
+	 */
+	static String fromFourCC(int fourcc) {
+		if (fourcc == 0)
+			return null;
+		
+		final char[] code = new char[4];
+		for (int i = 0; i < code.length; i++) {
+			final int c = (fourcc >>> (8 * i)) & 0xff;
+			code[i] = c >= 0x20 && c < 0x7f ? (char)c : '?';
+		}
+		return new String(code);
+	}
+	
+	
+	/**
+	 * Sets the capture format to request from the device the next time it is
+	 * opened, including when re-connecting.
+	 * 
+	 * @param format	The requested {@link CaptureFormat}, or {@code null} to
+	 * 					leave all values to the driver.
+	 */
+	public void setRequestedFormat(CaptureFormat format) {
+		this.requestedFormat = format != null ? format : CaptureFormat.ANY;
+	}
+	
+	
+	/**
+	 * Returns the capture format requested from the device.
+	 * 
+	 * @return	the requested {@link CaptureFormat}.
+	 */
+	public CaptureFormat getRequestedFormat() {
+		return requestedFormat;
+	}
+	
+	
+	/**
+	 * Sets the minimum frame width; when no frame size is requested, the
+	 * smallest common frame size the device grants with at least this width
+	 * is chosen the next time the device is opened.
+	 * 
+	 * @param minFrameWidth	The minimum frame width in pixels, or {@code 0} to
+	 * 						keep the driver's default frame size.
+	 */
+	public void setMinimumFrameWidth(int minFrameWidth) {
+		this.minFrameWidth = Math.max(minFrameWidth, 0);
+	}
+	
+	
+	/**
+	 * Returns the capture format the driver granted when the device was last
+	 * opened.
+	 * 
+	 * @return	the granted {@link CaptureFormat}.
+	 */
+	public CaptureFormat getCaptureFormat() {
+		return grantedFormat;
+	}
+	
+	
+	@Override
+	public boolean isOpened() {
+		return device.isOpened();
+	}
+	
+	
+	@Override
+	protected boolean grab(Mat frame) {
+		return device.read(frame) && !frame.empty();
+	}
+	
+	
+	@Override
+	public synchronized void release() {
+		device.release();
+	}
+	
+	
+	/**
+	 * Returns the value of the specified {@code CV_CAP_PROP_*} property of the
+	 * video capture device. The video capture is not thread-safe, so this must
+	 * not be called while the capture thread reads from the device.
+	 * 
+	 * @param propId	The property identifier.
+	 * @return	the property value, or {@code 0} if the device is not opened.
+	 * 
+	 * @see CaptureProperties
+	 */
+	public double getProperty(int propId) {
+		return device.isOpened() ? device.get(propId) : 0d;
+	}
+	
+	
+	@Override
+	public String getName() {
+		return "device:" + deviceIndex;
+	}
+	
+	
+	@Override
+	public int getIndex() {
+		return deviceIndex;
+	}
+	
+	
+	/**
+	 * Returns the frame width granted when the device was last opened.
+	 */
+	@Override
+	public int getWidth() {
+		return grantedFormat.getWidth();
+	}
+	
+	
+	/**
+	 * Returns the frame height granted when the device was last opened.
+	 */
+	@Override
+	public int getHeight() {
+		return grantedFormat.getHeight();
+	}
+	
+	
+	/**
+	 * Returns the frame rate granted when the device was last opened.
+	 */
+	@Override
+	public double getFPS() {
+		return grantedFormat.getFPS();
+	}
+	
+	
+	@Override
+	public boolean isLive() {
+		return true;
+	}
+
+}
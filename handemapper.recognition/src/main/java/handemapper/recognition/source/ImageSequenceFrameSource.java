@@ -0,0 +1,171 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Arrays;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.opencv.core.Mat;
+import org.opencv.highgui.Highgui;
+
+
+/**
+ * Provides a {@link handemapper.common.recognition.frame.FrameSource} reading
+ * the images of a directory, in file name order, as consecutive frames. When
+ * paced, the images are delivered at the frame rate given on construction.
+ * 
+ * @author Chris Hartley
+ */
+public class ImageSequenceFrameSource extends AbstractFrameSource {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(ImageSequenceFrameSource.class);
+	
+	
+	/**
+	 * The file extensions of the images that are read from the directory.
+	 */
+	private static final String[] imageExtensions =
+		{ ".png", ".jpg", ".jpeg", ".bmp", ".tif", ".tiff", ".ppm", ".pgm" };
+	
+	
+	// Private member fields.
+	private final File directory;
+	private final double fps;
+	private final boolean looping;
+	
+	// Private member data.
+	private File[] images = null;
+	private int nextImage = 0;
+	private int width = 0;
+	private int height = 0;
+	
+	
+	/**
+	 * Constructor for a new instance of a frame source reading the images of
+	 * the specified directory once, at the specified frame rate.
+	 * 
+	 * @param directory	The directory containing the images.
+	 * @param fps		The frame rate to deliver the images at when paced.
+	 */
+	public ImageSequenceFrameSource(File directory, double fps) {
+		this(directory, fps, false);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a frame source reading the images of
+	 * the specified directory at the specified frame rate, optionally starting
+	 * over after the last image.
+	 * 
+	 * @param directory	The directory containing the images.
+	 * @param fps		The frame rate to deliver the images at when paced.
+	 * @param looping	Whether to start over after the last image.
+	 */
+	public ImageSequenceFrameSource(File directory, double fps,
+			boolean looping)
+	{
+		this.directory = directory;
+		this.fps = fps;
+		this.looping = looping;
+	}
+	
+	
+	@Override
+	public synchronized boolean open() {
+		if (images != null)
+			return true;
+		
+		final File[] files = directory.listFiles( new FileFilter() {
+			
+			@Override
+			public boolean accept(File f) {
+				final String name = f.getName().toLowerCase();
+				for (String ext : imageExtensions) {
+					if (name.endsWith(ext))
+						return f.isFile();
+				}
+				return false;
+			}
+		
+		} );
+		
+		if (files == null || files.length == 0) {
+			logger.error("No images found in directory: " + directory);
+			return false;
+		}
+		
+		Arrays.sort(files);
+		images = files;
+		nextImage = 0;
+		return true;
+	}
+	
+	
+	@Override
+	public boolean isOpened() {
+		return images != null;
+	}
+	
+	
+	@Override
+	protected synchronized boolean grab(Mat frame) {
+		if (images == null)
+			return false;
+		
+		if (nextImage >= images.length) {
+			if (!looping)
+				return false;
+			nextImage = 0;
+		}
+		
+		final Mat img = Highgui.imread(images[nextImage++].getAbsolutePath());
+		try {
+			if (img.empty())
+				return false;
+			
+			img.copyTo(frame);
+			width = img.cols();
+			height = img.rows();
+			return true;
+		}
+		finally {
+			img.release();
+		}
+	}
+	
+	
+	@Override
+	public synchronized void release() {
+		images = null;
+	}
+	
+	
+	@Override
+	public String getName() {
+		return "images:" + directory;
+	}
+	
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	
+	@Override
+	public double getFPS() {
+		return fps;
+	}
+
+}
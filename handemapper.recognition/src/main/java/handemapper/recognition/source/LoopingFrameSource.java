@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import java.util.List;
+
+import org.opencv.core.Mat;
+
+
+/**
+ * Provides a synthetic {@link handemapper.common.recognition.frame.FrameSource}
+ * that endlessly loops over a fixed set of frames held in memory. Since no
+ * decoding or device access is involved, this source is suited to measure the
+ * throughput of the recognition pipeline itself, e.g. on a headless server.
+ * 
+ * @author Chris Hartley
+ */
+public class LoopingFrameSource extends AbstractFrameSource {
+	
+	// Private member fields.
+	private final Mat[] frames;
+	private final double fps;
+	
+	// Private member data.
+	private volatile boolean opened = false;
+	private int nextFrame = 0;
+	
+	
+	/**
+	 * Constructor for a new instance of a looping frame source over copies of
+	 * the specified frames, delivered at the specified frame rate when paced.
+	 * 
+	 * @param frames	The frames to loop over; must not be empty.
+	 * @param fps		The frame rate to deliver the frames at when paced.
+	 */
+	public LoopingFrameSource(List<Mat> frames, double fps) {
+		if (frames == null || frames.isEmpty())
+			throw new IllegalArgumentException("At least one frame is required!");
+		
+		this.frames = new Mat[frames.size()];
+		for (int i = 0; i < this.frames.length; i++)
+			this.frames[i] = frames.get(i).clone();
+		
+		this.fps = fps;
+	}
+	
+	
+	@Override
+	public boolean open() {
+		nextFrame = 0;
+		opened = true;
+		return true;
+	}
+	
+	
+	@Override
+	public boolean isOpened() {
+		return opened;
+	}
+	
+	
+	@Override
+	protected boolean grab(Mat frame) {
+		if (!opened)
+			return false;
+		
+		frames[nextFrame].copyTo(frame);
+		nextFrame = (nextFrame + 1) % frames.length;
+		return true;
+	}
+	
+	
+	/**
+	 * Closes this source; the frames are kept in memory so the source may be
+	 * opened again.
+	 */
+	@Override
+	public void release() {
+		opened = false;
+	}
+	
+	
+	@Override
+	public String getName() {
+		return "loop:" + frames.length + " frame(s)";
+	}
+	
+	
+	@Override
+	public int getWidth() {
+		return frames[0].cols();
+	}
+	
+	
+	@Override
+	public int getHeight() {
+		return frames[0].rows();
+	}
+	
+	
+	@Override
+	public double getFPS() {
+		return fps;
+	}
+
+}
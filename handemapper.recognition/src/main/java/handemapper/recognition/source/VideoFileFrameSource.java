@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package handemapper.recognition.source;
+
+import org.opencv.core.Mat;
+import org.opencv.highgui.VideoCapture;
+
+
+/**
+ * Provides a {@link handemapper.common.recognition.frame.FrameSource} reading
+ * the frames of a video file. When paced, frames are delivered at the frame
+ * rate recorded in the file; when looping, the file is rewound once the last
+ * frame has been read.
+ * 
+ * @author Chris Hartley
+ */
+public class VideoFileFrameSource extends AbstractFrameSource {
+	
+	// Private member fields.
+	private final String path;
+	private final boolean looping;
+	private final VideoCapture video = new VideoCapture();
+	
+	
+	/**
+	 * Constructor for a new instance of a frame source reading the specified
+	 * video file once.
+	 * 
+	 * @param path	The path to the video file.
+	 */
+	public VideoFileFrameSource(String path) {
+		this(path, false);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a frame source reading the specified
+	 * video file, optionally rewinding it after the last frame.
+	 * 
+	 * @param path		The path to the video file.
+	 * @param looping	Whether to start over after the last frame.
+	 */
+	public VideoFileFrameSource(String path, boolean looping) {
+		this.path = path;
+		this.looping = looping;
+	}
+	
+	
+	@Override
+	public synchronized boolean open() {
+		return video.isOpened() || video.open(path);
+	}
+	
+	
+	@Override
+	public boolean isOpened() {
+		return video.isOpened();
+	}
+	
+	
+	@Override
+	protected boolean grab(Mat frame) {
+		if (video.read(frame) && !frame.empty())
+			return true;
+		
+		if (!looping || !video.isOpened())
+			return false;
+		
+		video.set(CaptureProperties.CV_CAP_PROP_POS_FRAMES, 0d);
+		return video.read(frame) && !frame.empty();
+	}
+	
+	
+	@Override
+	public synchronized void release() {
+		video.release();
+	}
+	
+	
+	@Override
+	public String getName() {
+		return "file:" + path;
+	}
+	
+	
+	@Override
+	public int getWidth() {
+		return video.isOpened() ?
+				(int)video.get(CaptureProperties.CV_CAP_PROP_FRAME_WIDTH) : 0;
+	}
+	
+	
+	@Override
+	public int getHeight() {
+		return video.isOpened() ?
+				(int)video.get(CaptureProperties.CV_CAP_PROP_FRAME_HEIGHT) : 0;
+	}
+	
+	
+	@Override
+	public double getFPS() {
+		return video.isOpened() ?
+				video.get(CaptureProperties.CV_CAP_PROP_FPS) : 0d;
+	}
+
+}
@@ -0,0 +1,398 @@
+/**
+ * 
+ */
+package handemapper.recognition.stream;
+
+import handemapper.common.recognition.frame.FrameHandle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides a dedicated thread encoding the preview frames handed over by the
+ * {@link MjpegPreviewServer} into JPEG parts of a multipart stream. Only the
+ * latest frame is kept; a frame offered while the previous one is still
+ * waiting replaces it and is released unencoded. Each frame is encoded at
+ * most once, and the encoded part is shared by all clients, which wait in
+ * {@link #awaitNewer(long, long)} for a part newer than the one they sent.
+ * <p>The parts are recycled: a client leases the part it sends and releases
+ * it once written, and a part neither leased nor latest is encoded into
+ * again, growing its buffer only when a frame does not fit. The JPEG data is
+ * written into one reused buffer and the constant part headers are encoded
+ * once, so encoding a frame allocates no buffer once warmed up.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see MjpegPreviewServer
+ */
+final class JpegFrameEncoder extends Thread {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(JpegFrameEncoder.class);
+	
+	
+	/**
+	 * The default JPEG compression quality, between {@code 0} and {@code 1}.
+	 */
+	static final float DEFAULT_QUALITY = 0.75f;
+	
+	
+	/** The end of the part headers, following the content length. */
+	private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+	
+	/** The line break ending the JPEG data of a part. */
+	private static final byte[] PART_END = "\r\n".getBytes(StandardCharsets.US_ASCII);
+	
+	
+	// Private member fields.
+	private final byte[] headerStart;
+	private final ImageWriter writer;
+	private final ImageWriteParam param;
+	private final JpegBuffer bytes = new JpegBuffer(64 * 1024);
+	private final List<EncodedFrame> parts = new ArrayList<EncodedFrame>();	// guarded by lock
+	private final Object lock = new Object();
+	
+	// Private member data.
+	private volatile boolean running = true;
+	private FrameHandle pending = null;			// guarded by lock
+	private EncodedFrame latest = null;			// guarded by lock
+	
+	
+	/**
+	 * Constructor for a new instance of an encoder producing parts delimited
+	 * by the specified boundary.
+	 * 
+	 * @param boundary	The multipart boundary, without the leading dashes.
+	 * @param quality	The JPEG compression quality, between {@code 0} and
+	 * 					{@code 1}.
+	 */
+	JpegFrameEncoder(String boundary, float quality) {
+		super("MjpegEncoder");
+		setDaemon(true);
+		
+		final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+		if (!writers.hasNext())
+			throw new IllegalStateException("No JPEG image writer available!");
+		
+		this.headerStart = ("--" + boundary + "\r\n"
+				+ "Content-Type: image/jpeg\r\n"
+				+ "Content-Length: ").getBytes(StandardCharsets.US_ASCII);
+		this.writer = writers.next();
+		this.param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(quality);
+	}
+	
+	
+	/**
+	 * Hands the specified leased frame over to this encoder, which releases
+	 * it once encoded. A frame still waiting to be encoded is replaced and
+	 * released right away, as is a frame offered after the encoder stopped.
+	 * 
+	 * @param frame	The leased frame to encode.
+	 */
+	void offer(FrameHandle frame) {
+		final FrameHandle replaced;
+		synchronized (lock) {
+			if (running) {
+				replaced = pending;
+				pending = frame;
+				lock.notifyAll();
+			}
+			else {
+				replaced = frame;
+			}
+		}
+		
+		if (replaced != null)
+			replaced.release();
+	}
+	
+	
+	/**
+	 * Waits for an encoded part newer than the specified sequence number and
+	 * leases it. The caller must {@link #release(EncodedFrame)} the part once
+	 * written, so it can be encoded into again.
+	 * 
+	 * @param sequence		The sequence number of the part sent last, or
+	 * 						{@code -1} for none.
+	 * @param timeoutMillis	The maximum time to wait in milliseconds.
+	 * @return	the latest encoded part, leased, or {@code null} if there is no
+	 * 			newer part within the timeout, or when this encoder is stopped.
+	 * @throws InterruptedException	if the calling thread is interrupted.
+	 */
+	EncodedFrame awaitNewer(long sequence, long timeoutMillis)
+			throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (lock) {
+			while (running && (latest == null || latest.sequence <= sequence)) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0l)
+					return null;
+				lock.wait(remaining);
+			}
+			if (!running)
+				return null;
+			
+			latest.leases++;
+			return latest;
+		}
+	}
+	
+	
+	/**
+	 * Releases the specified part leased by {@link #awaitNewer(long, long)}.
+	 * 
+	 * @param part	The part written by the caller.
+	 */
+	void release(EncodedFrame part) {
+		synchronized (lock) {
+			part.leases--;
+		}
+	}
+	
+	
+	/**
+	 * Forgets the latest encoded part, e.g. once no client is connected, so
+	 * the next client does not start with a stale frame.
+	 */
+	void clear() {
+		final FrameHandle frame;
+		synchronized (lock) {
+			frame = pending;
+			pending = null;
+			latest = null;
+		}
+		
+		if (frame != null)
+			frame.release();
+	}
+	
+	
+	@Override
+	public void run() {
+		logger.debug("JPEG encoder running...");
+		
+		try {
+			while (running) {
+				final FrameHandle frame;
+				synchronized (lock) {
+					while (running && pending == null)
+						lock.wait();
+					frame = pending;
+					pending = null;
+				}
+				
+				if (frame == null)
+					continue;
+				
+				try {
+					final EncodedFrame part = encode(frame, freePart());
+					synchronized (lock) {
+						latest = part;
+						lock.notifyAll();
+					}
+				}
+				catch (IOException ex) {
+					logger.warn("Failed to encode preview frame "
+							+ frame.getSequence() + ": " + ex);
+				}
+				finally {
+					frame.release();
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			clear();
+			writer.dispose();
+		}
+		
+		logger.debug("JPEG encoder stopped.");
+	}
+	
+	
+	/**
+	 * Returns a part neither leased by a client nor the latest one, creating
+	 * a new part when all are in use.
+	 */
+	private final EncodedFrame freePart() {
+		synchronized (lock) {
+			for (EncodedFrame part : parts) {
+				if (part.leases == 0 && part != latest)
+					return part;
+			}
+			
+			final EncodedFrame part = new EncodedFrame();
+			parts.add(part);
+			return part;
+		}
+	}
+	
+	
+	/**
+	 * Encodes the image of the specified frame into the specified free part,
+	 * i.e. the boundary, the part headers and the JPEG data.
+	 */
+	private final EncodedFrame encode(FrameHandle frame, EncodedFrame part)
+			throws IOException
+	{
+		bytes.reset();
+		final ImageOutputStream out = new MemoryCacheImageOutputStream(bytes);
+		try {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(frame.getImage(), null, null), param);
+		}
+		finally {
+			out.close();
+		}
+		
+		final int length = bytes.size();
+		part.reset(frame.getSequence(), headerStart.length + 10
+				+ HEADER_END.length + length + PART_END.length);
+		part.append(headerStart, headerStart.length);
+		part.appendDecimal(length);
+		part.append(HEADER_END, HEADER_END.length);
+		part.append(bytes.buffer(), length);
+		part.append(PART_END, PART_END.length);
+		return part;
+	}
+	
+	
+	/**
+	 * Stops this encoder and waits for it to finish.
+	 */
+	void shutdown() {
+		running = false;
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+		
+		try {
+			join(1000l);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	
+	/**
+	 * Provides a {@link ByteArrayOutputStream} whose buffer is read without
+	 * copying.
+	 * 
+	 * @author Chris Hartley
+	 */
+	private static final class JpegBuffer extends ByteArrayOutputStream {
+		
+		/**
+		 * Constructor for a new instance of a buffer of the specified initial
+		 * capacity.
+		 * 
+		 * @param size	The initial capacity in bytes.
+		 */
+		private JpegBuffer(int size) {
+			super(size);
+		}
+		
+		
+		/**
+		 * Returns the internal buffer, holding {@link #size()} valid bytes.
+		 */
+		private byte[] buffer() {
+			return buf;
+		}
+	
+	}
+	
+	
+	/**
+	 * Provides a recycled multipart part of an encoded preview frame, shared
+	 * read-only by the clients leasing it.
+	 * 
+	 * @author Chris Hartley
+	 */
+	static final class EncodedFrame {
+		
+		// Package member data.
+		long sequence = -1l;
+		
+		// Private member data.
+		private byte[] data = new byte[0];
+		private int length = 0;
+		private int leases = 0;		// guarded by the encoder lock
+		
+		
+		/**
+		 * Writes the complete part, headers included, to the specified
+		 * stream.
+		 * 
+		 * @param out	The stream of a client.
+		 * @throws IOException	if the part cannot be written.
+		 */
+		void writeTo(OutputStream out) throws IOException {
+			out.write(data, 0, length);
+		}
+		
+		
+		/**
+		 * Empties this part for the specified frame, growing its buffer to
+		 * the specified capacity if needed.
+		 */
+		private void reset(long sequence, int capacity) {
+			if (data.length < capacity)
+				data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+			
+			this.sequence = sequence;
+			this.length = 0;
+		}
+		
+		
+		/**
+		 * Appends the specified number of bytes of the specified array.
+		 */
+		private void append(byte[] bytes, int count) {
+			System.arraycopy(bytes, 0, data, length, count);
+			length += count;
+		}
+		
+		
+		/**
+		 * Appends the ASCII decimal digits of the specified non-negative
+		 * value.
+		 */
+		private void appendDecimal(int value) {
+			int digits = 1;
+			for (int v = value; v >= 10; v /= 10)
+				digits++;
+			
+			for (int i = length + digits - 1; i >= length; i--) {
+				data[i] = (byte)('0' + value % 10);
+				value /= 10;
+			}
+			length += digits;
+		}
+	
+	}
+
+}
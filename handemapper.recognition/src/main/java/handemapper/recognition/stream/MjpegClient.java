@@ -0,0 +1,167 @@
+/**
+ * 
+ */
+package handemapper.recognition.stream;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides the thread serving one client of the {@link MjpegPreviewServer}.
+ * After answering the HTTP request, the client is sent the latest encoded
+ * part whenever a newer one is available. Nothing is queued per client; a
+ * client reading slower than the frames are encoded simply skips to the
+ * latest frame once it has read the previous one.
+ * 
+ * @author Chris Hartley
+ * 
+ * @see MjpegPreviewServer
+ */
+final class MjpegClient extends Thread {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(MjpegClient.class);
+	
+	
+	/**
+	 * The time in milliseconds to wait for the request of the client.
+	 */
+	private static final int requestTimeoutMillis = 5000;
+	
+	
+	/**
+	 * The time in milliseconds to wait for a new frame before checking that
+	 * the client is still served.
+	 */
+	private static final long frameWaitMillis = 1000l;
+	
+	
+	// Private member fields.
+	private final MjpegPreviewServer server;
+	private final JpegFrameEncoder encoder;
+	private final Socket socket;
+	
+	// Private member data.
+	private volatile boolean running = true;
+	
+	
+	/**
+	 * Constructor for a new instance of a thread serving the specified
+	 * accepted client socket.
+	 * 
+	 * @param server	The server that accepted the client.
+	 * @param encoder	The encoder providing the parts to send.
+	 * @param socket	The accepted client socket.
+	 */
+	MjpegClient(MjpegPreviewServer server, JpegFrameEncoder encoder, Socket socket) {
+		super("MjpegClient-" + socket.getPort());
+		setDaemon(true);
+		
+		this.server = server;
+		this.encoder = encoder;
+		this.socket = socket;
+	}
+	
+	
+	@Override
+	public void run() {
+		try {
+			socket.setSoTimeout(requestTimeoutMillis);
+			socket.setTcpNoDelay(true);
+			
+			final OutputStream out = socket.getOutputStream();
+			if (!readRequest()) {
+				out.write(("HTTP/1.0 405 Method Not Allowed\r\n"
+						+ "Allow: GET\r\nConnection: close\r\n\r\n")
+						.getBytes(StandardCharsets.US_ASCII));
+				out.flush();
+				return;
+			}
+			
+			out.write(("HTTP/1.0 200 OK\r\n"
+					+ "Connection: close\r\n"
+					+ "Cache-Control: no-cache, no-store, must-revalidate\r\n"
+					+ "Pragma: no-cache\r\n"
+					+ "Content-Type: multipart/x-mixed-replace; boundary="
+					+ MjpegPreviewServer.BOUNDARY + "\r\n\r\n")
+					.getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			
+			long sequence = -1l;
+			while (running) {
+				final JpegFrameEncoder.EncodedFrame part =
+						encoder.awaitNewer(sequence, frameWaitMillis);
+				if (part == null)
+					continue;
+				
+				sequence = part.sequence;
+				try {
+					part.writeTo(out);
+					out.flush();
+				}
+				finally {
+					encoder.release(part);
+				}
+			}
+		}
+		catch (IOException ex) {
+			logger.debug("Preview client " + socket.getRemoteSocketAddress()
+					+ " disconnected: " + ex);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			close();
+			server.clientClosed(this);
+		}
+	}
+	
+	
+	/**
+	 * Reads the HTTP request of the client up to the empty line ending its
+	 * headers.
+	 * 
+	 * @return	{@code true} if the request is a {@code GET}; otherwise,
+	 * 			returns {@code false}.
+	 */
+	private final boolean readRequest() throws IOException {
+		final BufferedReader in = new BufferedReader(new InputStreamReader(
+				socket.getInputStream(), StandardCharsets.US_ASCII));
+		final String request = in.readLine();
+		if (request == null)
+			throw new IOException("Connection closed before the request");
+		
+		String header;
+		while ((header = in.readLine()) != null && !header.isEmpty())
+			;
+		
+		logger.debug("Preview client " + socket.getRemoteSocketAddress()
+				+ " requested: " + request);
+		return request.startsWith("GET ");
+	}
+	
+	
+	/**
+	 * Stops serving the client and closes its socket, which also interrupts a
+	 * blocked write.
+	 */
+	void close() {
+		running = false;
+		try {
+			socket.close();
+		}
+		catch (IOException ex) {
+			// The client is gone either way.
+		}
+	}
+
+}
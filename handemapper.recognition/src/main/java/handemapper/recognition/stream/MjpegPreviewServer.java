@@ -0,0 +1,308 @@
+/**
+ * 
+ */
+package handemapper.recognition.stream;
+
+import handemapper.common.recognition.GestureRecognizer;
+import handemapper.common.recognition.frame.FrameHandle;
+import handemapper.common.recognition.frame.FrameListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Provides a loopback-only HTTP endpoint streaming the annotated preview
+ * frames of a {@link GestureRecognizer} as Motion JPEG, e.g. for watching a
+ * kiosk's camera view from a browser or another local process.
+ * <p>The server registers itself as a {@link FrameListener} only while at
+ * least one client is connected, so no preview frame is produced, let alone
+ * encoded, for the stream when nobody is watching. Every frame is encoded
+ * once by a single {@link JpegFrameEncoder} thread, whatever the number of
+ * clients, and a slow client skips to the latest frame instead of having
+ * frames buffered for it.
+ * 
+ * @author Chris Hartley
+ */
+public class MjpegPreviewServer implements FrameListener {
+	
+	/** Static log4j logger instance for this class. */
+	private static final Logger logger = LogManager.getLogger(MjpegPreviewServer.class);
+	
+	
+	/**
+	 * The boundary delimiting the frames of the multipart stream.
+	 */
+	static final String BOUNDARY = "handemapperframe";
+	
+	
+	/**
+	 * The default maximum number of clients served at once.
+	 */
+	public static final int DEFAULT_MAX_CLIENTS = 8;
+	
+	
+	// Private member fields.
+	private final GestureRecognizer recognizer;
+	private final int port;
+	private final int maxClients;
+	private final List<MjpegClient> clients = new ArrayList<MjpegClient>();
+	
+	// Private member data.
+	private volatile boolean running = false;
+	private ServerSocket serverSocket = null;
+	private volatile JpegFrameEncoder encoder = null;
+	private Thread acceptThread = null;
+	
+	
+	/**
+	 * Constructor for a new instance of a server streaming the preview of
+	 * the specified recognizer on the specified loopback port, serving the
+	 * default maximum number of clients.
+	 * 
+	 * @param recognizer	The recognizer publishing the preview frames.
+	 * @param port			The loopback port to listen on, or {@code 0} for
+	 * 						any free port.
+	 */
+	public MjpegPreviewServer(GestureRecognizer recognizer, int port) {
+		this(recognizer, port, DEFAULT_MAX_CLIENTS);
+	}
+	
+	
+	/**
+	 * Constructor for a new instance of a server streaming the preview of
+	 * the specified recognizer on the specified loopback port.
+	 * 
+	 * @param recognizer	The recognizer publishing the preview frames.
+	 * @param port			The loopback port to listen on, or {@code 0} for
+	 * 						any free port.
+	 * @param maxClients	The maximum number of clients served at once; must
+	 * 						be at least one.
+	 */
+	public MjpegPreviewServer(GestureRecognizer recognizer, int port,
+			int maxClients)
+	{
+		if (recognizer == null)
+			throw new IllegalArgumentException("Recognizer must not be null!");
+		if (port < 0 || port > 0xFFFF)
+			throw new IllegalArgumentException("Invalid port: " + port);
+		if (maxClients < 1)
+			throw new IllegalArgumentException("Max clients must be >= 1: "
+					+ maxClients);
+		
+		this.recognizer = recognizer;
+		this.port = port;
+		this.maxClients = maxClients;
+	}
+	
+	
+	/**
+	 * Binds the loopback port and starts accepting clients. This does nothing
+	 * if the server is already running.
+	 * 
+	 * @throws IOException	if the port cannot be bound.
+	 */
+	public synchronized void start() throws IOException {
+		if (running)
+			return;
+		
+		final ServerSocket socket = new ServerSocket();
+		socket.setReuseAddress(true);
+		socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		serverSocket = socket;
+		
+		encoder = new JpegFrameEncoder(BOUNDARY, JpegFrameEncoder.DEFAULT_QUALITY);
+		encoder.start();
+		
+		running = true;
+		acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptClients(socket);
+			}
+		}, "MjpegServer-" + socket.getLocalPort());
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+		
+		logger.info("MJPEG preview available at http://"
+				+ socket.getInetAddress().getHostAddress() + ":"
+				+ socket.getLocalPort() + "/");
+	}
+	
+	
+	/**
+	 * Returns the port this server listens on, which is only known once
+	 * started when any free port was requested.
+	 * 
+	 * @return	the bound port, or the requested port if not running.
+	 */
+	public synchronized int getPort() {
+		return serverSocket != null ? serverSocket.getLocalPort() : port;
+	}
+	
+	
+	/**
+	 * Returns {@code true} if this server is accepting clients; otherwise,
+	 * returns {@code false}.
+	 * 
+	 * @return	whether this server is running.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+	
+	
+	/**
+	 * Returns the number of clients currently served.
+	 * 
+	 * @return	the number of connected clients.
+	 */
+	public int getClientCount() {
+		synchronized (clients) {
+			return clients.size();
+		}
+	}
+	
+	
+	/**
+	 * Accepts clients until the server socket is closed.
+	 */
+	private final void acceptClients(ServerSocket socket) {
+		while (running) {
+			try {
+				final Socket client = socket.accept();
+				if (!clientOpened(client))
+					reject(client);
+			}
+			catch (SocketException ex) {
+				// The server socket was closed by stop().
+				if (running)
+					logger.error("MJPEG server socket failed: " + ex);
+				break;
+			}
+			catch (IOException ex) {
+				logger.warn("Failed to accept an MJPEG client: " + ex);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Starts serving the specified client, registering this server for the
+	 * preview frames when it is the first client.
+	 * 
+	 * @return	{@code false} if the maximum number of clients is reached.
+	 */
+	private final boolean clientOpened(Socket socket) {
+		final MjpegClient client;
+		synchronized (clients) {
+			if (!running || clients.size() >= maxClients)
+				return false;
+			
+			client = new MjpegClient(this, encoder, socket);
+			clients.add(client);
+			if (clients.size() == 1) {
+				recognizer.addFrameListener(this);
+				logger.debug("First MJPEG client connected, preview requested.");
+			}
+		}
+		
+		client.start();
+		return true;
+	}
+	
+	
+	/**
+	 * Stops serving the specified client, unregistering this server from the
+	 * preview frames when it was the last client.
+	 * 
+	 * @param client	The client that was closed.
+	 */
+	void clientClosed(MjpegClient client) {
+		synchronized (clients) {
+			if (!clients.remove(client) || !clients.isEmpty())
+				return;
+			
+			recognizer.removeFrameListener(this);
+			encoder.clear();
+			logger.debug("Last MJPEG client disconnected, preview released.");
+		}
+	}
+	
+	
+	/**
+	 * Answers a client beyond the maximum number of clients and closes it.
+	 */
+	private final void reject(Socket socket) {
+		try {
+			final OutputStream out = socket.getOutputStream();
+			out.write(("HTTP/1.0 503 Service Unavailable\r\n"
+					+ "Connection: close\r\n\r\n")
+					.getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+		}
+		catch (IOException ex) {
+			// The client is rejected either way.
+		}
+		finally {
+			try {
+				socket.close();
+			}
+			catch (IOException ex) {
+				// Nothing left to do.
+			}
+		}
+	}
+	
+	
+	@Override
+	public void frameAvailable(FrameHandle frame) {
+		final JpegFrameEncoder current = encoder;
+		if (current != null) {
+			frame.lease();
+			current.offer(frame);
+		}
+	}
+	
+	
+	/**
+	 * Stops accepting clients, disconnects all clients and stops the encoder.
+	 * This does nothing if the server is not running.
+	 */
+	public synchronized void stop() {
+		if (!running)
+			return;
+		
+		running = false;
+		try {
+			serverSocket.close();
+		}
+		catch (IOException ex) {
+			logger.warn("Failed to close the MJPEG server socket: " + ex);
+		}
+		
+		final List<MjpegClient> closing;
+		synchronized (clients) {
+			closing = new ArrayList<MjpegClient>(clients);
+		}
+		for (MjpegClient client : closing)
+			client.close();
+		
+		recognizer.removeFrameListener(this);
+		encoder.shutdown();
+		logger.info("MJPEG preview on port " + serverSocket.getLocalPort()
+				+ " stopped.");
+	}
+
+}
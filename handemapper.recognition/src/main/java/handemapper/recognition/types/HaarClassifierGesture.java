@@ -8,15 +8,16 @@ import java.io.File;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
-import org.opencv.core.Core;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfRect;
 import org.opencv.core.Point;
 import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
-import org.opencv.imgproc.Imgproc;
 import org.opencv.objdetect.CascadeClassifier;
 
+import handemapper.common.recognition.Gesture;
+import handemapper.common.recognition.frame.FrameContext;
+import handemapper.common.recognition.frame.Overlay;
 import handemapper.recognition.AbstractGesture;
 
 /**
@@ -38,10 +39,17 @@ public class HaarClassifierGesture extends AbstractGesture {
 	 * Serial version user id
 	 */
 	private static final long serialVersionUID = 6269084053345285341L;
+	
+	
+	/**
+	 * The color of the circle marking the center of a detected object.
+	 */
+	private static final Scalar centerColor = convertColorToScalar(Color.YELLOW);
 
 	
 	// Private member data.
 	private CascadeClassifier cc = null;
+	private String ccFileName = null;
 	private Scalar sColor;
 	private Color color;
 	
@@ -97,6 +105,29 @@ public class HaarClassifierGesture extends AbstractGesture {
 	public HaarClassifierGesture(String name, String desc) {
 		super(name, desc);
 	}
+	
+	
+	/**
+	 * Copy constructor for a new duplicate of the specified gesture, with its
+	 * highlight color and a classifier of its own, since a
+	 * {@link CascadeClassifier} must not be used by several capture pipelines
+	 * at the same time. The classifier is loaded again from the file of the
+	 * original; a classifier that was set as an instance cannot be loaded
+	 * again, so the duplicate then detects nothing until it is given one.
+	 * 
+	 * @param original	The gesture to duplicate.
+	 */
+	protected HaarClassifierGesture(HaarClassifierGesture original) {
+		super(original);
+		if (original.color != null)
+			setHighLightColor(original.color);
+		
+		if (original.ccFileName != null)
+			setClassifier(original.ccFileName);
+		else if (original.cc != null)
+			logger.warn("The classifier of " + original + " was not set by file"
+					+ " name and cannot be loaded for its duplicate.");
+	}
 
 	
 	/* (non-Javadoc)
@@ -107,14 +138,15 @@ public class HaarClassifierGesture extends AbstractGesture {
 		if (cc == null)
 			return;
 		
-		Mat grayImg = new Mat();
-		MatOfRect objects = new MatOfRect();
+		final FrameContext frame = getFrameContext(matrix);
+		final Overlay overlay = frame.getOverlay();
+		Mat grayImg = frame.getGray();
+		MatOfRect objects = getArena().acquireRects();
 		Point pt1 = new Point(0, 0);
 		Point pt2 = new Point(0, 0);
 		Point center = new Point(0, 0);
 		Scalar color = null;//TOO_SMALL_OF_AREA_BOX_COLOR;
 		
-		Imgproc.cvtColor(matrix, grayImg, Imgproc.COLOR_RGB2GRAY);
 		cc.detectMultiScale(grayImg, objects);
 		
 		Rect[] shapes = objects.toArray();
@@ -123,12 +155,12 @@ public class HaarClassifierGesture extends AbstractGesture {
 			pt2 = shapes[i].br();
 			
 			color = getHighLightScalar();
-			Core.rectangle(matrix, pt1, pt2, color, 2);
+			overlay.rectangle(pt1, pt2, color, 2);
 			
 			center.x = pt1.x + (pt2.x - pt1.x) / 2.0;
 			center.y = pt1.y + (pt2.y - pt1.y) / 2.0; 
 		
-			Core.circle(matrix, center, 5, convertColorToScalar(Color.YELLOW));
+			overlay.circle(center, 5, centerColor, 1);
 			fireGestureDetected(0, (int)center.x, (int)center.y);
 		}
 		// TODO: this.notifyGestureListeners(shapes);
@@ -150,11 +182,15 @@ public class HaarClassifierGesture extends AbstractGesture {
 	
 	
 	/**
+	 * Sets the classifier to detect with. A classifier set as an instance
+	 * cannot be given to the duplicates of this gesture on other devices; use
+	 * {@link #setClassifier(String)} for those.
 	 * 
 	 * @param cc	The Haar-like cascading classifier to use.
 	 */
 	public void setClassifier(CascadeClassifier cc) {
 		this.cc = cc;
+		this.ccFileName = null;
 	}
 	
 	
@@ -164,6 +200,7 @@ public class HaarClassifierGesture extends AbstractGesture {
 	 */
 	public void setClassifier(String ccFileName) {
 		setClassifier( loadClassifier(ccFileName) );
+		this.ccFileName = ccFileName;
 	}
 	
 	
@@ -176,6 +213,15 @@ public class HaarClassifierGesture extends AbstractGesture {
 	}
 	
 	
+	/**
+	 * Returns a duplicate with the highlight color and its own classifier.
+	 */
+	@Override
+	public Gesture duplicate() {
+		return new HaarClassifierGesture(this);
+	}
+	
+	
 	/**
 	 * 
 	 * @param cPath the relative or absolute path to the cascade classifier; the
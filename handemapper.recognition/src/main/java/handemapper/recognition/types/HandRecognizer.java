@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfInt;
 import org.opencv.core.MatOfInt4;
@@ -16,10 +16,13 @@ import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
 import handemapper.recognition.AbstractGesture;
+import handemapper.recognition.MatArena;
 import handemapper.recognition.skin.SkinRecognizer;
-import handemapper.recognition.skin.YCrCbSkinDetector;
 
+import handemapper.common.recognition.Gesture;
 import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.frame.FrameContext;
+import handemapper.common.recognition.frame.Overlay;
 
 
 /**
@@ -46,6 +49,13 @@ public class HandRecognizer extends AbstractGesture {
 	
 	private static final Scalar ycrcbPresetMin = new Scalar(0, 131, 80);
 	private static final Scalar ycrcbPresetMax = new Scalar(255, 185, 135);
+	
+	/* The colors of the annotations recorded in the frame overlay. */
+	private static final Scalar contourColor = new Scalar(0, 255, 0);
+	private static final Scalar hullColor = new Scalar(200, 125, 75);
+	private static final Scalar fingerTipColor = new Scalar(255, 0, 0);
+	private static final Scalar fingerValleyColor = new Scalar(255, 255, 0);
+	private static final Scalar palmCenterColor = new Scalar(0, 0, 255);
 	private Scalar ycrcbMin = ycrcbPresetMin;
 	private Scalar ycrcbMax = ycrcbPresetMax;
 	
@@ -64,6 +74,8 @@ public class HandRecognizer extends AbstractGesture {
 	*/
 	private int[] defectsArray = {};
 	MatOfPoint biggestContour = null;
+	
+	private final List<MatOfPoint> contours = new ArrayList<MatOfPoint>();
 
 	private Point currentPos = new Point();
 	private double currentArea = 0.0;
@@ -117,6 +129,19 @@ public class HandRecognizer extends AbstractGesture {
 	public HandRecognizer(String name, String desc, boolean enabled) {
 		super(name, desc, enabled);
 	}
+	
+	
+	/**
+	 * Copy constructor for a new duplicate of the specified recognizer, with
+	 * its skin color bounds but none of its detection state.
+	 * 
+	 * @param original	The recognizer to duplicate.
+	 */
+	protected HandRecognizer(HandRecognizer original) {
+		super(original);
+		this.ycrcbMin = original.ycrcbMin.clone();
+		this.ycrcbMax = original.ycrcbMax.clone();
+	}
 
 	private final SkinRecognizer skinRec =
 			//new handemapper.recognition.skin.ForeheadHistogramRecognizer();
@@ -127,9 +152,10 @@ public class HandRecognizer extends AbstractGesture {
 	@Override
 	public void detect(Mat matrix) {
 		boolean contourFound = false;
+		final FrameContext frame = getFrameContext(matrix);
 		
 		if (needsInitializing()) {
-			Map<String, Integer> skinRng = skinRec.detectSkin(matrix);
+			Map<String, Integer> skinRng = skinRec.detectSkin(frame);
 			ycrcbMin = new Scalar(0, skinRng.get(SkinRecognizer.CrMIN), skinRng.get(SkinRecognizer.CbMIN));
 			ycrcbMax = new Scalar(255, skinRng.get(SkinRecognizer.CrMAX), skinRng.get(SkinRecognizer.CbMAX));
 			initialized();
@@ -139,17 +165,17 @@ public class HandRecognizer extends AbstractGesture {
 		//System.out.println("mid=[" + Arrays.toString(matrix.get(matrix.width() >> 1, matrix.height() >> 1)) + "]");
 			
 		// Detects skin pixels in the given Mat (image)
-		Mat skinImg = YCrCbSkinDetector.detectSkin(matrix, ycrcbMin, ycrcbMax);
+		Mat skinImg = frame.getSkinMask(ycrcbMin, ycrcbMax);
 		
 		cogShapePts.clear();
 		
 		if(showSkinImg)
 			skinImg.copyTo(matrix);
 		else {
-			contourFound = extractContourAndHull(matrix, skinImg);
+			contourFound = extractContourAndHull(frame.getOverlay(), skinImg);
 			
 			if(contourFound) {
-				detectAndCountFingers(matrix);
+				detectAndCountFingers(frame.getOverlay());
 				//this.pastHandInfo.push(new HandInfo(this.currentState, this.currentPos, this.currentArea));
 				
 				/*if(pastHandInfo.toArray().length >= 2)
@@ -167,21 +193,29 @@ public class HandRecognizer extends AbstractGesture {
 	/**
 	 * Obtains the contour and contour hull of the given image
 	 * 
-	 * @param origImg RGB-colored frame from camera feed
+	 * @param overlay Overlay of the frame to record the annotations in
 	 * @param skinImg Grayscale image of object
 	 * @throws NullContourException 
 	 * @return Boolean indicating if contour was found or not
 	 */
-	private boolean extractContourAndHull(Mat origImg, Mat skinImg) {
-		List<MatOfPoint> contours = new ArrayList<>();
-		MatOfPoint2f currentContour = new MatOfPoint2f();
+	private boolean extractContourAndHull(Overlay overlay, Mat skinImg) {
+		final MatArena arena = getArena();
+		MatOfPoint2f currentContour = arena.acquirePoints2f();
 		//Point[] vertices = {};
 		
-		// Obtains the contours in the binary skin image
-		Imgproc.findContours(skinImg, contours, new Mat(), Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+		// Obtains the contours in a copy of the binary skin image, since the
+		// search modifies its input and the mask is shared by the frame; the
+		// copy and the contours are released with the arena at the end of the
+		// frame
+		final Mat contourImg = arena.acquire();
+		skinImg.copyTo(contourImg);
+		contours.clear();
+		Imgproc.findContours(contourImg, contours, arena.acquire(), Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+		arena.trackAll(contours);
 		
 		// Obtains the biggest contour from the found contours
 		double biggestArea = 0;
+		biggestContour = null;
 		for(int i = 0; i < contours.size(); i++) {
 			double curArea = Imgproc.contourArea(contours.get(i));
 			
@@ -198,23 +232,23 @@ public class HandRecognizer extends AbstractGesture {
 		
 		this.currentArea = biggestArea;
 		
-		MatOfPoint2f contourCpy = new MatOfPoint2f(biggestContour.toArray());
+		MatOfPoint2f contourCpy = arena.acquirePoints2f();
+		biggestContour.convertTo(contourCpy, CvType.CV_32F);
 		
 		// Approximates the biggest contour
 		Imgproc.approxPolyDP(contourCpy, currentContour, Imgproc.arcLength(contourCpy, true) * 0.0025, true);
 		
 		// Draws the approximated contour using green-colored lines
-		List<MatOfPoint> tempContourList = new ArrayList<>();
-		tempContourList.add(new MatOfPoint(currentContour.toArray()));
-		Imgproc.drawContours(origImg, tempContourList, -1, new Scalar(0, 255, 0));
-		biggestContour = new MatOfPoint(currentContour.toArray());
+		biggestContour = arena.acquirePoints();
+		currentContour.convertTo(biggestContour, CvType.CV_32S);
+		overlay.contour(biggestContour, contourColor, 1);
 		
 		
 		// Obtains the smallest convex set that contains the biggest counter
 		Imgproc.convexHull(biggestContour, hull, true);
 		
 		// Obtains the rectangle with the smallest area that encloses the biggest contour
-		enclosingRect = Imgproc.minAreaRect(new MatOfPoint2f(biggestContour.toArray()));
+		enclosingRect = Imgproc.minAreaRect(currentContour);
 		
 		// Obtains the vertices of the enclosing rectangle
 		//enclosingRect.points(vertices);
@@ -233,13 +267,13 @@ public class HandRecognizer extends AbstractGesture {
 			hullPts[i] = hullPtsList.get(i);
 		}
 		
-		ArrayList<MatOfPoint> hullContour = new ArrayList<MatOfPoint>();
-		hullContour.add(new MatOfPoint(hullPts));
+		MatOfPoint hullContour = arena.acquirePoints();
+		hullContour.fromArray(hullPts);
 		
 		//cogShapePts = findLowestPoints(new ArrayList<Point>(Arrays.asList(hullPts)));
 		
 		// Draws a blue line outlining the convex set
-		Imgproc.drawContours(origImg, hullContour, -1, new Scalar(200, 125, 75));
+		overlay.contour(hullContour, hullColor, 1);
 		/*for(int i = 0; i < hullPts.length - 1; i++) {
 			Core.line(origImg, hullPts[i], hullPts[i+1], new Scalar(200, 125, 75), 2);
 		}*/
@@ -247,7 +281,7 @@ public class HandRecognizer extends AbstractGesture {
 		this.currentPos = new Point(enclosingRect.center.x, enclosingRect.center.y);
 		
 		// Draws a blue circle at the center of the enclosing rectangle
-		Core.circle(origImg, this.currentPos, 3, new Scalar(200, 125, 75), 2);
+		overlay.circle(this.currentPos, 3, hullColor, 2);
 		
 		filteredHull.clear();
 		
@@ -274,9 +308,9 @@ public class HandRecognizer extends AbstractGesture {
 	/**
 	 * Detects and counts the number of fingers the user is holding up
 	 * 
-	 * @param origImg RGB-colored frame from camera feed
+	 * @param overlay Overlay of the frame to record the annotations in
 	 */
-	private void detectAndCountFingers(Mat origImg) {
+	private void detectAndCountFingers(Overlay overlay) {
 		int fingerNum = 0;
 		Point[] contourPts = biggestContour.toArray();
 		
@@ -305,18 +339,18 @@ public class HandRecognizer extends AbstractGesture {
                 fingerNum++;
                 
                 // Draws a line from the tip of the finger to the "valley" between the two fingers
-                Core.line(origImg, startPoint, depthPoint, new Scalar(0, 255, 0));
+                overlay.line(startPoint, depthPoint, contourColor, 1);
                 
                 // Draws a blue circle at the tip of the finger
-                Core.circle(origImg, startPoint, 5, new Scalar(255, 0, 0));
+                overlay.circle(startPoint, 5, fingerTipColor, 1);
                 // Draws a green circle at the "valley" between the two fingers
-                Core.circle(origImg, depthPoint, 5, new Scalar(255, 255, 0));
+                overlay.circle(depthPoint, 5, fingerValleyColor, 1);
             }
 		}
 		
 		Point center = new Point();
 		float radius[] = {0};
-		MatOfPoint ptMap = new MatOfPoint();
+		MatOfPoint2f ptMap = getArena().acquirePoints2f();
 		
 		// Obtains the leftmost and right most depth points used to count fingers
 		Point farLeft = new Point(-1, -1), farRight = new Point(-1, -1);
@@ -334,9 +368,9 @@ public class HandRecognizer extends AbstractGesture {
 		//cogShapePts = findCirclePoints(cogShapePts);
 		ptMap.fromArray(newPts/*cogShapePts*/.toArray(new Point[1]));
 		
-		Imgproc.minEnclosingCircle(new MatOfPoint2f(ptMap.toArray()), center, radius); // Pass radius to fireGestureDetected()
-		Core.circle(origImg, center, (int)radius[0], new Scalar(255, 255, 0));
-		Core.circle(origImg, center, 4, new Scalar(0, 0, 255));
+		Imgproc.minEnclosingCircle(ptMap, center, radius); // Pass radius to fireGestureDetected()
+		overlay.circle(center, (int)radius[0], fingerValleyColor, 1);
+		overlay.circle(center, 4, palmCenterColor, 1);
 		
 		this.currentPos = center;
 		
@@ -391,6 +425,15 @@ public class HandRecognizer extends AbstractGesture {
 	}
 	
 	
+	/**
+	 * Returns a duplicate with the skin color bounds of this recognizer.
+	 */
+	@Override
+	public Gesture duplicate() {
+		return new HandRecognizer(this);
+	}
+	
+	
 	public ArrayList<Point> findCirclePoints(ArrayList<Point> pts) {
 		ArrayList<Point> lowPts = new ArrayList<Point>();
 		Point lowPt = null, leftPt = null, rightPt = null;
@@ -0,0 +1,104 @@
+/**
+ * 
+ */
+package handemapper.recognition.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+
+/**
+ * Provides a direct conversion of an OpenCV {@link Mat} into a
+ * {@link BufferedImage} of type {@link BufferedImage#TYPE_3BYTE_BGR}, whose
+ * pixel layout matches the BGR layout of the matrix. The bytes are copied in
+ * bulk into the image's {@link DataBufferByte}, so there is no encoding or
+ * decoding involved, and an optional mirror flip is done natively into a
+ * reused matrix.
+ * <p>The target image is supplied by the caller, typically from a pool of
+ * images that are recycled once their consumers are done with them, and is
+ * only re-allocated when the frame size changes.
+ * <p>A converter is not thread-safe and must only be used by the thread
+ * publishing the frames.
+ * 
+ * @author Chris Hartley
+ */
+public class MatImageConverter {
+	
+	// Private member fields.
+	private final boolean mirror;
+	private final Mat flipped = new Mat();
+	private final Mat converted = new Mat();
+	
+	
+	/**
+	 * Constructor for a new instance of a converter.
+	 * 
+	 * @param mirror	Whether to flip the images horizontally.
+	 */
+	public MatImageConverter(boolean mirror) {
+		this.mirror = mirror;
+	}
+	
+	
+	/**
+	 * Converts the specified BGR or grayscale matrix into the specified
+	 * image, or into a new image if the specified one is {@code null} or
+	 * does not have the size of the matrix. The matrix itself is not
+	 * modified.
+	 * 
+	 * @param img		The matrix of type {@code CV_8UC3} (BGR) or
+	 * 					{@code CV_8UC1}.
+	 * @param target	The {@link BufferedImage#TYPE_3BYTE_BGR} image to
+	 * 					reuse, or {@code null}.
+	 * @return	the converted image; either the target or a new image.
+	 */
+	public BufferedImage convert(Mat img, BufferedImage target) {
+		Mat src = img;
+		if (src.type() == CvType.CV_8UC1) {
+			Imgproc.cvtColor(src, converted, Imgproc.COLOR_GRAY2BGR);
+			src = converted;
+		}
+		else if (src.type() != CvType.CV_8UC3) {
+			throw new IllegalArgumentException("Unsupported matrix type: "
+					+ CvType.typeToString(src.type()));
+		}
+		
+		if (mirror) {
+			Core.flip(src, flipped, 1);
+			src = flipped;
+		}
+		else if (!src.isContinuous()) {
+			src.copyTo(flipped);
+			src = flipped;
+		}
+		
+		BufferedImage image = target;
+		if (image == null || image.getWidth() != src.cols()
+				|| image.getHeight() != src.rows()
+				|| image.getType() != BufferedImage.TYPE_3BYTE_BGR)
+		{
+			image = new BufferedImage(src.cols(), src.rows(),
+					BufferedImage.TYPE_3BYTE_BGR);
+		}
+		
+		src.get(0, 0, ((DataBufferByte)image.getRaster().getDataBuffer())
+				.getData());
+		return image;
+	}
+	
+	
+	/**
+	 * Releases the native memory of the intermediate matrices. The converter
+	 * remains usable afterwards.
+	 */
+	public void release() {
+		flipped.release();
+		converted.release();
+	}
+
+}
@@ -0,0 +1,142 @@
+/**
+ * 
+ */
+package handemapper.recognition;
+
+import static org.junit.Assert.*;
+
+import handemapper.common.recognition.Gesture;
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+import handemapper.opencv.loader.OpenCvNativeLibrary;
+import handemapper.recognition.source.LoopingFrameSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+/**
+ * Drives the whole recognizer pipeline, i.e. capture thread, detection worker
+ * and event delivery, from a synthetic {@link LoopingFrameSource}, so it runs
+ * headless without any camera.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestGestureRecognizerImpl {
+
+    /** The number of frames to detect in. */
+    private static final int FRAMES = 60;
+
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        Assume.assumeTrue(OpenCvNativeLibrary.load());
+    }
+
+
+    /**
+     * Test method for the recognizer processing a {@link LoopingFrameSource}:
+     * every frame is detected in, in order and without drops, and the events
+     * fired by the gesture reach its listener.
+     */
+    @Test(timeout = 20000)
+    public final void testSyntheticSourcePipeline() throws InterruptedException {
+        final List<Mat> frames = new ArrayList<Mat>();
+        for (int i = 0; i < 3; i++)
+            frames.add(new Mat(120, 160, CvType.CV_8UC3, new Scalar(i * 80, 0, 0)));
+
+        final LoopingFrameSource source = new LoopingFrameSource(frames, 30d);
+        source.setPaced(false);
+        for (Mat frame : frames)
+            frame.release();
+
+        final FrameGesture gesture = new FrameGesture();
+        final CountDownLatch delivered = new CountDownLatch(FRAMES);
+        gesture.addGestureListener(new GestureListener() {
+            @Override
+            public void gestureDetected(GestureEvent ge) {
+                delivered.countDown();
+            }
+        });
+
+        final GestureRecognizerImpl gr = new GestureRecognizerImpl(source, false);
+        gr.register(gesture);
+        assertTrue("Pipeline not started", gr.start());
+        try {
+            assertTrue("Frames not detected in",
+                    gesture.detected.await(10, TimeUnit.SECONDS));
+            assertTrue("Events not delivered",
+                    delivered.await(10, TimeUnit.SECONDS));
+        }
+        finally {
+            gr.stop();
+        }
+
+        assertNull(gesture.error, gesture.error);
+        assertEquals(1, gr.getDeviceInfos().size());
+        assertEquals(160, gr.getDeviceInfo().getWidth());
+        assertEquals(120, gr.getDeviceInfo().getHeight());
+    }
+
+
+    /**
+     * Fires one event for every frame it detects in, and checks that the
+     * frames arrive in the order of the loop, identified by their blue value.
+     */
+    private static final class FrameGesture extends AbstractGesture {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CountDownLatch detected = new CountDownLatch(FRAMES);
+        private volatile String error = null;
+        private long lastSequence = -1l;
+
+
+        private FrameGesture() {
+            super("Frame gesture");
+        }
+
+
+        /**
+         * Copy constructor for a duplicate of the specified gesture, checking
+         * the frames of another pipeline with a latch and state of its own.
+         */
+        private FrameGesture(FrameGesture original) {
+            super(original);
+        }
+
+
+        @Override
+        public Gesture duplicate() {
+            return new FrameGesture(this);
+        }
+
+
+        @Override
+        public void detect(Mat matrix) {
+            final long sequence = getCurrentFrame().getSequence();
+            final int blue = (int)matrix.get(0, 0)[0];
+            if (error == null && sequence != lastSequence + 1)
+                error = "Frame " + (lastSequence + 1) + " dropped, got " + sequence;
+            if (error == null && blue != (sequence % 3) * 80)
+                error = "Frame " + sequence + " out of order: " + blue;
+
+            lastSequence = sequence;
+            fireGestureDetected(GestureEvent.OPENED_HAND_DETECTED,
+                    matrix.cols() / 2, matrix.rows() / 2);
+            detected.countDown();
+        }
+
+    }
+
+}
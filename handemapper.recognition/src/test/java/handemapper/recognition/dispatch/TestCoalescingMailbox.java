@@ -0,0 +1,163 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import static org.junit.Assert.*;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.recognition.dispatch.GestureEventDispatcher.OverflowPolicy;
+
+import org.junit.Test;
+
+/**
+ * Tests the coalescing of the positions and transitions of the gestures by
+ * the {@link CoalescingMailbox}.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestCoalescingMailbox {
+
+    private static final int OPENED = GestureEvent.OPENED_HAND_DETECTED;
+    private static final int CLOSED = GestureEvent.CLOSED_HAND_DETECTED;
+
+    private final GestureEventDispatcher dispatcher =
+            new GestureEventDispatcher(1, 8, OverflowPolicy.DROP_OLDEST);
+    private final Object gesture = new Object();
+
+
+    /**
+     * Test method for the positions of a gesture: only the newest pending
+     * position is kept, and a transition supersedes it.
+     */
+    @Test
+    public final void testPositionsCoalesced() {
+        final CoalescingMailbox mailbox = new CoalescingMailbox(dispatcher, 8);
+        assertTrue(mailbox.offer(event(OPENED, 1)));
+        assertTrue(mailbox.offer(event(OPENED, 2)));
+        assertTrue(mailbox.offer(event(OPENED, 3)));
+        assertEquals(2, mailbox.size());
+
+        assertTrue(mailbox.offer(event(CLOSED, 4)));
+        assertEquals(2, mailbox.size());
+        assertEquals(1, mailbox.poll().getX());
+        assertEquals(4, mailbox.poll().getX());
+        assertNull(mailbox.poll());
+        assertEquals(2, dispatcher.getCoalescedEvents());
+    }
+
+
+    /**
+     * Test method for a gesture flickering between two ids, with positions
+     * in between: every transition is kept, in order, and only the
+     * positions are coalesced.
+     */
+    @Test
+    public final void testFlickerKeepsTransitions() {
+        final CoalescingMailbox mailbox = new CoalescingMailbox(dispatcher, 8);
+        int x = 0;
+        assertTrue(mailbox.offer(event(OPENED, x++)));
+        for (int i = 1; i <= 100; i++) {
+            final int id = i % 2 == 0 ? OPENED : CLOSED;
+            for (int j = 0; j < 3; j++)
+                offer(mailbox, event(id, x++));
+        }
+
+        assertTrue(mailbox.size() <= 102);
+        assertTransitions(mailbox, 101);
+    }
+
+
+    /**
+     * Test method for a full mailbox, overflowing like a lane dropping the
+     * oldest event: only positions are refused or dropped, the transitions
+     * of every gesture go beyond the capacity and all arrive, in order.
+     */
+    @Test
+    public final void testOverflowKeepsTransitions() {
+        final CoalescingMailbox mailbox = new CoalescingMailbox(dispatcher, 4);
+        final Object[] gestures = { gesture, new Object(), new Object() };
+        for (int i = 0; i < 30; i++) {
+            for (Object g : gestures) {
+                final int id = i % 3 == 2 ? CLOSED : OPENED;
+                offer(mailbox, new GestureEvent(g, id, 0l, i, 0));
+            }
+        }
+
+        // Each gesture is opened first, then changes 19 times
+        final int[] transitions = new int[gestures.length];
+        final int[] lastIds = { -1, -1, -1 };
+        GestureEvent ge;
+        while ((ge = mailbox.poll()) != null) {
+            for (int g = 0; g < gestures.length; g++) {
+                if (ge.getSource() == gestures[g] && ge.getID() != lastIds[g]) {
+                    lastIds[g] = ge.getID();
+                    transitions[g]++;
+                }
+            }
+        }
+        assertArrayEquals(new int[] { 20, 20, 20 }, transitions);
+    }
+
+
+    /**
+     * Test method for a full mailbox: positions are refused until the oldest
+     * position is dropped, while new gestures and transitions are always
+     * accepted and never dropped.
+     */
+    @Test
+    public final void testCapacity() {
+        final CoalescingMailbox mailbox = new CoalescingMailbox(dispatcher, 2);
+        final Object other = new Object();
+        assertTrue(mailbox.offer(event(OPENED, 1)));
+        assertTrue(mailbox.offer(event(OPENED, 2)));
+        assertTrue(mailbox.offer(new GestureEvent(other, OPENED, 0l, 3, 0)));
+        assertEquals(3, mailbox.size());
+        assertFalse(mailbox.offer(new GestureEvent(other, OPENED, 0l, 4, 0)));
+
+        assertTrue(mailbox.dropOldest());
+        assertFalse(mailbox.dropOldest());
+        assertTrue(mailbox.offer(new GestureEvent(other, CLOSED, 0l, 5, 0)));
+        assertEquals(1, mailbox.poll().getX());
+        assertEquals(3, mailbox.poll().getX());
+        assertEquals(5, mailbox.poll().getX());
+        assertNull(mailbox.poll());
+        assertFalse(mailbox.dropOldest());
+    }
+
+
+    /**
+     * Offers the specified event like a lane dropping the oldest event when
+     * the mailbox is full.
+     */
+    private static void offer(CoalescingMailbox mailbox, GestureEvent ge) {
+        if (!mailbox.offer(ge) && mailbox.dropOldest())
+            assertTrue(mailbox.offer(ge));
+    }
+
+
+    /**
+     * Polls the mailbox empty, asserting the specified number of
+     * alternating transitions of the gesture.
+     */
+    private void assertTransitions(CoalescingMailbox mailbox, int count) {
+        int transitions = 0;
+        int lastId = -1;
+        GestureEvent ge;
+        while ((ge = mailbox.poll()) != null) {
+            if (ge.getID() != lastId) {
+                assertEquals(transitions % 2 == 0 ? OPENED : CLOSED, ge.getID());
+                lastId = ge.getID();
+                transitions++;
+            }
+        }
+        assertEquals(count, transitions);
+    }
+
+
+    private GestureEvent event(int id, int x) {
+        return new GestureEvent(gesture, id, 0l, x, 0);
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package handemapper.recognition.dispatch;
+
+import static org.junit.Assert.*;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+import handemapper.recognition.dispatch.GestureEventDispatcher.DeliveryMode;
+import handemapper.recognition.dispatch.GestureEventDispatcher.OverflowPolicy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the delivery of the events of one listener by a {@link ListenerLane}.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestListenerLane {
+
+    /**
+     * Test method for a slow inline listener offered events by several
+     * threads: the watchdog demotes it, yet it is never entered twice at
+     * once and receives every event.
+     */
+    @Test(timeout = 10000)
+    public final void testSlowInlineListenerNotReentered() throws InterruptedException {
+        final GestureEventDispatcher dispatcher =
+                new GestureEventDispatcher(4, 64, OverflowPolicy.DROP_NEWEST);
+        dispatcher.setInlineBudgetNanos(1000000l);
+
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final GestureListener[] listeners = { new GestureListener() {
+            @Override
+            public void gestureDetected(GestureEvent ge) {
+                final int now = active.incrementAndGet();
+                if (now > maxActive.get())
+                    maxActive.set(now);
+                try {
+                    Thread.sleep(5);
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                active.decrementAndGet();
+            }
+        } };
+        dispatcher.setDeliveryMode(listeners[0], DeliveryMode.INLINE);
+
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10; i++)
+                        dispatcher.dispatch(new GestureEvent("hand", 0, i, i, i),
+                                listeners);
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        while (dispatcher.getDeliveredEvents() < 40)
+            Thread.sleep(10);
+        assertEquals(1, maxActive.get());
+        assertEquals(0l, dispatcher.getDroppedEvents());
+        assertTrue(dispatcher.getDemotions() > 0);
+    }
+
+}
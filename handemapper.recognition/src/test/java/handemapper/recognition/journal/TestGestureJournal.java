@@ -0,0 +1,142 @@
+/**
+ * 
+ */
+package handemapper.recognition.journal;
+
+import static org.junit.Assert.*;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.GestureListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests writing gesture events with a {@link GestureJournalWriter} and
+ * replaying them with a {@link GestureJournalReader}.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestGestureJournal {
+
+    /** The size of a segment holding eight records. */
+    private static final int SEGMENT_SIZE = JournalFormat.HEADER_SIZE
+            + 8 * JournalFormat.RECORD_SIZE;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+
+    /**
+     * Test method for a round trip over several segments: every field of
+     * every event is replayed as written, in order.
+     */
+    @Test
+    public final void testRoundTrip() throws IOException, InterruptedException {
+        final File dir = folder.newFolder();
+        final List<GestureEvent> written = new ArrayList<GestureEvent>();
+        final GestureJournalWriter writer = new GestureJournalWriter(dir, "test",
+                SEGMENT_SIZE, 100);
+        for (int i = 0; i < 40; i++) {
+            final GestureEvent ge = new GestureEvent(i % 3 == 0 ? "left" : "right",
+                    i % 2, 1000l + i, i * 2, i * 3, i % 2, 100l + i,
+                    5000l + i, 7000l + i);
+            writer.gestureDetected(ge);
+            written.add(ge);
+        }
+        writer.close();
+        assertEquals(40l, writer.getWrittenCount());
+        assertTrue(dir.listFiles().length > 1);
+
+        final List<GestureEvent> read = replay(new GestureJournalReader(dir), 1d);
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            final GestureEvent w = written.get(i);
+            final GestureEvent r = read.get(i);
+            assertEquals(w.getSource(), r.getSource());
+            assertEquals(w.getID(), r.getID());
+            assertEquals(w.getWhen(), r.getWhen());
+            assertEquals(w.getX(), r.getX());
+            assertEquals(w.getY(), r.getY());
+            assertEquals(w.getDeviceIndex(), r.getDeviceIndex());
+            assertEquals(w.getSequence(), r.getSequence());
+            assertEquals(w.getCaptureNanos(), r.getCaptureNanos());
+            assertEquals(w.getDetectedNanos(), r.getDetectedNanos());
+        }
+    }
+
+
+    /**
+     * Test method for the segment limit, which also counts the segments of
+     * earlier runs with the same prefix, but not those of other prefixes.
+     */
+    @Test
+    public final void testRetentionAcrossRuns() throws IOException, InterruptedException {
+        final File dir = folder.newFolder();
+        final File foreign = new File(dir, "other-1-0000" + JournalFormat.SUFFIX);
+        assertTrue(foreign.createNewFile());
+
+        for (int run = 0; run < 3; run++) {
+            final GestureJournalWriter writer = new GestureJournalWriter(dir,
+                    "test", SEGMENT_SIZE, 3);
+            for (int i = 0; i < 20; i++)
+                writer.gestureDetected(new GestureEvent("hand", 0, 1000l + i, i, i));
+            writer.close();
+            Thread.sleep(5);
+        }
+
+        int segments = 0;
+        for (File file : dir.listFiles()) {
+            if (file.getName().startsWith("test-"))
+                segments++;
+        }
+        assertEquals(3, segments);
+        assertTrue(foreign.exists());
+    }
+
+
+    /**
+     * Test method for the pacing of a replay at the original speed: neither
+     * the time between two runs nor a clock set back within a run delays
+     * the replay.
+     */
+    @Test(timeout = 5000)
+    public final void testPacingRestartsPerRun() throws IOException, InterruptedException {
+        final File dir = folder.newFolder();
+        final long[][] runs = { { 1000l, 1010l }, { 3600000l, 3600010l, 50l, 60l } };
+        for (long[] times : runs) {
+            final GestureJournalWriter writer = new GestureJournalWriter(dir,
+                    "test", SEGMENT_SIZE, 100);
+            for (long when : times)
+                writer.gestureDetected(new GestureEvent("hand", 0, when, 0, 0));
+            writer.close();
+            Thread.sleep(5);
+        }
+
+        final long start = System.nanoTime();
+        assertEquals(6, replay(new GestureJournalReader(dir), 1d).size());
+        assertTrue((System.nanoTime() - start) / 1000000l < 1000l);
+    }
+
+
+    private static List<GestureEvent> replay(GestureJournalReader reader, double speed)
+            throws IOException, InterruptedException
+    {
+        final List<GestureEvent> read = new ArrayList<GestureEvent>();
+        reader.replay(speed, new GestureListener() {
+            @Override
+            public void gestureDetected(GestureEvent ge) {
+                read.add(ge);
+            }
+        });
+        return read;
+    }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * 
+ */
+package handemapper.recognition.sequence;
+
+import static org.junit.Assert.*;
+
+import handemapper.common.recognition.event.GestureEvent;
+import handemapper.common.recognition.event.SequenceEvent;
+import handemapper.recognition.sequence.GestureSequenceEngine.State;
+
+import org.junit.Test;
+
+/**
+ * Tests the default rules of the {@link GestureSequenceEngine} against a
+ * table of hand event scripts. A script lists the events of one hand as
+ * {@code "HAND X Y @MILLIS"}, separated by semicolons, where {@code HAND} is
+ * {@code O} for an opened and {@code C} for a closed hand.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestGestureSequenceEngine {
+
+    /** The name, script, emitted types and final state of each case. */
+    private static final Object[][] CASES = {
+        { "grab",            "C 0 0 @0", "GRAB", State.HOLDING },
+        { "hold still",      "C 0 0 @0; C 1 0 @33; C 1 1 @66", "GRAB", State.HOLDING },
+        { "drag",            "C 0 0 @0; C 10 0 @33; C 20 0 @66", "GRAB DRAG DRAG", State.DRAGGING },
+        { "drag then stop",  "C 0 0 @0; C 10 0 @33; C 10 0 @66", "GRAB DRAG", State.HOLDING },
+        { "drop",            "C 0 0 @0; O 0 0 @33", "GRAB DROP", State.RELEASED },
+        { "drop after drag", "C 0 0 @0; C 10 0 @33; O 15 0 @66", "GRAB DRAG DROP", State.RELEASED },
+        { "throw",           "C 0 0 @0; C 50 0 @33; O 100 0 @66", "GRAB DRAG THROW", State.RELEASED },
+        { "gap reset",       "C 0 0 @0; C 50 0 @33; O 100 0 @633", "GRAB DRAG DROP", State.RELEASED },
+        { "clock set back",  "C 0 0 @1000; C 50 0 @1033; O 100 0 @500", "GRAB DRAG DROP", State.RELEASED },
+        { "opened only",     "O 0 0 @0; O 50 0 @33", "", State.RELEASED },
+        { "grab again",      "C 0 0 @0; O 0 0 @33; C 0 0 @66", "GRAB DROP GRAB", State.HOLDING },
+    };
+
+
+    /**
+     * Test method for the default rules: each script emits the expected
+     * sequence types and leaves the hand in the expected state.
+     */
+    @Test
+    public final void testDefaultRules() {
+        for (Object[] c : CASES) {
+            final GestureSequenceEngine engine = new GestureSequenceEngine(1d);
+            engine.addDefaultRules();
+
+            final StringBuilder emitted = new StringBuilder();
+            for (String step : ((String)c[1]).split(";")) {
+                final SequenceEvent se = engine.update(event(step.trim()));
+                if (se != null)
+                    emitted.append(emitted.length() > 0 ? " " : "").append(se.getType());
+            }
+
+            assertEquals(c[0] + ": emitted", c[2], emitted.toString());
+            assertEquals(c[0] + ": state", c[3], engine.getState(-1));
+        }
+    }
+
+
+    /**
+     * Test method for the kinematics handed on with a throw: the velocity
+     * points in the direction of the throw, and the acceleration of a hand
+     * speeding up until it opens is positive.
+     */
+    @Test
+    public final void testThrowKinematics() {
+        final GestureSequenceEngine engine = new GestureSequenceEngine(1d);
+        engine.addDefaultRules();
+        engine.update(event("C 0 0 @0"));
+        engine.update(event("C 10 0 @33"));
+        engine.update(event("C 40 0 @66"));
+
+        final SequenceEvent se = engine.update(event("O 100 0 @99"));
+        assertEquals(SequenceEvent.Type.THROW, se.getType());
+        assertTrue(se.getVelocityX() > GestureSequenceEngine.DEFAULT_FAST_SPEED);
+        assertEquals(0d, se.getVelocityY(), 1e-9);
+        assertTrue(se.getAccelerationX() > 0d);
+        assertEquals(se.getAccelerationX(), se.getAcceleration(), 1e-9);
+    }
+
+
+    /**
+     * Returns the event of the specified script step.
+     */
+    private static GestureEvent event(String step) {
+        final String[] tokens = step.split("\\s+");
+        final int id = "C".equals(tokens[0]) ? GestureEvent.CLOSED_HAND_DETECTED
+                : GestureEvent.OPENED_HAND_DETECTED;
+        return new GestureEvent(TestGestureSequenceEngine.class, id,
+                Long.parseLong(tokens[3].substring(1)),
+                Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]));
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package handemapper.recognition.skin;
+
+import handemapper.opencv.loader.OpenCvNativeLibrary;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Compares the per-frame cost of the former static skin detection, which
+ * converted every frame to YCrCb and created its mask and structuring
+ * elements on every call, with a reused {@link YCrCbSkinDetector}. Logs the
+ * time and the Java heap allocated per frame.
+ * <p>A benchmark rather than a unit test, so it is skipped unless the
+ * {@code handemapper.benchmark} system property is set; run it with:
+ * <p><code>
+ *<pre>mvn test -Dtest=YCrCbSkinDetectorBenchmark -Dhandemapper.benchmark=true [-Dhandemapper.benchmark.frames=500]</pre>
+ * </code>
+ *
+ * @author Chris Hartley
+ *
+ */
+public class YCrCbSkinDetectorBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(YCrCbSkinDetectorBenchmark.class);
+
+    private static final int ROWS = 480;
+    private static final int COLS = 640;
+    private static final Scalar MIN = new Scalar(0, 131, 80);
+    private static final Scalar MAX = new Scalar(255, 185, 135);
+
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        Assume.assumeTrue(Boolean.getBoolean("handemapper.benchmark"));
+        Assume.assumeTrue(OpenCvNativeLibrary.load());
+        if (!LogManager.getRootLogger().getAllAppenders().hasMoreElements())
+            BasicConfigurator.configure();
+    }
+
+
+    /**
+     * Benchmarks the legacy detection and the detector, with and without the
+     * fused opening and closing, over three rounds.
+     */
+    @Test
+    public final void benchmarkDetection() {
+        final int frames = Integer.getInteger("handemapper.benchmark.frames", 500);
+        final Mat frame = new Mat(ROWS, COLS, CvType.CV_8UC3);
+        Core.randu(frame, 0, 255);
+        Core.rectangle(frame, new Point(100, 100), new Point(300, 300),
+                new Scalar(120, 150, 220), -1);
+
+        final YCrCbSkinDetector detector = new YCrCbSkinDetector(ROWS, COLS);
+        final YCrCbSkinDetector fused = new YCrCbSkinDetector(ROWS, COLS,
+                YCrCbSkinDetector.Morphology.OPEN_CLOSE);
+
+        // Warms up the JIT and builds the lookup table
+        for (int i = 0; i < 50; i++) {
+            detectLegacy(frame).release();
+            detector.detect(frame, MIN, MAX);
+            fused.detect(frame, MIN, MAX);
+        }
+
+        logger.info(String.format("%d frames of %dx%d", frames, COLS, ROWS));
+        for (int round = 0; round < 3; round++) {
+            report("static (legacy)", frames, new Runnable() {
+                @Override
+                public void run() {
+                    detectLegacy(frame).release();
+                }
+            });
+            report("detector", frames, new Runnable() {
+                @Override
+                public void run() {
+                    detector.detect(frame, MIN, MAX);
+                }
+            });
+            report("detector open/close", frames, new Runnable() {
+                @Override
+                public void run() {
+                    fused.detect(frame, MIN, MAX);
+                }
+            });
+        }
+
+        detector.release();
+        fused.release();
+        frame.release();
+    }
+
+
+    /**
+     * Runs the specified detection for the frames and logs its cost per
+     * frame.
+     */
+    private static void report(String name, int frames, Runnable detection) {
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+            detection.run();
+        final long nanos = System.nanoTime() - start;
+        final long bytes = allocatedBytes() - startBytes;
+
+        logger.info(String.format("%-20s %8.3f ms %10d heap bytes per frame",
+                name, nanos / 1e6 / frames, bytes < 0l ? -1l : bytes / frames));
+    }
+
+
+    /**
+     * Returns the Java heap allocated by the current thread, or {@code -1} if
+     * not supported by the JVM.
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1l;
+    }
+
+
+    /**
+     * The former static detection, kept as the baseline; the intermediate
+     * matrices are released so the native memory does not pile up until
+     * finalization.
+     */
+    private static Mat detectLegacy(Mat img) {
+        Mat ycrcbImg = new Mat();
+        Imgproc.cvtColor(img, ycrcbImg, Imgproc.COLOR_BGR2YCrCb);
+
+        Mat skinImg = new Mat(ycrcbImg.width(), ycrcbImg.height(), CvType.CV_8UC1);
+        Core.inRange(ycrcbImg, MIN, MAX, skinImg);
+
+        Mat erodeKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(6, 6));
+        Imgproc.erode(skinImg, skinImg, erodeKernel, new Point(3, 3), 2);
+
+        Mat dilateKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+        Imgproc.dilate(skinImg, skinImg, dilateKernel, new Point(1, 1), 2);
+
+        ycrcbImg.release();
+        erodeKernel.release();
+        dilateKernel.release();
+        return skinImg;
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * 
+ */
+package handemapper.recognition.stream;
+
+import static org.junit.Assert.*;
+
+import handemapper.opencv.loader.OpenCvNativeLibrary;
+import handemapper.recognition.GestureRecognizerImpl;
+import handemapper.recognition.source.LoopingFrameSource;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+/**
+ * Streams the preview of a recognizer fed by a synthetic source through the
+ * {@link MjpegPreviewServer} and reads it back over the loopback interface.
+ *
+ * @author Chris Hartley
+ *
+ */
+public class TestMjpegPreviewServer {
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        Assume.assumeTrue(OpenCvNativeLibrary.load());
+    }
+
+
+    /**
+     * Test method for a client connecting to the server: the response is a
+     * multipart stream whose parts are complete JPEG images of the frame size.
+     */
+    @Test(timeout = 20000)
+    public final void testLoopbackStream() throws IOException {
+        final Mat frame = new Mat(120, 160, CvType.CV_8UC3, new Scalar(40, 80, 160));
+        final LoopingFrameSource source = new LoopingFrameSource(
+                Collections.singletonList(frame), 30d);
+        frame.release();
+
+        final GestureRecognizerImpl gr = new GestureRecognizerImpl(source, false);
+        final MjpegPreviewServer server = new MjpegPreviewServer(gr, 0);
+        assertTrue("Pipeline not started", gr.start());
+        server.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                server.getPort()))
+        {
+            final OutputStream out = socket.getOutputStream();
+            out.write("GET / HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals("HTTP/1.0 200 OK", readLine(in));
+            String contentType = null;
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                if (line.startsWith("Content-Type: "))
+                    contentType = line.substring(14);
+            }
+            assertEquals("multipart/x-mixed-replace; boundary="
+                    + MjpegPreviewServer.BOUNDARY, contentType);
+
+            for (int part = 0; part < 3; part++) {
+                assertEquals("--" + MjpegPreviewServer.BOUNDARY, readLine(in));
+                assertEquals("Content-Type: image/jpeg", readLine(in));
+                final String length = readLine(in);
+                assertTrue(length, length.startsWith("Content-Length: "));
+                assertEquals("", readLine(in));
+
+                final byte[] jpeg = new byte[Integer.parseInt(length.substring(16))];
+                in.readFully(jpeg);
+                assertEquals("", readLine(in));
+
+                final BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+                assertNotNull("Part " + part + " is not a JPEG image", image);
+                assertEquals(160, image.getWidth());
+                assertEquals(120, image.getHeight());
+            }
+            assertEquals(1, server.getClientCount());
+        }
+        finally {
+            server.stop();
+            gr.stop();
+        }
+    }
+
+
+    /**
+     * Reads an ASCII line ended by CRLF, without the line break.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0)
+                throw new IOException("Stream ended within a line: " + line);
+            if (c != '\r')
+                line.append((char)c);
+        }
+        return line.toString();
+    }
+
+}